@@ -155,6 +155,51 @@ public class Configuration extends Observable {
 	 */
 	private String dataTempPath = "";
 
+	/**
+	 * Flag if miniSEED record indexes are stored and used to skip header scans of unchanged files
+	 */
+	private boolean useRecordIndex = false;
+
+	/**
+	 * Flag if loaded miniSEED files are watched for appended data
+	 */
+	private boolean watchData = false;
+
+	/**
+	 * Location of miniSEED record index storage
+	 */
+	private String recordIndexPath = "";
+
+	/**
+	 * Location of the cache of miniSEED data downloaded from FDSN data services
+	 */
+	private String dataCachePath = "";
+
+	/**
+	 * Root directory of an SDS archive to load data from, empty if none
+	 */
+	private String sdsPath = "";
+
+	/**
+	 * SeedLink server and selected data to receive, host[:port][/NET.STA.LOC.CHA], empty if none
+	 */
+	private String seedLink = "";
+
+	/**
+	 * Share of a requested time window loaded beyond each of its ends, so panning doesn't wait
+	 */
+	private double prefetchMargin = 0.5;
+
+	/**
+	 * Store keeping samples of loaded traces: heap, direct, mapped or compressed
+	 */
+	private String sampleStore = "heap";
+
+	/**
+	 * Size of decoded blocks kept by the compressed sample store, MiB
+	 */
+	private int decodedCacheSize = 64;
+
 	/**
 	 * Full pathname for stations definition file
 	 */
@@ -212,6 +257,11 @@ public class Configuration extends Observable {
 
 	private Set<String> filterLocation = null;
 
+	/**
+	 * Filters above compiled, built on first use after a filter is set
+	 */
+	private volatile SNCLFilter snclFilter = null;
+
 	/**
 	 * Sets whether to use station XML or RESP metadata file formats
 	 * @param preferred True to default to station XML files
@@ -343,6 +393,182 @@ public class Configuration extends Observable {
 		this.dataTempPath = dataTempPath;
 	}
 
+	/**
+	 * Getter of the property <tt>watchData</tt>
+	 * 
+	 * @return flag if loaded miniSEED files should be watched for appended data
+	 */
+	public boolean getWatchData() {
+		return watchData;
+	}
+
+	/**
+	 * Setter of the property <tt>watchData</tt>
+	 * 
+	 * @param watchData
+	 *            flag if loaded miniSEED files should be watched for appended data
+	 */
+	public void setWatchData(boolean watchData) {
+		this.watchData = watchData;
+	}
+
+	/**
+	 * Getter of the property <tt>useRecordIndex</tt>
+	 * 
+	 * @return flag if miniSEED record indexes should be stored and used
+	 */
+	public boolean getUseRecordIndex() {
+		return useRecordIndex;
+	}
+
+	/**
+	 * Setter of the property <tt>useRecordIndex</tt>
+	 * 
+	 * @param useRecordIndex
+	 *            flag if miniSEED record indexes should be stored and used
+	 */
+	public void setUseRecordIndex(boolean useRecordIndex) {
+		this.useRecordIndex = useRecordIndex;
+	}
+
+	/**
+	 * Getter of the property <tt>recordIndexPath</tt>
+	 * 
+	 * @return location of miniSEED record index storage.
+	 */
+	public String getRecordIndexPath() {
+		return recordIndexPath.replace("." + File.separator, getConfigFileDir());
+	}
+
+	/**
+	 * Setter of the property <tt>recordIndexPath</tt>
+	 * 
+	 * @param recordIndexPath
+	 *            location of miniSEED record index storage
+	 */
+	public void setRecordIndexPath(String recordIndexPath) {
+		this.recordIndexPath = recordIndexPath;
+	}
+
+	/**
+	 * Getter of the property <tt>dataCachePath</tt>
+	 * 
+	 * @return location of the cache of miniSEED data downloaded from FDSN data services.
+	 */
+	public String getDataCachePath() {
+		return dataCachePath.replace("." + File.separator, getConfigFileDir());
+	}
+
+	/**
+	 * Setter of the property <tt>dataCachePath</tt>
+	 * 
+	 * @param dataCachePath
+	 *            location of the cache of miniSEED data downloaded from FDSN data services
+	 */
+	public void setDataCachePath(String dataCachePath) {
+		this.dataCachePath = dataCachePath;
+	}
+
+	/**
+	 * Getter of the property <tt>sdsPath</tt>
+	 * 
+	 * @return root directory of an SDS archive to load data from, empty if none
+	 */
+	public String getSDSPath() {
+		return sdsPath;
+	}
+
+	/**
+	 * Setter of the property <tt>sdsPath</tt>
+	 * 
+	 * @param sdsPath
+	 *            root directory of an SDS archive to load data from, empty if none
+	 */
+	public void setSDSPath(String sdsPath) {
+		this.sdsPath = sdsPath;
+	}
+
+	/**
+	 * Getter of the property <tt>seedLink</tt>
+	 * 
+	 * @return SeedLink server and selected data to receive, host[:port][/NET.STA.LOC.CHA], empty
+	 *         if none
+	 */
+	public String getSeedLink() {
+		return seedLink;
+	}
+
+	/**
+	 * Setter of the property <tt>seedLink</tt>
+	 * 
+	 * @param seedLink
+	 *            SeedLink server and selected data to receive, host[:port][/NET.STA.LOC.CHA],
+	 *            empty if none
+	 */
+	public void setSeedLink(String seedLink) {
+		this.seedLink = seedLink;
+	}
+
+	/**
+	 * Getter of the property <tt>prefetchMargin</tt>
+	 * 
+	 * @return share of a requested time window to load beyond each of its ends
+	 */
+	public double getPrefetchMargin() {
+		return prefetchMargin;
+	}
+
+	/**
+	 * Setter of the property <tt>prefetchMargin</tt>
+	 * 
+	 * @param prefetchMargin
+	 *            share of a requested time window to load beyond each of its ends, 0 to load
+	 *            only the window itself
+	 */
+	public void setPrefetchMargin(double prefetchMargin) {
+		this.prefetchMargin = Math.max(prefetchMargin, 0);
+	}
+
+	/**
+	 * Getter of the property <tt>sampleStore</tt>
+	 * 
+	 * @return name of the store keeping samples of loaded traces
+	 */
+	public String getSampleStore() {
+		return sampleStore;
+	}
+
+	/**
+	 * Setter of the property <tt>sampleStore</tt>
+	 * 
+	 * @param sampleStore
+	 *            name of the store keeping samples of loaded traces: heap for java arrays,
+	 *            direct for direct buffers, mapped for memory mapped temporary files,
+	 *            compressed for miniSEED records decoded on demand
+	 */
+	public void setSampleStore(String sampleStore) {
+		this.sampleStore = sampleStore;
+	}
+
+	/**
+	 * Getter of the property <tt>decodedCacheSize</tt>
+	 * 
+	 * @return size of decoded blocks kept by the compressed sample store, MiB
+	 */
+	public int getDecodedCacheSize() {
+		return decodedCacheSize;
+	}
+
+	/**
+	 * Setter of the property <tt>decodedCacheSize</tt>
+	 * 
+	 * @param decodedCacheSize
+	 *            size of decoded blocks kept by the compressed sample store, MiB
+	 */
+	public void setDecodedCacheSize(int decodedCacheSize) {
+		this.decodedCacheSize = Math.max(decodedCacheSize, 0);
+	}
+
 	/**
 	 * Set path to use for stationXML queries from FDSN metadata services
 	 * Full URL will be protocol + "://" + dataServiceURL + this value
@@ -743,6 +969,7 @@ public class Configuration extends Observable {
 	 *            comma-separated list of stations
 	 */
 	public void setFilterStation(String filtStr) {
+		snclFilter = null;
 		if (filtStr == null || filtStr.equals("")) {
 			filterStation = null;
 		} else {
@@ -767,6 +994,7 @@ public class Configuration extends Observable {
 	 *            comma-separated list of networks
 	 */
 	public void setFilterNetwork(String filtStr) {
+		snclFilter = null;
 		if (filtStr == null || filtStr.equals("")) {
 			filterNetwork = null;
 		} else {
@@ -791,6 +1019,7 @@ public class Configuration extends Observable {
 	 *            comma-separated list of channels
 	 */
 	public void setFilterChannel(String filtStr) {
+		snclFilter = null;
 		if (filtStr == null || filtStr.equals("")) {
 			filterChannel = null;
 		} else {
@@ -815,6 +1044,7 @@ public class Configuration extends Observable {
 	 *            comma-separated list of locations
 	 */
 	public void setFilterLocation(String filtStr) {
+		snclFilter = null;
 		if (filtStr == null || filtStr.equals("")) {
 			filterLocation = null;
 		} else {
@@ -832,6 +1062,20 @@ public class Configuration extends Observable {
 		return filterLocation;
 	}
 
+	/**
+	 * Getter of all filters compiled into a predicate, to check many traces against them
+	 * 
+	 * @return network, station, location and channel filters
+	 */
+	public SNCLFilter getSNCLFilter() {
+		SNCLFilter filter = snclFilter;
+		if (filter == null) {
+			filter = new SNCLFilter(filterNetwork, filterStation, filterLocation, filterChannel);
+			snclFilter = filter;
+		}
+		return filter;
+	}
+
 	private static void fillFilter(Set<String> filter, String filtStr) {
 		StringTokenizer st = new StringTokenizer(filtStr, listSeparator);
 		while (st.hasMoreTokens()) {
@@ -0,0 +1,178 @@
+package com.isti.traceview.common;
+
+import com.isti.traceview.TraceViewException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import org.apache.log4j.Logger;
+
+/**
+ * Finds files by a wildcarded path, see {@link Wildcard} for the syntax. Every element of the path
+ * is compiled once; directories are explored in parallel, and only directories whose names match
+ * the element of their depth are entered. Elements without wildcards are looked up directly
+ * instead of listing the directory, so for a mask like <tt>/data/SDS/2018/IU/ANMO/?HZ.D/*</tt>
+ * only the station directory and the matching channel directories are listed.
+ *
+ * Files are only matched by the last element of the path. If the last element matches a
+ * directory, all files below that directory are found.
+ */
+public class FileDiscovery {
+
+  private static final Logger logger = Logger.getLogger(FileDiscovery.class);
+
+  /**
+   * Count of directories listed at once; listing is mostly waiting for the file system (think
+   * NFS), so use more threads than cores
+   */
+  private static final int PARALLELISM = 4 * Runtime.getRuntime().availableProcessors();
+
+  private final String mask;
+  private final String root;
+
+  /**
+   * Elements of the path below the root, null for elements with wildcards
+   */
+  private final String[] literals;
+
+  /**
+   * Compiled elements of the path below the root
+   */
+  private final Pattern[] patterns;
+
+  /**
+   * @param mask wildcarded path to search, relative paths start at the working directory
+   */
+  public FileDiscovery(String mask) {
+    this.mask = mask;
+    List<String> path = new ArrayList<>(Arrays.asList(mask.split(Pattern.quote(File.separator))));
+    if (path.isEmpty() || path.get(0).isEmpty()) {
+      // absolute path
+      root = File.separator;
+    } else if (path.get(0).contains(":")) {
+      // absolute path with a drive
+      root = path.get(0) + File.separator;
+    } else if (path.get(0).equals(".") || path.get(0).equals("..") || path.get(0).equals("~")) {
+      // relative path
+      root = path.get(0);
+    } else {
+      // relative path without point
+      root = ".";
+      path.add(0, root);
+    }
+    path.remove(0);
+    path.removeIf(String::isEmpty);
+    literals = new String[path.size()];
+    patterns = new Pattern[path.size()];
+    for (int i = 0; i < path.size(); i++) {
+      String element = path.get(i);
+      if (!Wildcard.hasWildcards(element)) {
+        literals[i] = element;
+      }
+      patterns[i] = Wildcard.compile(element);
+    }
+  }
+
+  /**
+   * Finds all matching files
+   *
+   * @return found files, sorted by path
+   * @throws TraceViewException if the directory the mask starts from can't be read
+   */
+  public List<File> find() throws TraceViewException {
+    List<File> files = Collections.synchronizedList(new ArrayList<>());
+    discover(files::add);
+    List<File> sorted = new ArrayList<>(files);
+    Collections.sort(sorted);
+    return sorted;
+  }
+
+  /**
+   * Passes matching files to a consumer as soon as they are found, so that they can be processed
+   * while the search goes on. The consumer is called concurrently from several threads, in no
+   * particular order. Returns when the search is complete.
+   *
+   * @param consumer receiver of found files, must be thread safe
+   * @throws TraceViewException if the directory the mask starts from can't be read
+   */
+  public void discover(Consumer<File> consumer) throws TraceViewException {
+    Path start = Paths.get(root);
+    if (!Files.isDirectory(start)) {
+      throw new TraceViewException("Can't parse wildcarded path: '" + mask + "', directory "
+          + root + " not found");
+    }
+    long startTime = System.nanoTime();
+    ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+    try {
+      pool.invoke(new Explore(start, 0, consumer));
+    } finally {
+      pool.shutdown();
+    }
+    logger.debug(String.format("Searched %s in %.3f s", mask,
+        (System.nanoTime() - startTime) * 1e-9));
+  }
+
+  /**
+   * Explores a directory, whose entries are matched by the path element of given depth
+   */
+  private class Explore extends RecursiveAction {
+
+    private final Path directory;
+    private final int depth;
+    private final Consumer<File> consumer;
+
+    private Explore(Path directory, int depth, Consumer<File> consumer) {
+      this.directory = directory;
+      this.depth = depth;
+      this.consumer = consumer;
+    }
+
+    @Override
+    protected void compute() {
+      List<Explore> subdirectories = new ArrayList<>();
+      if (depth < literals.length && literals[depth] != null) {
+        visit(directory.resolve(literals[depth]), subdirectories);
+      } else {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+          for (Path entry : entries) {
+            if (depth >= patterns.length
+                || patterns[depth].matcher(entry.getFileName().toString()).matches()) {
+              visit(entry, subdirectories);
+            }
+          }
+        } catch (IOException | DirectoryIteratorException e) {
+          logger.warn("Can't list directory " + directory + ": " + e);
+        }
+      }
+      invokeAll(subdirectories);
+    }
+
+    private void visit(Path entry, List<Explore> subdirectories) {
+      BasicFileAttributes attributes;
+      try {
+        attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+      } catch (IOException e) {
+        // absent, or removed since listing
+        return;
+      }
+      if (attributes.isDirectory()) {
+        subdirectories.add(new Explore(entry, depth + 1, consumer));
+      } else if (depth >= patterns.length - 1) {
+        // files match only at the end of the path
+        consumer.accept(entry.toFile());
+      }
+    }
+  }
+}
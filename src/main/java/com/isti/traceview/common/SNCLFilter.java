@@ -0,0 +1,114 @@
+package com.isti.traceview.common;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Network, station, location and channel filters (<tt>-n</tt>, <tt>-s</tt>, <tt>-l</tt> and
+ * <tt>-c</tt> options) compiled once into a predicate. Filter values without wildcards go to a
+ * hash set and are matched exactly; only values with wildcards are matched as patterns, see
+ * {@link Wildcard}. A trace passes if each of its codes matches at least one value of the
+ * filter for that code; an absent filter passes every code.
+ *
+ * @see Configuration#getSNCLFilter()
+ */
+public class SNCLFilter {
+
+  /**
+   * Filter passing every trace
+   */
+  public static final SNCLFilter ALL = new SNCLFilter(null, null, null, null);
+
+  private final CodeFilter network;
+  private final CodeFilter station;
+  private final CodeFilter location;
+  private final CodeFilter channel;
+
+  /**
+   * @param networks filter values of network, null to pass any
+   * @param stations filter values of station, null to pass any
+   * @param locations filter values of location, null to pass any
+   * @param channels filter values of channel, null to pass any
+   */
+  public SNCLFilter(Set<String> networks, Set<String> stations, Set<String> locations,
+      Set<String> channels) {
+    network = CodeFilter.compile(networks);
+    station = CodeFilter.compile(stations);
+    location = CodeFilter.compile(locations);
+    channel = CodeFilter.compile(channels);
+  }
+
+  /**
+   * @return true if no filter is set, so every trace passes
+   */
+  public boolean passesAll() {
+    return network == null && station == null && location == null && channel == null;
+  }
+
+  /**
+   * Checks if trace matches all filters. Codes are trimmed, as they are space padded in headers.
+   */
+  public boolean matches(String network, String station, String location, String channel) {
+    return matches(this.network, network) && matches(this.station, station)
+        && matches(this.location, location) && matches(this.channel, channel);
+  }
+
+  public boolean matchesNetwork(String network) {
+    return matches(this.network, network);
+  }
+
+  public boolean matchesStation(String station) {
+    return matches(this.station, station);
+  }
+
+  public boolean matchesLocation(String location) {
+    return matches(this.location, location);
+  }
+
+  public boolean matchesChannel(String channel) {
+    return matches(this.channel, channel);
+  }
+
+  private static boolean matches(CodeFilter filter, String code) {
+    return filter == null || filter.matches(code.trim());
+  }
+
+  /**
+   * Filter values of one code
+   */
+  private static class CodeFilter {
+
+    private final Set<String> codes = new HashSet<>();
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    private static CodeFilter compile(Set<String> values) {
+      if (values == null) {
+        return null;
+      }
+      CodeFilter filter = new CodeFilter();
+      for (String value : values) {
+        if (Wildcard.hasWildcards(value)) {
+          filter.patterns.add(Wildcard.compile(value));
+        } else {
+          filter.codes.add(value);
+        }
+      }
+      return filter;
+    }
+
+    private boolean matches(String code) {
+      if (codes.contains(code)) {
+        return true;
+      }
+      for (Pattern pattern : patterns) {
+        if (pattern.matcher(code).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
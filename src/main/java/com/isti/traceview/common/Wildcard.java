@@ -1,11 +1,9 @@
 package com.isti.traceview.common;
 
-import com.isti.traceview.TraceView;
 import com.isti.traceview.TraceViewException;
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Pattern;
 import org.apache.log4j.Logger;
 
 /**
@@ -16,8 +14,11 @@ import org.apache.log4j.Logger;
 public class Wildcard {
 	private static final Logger logger = Logger.getLogger(Wildcard.class);
 
-	List<String> path = null;
-	List<File> lst = new ArrayList<>();
+	/**
+	 * Characters having special meaning in wildcard expression; regex character classes are passed
+	 * through by {@link #wildcardToRegex(String)}, so brackets count too
+	 */
+	private static final String WILDCARD_CHARACTERS = "*?!{},[]";
 
 	/**
 	 * @param pattern
@@ -33,91 +34,40 @@ public class Wildcard {
 	}
 
 	/**
-	 * Finds files by mask
-	 * 
-	 * @param mask
-	 *            wildcard expression to find file
-	 * @return list of found files
-	 * @throws TraceViewException if the mask is not parseable
+	 * @param pattern
+	 *            wildcard expression
+	 * @return false if the expression matches just the text equal to it
 	 */
-	public List<File> getFilesByMask(String mask) throws TraceViewException {
-		lst.clear();
-		try {
-			if (TraceView.osNameString.contains("Windows")) {
-				String[] as = mask.replaceFirst(":\\\\\\\\", ":\\\\").split("\\\\");
-				path = new ArrayList<>(Arrays.asList(as));
-				if (path.get(0).contains(":")) {
-					// absolute path
-					explore(path.get(0) + "\\\\", 0);
-				} else if (path.get(0).equals(".") || path.get(0).equals("..") || path.get(0).equals("~")) {
-					// relative path
-					explore(path.get(0), 0);
-				} else {
-					// relative path without point
-					path.add(0, ".");
-					explore(path.get(0), 0);
-				}
-			} else {
-				String[] as = mask.split(File.separator);
-				path = new ArrayList<>(Arrays.asList(as));
-				if (path.get(0).equals(".") || path.get(0).equals("..") || path.get(0).equals("~")) {
-					// relative path
-					explore(path.get(0), 0);
-				} else if (path.get(0).equals("")) {
-					// absolute path
-					explore("/", 0);
-				} else {
-					// relative path without point
-					path.add(0, ".");
-					explore(path.get(0), 0);
-				}
+	public static boolean hasWildcards(String pattern) {
+		for (int i = 0; i < pattern.length(); i++) {
+			if (WILDCARD_CHARACTERS.indexOf(pattern.charAt(i)) >= 0) {
+				return true;
 			}
-		} catch (Exception e) {
-			StringBuilder message = new StringBuilder();
-			message.append("Can't parse wildcarded path: '" + mask + "'" + e.toString());
-			throw new TraceViewException(message.toString());
 		}
-		return lst;
+		return false;
 	}
 
 	/**
-	 * Recursive searching
+	 * Compiles wildcard expression, to match many texts against it
 	 * 
-	 * @param partPath - currently exploring point of path
-	 * @param i - current depth
+	 * @param pattern
+	 *            wildcard expression
+	 * @return pattern matching the same texts as {@link #matches(String, String)}
 	 */
+	public static Pattern compile(String pattern) {
+		return Pattern.compile(wildcardToRegex(pattern));
+	}
 
-	private void explore(String partPath, int i) {
-		File f = new File(partPath);
-		File[] dir = f.listFiles();
-      //System.out.format("== explore(partPath=%s i=%d) File f=%s path=%s (dir.length=%d)\n", partPath, i, f.getName(), f.getPath(), dir.length);
-		if (dir.length > 0) {
-			for (File file : dir) {
-				if (path.size() > i + 1) {
-					if (Wildcard.matches(path.get(i + 1), file.getName())) {
-						if (file.isDirectory()) {
-							explore(partPath + File.separator + file.getName(), i + 1);
-						} else {
-							//lst.add(dir[j]);
-							// MTH: This was adding matches *along* the path, not just at the terminus, e.g.,
-							//      -d 'xs0/seed/*/2012/2012_160*/*seed' was matching xs0/seed/jts.seed
-							// Added if statement to make sure we only match at the end of the path
-							// This has not been tested on Windows!
-							if ((path.size() - i) == 2) {
-								//System.out.format("== +++ Found matching file=[%s] [path.size()=%d i=%d]\n", dir[j], path.size(), i);
-								lst.add(file);
-							}
-						}
-					}
-				} else {
-					if (file.isDirectory()) {
-						explore(partPath + File.separator + file.getName(), i + 1);
-					} else {
-						lst.add(file);
-					}
-				}
-			}
-		}
+	/**
+	 * Finds files by mask, see {@link FileDiscovery}
+	 * 
+	 * @param mask
+	 *            wildcard expression to find file
+	 * @return list of found files, sorted by path
+	 * @throws TraceViewException if the mask is not parseable
+	 */
+	public List<File> getFilesByMask(String mask) throws TraceViewException {
+		return new FileDiscovery(mask).find();
 	}
 
 	public static String wildcardToRegex(String wild) {
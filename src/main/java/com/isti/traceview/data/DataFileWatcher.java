@@ -0,0 +1,117 @@
+package com.isti.traceview.data;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import com.isti.traceview.source.SourceFileMseed;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * Watches the directories of loaded miniSEED files and merges records appended to the files into
+ * their channels, so day files which grow during acquisition are shown up to date without a
+ * reload. Only the appended part of a file is parsed, see {@link SourceFileMseed#parseAppended()}.
+ * Files created after loading are not picked up.
+ */
+public class DataFileWatcher implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(DataFileWatcher.class);
+
+  /**
+   * Time to wait for further changes after a change is reported; a record is usually written by
+   * several writes, each reported on its own
+   */
+  private static final long SETTLE_TIME = 500;
+
+  private final DataModule dataModule;
+  private final WatchService watchService;
+  private final Map<Path, SourceFileMseed> sources = new ConcurrentHashMap<>();
+  private final Thread thread;
+
+  /**
+   * Starts watching the miniSEED files loaded into a data module
+   *
+   * @throws IOException if the file system can't be watched
+   */
+  public DataFileWatcher(DataModule dataModule) throws IOException {
+    this.dataModule = dataModule;
+    watchService = FileSystems.getDefault().newWatchService();
+    for (ISource source : dataModule.getAllSources()) {
+      if (source instanceof SourceFileMseed) {
+        watch((SourceFileMseed) source);
+      }
+    }
+    logger.info("Watching " + sources.size() + " miniSEED files for appended data");
+    thread = new Thread(this::run, "Data file watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void watch(SourceFileMseed source) throws IOException {
+    Path path = new File(source.getName()).getCanonicalFile().toPath();
+    if (sources.putIfAbsent(path, source) == null) {
+      // registering a directory again returns its existing key
+      path.getParent().register(watchService, ENTRY_MODIFY);
+    }
+  }
+
+  public void close() throws IOException {
+    watchService.close();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    try {
+      while (true) {
+        Set<Path> changed = new LinkedHashSet<>();
+        collect(watchService.take(), changed);
+        WatchKey key;
+        while ((key = watchService.poll(SETTLE_TIME, TimeUnit.MILLISECONDS)) != null) {
+          collect(key, changed);
+        }
+        for (Path path : changed) {
+          SourceFileMseed source = sources.get(path);
+          if (source != null) {
+            dataModule.loadAppendedData(source);
+          }
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      logger.debug("Stopped watching data files");
+    }
+  }
+
+  private void collect(WatchKey key, Set<Path> changed) {
+    Path directory = (Path) key.watchable();
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW) {
+        // changes were lost, check every file of the directory
+        for (Path path : sources.keySet()) {
+          if (path.getParent().equals(directory)) {
+            changed.add(path);
+          }
+        }
+      } else {
+        changed.add(directory.resolve((Path) event.context()));
+      }
+    }
+    key.reset();
+  }
+}
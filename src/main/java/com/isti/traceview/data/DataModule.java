@@ -3,10 +3,14 @@ package com.isti.traceview.data;
 import com.isti.traceview.TraceView;
 import com.isti.traceview.TraceViewException;
 import com.isti.traceview.common.Configuration;
+import com.isti.traceview.common.FileDiscovery;
 import com.isti.traceview.common.Station;
 import com.isti.traceview.common.TimeInterval;
 import com.isti.traceview.gui.IColorModeState;
+import com.isti.traceview.source.SDSArchive;
 import com.isti.traceview.source.SourceFile;
+import com.isti.traceview.source.SourceFileMseed;
+import com.isti.traceview.source.SourceSeedLink;
 import com.isti.traceview.source.SourceSocketFDSN;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -16,13 +20,23 @@ import java.io.LineNumberReader;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
+import java.util.Queue;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import javax.swing.SwingUtilities;
 import org.apache.log4j.Logger;
 
 /**
@@ -43,15 +57,20 @@ public class DataModule extends Observable {
   private final List<PlotDataProvider> channels;
 
   /**
-   * Map of affected stations
+   * Map of affected stations; sources are parsed concurrently, so this must be thread safe
    */
-  private static Map<String, Station> stations = new HashMap<>();
+  private static Map<String, Station> stations = new ConcurrentHashMap<>();
 
   /**
    * List of found files with trace data
    */
   private List<ISource> dataSources;
 
+  /**
+   * Same content as dataSources, for constant time lookup when many files are loaded
+   */
+  private Set<ISource> dataSourceSet;
+
   private List<Response> responses;
 
   // Information about current channel set
@@ -67,6 +86,8 @@ public class DataModule extends Observable {
 
   protected static TemporaryStorage storage = null;
 
+  private DataFileWatcher dataFileWatcher = null;
+
   /**
    * Constructor
    */
@@ -75,6 +96,7 @@ public class DataModule extends Observable {
     channels = Collections.synchronizedList(new ArrayList<>());
     markerPosition = 0;
     dataSources = new ArrayList<>();
+    dataSourceSet = new HashSet<>();
     responses = new ArrayList<>();
   }
 
@@ -92,33 +114,202 @@ public class DataModule extends Observable {
    * Class to load in data from a list of files (taken from config file, -d parameter in cmd, or
    * built as part of the setup in a test case)
    *
+   * Loading runs as a staged pipeline: format detection and parsing of files run on a bounded
+   * worker pool, parsed traces are gathered by SNCL in a concurrent collector, and then each
+   * affected channel merges in all its traces in one pass (data of files given earlier win over
+   * overlaps, see {@link RawDataProvider#mergeData(List)}) and is sorted once.
+   *
    * @param files List of file objects to be loaded in
+   * @return files which couldn't be read; files of unknown format are skipped
    */
   public File[] loadNewDataFromSources(File... files) {
-    // TODO: probably need to find a way to parallelize this?
-    List<File> filesProducingError = new ArrayList<>(files.length);
+    Ingest ingest = new Ingest(
+        Math.max(1, Math.min(files.length, Runtime.getRuntime().availableProcessors())));
     for (File file : files) {
-      try {
-        logger.info("Initial parse of " + file.getCanonicalPath());
-      } catch (IOException e) {
-        filesProducingError.add(file);
-        logger.error(e);
-        continue;
+      ingest.submit(file);
+    }
+    return ingest.finish(false);
+  }
+
+  /**
+   * @return SNCL key of a parsed trace, built the same way channels are looked up
+   */
+  private static String getSNCLKey(Channel channel) {
+    return channel.getNetworkName().trim() + "." + channel.getStation().getName().trim() + "."
+        + channel.getLocationName().trim() + "." + channel.getChannelName().trim();
+  }
+
+  /**
+   * Pipeline loading files into the module, see {@link #loadNewDataFromSources(File...)}. Files
+   * may be submitted from several threads while earlier ones are parsed.
+   */
+  private class Ingest {
+
+    private final int threadCount;
+    private final ExecutorService executor;
+    private final List<IngestedFile> files = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, Queue<ParsedTrace>> tracesBySNCL = new ConcurrentHashMap<>();
+    private final LongAdder detectNanos = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final long start = System.nanoTime();
+
+    private Ingest(int threadCount) {
+      this.threadCount = threadCount;
+      executor = Executors.newFixedThreadPool(threadCount);
+    }
+
+    private void submit(File file) {
+      submit(file, null);
+    }
+
+    /**
+     * Submits a source whose format is known, so there is no format detection
+     */
+    private void submit(ISource source) {
+      submit(new File(source.getName()), source);
+    }
+
+    // stage 1: format detection and parse, results go straight to the per-SNCL collector
+    private void submit(File file, ISource source) {
+      IngestedFile ingested = new IngestedFile(file);
+      files.add(ingested);
+      ingested.task = executor.submit(() -> {
+        try {
+          logger.info("Initial parse of " + file.getCanonicalPath());
+        } catch (IOException e) {
+          ingested.error = true;
+          logger.error(e);
+          return;
+        }
+        ISource fileParser = source;
+        if (fileParser == null) {
+          long detectStart = System.nanoTime();
+          fileParser = SourceFile.getDataFile(file);
+          detectNanos.add(System.nanoTime() - detectStart);
+        }
+        if (fileParser == null) {
+          // unknown format, already logged by detection; skipped rather than reported as error
+          return;
+        }
+        ingested.source = fileParser;
+        long parseStart = System.nanoTime();
+        Set<PlotDataProvider> dataSet = fileParser.parse();
+        parseNanos.add(System.nanoTime() - parseStart);
+        for (PlotDataProvider channel : dataSet) {
+          tracesBySNCL.computeIfAbsent(getSNCLKey(channel), key -> new ConcurrentLinkedQueue<>())
+              .add(new ParsedTrace(ingested, channel));
+        }
+      });
+    }
+
+    /**
+     * Waits for submitted files to be parsed and merges their traces into channels
+     *
+     * @param sortByPath if files should be ordered by path rather than by submission
+     * @return files which couldn't be read; files of unknown format are skipped
+     */
+    private File[] finish(boolean sortByPath) {
+      List<IngestedFile> ordered = new ArrayList<>(files);
+      for (IngestedFile ingested : ordered) {
+        try {
+          ingested.task.get();
+        } catch (ExecutionException e) {
+          ingested.error = true;
+          logger.error("Can't parse " + ingested.file + ": ", e.getCause());
+        } catch (InterruptedException e) {
+          logger.error("InterruptedException:", e);
+          executor.shutdownNow();
+          Thread.currentThread().interrupt();
+          break;
+        }
       }
-      ISource fileParser = SourceFile.getDataFile(file);
-      addDataSource(fileParser);
-      Set<PlotDataProvider> dataSet = fileParser.parse();
-      for (PlotDataProvider channel : dataSet) {
-        String station = channel.getStation().getName();
-        getOrAddStation(station);
-        // merge in the new data into any channel that may already exist
-        getOrAddChannel(channel.getChannelName(), channel.getStation(),
-            channel.getNetworkName(), channel.getLocationName()).mergeData(channel);
+      executor.shutdown();
+      long parsedTime = System.nanoTime();
+
+      // register sources in order, so that source list doesn't depend on timing
+      if (sortByPath) {
+        ordered.sort(Comparator.comparing(ingested -> ingested.file));
       }
+      for (int i = 0; i < ordered.size(); i++) {
+        ordered.get(i).rank = i;
+        if (ordered.get(i).source != null) {
+          addDataSource(ordered.get(i).source);
+        }
+      }
+
+      // stage 2: single merge and sort per channel; channels are independent so run in parallel
+      tracesBySNCL.values().parallelStream().forEach(traces -> {
+        List<ParsedTrace> tracesInOrder = new ArrayList<>(traces);
+        tracesInOrder.sort(Comparator.comparingInt(trace -> trace.file.rank));
+        PlotDataProvider first = tracesInOrder.get(0).channel;
+        getOrAddStation(first.getStation().getName());
+        PlotDataProvider channel = getOrAddChannel(first.getChannelName(), first.getStation(),
+            first.getNetworkName(), first.getLocationName());
+        List<PlotDataProvider> parsed = new ArrayList<>(tracesInOrder.size());
+        for (ParsedTrace trace : tracesInOrder) {
+          parsed.add(trace.channel);
+        }
+        // merge the new data into any channel that may already exist, all files at once
+        channel.mergeData(parsed);
+        channel.sort();
+      });
+      long mergedTime = System.nanoTime();
+
+      logger.info(String.format("Initial file parses completed: %d files on %d threads, "
+              + "format detection %.3f s and parsing %.3f s (summed over threads), "
+              + "detect+parse stage %.3f s, merge of %d channels %.3f s",
+          ordered.size(), threadCount, detectNanos.sum() * 1e-9, parseNanos.sum() * 1e-9,
+          (parsedTime - start) * 1e-9, tracesBySNCL.size(), (mergedTime - parsedTime) * 1e-9));
+
+      List<File> filesProducingError = new ArrayList<>();
+      for (IngestedFile ingested : files) {
+        if (ingested.error) {
+          filesProducingError.add(ingested.file);
+        }
+      }
+      return filesProducingError.toArray(new File[]{});
+    }
+
+    /**
+     * Drops submitted files which aren't parsed yet, nothing is merged
+     */
+    private void abort() {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * File submitted for loading, with the results of its parse
+   */
+  private static class IngestedFile {
+
+    private final File file;
+    private Future<?> task;
+    private volatile ISource source;
+    private volatile boolean error;
+
+    /**
+     * Position of the file in merge order
+     */
+    private int rank;
+
+    private IngestedFile(File file) {
+      this.file = file;
+    }
+  }
+
+  /**
+   * Trace found by parsing one file, remembers its file to keep merge order stable
+   */
+  private static class ParsedTrace {
+
+    private final IngestedFile file;
+    private final PlotDataProvider channel;
+
+    private ParsedTrace(IngestedFile file, PlotDataProvider channel) {
+      this.file = file;
+      this.channel = channel;
     }
-    channels.parallelStream().forEach(RawDataProvider::sort);
-    logger.info("Initial file parses completed");
-    return filesProducingError.toArray(new File[]{});
   }
 
   /**
@@ -139,10 +330,53 @@ public class DataModule extends Observable {
     channels.forEach(RawDataProvider::load);
   }
 
-  public void loadNewDataFromSources() throws TraceViewException {
+  /**
+   * Load in data from data path given in configuration. Files are parsed as soon as they are
+   * found, while the search for further files goes on, see {@link FileDiscovery}
+   *
+   * @return files which couldn't be read; files of unknown format are skipped
+   * @throws TraceViewException if the data path can't be searched
+   */
+  public File[] loadNewDataFromSources() throws TraceViewException {
     String mask = TraceView.getConfiguration().getDataPath();
-    File[] files = SourceFile.getDataFiles(mask).toArray(new File[] {});
-    loadNewDataFromSources(files);
+    logger.info("Loading data using path: " + mask);
+    Ingest ingest = new Ingest(Runtime.getRuntime().availableProcessors());
+    try {
+      new FileDiscovery(mask).discover(ingest::submit);
+    } catch (TraceViewException | RuntimeException e) {
+      ingest.abort();
+      throw e;
+    }
+    // found files are merged in order of their paths, as if they were found one by one
+    return ingest.finish(true);
+  }
+
+  /**
+   * Load in data of a time window from an SDS archive, see {@link SDSArchive}. Only day files
+   * holding data of the window are parsed, and of them only records overlapping the window.
+   * Configured filters select the networks, stations, locations and channels to load.
+   *
+   * @param root archive root directory
+   * @param window time window to load, null to load the whole archive
+   * @return files which couldn't be read
+   * @throws TraceViewException if the archive can't be searched
+   */
+  public File[] loadSDSArchive(String root, TimeInterval window) throws TraceViewException {
+    long start = window == null ? Long.MIN_VALUE : window.getStart();
+    long end = window == null ? Long.MAX_VALUE : window.getEnd();
+    logger.info("Loading data from SDS archive " + root
+        + (window == null ? "" : " for " + window));
+    Ingest ingest = new Ingest(Runtime.getRuntime().availableProcessors());
+    try {
+      // SDS archives hold miniSEED files only, no format detection needed
+      new SDSArchive(new File(root)).discover(start, end,
+          TraceView.getConfiguration().getSNCLFilter(),
+          file -> ingest.submit(new SourceFileMseed(file, start, end)));
+    } catch (IOException | RuntimeException e) {
+      ingest.abort();
+      throw new TraceViewException("Can't search SDS archive " + root + ": " + e);
+    }
+    return ingest.finish(true);
   }
 
   public void reLoadData() throws TraceViewException {
@@ -198,6 +432,14 @@ public class DataModule extends Observable {
     }
 
 
+    // load segments of all channels at once, so each file is read in one pass even if it holds
+    // several channels
+    List<Segment> segments = new ArrayList<>();
+    for (PlotDataProvider channel : getAllChannels()) {
+      segments.addAll(channel.getRawData());
+    }
+    SegmentLoadPlanner.load(segments);
+
     getAllChannels().parallelStream().forEach(
         channel -> {
       // PlotDataProvider channel = it.next();
@@ -236,7 +478,7 @@ public class DataModule extends Observable {
       //dataSources.add(datafile);	// why is it adding twice?
       logger.debug("Parsing file " + datafile.getName());
       dataSources.add(datafile);
-
+      dataSourceSet.add(datafile);
     }
   }
 
@@ -244,7 +486,7 @@ public class DataModule extends Observable {
    * Returns flag if already loaded channels contain this source
    */
   public boolean isSourceLoaded(ISource ds) {
-    return getAllSources().contains(ds);
+    return dataSourceSet.contains(ds);
   }
 
   /**
@@ -282,11 +524,7 @@ public class DataModule extends Observable {
    * @return Station as class
    */
   public static Station getOrAddStation(String stationName) {
-    Station station = stations.get(stationName.trim());
-    if (station == null) {
-      station = addStation(stationName.trim());
-    }
-    return station;
+    return stations.computeIfAbsent(stationName.trim(), DataModule::createStation);
   }
 
   /**
@@ -300,9 +538,8 @@ public class DataModule extends Observable {
     return station;
   }
 
-  private static Station addStation(String stationName) {
+  private static Station createStation(String stationName) {
     Station station = new Station(stationName);
-    stations.put(station.getName(), station);
     logger.debug("Station added: " + stationName);
     return station;
   }
@@ -324,6 +561,7 @@ public class DataModule extends Observable {
       for (ISource src : channel.getSources()) {
         if (!isSourceLoaded(src)) {
           dataSources.add(src);
+          dataSourceSet.add(src);
         }
       }
       logger.debug("Channel added: " + channel.toString());
@@ -344,6 +582,7 @@ public class DataModule extends Observable {
       }
       logger.debug("Channel removed: " + channel.toString());
     }
+    channel.drop();
   }
 
   /**
@@ -360,6 +599,9 @@ public class DataModule extends Observable {
       }
       logger.debug("Channels removed: list");
     }
+    for (PlotDataProvider channel : toDelete) {
+      channel.drop();
+    }
   }
 
   /**
@@ -938,9 +1180,12 @@ public class DataModule extends Observable {
   public void loadNewDataFromSocket(String net, String sta, String loc, String cha,
       long startMillis, long endMillis) {
 
-    ISource socketSource = new SourceSocketFDSN(net, sta, loc, cha, startMillis, endMillis);
+    SourceSocketFDSN socketSource = new SourceSocketFDSN(net, sta, loc, cha, startMillis,
+        endMillis);
     addDataSource(socketSource);
     Set<PlotDataProvider> dataSet = socketSource.parse();
+    // segments are loaded by the sources of the cached files they were parsed from
+    socketSource.getFileSources().forEach(this::addDataSource);
     for (PlotDataProvider channel : dataSet) {
       String station = channel.getStation().getName();
       getOrAddStation(station);
@@ -954,4 +1199,125 @@ public class DataModule extends Observable {
     channels.parallelStream().forEach(RawDataProvider::sort);
   }
 
+  /**
+   * Merges records appended to a miniSEED file since it was parsed into the channels holding
+   * its data; only the appended part of the file is parsed
+   *
+   * @param source source of a file which grows
+   */
+  public void loadAppendedData(SourceFileMseed source) {
+    Set<PlotDataProvider> dataSet = source.parseAppended();
+    for (PlotDataProvider appended : dataSet) {
+      PlotDataProvider channel = getOrAddChannel(appended.getChannelName(),
+          getOrAddStation(appended.getStation().getName()), appended.getNetworkName(),
+          appended.getLocationName());
+      channel.mergeAppendedData(appended);
+    }
+    if (!dataSet.isEmpty()) {
+      // observers learn of a longer time range of all data
+      isChangedAllChannelsTI();
+    }
+  }
+
+  /**
+   * Starts watching loaded miniSEED files for appended data, see {@link DataFileWatcher}
+   *
+   * @throws IOException if the file system can't be watched
+   */
+  public synchronized void startWatchingData() throws IOException {
+    if (dataFileWatcher == null) {
+      dataFileWatcher = new DataFileWatcher(this);
+    }
+  }
+
+  /**
+   * Stops watching loaded miniSEED files for appended data
+   */
+  public synchronized void stopWatchingData() {
+    if (dataFileWatcher != null) {
+      try {
+        dataFileWatcher.close();
+      } catch (IOException e) {
+        logger.warn("Can't stop watching data files: ", e);
+      }
+      dataFileWatcher = null;
+    }
+  }
+
+  /**
+   * Starts receiving real time data from a SeedLink server. Channels are added to this module as
+   * their first data arrives and are extended afterwards, on the event dispatch thread.
+   *
+   * @param host SeedLink server host
+   * @param port SeedLink server port
+   * @return the started source, to be stopped by {@link SourceSeedLink#stop()}
+   * @throws IOException if the server can't be reached or refuses the selection
+   */
+  public SourceSeedLink startSeedLink(String host, int port, String net, String sta, String loc,
+      String cha) throws IOException {
+    SourceSeedLink source = new SourceSeedLink(host, port, net, sta, loc, cha,
+        SourceSeedLink.DEFAULT_CAPACITY, this::getOrAddStreamedChannel);
+    addDataSource(source);
+    source.start();
+    return source;
+  }
+
+  /**
+   * Starts receiving real time data from a SeedLink server given as
+   * host[:port][/NET.STA.LOC.CHA]. Station and channel codes may be lists separated by commas,
+   * omitted codes select any.
+   *
+   * @param address server and selected data, e.g. rtserve.iris.washington.edu:18000/IU.ANMO.00.BH?
+   * @return the started source
+   * @throws TraceViewException if the address can't be parsed
+   * @throws IOException if the server can't be reached or refuses the selection
+   */
+  public SourceSeedLink startSeedLink(String address) throws TraceViewException, IOException {
+    String server = address.trim();
+    String[] codes = {"*", "*", "*", "*"};
+    int slash = server.indexOf('/');
+    if (slash >= 0) {
+      String[] selected = server.substring(slash + 1).split("\\.", -1);
+      if (selected.length > codes.length) {
+        throw new TraceViewException("Can't parse SeedLink selection of " + address
+            + ", expected NET.STA.LOC.CHA");
+      }
+      for (int i = 0; i < selected.length; i++) {
+        if (!selected[i].trim().isEmpty()) {
+          codes[i] = selected[i].trim();
+        }
+      }
+      server = server.substring(0, slash);
+    }
+    int port = SourceSeedLink.DEFAULT_PORT;
+    int colon = server.lastIndexOf(':');
+    if (colon >= 0) {
+      try {
+        port = Integer.parseInt(server.substring(colon + 1).trim());
+      } catch (NumberFormatException e) {
+        throw new TraceViewException("Can't parse SeedLink port of " + address);
+      }
+      server = server.substring(0, colon);
+    }
+    if (server.isEmpty()) {
+      throw new TraceViewException("No SeedLink server host in " + address);
+    }
+    logger.info("Starting SeedLink stream of " + String.join(".", codes) + " from " + server
+        + ":" + port);
+    return startSeedLink(server, port, codes[0], codes[1], codes[2], codes[3]);
+  }
+
+  /**
+   * Channel factory of SeedLink sources, called on the event dispatch thread as the first data of
+   * a channel arrives. Observers are told of the channel after the data was added to it.
+   */
+  private PlotDataProvider getOrAddStreamedChannel(String channelName, Station station,
+      String networkName, String locationName) {
+    PlotDataProvider channel = getOrAddChannel(channelName, station, networkName, locationName);
+    SwingUtilities.invokeLater(() -> {
+      setChanged();
+      notifyObservers(channel);
+    });
+    return channel;
+  }
 }
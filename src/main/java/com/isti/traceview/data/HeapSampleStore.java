@@ -0,0 +1,67 @@
+package com.isti.traceview.data;
+
+/**
+ * Keeps samples in the arrays they were decoded to, on the java heap; this is how segments kept
+ * their data before stores existed, and the default. The heap is accounted by the garbage
+ * collector, so byte counts of this store are always 0.
+ */
+public class HeapSampleStore implements ISampleStore {
+
+  public static final HeapSampleStore INSTANCE = new HeapSampleStore();
+
+  private HeapSampleStore() {
+  }
+
+  @Override
+  public Samples store(int[] values) {
+    return new HeapSamples(values);
+  }
+
+  @Override
+  public long getAllocatedBytes() {
+    return 0;
+  }
+
+  @Override
+  public long getUsedBytes() {
+    return 0;
+  }
+
+  @Override
+  public String toString() {
+    return HEAP;
+  }
+
+  private static class HeapSamples implements Samples {
+
+    private final int[] values;
+
+    private HeapSamples(int[] values) {
+      this.values = values;
+    }
+
+    @Override
+    public int length() {
+      return values.length;
+    }
+
+    @Override
+    public int get(int index) {
+      return values[index];
+    }
+
+    @Override
+    public void get(int from, int[] dest, int destOffset, int count) {
+      System.arraycopy(values, from, dest, destOffset, count);
+    }
+
+    @Override
+    public int[] toArray() {
+      return values;
+    }
+
+    @Override
+    public void release() {
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package com.isti.traceview.data;
+
+import com.isti.traceview.data.mseed.CompressedSampleStore;
+import java.io.File;
+
+/**
+ * Storage of segment samples, see {@link Segment#setSampleStore(ISampleStore)}. A store takes
+ * the decoded samples of a segment and hands back a handle to read them, so that where samples
+ * live is decided in one place: on the java heap, or off it where they are neither scanned nor
+ * moved by the garbage collector.
+ */
+public interface ISampleStore {
+
+  /**
+   * Name of the store keeping samples in <tt>int[]</tt> arrays on the java heap
+   */
+  String HEAP = "heap";
+
+  /**
+   * Name of the store keeping samples in direct buffers, limited by
+   * <tt>-XX:MaxDirectMemorySize</tt>
+   */
+  String DIRECT = "direct";
+
+  /**
+   * Name of the store keeping samples in memory mapped temporary files, paged by the system
+   */
+  String MAPPED = "mapped";
+
+  /**
+   * Name of the store keeping miniSEED records still compressed and decoding them on demand
+   */
+  String COMPRESSED = "compressed";
+
+  /**
+   * Stores samples of one segment
+   *
+   * @param values samples; the store may keep the array, so it must not be changed afterwards
+   * @return handle to read stored samples
+   */
+  Samples store(int[] values);
+
+  /**
+   * @return count of bytes the store reserved for samples
+   */
+  long getAllocatedBytes();
+
+  /**
+   * @return count of bytes taken by samples not yet released
+   */
+  long getUsedBytes();
+
+  /**
+   * Creates a store by its name
+   *
+   * @param name one of {@link #HEAP}, {@link #DIRECT}, {@link #MAPPED} or {@link #COMPRESSED},
+   * case insensitive
+   * @param tempDirectory directory for files of the mapped store, null for the system one
+   * @throws IllegalArgumentException if the name is unknown
+   */
+  static ISampleStore create(String name, File tempDirectory) {
+    if (HEAP.equalsIgnoreCase(name)) {
+      return HeapSampleStore.INSTANCE;
+    } else if (DIRECT.equalsIgnoreCase(name)) {
+      return new OffHeapSampleStore(false, null);
+    } else if (MAPPED.equalsIgnoreCase(name)) {
+      return new OffHeapSampleStore(true, tempDirectory);
+    } else if (COMPRESSED.equalsIgnoreCase(name)) {
+      return new CompressedSampleStore(CompressedSampleStore.DEFAULT_CACHE_BYTES);
+    }
+    throw new IllegalArgumentException("Unknown sample store: " + name);
+  }
+
+  /**
+   * Read view of the samples of one segment. Reads are thread safe.
+   */
+  interface Samples {
+
+    /**
+     * @return count of samples
+     */
+    int length();
+
+    /**
+     * @return sample of given index
+     */
+    int get(int index);
+
+    /**
+     * Copies a range of samples into an array
+     *
+     * @param from index of first sample to copy
+     * @param dest destination array
+     * @param destOffset index in the destination array to copy the first sample to
+     * @param count count of samples to copy
+     */
+    void get(int from, int[] dest, int destOffset, int count);
+
+    /**
+     * @return all samples as an array; a heap store returns the stored array itself, other
+     * stores a copy
+     */
+    int[] toArray();
+
+    /**
+     * Gives the samples back to the store; the handle must not be read afterwards. Samples of
+     * handles which become unreachable are given back too, so calling it is optional.
+     */
+    void release();
+  }
+}
@@ -1,6 +1,7 @@
 package com.isti.traceview.data;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -28,7 +29,7 @@ public interface ISource extends Serializable {
 	 * Enumeration for supported source formats
 	 */
 	enum FormatType {
-		MSEED, SEED, SAC, SEGY, SEGD, IMS, ASCII
+		MSEED, MSEED3, SEED, SAC, SEGY, SEGD, IMS, ASCII
 	}
 
   /**
@@ -70,6 +71,19 @@ public interface ISource extends Serializable {
 	 * @param segment the segment to load offset and samplecounts are most likely used.
 	 */
 	void load(Segment segment);
+
+	/**
+	 * Load trace data from this data source into several segments at once. Segments are given
+	 * ordered by start offset, see {@link SegmentLoadPlanner}; sources which can read adjacent
+	 * segments in one sequential pass override this, the default loads them one by one.
+	 * 
+	 * @param segments the segments to load, all from this source
+	 */
+	default void load(List<Segment> segments) {
+		for (Segment segment : segments) {
+			load(segment);
+		}
+	}
 	
 	/**
 	 * Get text representation of block header for given format
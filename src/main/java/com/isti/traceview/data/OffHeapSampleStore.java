@@ -0,0 +1,279 @@
+package com.isti.traceview.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps samples out of the java heap, in large chunks which are either direct buffers or memory
+ * mapped temporary files. Samples of a segment are laid out one after another in a chunk, so the
+ * garbage collector sees a handful of chunk objects instead of one big array per segment, and
+ * heap size no longer limits how many channels can be loaded.
+ *
+ * Space is taken from the current chunk by bumping its top; segments larger than a chunk get a
+ * chunk of their own. A chunk is freed when all samples stored in it are released, either
+ * explicitly or because their handles became unreachable.
+ *
+ * Freed ranges in the middle of a chunk aren't reused: a single live segment pins its whole
+ * chunk, so memory is given back only as whole chunks empty out. The current chunk is reused
+ * from its start once everything stored in it was released.
+ */
+public class OffHeapSampleStore implements ISampleStore {
+
+  private static final Logger logger = Logger.getLogger(OffHeapSampleStore.class);
+
+  /**
+   * Samples in a chunk, 64 MiB
+   */
+  public static final int DEFAULT_CHUNK_SAMPLES = 16 * 1024 * 1024;
+
+  private final boolean mapped;
+  private final File tempDirectory;
+  private final int chunkSamples;
+
+  /**
+   * Allocations of handles not yet released; keeps their phantom references reachable
+   */
+  private final Set<Allocation> allocations = ConcurrentHashMap.newKeySet();
+  private final ReferenceQueue<OffHeapSamples> unreachable = new ReferenceQueue<>();
+
+  // guarded by this
+  private Chunk current = null;
+  private long allocatedBytes = 0;
+  private long usedBytes = 0;
+
+  /**
+   * @param mapped true to keep chunks in memory mapped files, false for direct buffers
+   * @param tempDirectory directory for mapped files, null for the system temporary directory
+   */
+  public OffHeapSampleStore(boolean mapped, File tempDirectory) {
+    this(mapped, tempDirectory, DEFAULT_CHUNK_SAMPLES);
+  }
+
+  /**
+   * @param chunkSamples count of samples in a chunk
+   */
+  public OffHeapSampleStore(boolean mapped, File tempDirectory, int chunkSamples) {
+    this.mapped = mapped;
+    this.tempDirectory =
+        tempDirectory == null || !tempDirectory.isDirectory() ? null : tempDirectory;
+    this.chunkSamples = chunkSamples;
+  }
+
+  /**
+   * Copies samples into a chunk; the given array isn't kept
+   *
+   * @throws UncheckedIOException if a mapped chunk file can't be created
+   */
+  @Override
+  public Samples store(int[] values) {
+    int length = values.length;
+    if (length == 0) {
+      return HeapSampleStore.INSTANCE.store(values);
+    }
+    Chunk chunk;
+    int offset;
+    synchronized (this) {
+      reclaim();
+      if (length > chunkSamples) {
+        chunk = newChunk(length);
+      } else {
+        if (current == null || current.capacity() - current.top < length) {
+          if (current != null && current.live == 0) {
+            allocatedBytes -= current.bytes();
+          }
+          current = newChunk(chunkSamples);
+        }
+        chunk = current;
+      }
+      offset = chunk.top;
+      chunk.top += length;
+      chunk.live += length;
+      usedBytes += 4L * length;
+    }
+    // the range is ours alone, so it is filled outside of the lock
+    IntBuffer view = chunk.ints.duplicate();
+    view.position(offset);
+    view.put(values);
+    OffHeapSamples samples = new OffHeapSamples(chunk.ints, offset, length);
+    samples.allocation = new Allocation(samples, unreachable, chunk, length);
+    allocations.add(samples.allocation);
+    return samples;
+  }
+
+  @Override
+  public synchronized long getAllocatedBytes() {
+    reclaim();
+    return allocatedBytes;
+  }
+
+  @Override
+  public synchronized long getUsedBytes() {
+    reclaim();
+    return usedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return mapped ? MAPPED : DIRECT;
+  }
+
+  /**
+   * Frees allocations whose handles were collected
+   */
+  private synchronized void reclaim() {
+    Allocation allocation;
+    while ((allocation = (Allocation) unreachable.poll()) != null) {
+      free(allocation);
+    }
+  }
+
+  private synchronized void free(Allocation allocation) {
+    if (!allocations.remove(allocation)) {
+      // already released
+      return;
+    }
+    allocation.clear();
+    Chunk chunk = allocation.chunk;
+    chunk.live -= allocation.length;
+    usedBytes -= 4L * allocation.length;
+    if (chunk.live == 0) {
+      if (chunk == current) {
+        // nothing in it is referenced, so it is filled again from the start
+        chunk.top = 0;
+      } else {
+        // no handle refers to the chunk any more, so the buffer goes with the next collection
+        allocatedBytes -= chunk.bytes();
+      }
+    }
+  }
+
+  private Chunk newChunk(int samples) {
+    long bytes = 4L * samples;
+    ByteBuffer buffer;
+    if (mapped) {
+      try {
+        File file = File.createTempFile("samples", ".tmp", tempDirectory);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+          buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        } finally {
+          // mapping stays valid without a name; some systems refuse to delete mapped files
+          if (!file.delete()) {
+            file.deleteOnExit();
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Can't map sample chunk of " + bytes + " bytes", e);
+      }
+    } else {
+      buffer = ByteBuffer.allocateDirect((int) bytes);
+    }
+    allocatedBytes += bytes;
+    logger.debug("Allocated " + this + " sample chunk of " + bytes + " bytes, "
+        + allocatedBytes + " bytes total");
+    return new Chunk(buffer.order(ByteOrder.nativeOrder()).asIntBuffer());
+  }
+
+  private static class Chunk {
+
+    private final IntBuffer ints;
+    private int top = 0;
+    private int live = 0;
+
+    private Chunk(IntBuffer ints) {
+      this.ints = ints;
+    }
+
+    private int capacity() {
+      return ints.capacity();
+    }
+
+    private long bytes() {
+      return 4L * ints.capacity();
+    }
+  }
+
+  private static class Allocation extends PhantomReference<OffHeapSamples> {
+
+    private final Chunk chunk;
+    private final int length;
+
+    private Allocation(OffHeapSamples samples, ReferenceQueue<OffHeapSamples> queue, Chunk chunk,
+        int length) {
+      super(samples, queue);
+      this.chunk = chunk;
+      this.length = length;
+    }
+  }
+
+  private class OffHeapSamples implements Samples {
+
+    // nulled on release, while other threads may still read
+    private volatile IntBuffer ints;
+    private final int offset;
+    private final int length;
+    private Allocation allocation;
+
+    private OffHeapSamples(IntBuffer ints, int offset, int length) {
+      this.ints = ints;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public int get(int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException("Sample " + index + " of " + length);
+      }
+      return ints().get(offset + index);
+    }
+
+    @Override
+    public void get(int from, int[] dest, int destOffset, int count) {
+      if (from < 0 || count < 0 || from + count > length) {
+        throw new IndexOutOfBoundsException(
+            "Samples " + from + " to " + (from + count) + " of " + length);
+      }
+      // absolute bulk reads need a view of their own
+      IntBuffer view = ints().duplicate();
+      view.position(offset + from);
+      view.get(dest, destOffset, count);
+    }
+
+    @Override
+    public int[] toArray() {
+      int[] values = new int[length];
+      get(0, values, 0, length);
+      return values;
+    }
+
+    @Override
+    public void release() {
+      ints = null;
+      free(allocation);
+    }
+
+    private IntBuffer ints() {
+      IntBuffer buffer = ints;
+      if (buffer == null) {
+        throw new IllegalStateException("Samples were released");
+      }
+      return buffer;
+    }
+  }
+}
@@ -22,7 +22,10 @@ import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Set;
@@ -59,6 +62,11 @@ public class PlotDataProvider extends RawDataProvider implements Observer {
 	 */
 	private static final int initPointCount = 10000;
 
+	/**
+	 * Count of windows the point cache is built in, see {@link #initPointCache()}
+	 */
+	private static final int pointCacheWindows = 20;
+
 	/**
 	 * Set of events attached to this data provider
 	 */
@@ -79,6 +87,12 @@ public class PlotDataProvider extends RawDataProvider implements Observer {
 	 * wide zooms
 	 */
 	private List<PlotDataPoint[]> pointsCache = null;
+
+	/**
+	 * Time range covered by pointsCache; the time range of the channel when the cache is built,
+	 * moved along as streamed data is added
+	 */
+	private TimeInterval pointsCacheRange = null;
 	
 	/**
 	 * May be used by ColorModeByTrace to color trace in manual mode.
@@ -98,18 +112,222 @@ public class PlotDataProvider extends RawDataProvider implements Observer {
 	/**
 	 * Initialize point cache, fill it with initPointCount points, this cache is used to show big
 	 * parts of data, and raw data access during zooming happens only to limited small parts of data
+	 *
+	 * The cache is built a window at a time. Segments which aren't loaded are read into copies,
+	 * which are dropped once the windows covering them are pixelized, so only data of about one
+	 * window is held and the loaded state of the channel's segments doesn't change.
 	 */
 	public void initPointCache() {
        	try { 
 			logger.debug("== ENTER");
 			TimeInterval ti = getTimeRange();
-			pointsCache = pixelize(ti, initPointCount, null);
+			List<PlotDataPoint[]> points = new ArrayList<>(initPointCount);
+			// loaded copies of unloaded segments, kept while following windows cover them
+			Map<Segment, Segment> copies = new IdentityHashMap<>();
+			int windowPoints = (initPointCount + pointCacheWindows - 1) / pointCacheWindows;
+			double interval = ti.getDuration() / (double) initPointCount;
+			for (int first = 0; first < initPointCount; first += windowPoints) {
+				int count = Math.min(windowPoints, initPointCount - first);
+				TimeInterval window = new TimeInterval(ti.getStart() + Math.round(first * interval),
+						first + count == initPointCount ? ti.getEnd()
+								: ti.getStart() + Math.round((first + count) * interval));
+				List<Segment> segments = new ArrayList<>();
+				List<Segment> toLoad = new ArrayList<>();
+				for (Segment segment : findSegments(window)) {
+					if (segment.getIsLoaded() || segment.getDataStream() != null) {
+						segments.add(segment);
+					} else {
+						Segment copy = copies.get(segment);
+						if (copy == null) {
+							copy = segment.copyUnloaded();
+							copies.put(segment, copy);
+							toLoad.add(copy);
+						}
+						segments.add(copy);
+					}
+				}
+				SegmentLoadPlanner.load(toLoad);
+				points.addAll(pixelize(window, count, null, segments));
+				Iterator<Map.Entry<Segment, Segment>> it = copies.entrySet().iterator();
+				while (it.hasNext()) {
+					Map.Entry<Segment, Segment> entry = it.next();
+					if (entry.getKey().getEndTimeMillis() <= window.getEnd()) {
+						entry.getValue().drop();
+						it.remove();
+					}
+				}
+			}
+			for (Segment copy : copies.values()) {
+				copy.drop();
+			}
+			synchronized (this) {
+				pointsCache = points;
+				pointsCacheRange = ti;
+			}
         	logger.debug("== EXIT");
 		} catch (PlotDataException e) {
 			logger.error("PlotDataException:", e);
 		}
 	}
-	
+
+	/**
+	 * Adds data of a streaming source, which follows the data the channel holds. A built point
+	 * cache is extended over the new time range and trimmed to the data still held, instead of
+	 * being built again, and observers are notified of the new time range.
+	 *
+	 * @param segment
+	 *            segment with new data
+	 * @param replaceLast
+	 *            true if the segment extends the last segment of the channel and replaces it
+	 * @param dropBefore
+	 *            segments of the same source which end at or before this time are removed,
+	 *            Long.MIN_VALUE to keep all
+	 */
+	public void addStreamData(Segment segment, boolean replaceLast, long dropBefore) {
+		synchronized (rawData) {
+			boolean cacheBuilt = resetCaches;
+			if (replaceLast) {
+				replaceLastSegment(segment);
+			} else {
+				addSegment(segment);
+			}
+			if (dropBefore != Long.MIN_VALUE) {
+				removeSegments(segment.getDataSource(), dropBefore);
+			}
+			sort();
+			resetCaches = cacheBuilt;
+		}
+		if (resetCaches) {
+			extendPointCache();
+		}
+		setChanged();
+		notifyObservers(new TimeInterval(segment.getStartTime(), segment.getEndTime()));
+	}
+
+	/**
+	 * Merges data appended to a growing file since it was parsed. Points of the point cache from
+	 * the start of the appended data on are pixelized again; earlier points are kept.
+	 *
+	 * @param appended
+	 *            channel holding segments of the appended data only
+	 */
+	public void mergeAppendedData(RawDataProvider appended) {
+		TimeInterval added = appended.getTimeRange();
+		if (added == null) {
+			return;
+		}
+		synchronized (rawData) {
+			boolean cacheBuilt = resetCaches;
+			mergeData(appended);
+			sort();
+			resetCaches = cacheBuilt;
+		}
+		if (resetCaches) {
+			synchronized (this) {
+				int kept = 0;
+				double width = 0;
+				if (pointsCache != null && pointsCacheRange != null && pointsCache.size() > 0
+						&& added.getStart() > pointsCacheRange.getStart()) {
+					width = pointsCacheRange.getDuration() / (double) pointsCache.size();
+					kept = Math.min(pointsCache.size(),
+							(int) ((added.getStart() - pointsCacheRange.getStart()) / width));
+				}
+				if (kept > 0) {
+					pointsCache = new ArrayList<>(pointsCache.subList(0, kept));
+					pointsCacheRange = new TimeInterval(pointsCacheRange.getStart(),
+							pointsCacheRange.getStart() + Math.round(kept * width));
+				} else {
+					// data was added at the start of the cache, build it again when next needed
+					resetCaches = false;
+				}
+			}
+			if (resetCaches) {
+				extendPointCache();
+			}
+		}
+		setChanged();
+		notifyObservers(added);
+	}
+
+	/**
+	 * Moves point cache to the current time range of the channel. Points are pixelized only for
+	 * the time added at the end, points of removed data are dropped from the beginning, and when
+	 * the cache grows to twice its initial size neighbouring points are merged, so its resolution
+	 * follows the time range like a freshly built cache.
+	 */
+	private void extendPointCache() {
+		List<PlotDataPoint[]> cache;
+		TimeInterval cacheRange;
+		synchronized (this) {
+			cache = pointsCache;
+			cacheRange = pointsCacheRange;
+		}
+		TimeInterval range = getTimeRange();
+		if (cache == null || cacheRange == null || range == null || cache.size() == 0) {
+			return;
+		}
+		List<PlotDataPoint[]> points = new ArrayList<>(cache);
+		double width = cacheRange.getDuration() / (double) points.size();
+		long start = cacheRange.getStart();
+		long end = cacheRange.getEnd();
+		int added = width > 0 ? (int) ((range.getEnd() - end) / width) : 0;
+		if (added > 0) {
+			long newEnd = end + Math.round(added * width);
+			try {
+				points.addAll(pixelize(new TimeInterval(end, newEnd), added, null));
+				end = newEnd;
+			} catch (PlotDataException e) {
+				logger.error("PlotDataException:", e);
+				return;
+			}
+		}
+		int dropped = width > 0 ? (int) ((range.getStart() - start) / width) : 0;
+		if (dropped > 0) {
+			dropped = Math.min(dropped, points.size() - 1);
+			points.subList(0, dropped).clear();
+			start = start + Math.round(dropped * width);
+		}
+		while (points.size() >= 2 * initPointCount) {
+			if (points.size() % 2 == 1) {
+				// the odd last point is pixelized again by the next extension
+				points.remove(points.size() - 1);
+				end = start + Math.round(points.size() * width);
+			}
+			List<PlotDataPoint[]> merged = new ArrayList<>(points.size() / 2);
+			for (int i = 0; i < points.size(); i += 2) {
+				merged.add(mergePoints(points.get(i), points.get(i + 1)));
+			}
+			points = merged;
+			width = width * 2;
+		}
+		synchronized (this) {
+			pointsCache = points;
+			pointsCacheRange = new TimeInterval(start, end);
+		}
+	}
+
+	/**
+	 * Merges the points of two neighbouring pixels into the points of one pixel
+	 */
+	private static PlotDataPoint[] mergePoints(PlotDataPoint[] first, PlotDataPoint[] second) {
+		PlotDataPoint[] ret = new PlotDataPoint[Math.max(first.length, second.length)];
+		for (int i = 0; i < ret.length; i++) {
+			PlotDataPoint a = i < first.length ? first[i] : null;
+			PlotDataPoint b = i < second.length ? second[i] : null;
+			if (a == null || a.getMean() == Double.POSITIVE_INFINITY) {
+				ret[i] = b != null ? b : a;
+			} else if (b == null || b.getMean() == Double.POSITIVE_INFINITY) {
+				ret[i] = a;
+			} else {
+				ret[i] = new PlotDataPoint(Math.max(a.getTop(), b.getTop()),
+						Math.min(a.getBottom(), b.getBottom()), (a.getMean() + b.getMean()) / 2,
+						b.getSegmentNumber(), b.getRawDataProviderNumber(), b.getContinueAreaNumber(),
+						null);
+			}
+		}
+		return ret;
+	}
+
 	/**
 	 * Sets rotation. Null means rotation doesn't affected. Selected traces will be redrawn with
 	 * rotation with using of "selection" mode.
@@ -216,10 +434,18 @@ public class PlotDataProvider extends RawDataProvider implements Observer {
 		// This list used when we cannot use pointsCache due to too small zoom, calculated every
 		// time afresh.
 		List<PlotDataPoint[]> points = null;
-		if (!resetCaches) {
-			initPointCache();
-			resetCaches = true;
+		// pointsCache covers the whole channel, so it is built only when a request coarse enough
+		// to be served from it comes; narrower requests load and pixelize only their own segments
+		// streaming threads replace the cache, so the flag and the cache are read together
+		List<PlotDataPoint[]> cache;
+		TimeInterval cacheRange;
+		boolean cacheBuilt;
+		synchronized (this) {
+			cacheBuilt = resetCaches && pointsCache != null;
+			cache = pointsCache;
+			cacheRange = pointsCacheRange;
 		}
+		int cachePointCount = cacheBuilt ? cache.size() : initPointCount;
 
 		// Time range need to be pixelized - intersection of requested pixalization range and
 		// channel's time range
@@ -227,7 +453,7 @@ public class PlotDataProvider extends RawDataProvider implements Observer {
 		TimeInterval initialTimeRange = getTimeRange();
 		TimeInterval effectiveTimeRange = TimeInterval.getIntersect(ti, initialTimeRange);
 		if (effectiveTimeRange != null) {
-			if ((pointCount > pointsCache.size() * (double) effectiveTimeRange.getDuration() /
+			if ((pointCount > cachePointCount * (double) effectiveTimeRange.getDuration() /
 					(double) initialTimeRange.getDuration()) || filter != null)  {
 				try {				
 					points = pixelize(effectiveTimeRange,
@@ -237,10 +463,19 @@ public class PlotDataProvider extends RawDataProvider implements Observer {
 					logger.error("PlotDataException:", e);	
 				}
 			} else {
+				if (!cacheBuilt) {
+					initPointCache();
+					synchronized (this) {
+						resetCaches = true;
+						cache = pointsCache;
+						cacheRange = pointsCacheRange;
+					}
+				}
+				int cacheSize = cache.size();
 				points = new ArrayList<>();
 				int startIndex = (int) (
-						(effectiveTimeRange.getStart() - initialTimeRange.getStart()) * initPointCount
-								/ initialTimeRange.getDuration());
+						(effectiveTimeRange.getStart() - cacheRange.getStart()) * cacheSize
+								/ cacheRange.getDuration());
 				if (startIndex < 0) {
 					for (int i = -startIndex; i < 0; i++) {
 						// lg.debug("getPlotData: add empty points in the beginning");
@@ -253,12 +488,12 @@ public class PlotDataProvider extends RawDataProvider implements Observer {
 					startIndex = 0;
 				}
 				int endIndex = (int) (
-						(effectiveTimeRange.getEnd() - initialTimeRange.getStart()) * initPointCount
-								/ getTimeRange().getDuration());
-				if (endIndex > initPointCount) {
-					// MTH: We don't seem to go in here
-					points.addAll(pointsCache.subList(startIndex, initPointCount));
-					for (int i = initPointCount; i < endIndex; i++) {
+						(effectiveTimeRange.getEnd() - cacheRange.getStart()) * cacheSize
+								/ cacheRange.getDuration());
+				if (endIndex > cacheSize) {
+					// streamed data may run a little past the cache
+					points.addAll(cache.subList(Math.min(startIndex, cacheSize), cacheSize));
+					for (int i = Math.max(startIndex, cacheSize); i < endIndex; i++) {
 						PlotDataPoint[] intervalPoints = new PlotDataPoint[1];
 						intervalPoints[0] = new PlotDataPoint(Double.NEGATIVE_INFINITY,
 								Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, -1,
@@ -266,7 +501,7 @@ public class PlotDataProvider extends RawDataProvider implements Observer {
 						points.add(intervalPoints);
 					}
 				} else {
-					points.addAll(pointsCache.subList(startIndex, endIndex));
+					points.addAll(cache.subList(startIndex, endIndex));
 				}
 			}
 			
@@ -385,11 +620,19 @@ public class PlotDataProvider extends RawDataProvider implements Observer {
 	 */
 	private List<PlotDataPoint[]> pixelize(TimeInterval ti, int pointCount, IFilter filter)
 			throws PlotDataException
+	{
+		// waiting if data still is not loaded
+		return pixelize(ti, pointCount, filter, getRawData(ti));
+	}
+
+	/**
+	 * Pixelize raw data of given loaded segments
+	 */
+	private List<PlotDataPoint[]> pixelize(TimeInterval ti, int pointCount, IFilter filter,
+			List<Segment> segments) throws PlotDataException
 	{
 		//logger.debug("pixelizing " + this +"; "+ ti + "; "+ "pointCount " + pointCount);
 		List<PlotDataPoint[]> pointSet = new ArrayList<>(pointCount);
-		// waiting if data still is not loaded
-		List<Segment> segments = getRawData(ti);
 		int numSegments = segments.size();
 		SegmentData[] rawData;
 		{
@@ -783,7 +1026,7 @@ public class PlotDataProvider extends RawDataProvider implements Observer {
 	 * MTH: Provide a way for DataModule to set pointsCache=null
 	 *      in order to mix -t and -d data 
 	 */
-    public void nullPointsCache() {
+    public synchronized void nullPointsCache() {
         pointsCache = null;
     }
 }
@@ -1,5 +1,6 @@
 package com.isti.traceview.data;
 
+import com.isti.traceview.TraceView;
 import com.isti.traceview.TraceViewException;
 import com.isti.traceview.common.Station;
 import com.isti.traceview.common.TimeInterval;
@@ -28,10 +29,14 @@ import java.io.ObjectOutputStream;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 import org.apache.log4j.Logger;
 
 //import java.util.concurrent.ExecutorService;
@@ -59,7 +64,8 @@ public class RawDataProvider extends Channel {
   private boolean loadingStarted = false;
   private boolean loaded = false;
 
-  protected boolean resetCaches = false;
+  // written by loading and streaming threads, read by the event dispatch thread
+  protected volatile boolean resetCaches = false;
 
   // Used to store dataStream file name and restore it after serialization
   private String serialFile = null;
@@ -75,13 +81,16 @@ public class RawDataProvider extends Channel {
 
 
   /**
-   * Convenience method for loading in the raw data from a segment
+   * Convenience method for loading in the raw data from a segment. Samples are copied unless the
+   * heap sample store holds them, see {@link Segment#getData()}.
    *
    * @param index Index of data to load in from list of segments
    * @return Array of ints representing raw timeseries data from trace
    */
   public int[] getUncutSegmentData(int index) {
-    return rawData.get(index).getSegment().getData().data;
+    Segment segment = rawData.get(index).getSegment();
+    ensureLoaded(Collections.singletonList(segment));
+    return segment.getData().data;
   }
 
   /**
@@ -140,6 +149,7 @@ public class RawDataProvider extends Channel {
     int index = findIndexOfSegmentContainingTime(time);
     if (index >= 0) {
       Segment segment = rawData.get(index).getSegment();
+      ensureLoaded(Collections.singletonList(segment));
       return segment.getPointAtTime(time);
     } else {
       return Integer.MIN_VALUE;
@@ -186,9 +196,19 @@ public class RawDataProvider extends Channel {
   }
 
   /**
-   * @return Returns the raw data this provider contains for the time window.
+   * @return Returns the raw data this provider contains for the time window. Segments which are
+   * not loaded yet are loaded.
    */
   public List<Segment> getRawData(TimeInterval ti) {
+    List<Segment> ret = findSegments(ti);
+    ensureLoaded(ret);
+    return ret;
+  }
+
+  /**
+   * @return segments intersecting the time window, loaded or not
+   */
+  List<Segment> findSegments(TimeInterval ti) {
     List<Segment> ret = Collections.synchronizedList(new ArrayList<>());
     for (int i = 0; i < rawData.size(); ++i) {
       Segment seg = rawData.get(i).getSegment();
@@ -267,6 +287,64 @@ public class RawDataProvider extends Channel {
     logger.debug(segment + " added to " + this);
   }
 
+  /**
+   * Replaces the last segment, for sources which extend their latest segment as data arrives.
+   * The segment is added if the provider is empty.
+   *
+   * @param segment segment to put in place of the last one
+   */
+  public void replaceLastSegment(Segment segment) {
+    synchronized (rawData) {
+      if (rawData.size() == 0) {
+        addSegment(segment);
+        return;
+      }
+      Segment replaced = rawData.set(rawData.size() - 1, new SegmentCache(segment)).getSegment();
+      segment.setRawDataProvider(this);
+      if (replaced != segment) {
+        replaced.drop();
+      }
+    }
+    setSampleRate(segment.getSampleRate());
+  }
+
+  /**
+   * Removes segments of a source which end at or before the given time, for sources which hold
+   * only their latest data
+   *
+   * @param source source whose segments are removed
+   * @param time time in epoch milliseconds
+   * @return count of removed segments
+   */
+  public int removeSegments(ISource source, long time) {
+    synchronized (rawData) {
+      if (rawData.size() == 0) {
+        return 0;
+      }
+      sort();
+      int count = rawData.size();
+      rawData.removeIf(cached -> {
+        Segment segment = cached.getSegment();
+        if (segment.getDataSource() == source && segment.getEndTimeMillis() <= time) {
+          segment.drop();
+          return true;
+        }
+        return false;
+      });
+      int removed = count - rawData.size();
+      if (removed > 0) {
+        // the rest is still in order, so one range covers it until sort() splits it at breaks
+        contiguousRanges = new ArrayList<>();
+        if (rawData.size() > 0) {
+          contiguousRanges.add(new ContiguousSegmentRange(0, rawData.size() - 1,
+              rawData.get(0).getSegment().getStartTimeMillis()));
+          sort();
+        }
+      }
+      return removed;
+    }
+  }
+
   protected List<SegmentCache> getSegmentCache() {
     return rawData;
   }
@@ -384,6 +462,101 @@ public class RawDataProvider extends Channel {
 
   }
 
+  /**
+   * Merges segments of several RawDataProviders at once, with the same outcome as merging them
+   * one by one with {@link #mergeData(RawDataProvider)}: where data overlap, existing data win,
+   * then data of providers earlier in the list, then earlier segments of a provider. All segments
+   * are sorted once by start time and overlaps are resolved in a single sweep, so merging many
+   * files into a channel doesn't search and trim the growing segment list once per file.
+   *
+   * @param mergeIn providers to merge, in order of precedence; those of other channels are skipped
+   */
+  public void mergeData(List<? extends RawDataProvider> mergeIn) {
+    resetCaches = false;
+    synchronized (rawData) {
+      // precedence is the position in this list
+      List<Segment> candidates = new ArrayList<>();
+      for (SegmentCache cached : rawData) {
+        candidates.add(cached.getSegment());
+      }
+      for (RawDataProvider provider : mergeIn) {
+        if (provider.equals(this)) {
+          for (SegmentCache cached : provider.getSegmentCache()) {
+            if (cached.getSegment().getSampleCount() > 0) {
+              candidates.add(cached.getSegment());
+            }
+          }
+        }
+      }
+      long[] starts = new long[candidates.size()];
+      long[] ends = new long[candidates.size()];
+      Integer[] byStart = new Integer[candidates.size()];
+      for (int i = 0; i < candidates.size(); i++) {
+        starts[i] = candidates.get(i).getStartTimeMillis();
+        ends[i] = candidates.get(i).getEndTimeMillis();
+        byStart[i] = i;
+      }
+      // stable, so segments starting together stay in order of precedence
+      Arrays.sort(byStart, (a, b) -> Long.compare(starts[a], starts[b]));
+
+      // sweep over start and end times, segments covering the current time are kept in a heap
+      // by precedence, and the data of the first one is taken
+      PriorityQueue<Integer> covering = new PriorityQueue<>();
+      List<Segment> merged = new ArrayList<>();
+      int next = 0;
+      int winner = -1;
+      long winnerFrom = 0;
+      long time = Long.MIN_VALUE;
+      while (next < byStart.length || !covering.isEmpty()) {
+        while (next < byStart.length && starts[byStart[next]] <= time) {
+          covering.add(byStart[next++]);
+        }
+        while (!covering.isEmpty() && ends[covering.peek()] <= time) {
+          covering.poll();
+        }
+        int current = covering.isEmpty() ? -1 : covering.peek();
+        if (current != winner) {
+          if (winner >= 0) {
+            addTrimmed(merged, candidates.get(winner), winnerFrom, time);
+          }
+          winner = current;
+          winnerFrom = time;
+        }
+        // next time the covering segment can change
+        long nextStart = next < byStart.length ? starts[byStart[next]] : Long.MAX_VALUE;
+        time = winner < 0 ? nextStart : Math.min(ends[winner], nextStart);
+      }
+
+      rawData.clear();
+      contiguousRanges = new ArrayList<>();
+      for (Segment segment : merged) {
+        addSegment(segment);
+      }
+      // segments which were trimmed or hidden entirely give their samples back
+      Set<Segment> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+      kept.addAll(merged);
+      for (Segment segment : candidates) {
+        if (!kept.contains(segment)) {
+          segment.drop();
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds the part of a segment between given times to a list, the segment itself if it is whole
+   */
+  private static void addTrimmed(List<Segment> segments, Segment segment, long start, long end) {
+    if (start <= segment.getStartTimeMillis() && end >= segment.getEndTimeMillis()) {
+      segments.add(segment);
+    } else {
+      Segment trimmed = new Segment(segment, start, end);
+      if (trimmed.getSampleCount() > 0) {
+        segments.add(trimmed);
+      }
+    }
+  }
+
   /**
    * @return time range of contained data
    */
@@ -440,6 +613,20 @@ public class RawDataProvider extends Channel {
     return ret;
   }
 
+  /**
+   * Releases the samples of all segments, e.g. when the channel is removed; segments are loaded
+   * again from their sources if the provider is used afterwards
+   */
+  public void drop() {
+    synchronized (rawData) {
+      for (SegmentCache sc : rawData) {
+        sc.getSegment().drop();
+      }
+      loadingStarted = false;
+      loaded = false;
+    }
+  }
+
   /**
    * @return flag if data loading process was started for this provider
    */
@@ -461,21 +648,51 @@ public class RawDataProvider extends Channel {
   /**
    * Load data into this data provider from data sources
    *
-   * NOTE: Removed multithreading due to hardware constraints
-   * and clean this method.
+   * Segments are loaded through {@link SegmentLoadPlanner}: segments of one source in a single
+   * pass in file order, different sources in parallel.
    *
    * @param ti The TimeInterval to load
    */
   private void loadData(TimeInterval ti) {
-    rawData.parallelStream()
-        .filter(e -> !e.getSegment().getIsLoaded())
-        .forEach(e -> {
-          e.getSegment().load();
-          e.getSegment().setIsLoaded(true);
-        });
+    if (ti == null) {
+      SegmentLoadPlanner.load(getRawData());
+    } else {
+      long margin = Math.round(ti.getDuration() * TraceView.getConfiguration().getPrefetchMargin());
+      SegmentLoadPlanner.load(findSegments(
+          new TimeInterval(ti.getStart() - margin, ti.getEnd() + margin)));
+    }
     // sort();
   }
 
+  /**
+   * Loads those of given segments which are not loaded yet. Loads are serialized per provider, so
+   * concurrent requests for the same window don't decode it twice.
+   */
+  private void ensureLoaded(List<Segment> segments) {
+    for (Segment segment : segments) {
+      if (!segment.getIsLoaded() && segment.getDataStream() == null) {
+        synchronized (rawData) {
+          SegmentLoadPlanner.load(segments);
+          loaded = isAllLoaded();
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return true if every segment has its data, in memory or in the serialized data stream
+   */
+  private boolean isAllLoaded() {
+    for (SegmentCache sc : rawData) {
+      Segment segment = sc.getSegment();
+      if (!segment.getIsLoaded() && segment.getDataStream() == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * @return list of data sources
    */
@@ -551,12 +768,18 @@ public class RawDataProvider extends Channel {
   }
 
   /**
-   * Loads data inside given time interval to this provider from its data sources
+   * Loads data inside given time interval, widened by configured prefetch margin, to this provider
+   * from its data sources. Data outside is loaded when first requested, see {@link
+   * #getRawData(TimeInterval)}.
+   *
+   * @param ti time interval to load, null to load all data
    */
   public void load(TimeInterval ti) {
     loadingStarted = true;
-    loadData(ti);
-    loaded = true;
+    synchronized (rawData) {
+      loadData(ti);
+      loaded = isAllLoaded();
+    }
     setChanged();
     notifyObservers(getTimeRange());
   }
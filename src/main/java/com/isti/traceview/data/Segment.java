@@ -30,6 +30,17 @@ public class Segment implements Externalizable, Cloneable {
 	 */
 	private static double gapTolerance = 1.0;
 
+	/**
+	 * Store keeping samples of loaded segments
+	 */
+	private static ISampleStore sampleStore = HeapSampleStore.INSTANCE;
+
+	/**
+	 * Segment data, null if not loaded
+	 */
+	private ISampleStore.Samples samples = null;
+
+	// data being added by addDataPoint, handed to the sample store once complete
 	private int[] data = null;
 
 	private int currentPos = 0;
@@ -169,6 +180,20 @@ public class Segment implements Externalizable, Cloneable {
 
 	}
 
+	/**
+	 * @return segment at the same place of the same source, with the same numbering but without
+	 *         data, so its data can be loaded and dropped while this segment is in use
+	 */
+	Segment copyUnloaded() {
+		Segment copy = new Segment(dataSource, startOffset, new Date(startTime), sampleRate, sampleCount,
+				sourceSerialNumber);
+		copy.trimStart = trimStart;
+		copy.channelSerialNumber = channelSerialNumber;
+		copy.continueAreaNumber = continueAreaNumber;
+		copy.rdp = rdp;
+		return copy;
+	}
+
 	/**
 	 * Constructor for testing purposes
 	 */
@@ -298,22 +323,28 @@ public class Segment implements Externalizable, Cloneable {
 			} catch (IOException e) {
 				logger.error("IOException:", e);
 			}
-			// Copy into this Segment's int[] data:
-			data = new int[sampleCount];
-			System.arraycopy(ret, trimStart, data, 0, sampleCount);
+			// Copy into this Segment's data:
+			int[] values = new int[sampleCount];
+			System.arraycopy(ret, trimStart, values, 0, sampleCount);
+			samples = sampleStore.store(values);
+			data = null;
 		}
 		return ret;
 	}
 
 
 	/**
-	 * Reads all data from loaded segment
+	 * Reads all data from loaded segment. Stores other than the heap one copy all samples to a new
+	 * array, so readers of a part of the segment should use {@link #getData(TimeInterval)} or
+	 * {@link #getData(int, int[], int, int)}.
 	 *
 	 * NOTE: Will add {@code ArrayList<Integer>} dataList constructor for SegmentData (for future use)
 	 */
 	public SegmentData getData() {
 		if (dataStream == null) {
-			return new SegmentData(startTime, sampleRate, sourceSerialNumber, channelSerialNumber, continueAreaNumber, data);
+			ISampleStore.Samples values = getSamples();
+			return new SegmentData(startTime, sampleRate, sourceSerialNumber, channelSerialNumber, continueAreaNumber,
+					values == null ? null : values.toArray());
 		} else {
 			int[] ret = new int[sampleCount];
 			try {
@@ -335,13 +366,40 @@ public class Segment implements Externalizable, Cloneable {
 		return getData(ti.getStart(), ti.getEnd());
 	}
 
+	/**
+	 * Copies range of samples from loaded segment, reading only that range
+	 *
+	 * @param from
+	 *            index of first sample to copy
+	 * @param dest
+	 *            destination array
+	 * @param destOffset
+	 *            index in the destination array to copy the first sample to
+	 * @param count
+	 *            count of samples to copy
+	 */
+	public void getData(int from, int[] dest, int destOffset, int count) {
+		if (dataStream == null) {
+			getSamples().get(from, dest, destOffset, count);
+		} else {
+			try {
+				dataStream.seek(startOffsetSerial + from * 4L);
+				for (int i = 0; i < count; i++) {
+					dest[destOffset + i] = dataStream.readInt();
+				}
+			} catch (IOException e) {
+				logger.error("IOException:", e);
+			}
+		}
+	}
+
 	public int getPointAtTime(long start) {
 		if (start < getStartTimeMillis() || start >= getEndTimeMillis()) {
 			return Integer.MIN_VALUE;
 		}
 
 		int startIndex = new Double((start - startTime) / sampleRate).intValue();
-		return data[startIndex];
+		return getSamples().get(startIndex);
 	}
 
 	/**
@@ -357,10 +415,11 @@ public class Segment implements Externalizable, Cloneable {
 		double temp = Math.min(start, end);
 		end = Math.max(start, end);
 		start = temp;
-		if (data == null) {
+		ISampleStore.Samples values = getSamples();
+		if (values == null) {
 			logger.debug("== Underlying array has not been initialized");
 		} else {
-			logger.debug("== Length of underlying data array: " + data.length);
+			logger.debug("== Length of underlying data array: " + values.length());
 		}
 
 		int[] ret = null;
@@ -378,13 +437,13 @@ public class Segment implements Externalizable, Cloneable {
 				logger.debug("== dataStream == null --> Get points from RAM data[] " +
 						"startTime=" + startTime + " endTime=" + getEndTime().getTime());
 				// we use internal data in the ram
-				ret = Arrays.copyOfRange(data, startIndex, endIndex);
+				values.get(startIndex, ret, 0, endIndex - startIndex);
 
 				if (startIndex > 0) {
-					previous = data[startIndex-1];
+					previous = values.get(startIndex-1);
 				}
 				if (endIndex < sampleCount) {
-					next = data[endIndex];
+					next = values.get(endIndex);
 				}
 			} else {
 				// we use serialized data file
@@ -406,14 +465,13 @@ public class Segment implements Externalizable, Cloneable {
 					// MTH: Use this if we are in the -T mode and we need to load existing serialized data (from .DATA)
 					if (com.isti.traceview.TraceView.getConfiguration().getDumpData()) {
 						logger.debug("We are in -T dataDump mode --> read this Segment from dataStream");
-						if (data == null) {
+						if (values == null) {
 							if (ret.length != sampleCount) {
 								//System.out.format("== Segment.getData(): Warning: sampleCount=[%d pnts] BUT data.length=[%d pnts]\n", sampleCount, ret.length);
 								logger.warn(String.format("sampleCount=[%d pnts] BUT data.length=[%d pnts]\n", sampleCount, ret.length));
 							}
 							//data = new int[sampleCount];
-							data = new int[ret.length];
-							System.arraycopy(ret, 0, data, 0, ret.length);
+							samples = sampleStore.store(Arrays.copyOf(ret, ret.length));
 						}
 						else {
 							//System.out.println("== Segment.getData(): We are in -T dataDump mode but data IS NOT null!!!");
@@ -438,15 +496,75 @@ public class Segment implements Externalizable, Cloneable {
 
 	/**
 	 * Adds sample to the end of segment data
+	 *
+	 * @throws ArrayIndexOutOfBoundsException if the segment already holds sampleCount samples
 	 */
 	public synchronized void addDataPoint(int value) {
 		if (data == null){
+			if (samples != null) {
+				// data completed and handed to the sample store, drop() before adding again
+				throw new ArrayIndexOutOfBoundsException(
+						"Segment already has all " + sampleCount + " samples");
+			}
 			currentPos = 0;
 			data = new int[sampleCount];
 		}
 		data[currentPos++] = value;
 		setMaxValue(value);
 		setMinValue(value);
+		if (currentPos == data.length) {
+			samples = sampleStore.store(data);
+			data = null;
+		}
+	}
+
+	/**
+	 * Sets whole segment data at once, for sources which decode samples straight into an array.
+	 * The array is handed to the sample store; the heap store keeps it without copying, so it
+	 * must not be changed afterwards.
+	 *
+	 * @param values
+	 *            segment data, sampleCount values long
+	 */
+	public synchronized void setData(int[] values) {
+		currentPos = values.length;
+		for (int value : values) {
+			setMaxValue(value);
+			setMinValue(value);
+		}
+		samples = sampleStore.store(values);
+		data = null;
+	}
+
+	/**
+	 * Sets whole segment data at once, for sources which keep samples in a form of their own,
+	 * like still compressed records
+	 *
+	 * @param values
+	 *            segment data, sampleCount values long
+	 * @param minValue
+	 *            minimal value of segment data
+	 * @param maxValue
+	 *            maximal value of segment data
+	 */
+	public synchronized void setSamples(ISampleStore.Samples values, int minValue, int maxValue) {
+		currentPos = values.length();
+		setMinValue(minValue);
+		setMaxValue(maxValue);
+		samples = values;
+		data = null;
+	}
+
+	/**
+	 * @return segment data, null if not loaded. Data partially added by {@link #addDataPoint(int)}
+	 *         is read from the array it is being added to.
+	 */
+	private ISampleStore.Samples getSamples() {
+		ISampleStore.Samples values = samples;
+		if (values == null && data != null) {
+			return HeapSampleStore.INSTANCE.store(data);
+		}
+		return values;
 	}
 
 	/**
@@ -484,14 +602,17 @@ public class Segment implements Externalizable, Cloneable {
 	}
 
 	/**
-	 * Clears segment data
+	 * Clears segment data and releases its samples, the segment is loaded again from its
+	 * source when its data is needed
 	 */
-	public void drop() {
-		for (int i = 0; i < currentPos; i++) {
-			data[i] = 0;
+	public synchronized void drop() {
+		if (samples != null) {
+			samples.release();
 		}
+		samples = null;
 		data = null;
 		currentPos = 0;
+		setIsLoaded(false);
 	}
 
 	/**
@@ -636,8 +757,9 @@ public class Segment implements Externalizable, Cloneable {
 		out.writeInt(sourceSerialNumber);
 		out.writeInt(channelSerialNumber);
 		out.writeInt(continueAreaNumber);
+		int[] values = getSamples().toArray();
 		for (int i = 0; i < sampleCount; i++) {
-			dataStream.writeInt(data[i]);
+			dataStream.writeInt(values[i]);
 		}
 		logger.debug("== DONE");
 	}
@@ -655,6 +777,22 @@ public class Segment implements Externalizable, Cloneable {
 		gapTolerance = tolerance;
 	}
 
+	/**
+	 * Sets store to keep data of segments loaded from now on, see {@link ISampleStore#create}
+	 *
+	 * @param store the new sampleStore
+	 */
+	public static void setSampleStore(ISampleStore store) {
+		sampleStore = store;
+	}
+
+	/**
+	 * @return store keeping data of loaded segments
+	 */
+	public static ISampleStore getSampleStore() {
+		return sampleStore;
+	}
+
 	/**
 	 * detect is there is data break (gap or overlay) between two time points
 	 *
@@ -697,8 +835,10 @@ public class Segment implements Externalizable, Cloneable {
 		long startTime = segs[0].startTime;
 		double sampleRate = segs[0].getSampleRate();
 		int[][] allSamples = new int[segs.length][];
-		allSamples[0] = segs[0].getData().data;
-		int totalLength = allSamples[0].length;
+		// the first segment is read straight into the merged array
+		int firstLength = segs[0].dataStream == null ? segs[0].getSamples().length()
+				: segs[0].sampleCount;
+		int totalLength = firstLength;
 		long currentEndTime = startTime + (long) (totalLength * sampleRate);
 		for (int i = 1; i < segs.length; ++i) {
 			Segment seg = segs[i];
@@ -715,7 +855,8 @@ public class Segment implements Externalizable, Cloneable {
 		}
 
 		int[] data = new int[totalLength];
-		int startingIndex = 0;
+		segs[0].getData(0, data, 0, firstLength);
+		int startingIndex = firstLength;
 		for (int[] mergeIn : allSamples) {
 			if (mergeIn == null) continue;
 			System.arraycopy(mergeIn, 0, data, startingIndex, mergeIn.length);
@@ -723,7 +864,7 @@ public class Segment implements Externalizable, Cloneable {
 		}
 		Segment returnValue = new Segment(segs[0].dataSource, segs[0].startOffset,
 				segs[0].getStartTime(), sampleRate, totalLength, segs[0].sourceSerialNumber);
-		returnValue.data = data;
+		returnValue.samples = sampleStore.store(data);
 		return returnValue;
 	}
 }
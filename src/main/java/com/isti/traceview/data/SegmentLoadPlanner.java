@@ -0,0 +1,94 @@
+package com.isti.traceview.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.log4j.Logger;
+
+/**
+ * Plans loading of segments. Unloaded segments are grouped by data source and ordered by their
+ * start offset, so each source reads its segments in a single pass in file order and adjacent
+ * segments continue one sequential read instead of seeking back and forth. Groups load in
+ * parallel with each other; segments of one group load sequentially on one thread.
+ */
+public final class SegmentLoadPlanner {
+
+  private static final Logger logger = Logger.getLogger(SegmentLoadPlanner.class);
+
+  private static final Comparator<Segment> byStartOffset =
+      Comparator.comparingLong(Segment::getStartOffset);
+
+  private SegmentLoadPlanner() {
+  }
+
+  /**
+   * Segments of one data source, ordered by start offset
+   */
+  public static class Group {
+
+    private final ISource source;
+    private final List<Segment> segments = new ArrayList<>();
+
+    private Group(ISource source) {
+      this.source = source;
+    }
+
+    public ISource getSource() {
+      return source;
+    }
+
+    public List<Segment> getSegments() {
+      return segments;
+    }
+
+    /**
+     * Loads all segments of the group with one call to the source and marks them as loaded
+     */
+    void load() {
+      if (source == null) {
+        // segments without a source can't be batched, leave them to their own load()
+        segments.forEach(Segment::load);
+        return;
+      }
+      source.load(segments);
+      for (Segment segment : segments) {
+        segment.setIsLoaded(true);
+      }
+    }
+  }
+
+  /**
+   * Groups unloaded segments by data source
+   *
+   * @param segments segments to load, in any order; already loaded and serialized ones are
+   * skipped
+   * @return one group per data source, segments ordered by start offset
+   */
+  public static List<Group> plan(Collection<Segment> segments) {
+    Map<ISource, Group> groups = new LinkedHashMap<>();
+    for (Segment segment : segments) {
+      // serialized segments read their data from temporary storage, not from the source
+      if (!segment.getIsLoaded() && segment.getDataStream() == null) {
+        groups.computeIfAbsent(segment.getDataSource(), Group::new).segments.add(segment);
+      }
+    }
+    for (Group group : groups.values()) {
+      group.segments.sort(byStartOffset);
+    }
+    return new ArrayList<>(groups.values());
+  }
+
+  /**
+   * Loads unloaded segments, data sources in parallel and segments of one source in file order
+   *
+   * @param segments segments to load
+   */
+  public static void load(Collection<Segment> segments) {
+    List<Group> groups = plan(segments);
+    logger.debug("Loading " + segments.size() + " segments from " + groups.size() + " sources");
+    groups.parallelStream().forEach(Group::load);
+  }
+}
@@ -0,0 +1,96 @@
+package com.isti.traceview.data.ascii;
+
+/**
+ * One block of samples of an ASCII file, as found by {@link
+ * AsciiFile#index(java.nio.channels.FileChannel)}: who recorded it, when, and where its samples
+ * lie in the file.
+ */
+public class AsciiBlock {
+
+  /**
+   * Layout of the samples of a block
+   */
+  public enum Layout {
+    /**
+     * Whitespace separated values, one or several on a line: bdf DATA and TIMESERIES SLIST
+     */
+    VALUES,
+    /**
+     * A time and a value on each line: TIMESERIES TSPAIR
+     */
+    TIME_VALUE_PAIRS
+  }
+
+  private final String network;
+  private final String station;
+  private final String location;
+  private final String channel;
+  private final long startTime;
+  private final double sampleInterval;
+  private final int sampleCount;
+  private final long dataOffset;
+  private final Layout layout;
+
+  AsciiBlock(String network, String station, String location, String channel, long startTime,
+      double sampleInterval, int sampleCount, long dataOffset, Layout layout) {
+    this.network = network;
+    this.station = station;
+    this.location = location;
+    this.channel = channel;
+    this.startTime = startTime;
+    this.sampleInterval = sampleInterval;
+    this.sampleCount = sampleCount;
+    this.dataOffset = dataOffset;
+    this.layout = layout;
+  }
+
+  public String getNetwork() {
+    return network;
+  }
+
+  public String getStation() {
+    return station;
+  }
+
+  public String getLocation() {
+    return location;
+  }
+
+  public String getChannel() {
+    return channel;
+  }
+
+  /**
+   * @return time of the first sample, in milliseconds
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * @return sample interval, in milliseconds
+   */
+  public double getSampleInterval() {
+    return sampleInterval;
+  }
+
+  public int getSampleCount() {
+    return sampleCount;
+  }
+
+  /**
+   * @return file offset of the line after the block header, where samples start
+   */
+  public long getDataOffset() {
+    return dataOffset;
+  }
+
+  public Layout getLayout() {
+    return layout;
+  }
+
+  public String toString() {
+    return "AsciiBlock: " + network + "." + station + "." + location + "." + channel + " at "
+        + dataOffset + ", " + sampleCount + " samples";
+  }
+}
@@ -0,0 +1,228 @@
+package com.isti.traceview.data.ascii;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import org.apache.log4j.Logger;
+
+/**
+ * Index of the blocks of an ASCII file. A file holds any number of blocks, each a header
+ * followed by its samples. Two kinds of headers are understood:
+ * <ul>
+ * <li>bdf: NET, STA, LOC, COMP, RATE, TIME and NSAM lines in any order, then a DATA line. Header
+ * values not repeated before a later block carry over from the previous one.</li>
+ * <li>IRIS TIMESERIES: one line such as <code>TIMESERIES IU_ANMO_00_BHZ_D, 12000 samples, 40 sps,
+ * 2018-09-27T10:30:15.000000, SLIST, INTEGER, Counts</code>, followed by whitespace separated
+ * values (SLIST) or by a time and a value on each line (TSPAIR).</li>
+ * </ul>
+ * The index reads the file once, through an {@link AsciiScanner}, jumping over the samples of
+ * each block without parsing them.
+ */
+public final class AsciiFile {
+
+  private static final Logger logger = Logger.getLogger(AsciiFile.class);
+
+  private static final DateTimeFormatter BDF_TIME_FORMAT = DateTimeFormatter
+      .ofPattern("yyyy,DDD,HH:mm:ss.SSSS").withZone(ZoneOffset.UTC);
+
+  public static final String TIMESERIES = "TIMESERIES";
+
+  private final List<AsciiBlock> blocks;
+
+  private AsciiFile(List<AsciiBlock> blocks) {
+    this.blocks = Collections.unmodifiableList(blocks);
+  }
+
+  /**
+   * @return blocks in file order
+   */
+  public List<AsciiBlock> getBlocks() {
+    return blocks;
+  }
+
+  /**
+   * @param dataOffset file offset of the first sample of a block
+   * @return block with given data offset, or null if there is none
+   */
+  public AsciiBlock getBlock(long dataOffset) {
+    int low = 0;
+    int high = blocks.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long offset = blocks.get(mid).getDataOffset();
+      if (offset < dataOffset) {
+        low = mid + 1;
+      } else if (offset > dataOffset) {
+        high = mid - 1;
+      } else {
+        return blocks.get(mid);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Header values of bdf blocks, kept while the file is read
+   */
+  private static class BdfHeader {
+
+    private String network = "";
+    private String station = "";
+    private String location = "";
+    private String channel = "";
+    private double sampleInterval = 0;
+    private Long startTime = null;
+    private int sampleCount = 0;
+
+    private void set(String line, long offset) throws AsciiFormatException {
+      if (line.length() < 4) {
+        return;
+      }
+      String value = line.substring(4).trim();
+      try {
+        switch (line.substring(0, 4).toUpperCase(Locale.ENGLISH)) {
+          case "NET ":
+            network = value;
+            break;
+          case "STA ":
+            station = value;
+            break;
+          case "LOC ":
+            location = value;
+            break;
+          case "COMP":
+            channel = value;
+            break;
+          case "RATE":
+            sampleInterval = 1000. / Double.parseDouble(value);
+            break;
+          case "TIME":
+            startTime = ZonedDateTime.parse(value, BDF_TIME_FORMAT).toInstant().toEpochMilli();
+            break;
+          case "NSAM":
+            sampleCount = Integer.parseInt(value);
+            break;
+        }
+      } catch (NumberFormatException | DateTimeParseException e) {
+        throw new AsciiFormatException("Bad header line at offset " + offset + ": " + line);
+      }
+    }
+
+    private AsciiBlock toBlock(long dataOffset) throws AsciiFormatException {
+      if (startTime == null) {
+        throw new AsciiFormatException("DATA without TIME at offset " + dataOffset);
+      }
+      return new AsciiBlock(network, station, location, channel, startTime, sampleInterval,
+          sampleCount, dataOffset, AsciiBlock.Layout.VALUES);
+    }
+  }
+
+  /**
+   * Finds all blocks of an ASCII file. A last block which ends before its count of samples is
+   * dropped.
+   *
+   * @param channel channel of the file; only positional reads are used
+   * @return index of the blocks of the file
+   */
+  public static AsciiFile index(FileChannel channel) throws IOException, AsciiFormatException {
+    List<AsciiBlock> blocks = new ArrayList<>();
+    AsciiScanner scanner = new AsciiScanner(channel, 0, AsciiScanner.BUFFER_SIZE);
+    BdfHeader bdf = new BdfHeader();
+    long offset = scanner.getPosition();
+    String line;
+    while ((line = scanner.readLine()) != null) {
+      AsciiBlock block;
+      if (line.startsWith(TIMESERIES)) {
+        block = parseTimeseries(line, offset, scanner.getPosition());
+      } else if (line.length() >= 4 && line.substring(0, 4).equalsIgnoreCase("DATA")) {
+        block = bdf.toBlock(scanner.getPosition());
+      } else {
+        bdf.set(line, offset);
+        offset = scanner.getPosition();
+        continue;
+      }
+      try {
+        scanner.skipTokens(getTokenCount(block));
+      } catch (EOFException e) {
+        logger.warn("Skipping truncated " + block + ": " + e.getMessage());
+        break;
+      }
+      blocks.add(block);
+      if (block.getSampleCount() > 0) {
+        // rest of the line after the last sample
+        scanner.readLine();
+      }
+      offset = scanner.getPosition();
+    }
+    return new AsciiFile(blocks);
+  }
+
+  private static AsciiBlock parseTimeseries(String line, long offset, long dataOffset)
+      throws AsciiFormatException {
+    String[] fields = line.substring(TIMESERIES.length()).split(",");
+    String[] id = fields[0].trim().split("_", -1);
+    if (fields.length < 5 || id.length < 4) {
+      throw new AsciiFormatException("Bad TIMESERIES header at offset " + offset + ": " + line);
+    }
+    AsciiBlock.Layout layout;
+    switch (fields[4].trim().toUpperCase(Locale.ENGLISH)) {
+      case "SLIST":
+        layout = AsciiBlock.Layout.VALUES;
+        break;
+      case "TSPAIR":
+        layout = AsciiBlock.Layout.TIME_VALUE_PAIRS;
+        break;
+      default:
+        throw new AsciiFormatException("Unknown layout " + fields[4].trim() + " at offset "
+            + offset);
+    }
+    try {
+      int sampleCount = Integer.parseInt(fields[1].trim().split("\\s+")[0]);
+      double sampleRate = Double.parseDouble(fields[2].trim().split("\\s+")[0]);
+      long startTime = LocalDateTime.parse(fields[3].trim()).toInstant(ZoneOffset.UTC)
+          .toEpochMilli();
+      return new AsciiBlock(id[0], id[1], id[2], id[3], startTime, 1000. / sampleRate,
+          sampleCount, dataOffset, layout);
+    } catch (NumberFormatException | DateTimeParseException e) {
+      throw new AsciiFormatException("Bad TIMESERIES header at offset " + offset + ": " + line);
+    }
+  }
+
+  private static long getTokenCount(AsciiBlock block) {
+    long count = block.getSampleCount();
+    return block.getLayout() == AsciiBlock.Layout.TIME_VALUE_PAIRS ? 2 * count : count;
+  }
+
+  /**
+   * Parses the samples of a block
+   *
+   * @param channel channel of the file; only positional reads are used
+   * @param block block to read
+   * @return samples of the block, decimal values rounded to the nearest integer
+   */
+  public static int[] read(FileChannel channel, AsciiBlock block)
+      throws IOException, AsciiFormatException {
+    int[] data = new int[block.getSampleCount()];
+    // a block of a small file needs no more buffer than the file holds
+    long rest = channel.size() - block.getDataOffset();
+    AsciiScanner scanner = new AsciiScanner(channel, block.getDataOffset(),
+        (int) Math.max(1, Math.min(AsciiScanner.BUFFER_SIZE, rest)));
+    boolean pairs = block.getLayout() == AsciiBlock.Layout.TIME_VALUE_PAIRS;
+    for (int i = 0; i < data.length; i++) {
+      if (pairs) {
+        scanner.skipTokens(1);
+      }
+      data[i] = scanner.readInt();
+    }
+    return data;
+  }
+}
@@ -0,0 +1,16 @@
+package com.isti.traceview.data.ascii;
+
+import com.isti.traceview.TraceViewException;
+
+public class AsciiFormatException extends TraceViewException {
+
+  private static final long serialVersionUID = 1L;
+
+  public AsciiFormatException() {
+    super();
+  }
+
+  public AsciiFormatException(String s) {
+    super(s);
+  }
+}
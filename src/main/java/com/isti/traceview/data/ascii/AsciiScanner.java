@@ -0,0 +1,203 @@
+package com.isti.traceview.data.ascii;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Buffered reader of ASCII text from a file channel, which keeps the file offset of its position.
+ * Header lines are read as strings; samples are parsed as whitespace separated tokens straight
+ * from the byte buffer, without creating a string for each of them. Only positional reads are
+ * used, so scanners on a shared channel don't disturb each other.
+ */
+class AsciiScanner {
+
+  static final int BUFFER_SIZE = 1 << 16;
+
+  // digits of a mantissa kept exactly; further digits only scale it
+  private static final int MAX_DIGITS = 18;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final byte[] bytes;
+  // file offset of bytes[0]
+  private long bufferStart;
+  private int limit = 0;
+  private int pos = 0;
+
+  AsciiScanner(FileChannel channel, long position, int bufferSize) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocate(bufferSize);
+    this.bytes = buffer.array();
+    this.bufferStart = position;
+  }
+
+  /**
+   * @return file offset of the next byte to read
+   */
+  long getPosition() {
+    return bufferStart + pos;
+  }
+
+  /**
+   * @return next byte, or -1 at the end of the file
+   */
+  private int read() throws IOException {
+    if (pos == limit && !fill()) {
+      return -1;
+    }
+    return bytes[pos++] & 0xFF;
+  }
+
+  private boolean fill() throws IOException {
+    bufferStart += limit;
+    pos = 0;
+    limit = 0;
+    buffer.clear();
+    int read = channel.read(buffer, bufferStart);
+    if (read <= 0) {
+      return false;
+    }
+    limit = read;
+    return true;
+  }
+
+  /**
+   * @return next line without its terminator, or null at the end of the file
+   */
+  String readLine() throws IOException {
+    int c = read();
+    if (c < 0) {
+      return null;
+    }
+    StringBuilder line = new StringBuilder();
+    while (c >= 0 && c != '\n') {
+      if (c != '\r') {
+        line.append((char) c);
+      }
+      c = read();
+    }
+    return line.toString();
+  }
+
+  /**
+   * @return first byte of the next token, already consumed, or -1 at the end of the file
+   */
+  private int skipWhitespace() throws IOException {
+    int c = read();
+    while (c >= 0 && c <= ' ') {
+      c = read();
+    }
+    return c;
+  }
+
+  /**
+   * Skips whitespace separated tokens
+   *
+   * @throws EOFException if the file ends before count tokens
+   */
+  void skipTokens(long count) throws IOException {
+    for (long i = 0; i < count; i++) {
+      int c = skipWhitespace();
+      if (c < 0) {
+        throw new EOFException("File ends after " + i + " of " + count + " values");
+      }
+      while (true) {
+        // scan the buffer in place, without a call per byte
+        while (pos < limit && (bytes[pos] & 0xFF) > ' ') {
+          pos++;
+        }
+        if (pos < limit || !fill()) {
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Parses the next token as a number: an integer, or a decimal with optional fraction and
+   * exponent which is rounded to the nearest integer
+   *
+   * @throws EOFException if the file has no more tokens
+   * @throws AsciiFormatException if the token isn't a number or doesn't fit into an int
+   */
+  int readInt() throws IOException, AsciiFormatException {
+    int c = skipWhitespace();
+    if (c < 0) {
+      throw new EOFException("File ends before value at " + getPosition());
+    }
+    long start = getPosition() - 1;
+    boolean negative = false;
+    if (c == '-' || c == '+') {
+      negative = c == '-';
+      c = read();
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int scale = 0;
+    boolean dot = false;
+    while (c > ' ') {
+      if (c >= '0' && c <= '9') {
+        if (mantissa == 0 && c == '0') {
+          // leading zeros aren't significant
+          digits = Math.max(digits, 1);
+          scale -= dot ? 1 : 0;
+        } else if (digits < MAX_DIGITS || mantissa == 0) {
+          mantissa = mantissa * 10 + (c - '0');
+          digits++;
+          scale -= dot ? 1 : 0;
+        } else {
+          scale += dot ? 0 : 1;
+        }
+      } else if (c == '.' && !dot) {
+        dot = true;
+      } else if ((c == 'e' || c == 'E') && digits > 0) {
+        scale += readExponent(start);
+        break;
+      } else {
+        throw new AsciiFormatException("Not a number at offset " + start);
+      }
+      c = read();
+    }
+    if (digits == 0) {
+      throw new AsciiFormatException("Not a number at offset " + start);
+    }
+    double value;
+    if (scale == 0) {
+      value = mantissa;
+    } else if (scale > 0) {
+      value = mantissa * Math.pow(10, scale);
+    } else {
+      value = mantissa / Math.pow(10, -scale);
+    }
+    value = negative ? -value : value;
+    if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+      throw new AsciiFormatException("Value at offset " + start + " is out of integer range");
+    }
+    return scale == 0 ? (int) (negative ? -mantissa : mantissa) : (int) Math.round(value);
+  }
+
+  private int readExponent(long start) throws IOException, AsciiFormatException {
+    int c = read();
+    boolean negative = false;
+    if (c == '-' || c == '+') {
+      negative = c == '-';
+      c = read();
+    }
+    int exponent = 0;
+    int digits = 0;
+    while (c > ' ') {
+      if (c < '0' || c > '9') {
+        throw new AsciiFormatException("Not a number at offset " + start);
+      }
+      exponent = Math.min(exponent * 10 + (c - '0'), 1000);
+      digits++;
+      c = read();
+    }
+    if (digits == 0) {
+      throw new AsciiFormatException("Not a number at offset " + start);
+    }
+    return negative ? -exponent : exponent;
+  }
+}
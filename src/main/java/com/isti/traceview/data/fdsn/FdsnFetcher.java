@@ -0,0 +1,141 @@
+package com.isti.traceview.data.fdsn;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.log4j.Logger;
+
+/**
+ * Fetches miniSEED from an FDSN dataselect service into a {@link MseedCache}. Each request is
+ * split into chunks of fixed length (see {@link FdsnRequest#split(long)}); chunks found in the
+ * cache are not downloaded again, the others are downloaded concurrently by a bounded pool.
+ * Chunks which may still receive data, i.e. which end after the time of the download, are stored
+ * but not remembered, so a later fetch downloads them again.
+ */
+public class FdsnFetcher {
+
+  private static final Logger logger = Logger.getLogger(FdsnFetcher.class);
+
+  /**
+   * Default length of a chunk, in milliseconds
+   */
+  public static final long DEFAULT_CHUNK_LENGTH = 3600 * 1000L;
+
+  /**
+   * Default count of concurrent downloads; data centers limit connections per client
+   */
+  public static final int DEFAULT_THREAD_COUNT = 4;
+
+  private static final int CONNECT_TIMEOUT = 30 * 1000;
+  private static final int READ_TIMEOUT = 5 * 60 * 1000;
+
+  private final String queryUrl;
+  private final MseedCache cache;
+  private final long chunkLength;
+  private final int threadCount;
+
+  /**
+   * @param scheme http or https
+   * @param host host of the service
+   * @param port port of the service
+   * @param path path of FDSN web services on the host, such as "fdsnws"
+   * @param cache cache to store data in
+   */
+  public FdsnFetcher(String scheme, String host, int port, String path, MseedCache cache) {
+    this(scheme, host, port, path, cache, DEFAULT_CHUNK_LENGTH, DEFAULT_THREAD_COUNT);
+  }
+
+  /**
+   * @param chunkLength length of a chunk, in milliseconds
+   * @param threadCount maximum count of concurrent downloads
+   */
+  public FdsnFetcher(String scheme, String host, int port, String path, MseedCache cache,
+      long chunkLength, int threadCount) {
+    String trimmed = path.replaceAll("^/+|/+$", "");
+    this.queryUrl = scheme + "://" + host + ":" + port + "/"
+        + (trimmed.isEmpty() ? "" : trimmed + "/") + "dataselect/1/query?";
+    this.cache = cache;
+    this.chunkLength = chunkLength;
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Fetches data of all requests. A chunk which fails to download is logged and left out, so the
+   * others are still shown.
+   *
+   * @return non-empty miniSEED files of the cache, in the order of requests and chunks
+   */
+  public List<File> fetch(List<FdsnRequest> requests) {
+    List<FdsnRequest> chunks = new ArrayList<>();
+    for (FdsnRequest request : requests) {
+      chunks.addAll(request.split(chunkLength));
+    }
+    List<File> files = new ArrayList<>(chunks.size());
+    if (chunks.isEmpty()) {
+      return files;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, chunks.size()));
+    try {
+      List<Future<File>> tasks = new ArrayList<>(chunks.size());
+      for (FdsnRequest chunk : chunks) {
+        tasks.add(executor.submit(() -> fetch(chunk)));
+      }
+      for (int i = 0; i < tasks.size(); i++) {
+        try {
+          File file = tasks.get(i).get();
+          if (file.length() > 0) {
+            files.add(file);
+          }
+        } catch (ExecutionException e) {
+          logger.error("Can't fetch " + chunks.get(i) + ": ", e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.warn("Interrupted while fetching data, " + files.size() + " of " + chunks.size()
+          + " chunks fetched");
+    } finally {
+      executor.shutdownNow();
+    }
+    return files;
+  }
+
+  private File fetch(FdsnRequest chunk) throws IOException {
+    String url = queryUrl + chunk.getQuery();
+    File cached = cache.get(url);
+    if (cached != null) {
+      logger.debug("Cached: " + url);
+      return cached;
+    }
+    boolean complete = chunk.getEndTime() < System.currentTimeMillis();
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setConnectTimeout(CONNECT_TIMEOUT);
+    connection.setReadTimeout(READ_TIMEOUT);
+    try {
+      int code = connection.getResponseCode();
+      logger.debug("Downloading: " + url + ", HTTP " + code);
+      if (code == HttpURLConnection.HTTP_NO_CONTENT || code == HttpURLConnection.HTTP_NOT_FOUND) {
+        // no data for the chunk
+        try (InputStream empty = new ByteArrayInputStream(new byte[0])) {
+          return cache.put(url, empty, complete);
+        }
+      } else if (code != HttpURLConnection.HTTP_OK) {
+        throw new IOException("HTTP " + code + " " + connection.getResponseMessage() + ": " + url);
+      }
+      try (InputStream in = connection.getInputStream()) {
+        return cache.put(url, in, complete);
+      }
+    } finally {
+      connection.disconnect();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.isti.traceview.data.fdsn;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request of FDSN dataselect data of one channel over a time window. Codes may hold FDSN wildcards;
+ * an empty location code selects the empty location.
+ */
+public class FdsnRequest {
+
+  private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter
+      .ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS").withZone(ZoneOffset.UTC);
+
+  private final String network;
+  private final String station;
+  private final String location;
+  private final String channel;
+  private final long startTime;
+  private final long endTime;
+
+  /**
+   * @param startTime start of the window, in epoch milliseconds
+   * @param endTime end of the window, in epoch milliseconds
+   */
+  public FdsnRequest(String network, String station, String location, String channel,
+      long startTime, long endTime) {
+    this.network = network;
+    this.station = station;
+    this.location = location;
+    this.channel = channel;
+    this.startTime = startTime;
+    this.endTime = endTime;
+  }
+
+  public String getNetwork() {
+    return network;
+  }
+
+  public String getStation() {
+    return station;
+  }
+
+  public String getLocation() {
+    return location;
+  }
+
+  public String getChannel() {
+    return channel;
+  }
+
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public long getEndTime() {
+    return endTime;
+  }
+
+  /**
+   * Splits the window into chunks at multiples of the chunk length since the epoch. Chunk
+   * boundaries don't depend on the window, so overlapping windows share their common chunks.
+   *
+   * @param chunkLength length of a chunk, in milliseconds
+   * @return requests of the same channel, one for each chunk touched by the window, in time order
+   */
+  public List<FdsnRequest> split(long chunkLength) {
+    List<FdsnRequest> chunks = new ArrayList<>();
+    long chunkStart = Math.floorDiv(startTime, chunkLength) * chunkLength;
+    for (; chunkStart < endTime; chunkStart += chunkLength) {
+      chunks.add(new FdsnRequest(network, station, location, channel, chunkStart,
+          chunkStart + chunkLength));
+    }
+    return chunks;
+  }
+
+  /**
+   * @return query string of a dataselect request, without the leading '?'
+   */
+  public String getQuery() {
+    return "net=" + encode(network) + "&sta=" + encode(station) + "&loc="
+        + encode(location.trim().isEmpty() ? "--" : location) + "&cha=" + encode(channel)
+        + "&start=" + TIME_FORMAT.format(Instant.ofEpochMilli(startTime)) + "&end="
+        + TIME_FORMAT.format(Instant.ofEpochMilli(endTime)) + "&nodata=404";
+  }
+
+  private static String encode(String code) {
+    try {
+      return URLEncoder.encode(code.trim(), "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      // every Java platform has UTF-8
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public String toString() {
+    return "FdsnRequest: " + getQuery();
+  }
+}
@@ -0,0 +1,199 @@
+package com.isti.traceview.data.fdsn;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.apache.log4j.Logger;
+
+/**
+ * Content addressed on-disk cache of downloaded miniSEED. Every distinct content is stored once,
+ * in a file named after its SHA-256 digest, and is never changed afterwards, so it can be mapped
+ * and pooled like any other data file. Requests are remembered separately: each request maps to
+ * the digest of the content it returned, so equal responses to different requests share one
+ * file. An empty content stands for a request which returned no data.
+ *
+ * Content which isn't remembered, such as data still being recorded, is stored apart from the
+ * content addressed files, one file per request: storing it again deletes the previous file of
+ * the request, so refetching a growing request doesn't leave a file behind for every fetch.
+ */
+public class MseedCache {
+
+  private static final Logger logger = Logger.getLogger(MseedCache.class);
+
+  private static final String DATA_DIRECTORY = "data";
+  private static final String REQUEST_DIRECTORY = "requests";
+  private static final String LIVE_DIRECTORY = "live";
+  private static final String EXTENSION = ".mseed";
+  private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+  private final Path directory;
+
+  /**
+   * @param directory cache directory, created when first stored into
+   */
+  public MseedCache(File directory) {
+    this.directory = directory.toPath();
+  }
+
+  /**
+   * @param request text which identifies a request, such as its query
+   * @return content stored for the request, empty if the request returned no data, or null if the
+   * request isn't cached
+   */
+  public File get(String request) throws IOException {
+    Path record = getRequestPath(request);
+    if (!Files.isRegularFile(record)) {
+      return null;
+    }
+    String digest = new String(Files.readAllBytes(record), StandardCharsets.US_ASCII).trim();
+    Path content = getContentPath(digest);
+    if (!Files.isRegularFile(content)) {
+      logger.warn("Cached content of " + request + " is missing, dropping the request record");
+      Files.deleteIfExists(record);
+      return null;
+    }
+    return content.toFile();
+  }
+
+  /**
+   * Stores content, and remembers it as the response to the request
+   *
+   * @param request text which identifies a request, such as its query
+   * @param content response to the request, read to the end but not closed
+   * @param remember false to store the content without remembering the request, for responses
+   * which may change later, such as data still being recorded; such content replaces the content
+   * last stored for the request this way
+   * @return stored content
+   */
+  public File put(String request, InputStream content, boolean remember) throws IOException {
+    Path data = directory.resolve(DATA_DIRECTORY);
+    Files.createDirectories(data);
+    Path temp = Files.createTempFile(data, "download", ".tmp");
+    String key = getRequestKey(request);
+    Path stored;
+    try {
+      MessageDigest sha = newDigest();
+      byte[] buffer = new byte[COPY_BUFFER_SIZE];
+      try (OutputStream out = Files.newOutputStream(temp)) {
+        int read;
+        while ((read = content.read(buffer)) > 0) {
+          sha.update(buffer, 0, read);
+          out.write(buffer, 0, read);
+        }
+      }
+      String digest = toHex(sha.digest());
+      stored = remember ? getContentPath(digest) : getLivePath(key, digest);
+      Files.createDirectories(stored.getParent());
+      if (!Files.exists(stored)) {
+        move(temp, stored);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    deleteLive(key, stored);
+    if (remember) {
+      Path record = getRequestPath(request);
+      Files.createDirectories(record.getParent());
+      Path recordTemp = Files.createTempFile(record.getParent(), "request", ".tmp");
+      try {
+        String digest = stored.getFileName().toString();
+        digest = digest.substring(0, digest.length() - EXTENSION.length());
+        Files.write(recordTemp, digest.getBytes(StandardCharsets.US_ASCII));
+        move(recordTemp, record);
+      } finally {
+        Files.deleteIfExists(recordTemp);
+      }
+    }
+    return stored.toFile();
+  }
+
+  // an existing target has the same content, or is a record of the same request made by another
+  // thread, so either copy may win
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      try {
+        Files.move(source, target);
+      } catch (FileAlreadyExistsException ignored) {
+        // same content already stored
+      }
+    } catch (FileAlreadyExistsException ignored) {
+      // same content already stored
+    }
+  }
+
+  private Path getContentPath(String digest) {
+    return directory.resolve(DATA_DIRECTORY).resolve(digest.substring(0, 2))
+        .resolve(digest + EXTENSION);
+  }
+
+  /**
+   * Deletes content stored for a request without remembering it, except the given file. A file
+   * which can't be deleted yet, like one still mapped on Windows, is left for the next store.
+   */
+  private void deleteLive(String key, Path keep) {
+    Path live = directory.resolve(LIVE_DIRECTORY).resolve(key.substring(0, 2));
+    if (!Files.isDirectory(live)) {
+      return;
+    }
+    try (DirectoryStream<Path> previous = Files.newDirectoryStream(live, key + ".*" + EXTENSION)) {
+      for (Path file : previous) {
+        if (!file.equals(keep)) {
+          try {
+            Files.deleteIfExists(file);
+          } catch (IOException e) {
+            logger.debug("Can't delete replaced content " + file + ": " + e);
+          }
+        }
+      }
+    } catch (IOException e) {
+      logger.debug("Can't list replaced content of " + key + ": " + e);
+    }
+  }
+
+  /**
+   * Content isn't shared between requests here, so the request is part of the name; the content
+   * digest keeps a file which is replaced apart from the one replacing it
+   */
+  private Path getLivePath(String key, String digest) {
+    return directory.resolve(LIVE_DIRECTORY).resolve(key.substring(0, 2))
+        .resolve(key + "." + digest + EXTENSION);
+  }
+
+  private Path getRequestPath(String request) {
+    String key = getRequestKey(request);
+    return directory.resolve(REQUEST_DIRECTORY).resolve(key.substring(0, 2)).resolve(key);
+  }
+
+  private static String getRequestKey(String request) {
+    return toHex(newDigest().digest(request.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform has SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+}
@@ -2,7 +2,6 @@ package com.isti.traceview.data.ims;
 
 import gov.usgs.anss.cd11.CanadaException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -51,6 +50,6 @@ public abstract class Block {
 		return ret;
 	}
 	
-	public abstract void read(RandomAccessFile input) throws IMSFormatException, IOException, ParseException, CanadaException;
+	public abstract void read(IMSLineReader input) throws IMSFormatException, IOException, ParseException, CanadaException;
 
 }
@@ -3,7 +3,6 @@ package com.isti.traceview.data.ims;
 import gov.usgs.anss.cd11.CanadaException;
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.text.ParseException;
 import org.apache.log4j.Logger;
 
@@ -36,7 +35,13 @@ public class BlockSet {
 		return chk2;
 	}
 
-	public void read(RandomAccessFile input, boolean parseOnly) throws IOException, IMSFormatException, ParseException, CanadaException {
+	/**
+	 * Reads block set starting at current reader position
+	 *
+	 * @param parseOnly
+	 *            if true, data block is skipped without decoding, see {@link #decode(IMSLineReader)}
+	 */
+	public void read(IMSLineReader input, boolean parseOnly) throws IOException, IMSFormatException, ParseException, CanadaException {
 		long filePointer = 0;
 		String line = null;
 		startOffset = input.getFilePointer();
@@ -44,7 +49,9 @@ public class BlockSet {
 			while (true) {
 				filePointer = input.getFilePointer();
 				line = input.readLine();
-				if (line.startsWith("STOP") || line.startsWith("TIME_STAMP")) {
+				if (line == null) {
+					break;
+				} else if (line.startsWith("STOP") || line.startsWith("TIME_STAMP")) {
 					input.seek(filePointer);
 					break;
 				} else if (line.startsWith("WID2")) {
@@ -58,7 +65,11 @@ public class BlockSet {
 				} else if (line.startsWith("DAT2")) {
 					dat2 = new DAT2(filePointer, wid2);
 					input.seek(filePointer);
-					dat2.read(input);
+					if (parseOnly) {
+						dat2.skip(input);
+					} else {
+						dat2.read(input);
+					}
 				} else if (line.startsWith("CHK2")) {
 					chk2 = new CHK2(filePointer);
 					input.seek(filePointer);
@@ -74,6 +85,20 @@ public class BlockSet {
 		}
 	}
 
+	/**
+	 * Decodes data block of a block set read with parseOnly flag
+	 *
+	 * @param input
+	 *            reader of the same file, its position doesn't matter
+	 */
+	public void decode(IMSLineReader input) throws IOException, IMSFormatException, ParseException, CanadaException {
+		if (dat2 == null) {
+			throw new IMSFormatException("No data block in block set at offset " + startOffset);
+		}
+		input.seek(dat2.getStartOffset());
+		dat2.read(input);
+	}
+
 	public void check() throws IMSFormatException {
 		if (chk2.getChkSum() != chk2.checksum(dat2)) {
 			throw new IMSFormatException("Wrong waveform checksum");
@@ -1,7 +1,6 @@
 package com.isti.traceview.data.ims;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.text.ParseException;
 import org.apache.log4j.Logger;
 
@@ -17,8 +16,8 @@ public class CHK2 extends Block {
 		return chksum;
 	}
 
-	public void read(RandomAccessFile input) throws IMSFormatException, IOException, ParseException {
-		logger.debug("Reading buffered random access file");
+	public void read(IMSLineReader input) throws IMSFormatException, IOException, ParseException {
+		logger.debug("Reading CHK2");
 		header = input.readLine();
 		if (!header.startsWith("CHK2")) {
 			throw new IMSFormatException("Wrong check block header: " + header);
@@ -3,96 +3,233 @@ package com.isti.traceview.data.ims;
 import gov.usgs.anss.cd11.CanadaException;
 import gov.usgs.anss.cd11.ChannelSubframe;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.text.ParseException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.log4j.Logger;
 
 public class DAT2 extends Block {
 	private static final Logger logger = Logger.getLogger(DAT2.class);
+
+	// value of every CM6 character, -1 for characters outside of the CM6 alphabet
+	private static final int[] cm6Values = new int[128];
+	static {
+		Arrays.fill(cm6Values, -1);
+		String alphabet = "+-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+		for (int i = 0; i < alphabet.length(); i++) {
+			cm6Values[alphabet.charAt(i)] = i;
+		}
+	}
+
 	private int[] data;
 	private WID2 wid2;
 
 	public DAT2(long startOffset, WID2 wid2) {
 		super(startOffset);
 		this.wid2 = wid2;
-		data = new int[wid2.getNumSamples()];
 	}
 
+	/**
+	 * @return decoded samples, null if the block was skipped
+	 */
 	public int[] getData() {
 		return data;
 	}
 
-	public void read(RandomAccessFile input) throws IMSFormatException, IOException, ParseException, CanadaException {
+	/**
+	 * Reads data block and decodes its samples straight into the data array
+	 */
+	public void read(IMSLineReader input) throws IMSFormatException, IOException, ParseException, CanadaException {
+		readHeader(input);
+		data = new int[wid2.getNumSamples()];
+		int numSamples;
+		switch (wid2.getCsf()) {
+			case INT:
+				numSamples = readINT(input);
+				break;
+			case CM6:
+				numSamples = readCM6(input);
+				break;
+			case CSF:
+				numSamples = readCSF(input);
+				break;
+			default:
+				throw new IMSFormatException("Unknown compression type");
+		}
+		if (numSamples != wid2.getNumSamples()) {
+			throw new IMSFormatException("Wrong samples count in data block: read " + numSamples + ", should be " + wid2.getNumSamples());
+		}
+	}
+
+	/**
+	 * Reads past data block without decoding it, input is left at the next block
+	 */
+	public void skip(IMSLineReader input) throws IMSFormatException, IOException {
+		readHeader(input);
+		while (true) {
+			long filePointer = input.getFilePointer();
+			if (isBlockEnded(input.readLine())) {
+				input.seek(filePointer);
+				break;
+			}
+		}
+	}
+
+	private void readHeader(IMSLineReader input) throws IMSFormatException, IOException {
 		header = input.readLine();
-		if (!header.startsWith("DAT2")) {
+		if (header == null || !header.startsWith("DAT2")) {
 			throw new IMSFormatException("Wrong data block header: " + header);
 		}
+	}
+
+	/**
+	 * Free format integers separated by whitespace
+	 */
+	private int readINT(IMSLineReader input) throws IMSFormatException, IOException {
 		int numSamples = 0;
-		String line = "";
 		while (true) {
 			long filePointer = input.getFilePointer();
-			if (wid2.getCsf() == WID2.Compression.CSF) {
-				String l = input.readLine();
-				if (isBlockEnded(l)) {
-					numSamples = decodeCSF(numSamples, line);
-					input.seek(filePointer);
-					break;
-				}
-				line = line + l;
-				if (line.endsWith("=")) {
-					numSamples = decodeCSF(numSamples, line);
-					line = "";
+			String line = input.readLine();
+			if (isBlockEnded(line)) {
+				input.seek(filePointer);
+				break;
+			}
+			try {
+				numSamples = parseInts(line, numSamples);
+			} catch (NumberFormatException e) {
+				input.seek(filePointer);
+				logger.error("NumberFormatException:", e);
+				break;
+			}
+		}
+		return numSamples;
+	}
 
+	private int parseInts(String line, int numSamples) throws IMSFormatException {
+		int length = line.length();
+		int i = 0;
+		while (i < length) {
+			if (Character.isWhitespace(line.charAt(i))) {
+				i++;
+				continue;
+			}
+			int start = i;
+			boolean negative = false;
+			char c = line.charAt(i);
+			if (c == '-' || c == '+') {
+				negative = c == '-';
+				i++;
+			}
+			long value = 0;
+			int digits = 0;
+			while (i < length && !Character.isWhitespace(line.charAt(i))) {
+				int digit = line.charAt(i) - '0';
+				if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE + 1L) {
+					throw new NumberFormatException("For input string: \"" + line.substring(start) + "\"");
 				}
+				value = value * 10 + digit;
+				digits++;
+				i++;
+			}
+			value = negative ? -value : value;
+			if (digits == 0 || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+				throw new NumberFormatException("For input string: \"" + line.substring(start, i) + "\"");
+			}
+			store(numSamples++, (int) value);
+		}
+		return numSamples;
+	}
 
-			} else if (wid2.getCsf() == WID2.Compression.INT) {
-				line = input.readLine();
-				// lg.debug(line);
-				if (isBlockEnded(line)) {
-					input.seek(filePointer);
-					break;
-				}
-				String[] lineParts = line.split("\\s+");
-				if (lineParts.length > 0) {
-					try {
-						for (String part : lineParts) {
-							if (part.length() > 0) {
-								data[numSamples] = Integer.parseInt(part.trim());
-								numSamples++;
-							}
-						}
-					} catch (NumberFormatException e) {
-						input.seek(filePointer);
-						logger.error("NumberFormatException:", e);	
-						break;
+	/**
+	 * 6-bit ASCII compression of second differences. The first character of a value holds a
+	 * continuation bit, a sign bit and 4 value bits, following characters hold a continuation bit
+	 * and 5 value bits. Values may continue on the next line.
+	 */
+	private int readCM6(IMSLineReader input) throws IMSFormatException, IOException {
+		int numSamples = 0;
+		int value = 0;
+		boolean negative = false;
+		boolean inValue = false;
+		while (true) {
+			long filePointer = input.getFilePointer();
+			String line = input.readLine();
+			if (isBlockEnded(line)) {
+				input.seek(filePointer);
+				break;
+			}
+			for (int i = 0; i < line.length(); i++) {
+				char c = line.charAt(i);
+				int k = c < cm6Values.length ? cm6Values[c] : -1;
+				if (k < 0) {
+					if (Character.isWhitespace(c)) {
+						continue;
 					}
+					throw new IMSFormatException("Wrong CM6 character '" + c + "' in line: " + line);
+				}
+				if (inValue) {
+					value = (value << 5) | (k & 31);
+				} else {
+					negative = (k & 16) != 0;
+					value = k & 15;
+				}
+				inValue = (k & 32) != 0;
+				if (!inValue) {
+					store(numSamples++, negative ? -value : value);
 				}
-			} else {
-				throw new IMSFormatException("Unknown compression type");
 			}
 		}
-		if (numSamples != wid2.getNumSamples()) {
-			throw new IMSFormatException("Wrong samples count in data block: read " + numSamples + ", should be " + wid2.getNumSamples());
+		if (inValue) {
+			throw new IMSFormatException("CM6 data ends inside a value");
+		}
+		// remove second differences
+		for (int pass = 0; pass < 2; pass++) {
+			for (int i = 1; i < numSamples; i++) {
+				data[i] += data[i - 1];
+			}
 		}
+		return numSamples;
 	}
 
-	private int decodeCSF(int numSamples, String line) throws CanadaException {
-		List<ChannelSubframe> csfList = new ArrayList<>();
+	/**
+	 * Base64 encoded CD-1.1 channel subframes, each chunk ends with '='
+	 */
+	private int readCSF(IMSLineReader input) throws IMSFormatException, IOException, CanadaException {
+		int numSamples = 0;
+		StringBuilder chunk = new StringBuilder();
+		while (true) {
+			long filePointer = input.getFilePointer();
+			String line = input.readLine();
+			if (isBlockEnded(line)) {
+				numSamples = decodeCSF(numSamples, chunk.toString());
+				input.seek(filePointer);
+				break;
+			}
+			chunk.append(line);
+			if (line.endsWith("=")) {
+				numSamples = decodeCSF(numSamples, chunk.toString());
+				chunk.setLength(0);
+			}
+		}
+		return numSamples;
+	}
+
+	private void store(int index, int value) throws IMSFormatException {
+		if (index >= data.length) {
+			throw new IMSFormatException("Data block holds more than " + data.length + " samples");
+		}
+		data[index] = value;
+	}
+
+	private int decodeCSF(int numSamples, String line) throws CanadaException, IMSFormatException {
 		byte[] csfs = Base64.decodeBase64(line);
 		ByteBuffer bb = ByteBuffer.wrap(csfs);
 		while (bb.position() < bb.capacity()) {
-			csfList.add(new ChannelSubframe(bb));
-		}
-		for (ChannelSubframe csf : csfList) {
-			int[] samples = new int[csf.getNsamp()];
-			csf.getSamples(samples);
-			for(int i = 0; i<samples.length; i++){
-				data[numSamples+i]=samples[i];
+			ChannelSubframe csf = new ChannelSubframe(bb);
+			if (numSamples + csf.getNsamp() > data.length) {
+				throw new IMSFormatException("Data block holds more than " + data.length + " samples");
 			}
+			csf.getSamples(data, numSamples);
 			numSamples += csf.getNsamp();
 		}
 		return numSamples;
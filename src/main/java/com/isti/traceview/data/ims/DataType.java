@@ -2,7 +2,6 @@ package com.isti.traceview.data.ims;
 
 import gov.usgs.anss.cd11.CanadaException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.text.ParseException;
 import java.util.Date;
 import java.util.regex.Matcher;
@@ -53,7 +52,7 @@ public abstract class DataType {
 		this.startOffset = startOffset;
 	}
 	
-	public static DataType readHeader(RandomAccessFile input) throws IMSFormatException, IOException {
+	public static DataType readHeader(IMSLineReader input) throws IMSFormatException, IOException {
 		DataType ret = null;
 		long filePointer = input.getFilePointer();
 		String line = input.readLine();
@@ -85,7 +84,7 @@ public abstract class DataType {
 		return ret;
 	}
 	
-	public abstract void read(RandomAccessFile input, boolean parseOnly) throws IOException, IMSFormatException, ParseException, CanadaException;
+	public abstract void read(IMSLineReader input, boolean parseOnly) throws IOException, IMSFormatException, ParseException, CanadaException;
 	public abstract void check() throws IMSFormatException;
 
 }
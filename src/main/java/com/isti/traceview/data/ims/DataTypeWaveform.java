@@ -3,7 +3,6 @@ package com.isti.traceview.data.ims;
 import gov.usgs.anss.cd11.CanadaException;
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
@@ -23,7 +22,7 @@ public class DataTypeWaveform extends DataType {
 		return channels;
 	}
 	
-	public void read(RandomAccessFile input, boolean parseOnly) throws IOException, IMSFormatException, ParseException, CanadaException {
+	public void read(IMSLineReader input, boolean parseOnly) throws IOException, IMSFormatException, ParseException, CanadaException {
 		long filePointer = 0;
 		try {
 			while (true) {
@@ -40,7 +39,8 @@ public class DataTypeWaveform extends DataType {
 				}
 				input.seek(filePointer);
 				BlockSet bs = new BlockSet();
-				bs.read(input, parseOnly);
+				// data blocks are decoded after the scan, in parallel
+				bs.read(input, true);
 				if(channels.size()>0){
 					if(!bs.getWID2().getStation().equals(channels.get(0).getWID2().getStation())){
 						throw new IMSFormatException("Different stat");
@@ -52,6 +52,39 @@ public class DataTypeWaveform extends DataType {
 			// Do nothing
 			logger.error("EOFException:", e);	
 		}
+		if (!parseOnly) {
+			decode(input);
+		}
+	}
+
+	/**
+	 * Decodes data blocks of all block sets in parallel, each with its own reader
+	 */
+	private void decode(IMSLineReader input) throws IOException, IMSFormatException, ParseException, CanadaException {
+		Exception[] failure = new Exception[1];
+		channels.parallelStream().forEach(bs -> {
+			try {
+				bs.decode(input.newReader(bs.getStartOffset()));
+			} catch (Exception e) {
+				synchronized (failure) {
+					if (failure[0] == null) {
+						failure[0] = e;
+					}
+				}
+			}
+		});
+		Exception e = failure[0];
+		if (e instanceof IOException) {
+			throw (IOException) e;
+		} else if (e instanceof IMSFormatException) {
+			throw (IMSFormatException) e;
+		} else if (e instanceof ParseException) {
+			throw (ParseException) e;
+		} else if (e instanceof CanadaException) {
+			throw (CanadaException) e;
+		} else if (e != null) {
+			throw (RuntimeException) e;
+		}
 	}
 
 	@Override
@@ -1,10 +1,8 @@
 package com.isti.traceview.data.ims;
 
 import gov.usgs.anss.cd11.CanadaException;
-import java.io.DataInput;
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
@@ -43,9 +41,16 @@ public class IMSFile {
 		return dataTypes;
 	}
 
-	public static IMSFile read(DataInput inStream, boolean parseOnly) throws IOException, IMSFormatException, ParseException, CanadaException {
+	/**
+	 * Reads IMS message
+	 *
+	 * @param input
+	 *            reader positioned at the message start
+	 * @param parseOnly
+	 *            if true, data blocks are skipped, only their positions and headers are read
+	 */
+	public static IMSFile read(IMSLineReader input, boolean parseOnly) throws IOException, IMSFormatException, ParseException, CanadaException {
 		IMSFile imsFile = new IMSFile();
-		RandomAccessFile input = (RandomAccessFile) inStream;
 		try {
 			while (true) {
 				long filePointer = input.getFilePointer();
@@ -87,11 +92,14 @@ public class IMSFile {
 		return imsFile;
 	}
 
-	private void readMessageHeader(RandomAccessFile input, long startPointer) throws IOException, IMSFormatException, ParseException {
+	private void readMessageHeader(IMSLineReader input, long startPointer) throws IOException, IMSFormatException, ParseException {
 		long filePointer = 0;
 		while (true) {
 			filePointer = input.getFilePointer();
 			String line = input.readLine();
+			if (line == null) {
+				break;
+			}
 			Matcher m = msgTypePattern.matcher(line);
 			if (m.matches()) {
 				String msg_type_str = m.group(1);
@@ -130,7 +138,7 @@ public class IMSFile {
 		}
 	}
 
-	private void readDataTypes(boolean parseOnly, RandomAccessFile input, long startPointer) throws IOException, IMSFormatException,
+	private void readDataTypes(boolean parseOnly, IMSLineReader input, long startPointer) throws IOException, IMSFormatException,
 			ParseException, CanadaException {
 		long filePointer = 0;
 		try {
@@ -0,0 +1,127 @@
+package com.isti.traceview.data.ims;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Buffered line reader for IMS files. Reads the file in large blocks with positional reads, and
+ * tracks the exact byte offset of each line, so blocks may record their start offsets and return
+ * to them with {@link #seek(long)}. Lines are split and decoded the way
+ * RandomAccessFile.readLine() does it: terminated by '\n', '\r' or "\r\n", one byte per char.
+ *
+ * The channel is not owned by the reader, and several readers may share one channel.
+ */
+public class IMSLineReader {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final FileChannel channel;
+	private final byte[] bytes = new byte[BUFFER_SIZE];
+	private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+	private long bufferStart;	// file offset of bytes[0]
+	private int limit = 0;		// count of valid bytes in buffer
+	private int pos = 0;		// index of the next byte in buffer
+	private char[] chars = new char[256];
+
+	/**
+	 * @param channel
+	 *            channel of IMS file
+	 * @param position
+	 *            file offset to start reading at
+	 */
+	public IMSLineReader(FileChannel channel, long position) {
+		this.channel = channel;
+		this.bufferStart = position;
+	}
+
+	/**
+	 * @param position
+	 *            file offset to start reading at
+	 * @return independent reader of the same file
+	 */
+	public IMSLineReader newReader(long position) {
+		return new IMSLineReader(channel, position);
+	}
+
+	/**
+	 * @return file offset of the next byte to read
+	 */
+	public long getFilePointer() {
+		return bufferStart + pos;
+	}
+
+	/**
+	 * Moves to given file offset; seeks inside the buffered block don't read the file again
+	 */
+	public void seek(long position) {
+		if (position >= bufferStart && position <= bufferStart + limit) {
+			pos = (int) (position - bufferStart);
+		} else {
+			bufferStart = position;
+			limit = 0;
+			pos = 0;
+		}
+	}
+
+	/**
+	 * @return true if there is a byte to read at pos, reading the next block if needed
+	 */
+	private boolean fill() throws IOException {
+		if (pos < limit) {
+			return true;
+		}
+		bufferStart += limit;
+		pos = 0;
+		limit = 0;
+		buffer.clear();
+		while (buffer.hasRemaining()
+				&& channel.read(buffer, bufferStart + buffer.position()) >= 0) {
+			// positional reads may return short counts, keep going until full or end of file
+		}
+		limit = buffer.position();
+		return limit > 0;
+	}
+
+	/**
+	 * Reads next line
+	 *
+	 * @return line without terminator, or null at end of file
+	 */
+	public String readLine() throws IOException {
+		int length = 0;
+		boolean eol = false;
+		boolean read = false;
+		while (!eol && fill()) {
+			read = true;
+			int start = pos;
+			while (pos < limit) {
+				byte b = bytes[pos];
+				if (b == '\n' || b == '\r') {
+					eol = true;
+					break;
+				}
+				pos++;
+			}
+			int count = pos - start;
+			if (length + count > chars.length) {
+				char[] grown = new char[Math.max(chars.length * 2, length + count)];
+				System.arraycopy(chars, 0, grown, 0, length);
+				chars = grown;
+			}
+			for (int i = start; i < pos; i++) {
+				chars[length++] = (char) (bytes[i] & 0xFF);
+			}
+			if (eol) {
+				byte terminator = bytes[pos++];
+				if (terminator == '\r' && fill() && bytes[pos] == '\n') {
+					pos++;
+				}
+			}
+		}
+		if (!read) {
+			return null;
+		}
+		return new String(chars, 0, length);
+	}
+}
@@ -1,7 +1,6 @@
 package com.isti.traceview.data.ims;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.text.ParseException;
 import org.apache.log4j.Logger;
 
@@ -43,8 +42,8 @@ public class STA2 extends Block {
 		return emplacement;
 	}
 	
-	public void read(RandomAccessFile input) throws IMSFormatException, IOException, ParseException {
-		logger.info("Reading STA2 RandomAccessFile");	
+	public void read(IMSLineReader input) throws IMSFormatException, IOException, ParseException {
+		logger.debug("Reading STA2");	
 		header = input.readLine();
 		if(!header.startsWith("STA2")){
 			throw new IMSFormatException("Wrong station block header: " + header);
@@ -1,7 +1,6 @@
 package com.isti.traceview.data.ims;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.text.ParseException;
 import java.util.Date;
 import org.apache.log4j.Logger;
@@ -92,7 +91,7 @@ public class WID2 extends Block {
 		return orientVer;
 	}
 
-	public void read(RandomAccessFile input) throws IMSFormatException, IOException, ParseException{
+	public void read(IMSLineReader input) throws IMSFormatException, IOException, ParseException{
 		logger.debug("== START WID2 Read");
 		header = input.readLine();
 		if(!header.startsWith("WID2")){
@@ -0,0 +1,64 @@
+package com.isti.traceview.data.mseed;
+
+import com.isti.traceview.data.HeapSampleStore;
+import com.isti.traceview.data.ISampleStore;
+
+/**
+ * Keeps miniSEED samples as the encoded data sections of their records, on the java heap, and
+ * decodes them on demand through a bounded {@link DecodedBlockCache}. miniSEED sources check for
+ * this store and hand it record data sections, see {@link #newBuilder()}; samples of other sources
+ * come decoded and are kept like the heap store does.
+ *
+ * Compressed data is accounted by the garbage collector, so byte counts of this store are those
+ * of the decoded block cache.
+ */
+public class CompressedSampleStore implements ISampleStore {
+
+  /**
+   * Size of decoded blocks kept, 64 MiB
+   */
+  public static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+
+  private final DecodedBlockCache cache;
+
+  /**
+   * @param cacheBytes size of decoded blocks to keep, in bytes
+   */
+  public CompressedSampleStore(long cacheBytes) {
+    cache = new DecodedBlockCache(cacheBytes / 4);
+  }
+
+  @Override
+  public Samples store(int[] values) {
+    return HeapSampleStore.INSTANCE.store(values);
+  }
+
+  /**
+   * @return builder collecting records of one segment
+   */
+  public CompressedSamples.Builder newBuilder() {
+    return new CompressedSamples.Builder(cache);
+  }
+
+  /**
+   * @return cache of decoded blocks, holding hit ratio and decode time
+   */
+  public DecodedBlockCache getCache() {
+    return cache;
+  }
+
+  @Override
+  public long getAllocatedBytes() {
+    return 4 * cache.getCapacity();
+  }
+
+  @Override
+  public long getUsedBytes() {
+    return 4 * cache.getSize();
+  }
+
+  @Override
+  public String toString() {
+    return COMPRESSED;
+  }
+}
@@ -0,0 +1,255 @@
+package com.isti.traceview.data.mseed;
+
+import com.isti.traceview.data.ISampleStore;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.apache.log4j.Logger;
+
+/**
+ * Samples of a segment kept as the still encoded data sections of its records, see {@link
+ * CompressedSampleStore}. Steim compressed records take 3 to 4 times less memory than the
+ * decoded samples. Reads are served by blocks of {@link DecodedBlockCache#BLOCK_SAMPLES} samples,
+ * decoded when first read and kept by a bounded cache.
+ */
+public class CompressedSamples implements ISampleStore.Samples {
+
+  private static final Logger logger = Logger.getLogger(CompressedSamples.class);
+
+  /**
+   * Encoding of records which couldn't be decoded, their samples are 0
+   */
+  private static final byte ZEROS = 0;
+
+  private final DecodedBlockCache cache;
+
+  /**
+   * Data sections of all records; only absolute gets are used, so it is shared by readers
+   */
+  private final ByteBuffer payloads;
+
+  /**
+   * Index of the data section of each record in payloads, and end of the last one
+   */
+  private final int[] payloadStarts;
+
+  /**
+   * Index of the first sample of each record, and count of samples
+   */
+  private final int[] sampleStarts;
+
+  private final byte[] encodings;
+  private final boolean[] littleEndian;
+
+  private CompressedSamples(Builder builder) {
+    int records = builder.records;
+    cache = builder.cache;
+    payloads = ByteBuffer.wrap(Arrays.copyOf(builder.bytes, builder.byteCount));
+    payloadStarts = Arrays.copyOf(builder.payloadStarts, records + 1);
+    sampleStarts = Arrays.copyOf(builder.sampleStarts, records + 1);
+    encodings = Arrays.copyOf(builder.encodings, records);
+    littleEndian = Arrays.copyOf(builder.littleEndian, records);
+  }
+
+  @Override
+  public int length() {
+    return sampleStarts[sampleStarts.length - 1];
+  }
+
+  @Override
+  public int get(int index) {
+    if (index < 0 || index >= length()) {
+      throw new IndexOutOfBoundsException("Sample " + index + " of " + length());
+    }
+    return cache.get(this, index / DecodedBlockCache.BLOCK_SAMPLES)[index
+        % DecodedBlockCache.BLOCK_SAMPLES];
+  }
+
+  @Override
+  public void get(int from, int[] dest, int destOffset, int count) {
+    if (from < 0 || count < 0 || from + count > length()) {
+      throw new IndexOutOfBoundsException(
+          "Samples " + from + " to " + (from + count) + " of " + length());
+    }
+    int end = from + count;
+    while (from < end) {
+      int block = from / DecodedBlockCache.BLOCK_SAMPLES;
+      int blockStart = block * DecodedBlockCache.BLOCK_SAMPLES;
+      int[] values = cache.get(this, block);
+      int n = Math.min(end, blockStart + values.length) - from;
+      System.arraycopy(values, from - blockStart, dest, destOffset, n);
+      from += n;
+      destOffset += n;
+    }
+  }
+
+  /**
+   * Reads all samples through the cache, so whole segment reads of filters and processing reuse
+   * decoded blocks and are counted in the cache statistics
+   */
+  @Override
+  public int[] toArray() {
+    int[] values = new int[length()];
+    get(0, values, 0, values.length);
+    return values;
+  }
+
+  @Override
+  public void release() {
+    cache.invalidate(this);
+  }
+
+  /**
+   * @return count of bytes of kept data sections
+   */
+  public int getCompressedLength() {
+    return payloads.capacity();
+  }
+
+  /**
+   * Decodes one block, only the part of the records it covers
+   */
+  int[] decodeBlock(int block) {
+    int from = block * DecodedBlockCache.BLOCK_SAMPLES;
+    int to = Math.min(from + DecodedBlockCache.BLOCK_SAMPLES, length());
+    int[] values = new int[to - from];
+    int record = Arrays.binarySearch(sampleStarts, 0, encodings.length, from);
+    if (record < 0) {
+      // record holding the first sample of the block
+      record = -record - 2;
+    }
+    int[] scratch = null;
+    for (; record < encodings.length && sampleStarts[record] < to; record++) {
+      int recordStart = sampleStarts[record];
+      // decoding always starts at the beginning of a record
+      int count = Math.min(sampleStarts[record + 1], to) - recordStart;
+      if (recordStart >= from) {
+        decode(record, values, recordStart - from, count);
+      } else {
+        if (scratch == null || scratch.length < count) {
+          scratch = new int[count];
+        }
+        decode(record, scratch, 0, count);
+        System.arraycopy(scratch, from - recordStart, values, 0, count - (from - recordStart));
+      }
+    }
+    return values;
+  }
+
+  private void decode(int record, int[] dest, int destOffset, int count) {
+    if (encodings[record] == ZEROS) {
+      Arrays.fill(dest, destOffset, destOffset + count, 0);
+      return;
+    }
+    try {
+      MseedDecoder.decode(payloads, payloadStarts[record],
+          payloadStarts[record + 1] - payloadStarts[record], encodings[record],
+          littleEndian[record], count, dest, destOffset);
+    } catch (MseedFormatException e) {
+      // records are checked when added, so this is not expected
+      logger.error("Can't decode kept record " + record + ", setting its data to 0: ", e);
+      Arrays.fill(dest, destOffset, destOffset + count, 0);
+    }
+  }
+
+  /**
+   * Collects data sections of the records of one segment, in sample order
+   */
+  public static class Builder {
+
+    private final DecodedBlockCache cache;
+
+    private byte[] bytes = new byte[1024];
+    private int byteCount = 0;
+    private int records = 0;
+    private int[] payloadStarts = new int[2];
+    private int[] sampleStarts = new int[2];
+    private byte[] encodings = new byte[1];
+    private boolean[] littleEndian = new boolean[1];
+    private int[] scratch = new int[0];
+
+    private int minValue = Integer.MAX_VALUE;
+    private int maxValue = Integer.MIN_VALUE;
+
+    Builder(DecodedBlockCache cache) {
+      this.cache = cache;
+    }
+
+    /**
+     * Decodes a data section once, to check it and find extreme values, and keeps it encoded
+     *
+     * @param buffer buffer holding the data section; its position, limit and order are not
+     * changed
+     * @param pos index of first data byte in the buffer
+     * @param length length of the data section in bytes
+     * @param encoding SEED encoding format
+     * @param littleEndian true if data words are little endian
+     * @param count count of samples to take from the record
+     * @throws MseedFormatException if the data section can't be decoded; nothing is added then
+     * @see MseedDecoder#decode
+     */
+    public void add(ByteBuffer buffer, int pos, int length, int encoding, boolean littleEndian,
+        int count) throws MseedFormatException {
+      if (scratch.length < count) {
+        scratch = new int[Math.max(count, 2 * scratch.length)];
+      }
+      MseedDecoder.decode(buffer, pos, length, encoding, littleEndian, count, scratch, 0);
+      for (int i = 0; i < count; i++) {
+        minValue = Math.min(minValue, scratch[i]);
+        maxValue = Math.max(maxValue, scratch[i]);
+      }
+      if (bytes.length - byteCount < length) {
+        bytes = Arrays.copyOf(bytes, Math.max(byteCount + length, 2 * bytes.length));
+      }
+      ByteBuffer view = buffer.duplicate();
+      view.position(pos);
+      view.get(bytes, byteCount, length);
+      addRecord(length, (byte) encoding, littleEndian, count);
+    }
+
+    /**
+     * Adds samples of a record which can't be decoded, as zeros
+     */
+    public void addZeros(int count) {
+      minValue = Math.min(minValue, 0);
+      maxValue = Math.max(maxValue, 0);
+      addRecord(0, ZEROS, false, count);
+    }
+
+    private void addRecord(int length, byte encoding, boolean littleEndian, int count) {
+      if (count <= 0) {
+        return;
+      }
+      if (records == encodings.length) {
+        int capacity = 2 * records;
+        encodings = Arrays.copyOf(encodings, capacity);
+        this.littleEndian = Arrays.copyOf(this.littleEndian, capacity);
+        payloadStarts = Arrays.copyOf(payloadStarts, capacity + 1);
+        sampleStarts = Arrays.copyOf(sampleStarts, capacity + 1);
+      }
+      encodings[records] = encoding;
+      this.littleEndian[records] = littleEndian;
+      byteCount += length;
+      payloadStarts[records + 1] = byteCount;
+      sampleStarts[records + 1] = sampleStarts[records] + count;
+      records++;
+    }
+
+    /**
+     * @return minimal value of added samples
+     */
+    public int getMinValue() {
+      return minValue;
+    }
+
+    /**
+     * @return maximal value of added samples
+     */
+    public int getMaxValue() {
+      return maxValue;
+    }
+
+    public CompressedSamples build() {
+      return new CompressedSamples(this);
+    }
+  }
+}
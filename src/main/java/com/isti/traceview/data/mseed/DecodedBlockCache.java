@@ -0,0 +1,180 @@
+package com.isti.traceview.data.mseed;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of decoded sample blocks of {@link CompressedSamples}, least recently used blocks
+ * are evicted first. Blocks are {@link #BLOCK_SAMPLES} samples of a segment, the last block of a
+ * segment may be shorter. Blocks are decoded outside of the cache lock, so threads reading
+ * different blocks don't wait for each other; two threads missing the same block both decode it.
+ *
+ * Hit and miss counts and time spent decoding are kept for tuning the capacity.
+ */
+public class DecodedBlockCache {
+
+  /**
+   * Count of samples in a block
+   */
+  public static final int BLOCK_SAMPLES = 4096;
+
+  private final LinkedHashMap<Key, int[]> blocks = new LinkedHashMap<>(64, 0.75f, true);
+
+  // guarded by this
+  private long capacity;
+  private long size = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long decodeNanos = 0;
+  private long decodedSamples = 0;
+
+  /**
+   * @param capacity count of decoded samples to keep
+   */
+  public DecodedBlockCache(long capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return block of samples, decoded if it isn't in the cache
+   */
+  int[] get(CompressedSamples samples, int block) {
+    Key key = new Key(samples, block);
+    synchronized (this) {
+      int[] values = blocks.get(key);
+      if (values != null) {
+        hits++;
+        return values;
+      }
+      misses++;
+    }
+    long start = System.nanoTime();
+    int[] values = samples.decodeBlock(block);
+    long nanos = System.nanoTime() - start;
+    synchronized (this) {
+      decodeNanos += nanos;
+      decodedSamples += values.length;
+      if (blocks.put(key, values) == null) {
+        size += values.length;
+      }
+      evict();
+    }
+    return values;
+  }
+
+  /**
+   * Drops cached blocks of given samples
+   */
+  synchronized void invalidate(CompressedSamples samples) {
+    Iterator<Map.Entry<Key, int[]>> iterator = blocks.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Key, int[]> entry = iterator.next();
+      if (entry.getKey().samples == samples) {
+        size -= entry.getValue().length;
+        iterator.remove();
+      }
+    }
+  }
+
+  private void evict() {
+    Iterator<int[]> eldest = blocks.values().iterator();
+    while (size > capacity && eldest.hasNext()) {
+      size -= eldest.next().length;
+      eldest.remove();
+    }
+  }
+
+  /**
+   * @param capacity count of decoded samples to keep; blocks over it are evicted at once
+   */
+  public synchronized void setCapacity(long capacity) {
+    this.capacity = capacity;
+    evict();
+  }
+
+  /**
+   * @return count of decoded samples kept at most
+   */
+  public synchronized long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return count of decoded samples now kept
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * @return share of block reads found in the cache, 0 if nothing was read yet
+   */
+  public synchronized double getHitRatio() {
+    return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+  }
+
+  /**
+   * @return time spent decoding, nanoseconds
+   */
+  public synchronized long getDecodeNanos() {
+    return decodeNanos;
+  }
+
+  /**
+   * @return count of samples decoded
+   */
+  public synchronized long getDecodedSamples() {
+    return decodedSamples;
+  }
+
+  /**
+   * Zeroes hit and miss counts and decode time
+   */
+  public synchronized void resetStatistics() {
+    hits = 0;
+    misses = 0;
+    decodeNanos = 0;
+    decodedSamples = 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("Decoded block cache: %d of %d samples, hit ratio %.3f (%d hits, "
+            + "%d misses), %d samples decoded in %.3f sec", size, capacity, getHitRatio(), hits,
+        misses, decodedSamples, decodeNanos * 1e-9);
+  }
+
+  private static class Key {
+
+    private final CompressedSamples samples;
+    private final int block;
+
+    private Key(CompressedSamples samples, int block) {
+      this.samples = samples;
+      this.block = block;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return samples == key.samples && block == key.block;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(samples) + block;
+    }
+  }
+}
@@ -0,0 +1,302 @@
+package com.isti.traceview.data.mseed;
+
+import com.isti.traceview.common.SNCLFilter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only memory mapping of a miniSEED file. Files larger than a single mapping can address are
+ * mapped as a sequence of regions which overlap by {@link MseedRecordHeader#MAX_RECORD_LENGTH}
+ * bytes, so every record lies entirely inside the region its first byte belongs to. Mapped pages
+ * stay valid after the channel is closed, until the buffers are garbage collected.
+ *
+ * Buffers handed out by this class are duplicates, so instances may be shared between threads as
+ * long as callers only use absolute gets.
+ */
+public class MappedMseedFile {
+
+  private static final long REGION_SIZE = 1L << 30;
+  private static final long REGION_OVERLAP = MseedRecordHeader.MAX_RECORD_LENGTH;
+
+  private final long length;
+  private final long lastModified;
+  private final MappedByteBuffer[] regions;
+
+  /**
+   * Maps whole file
+   *
+   * @param file miniSEED file
+   * @throws IOException if the file can't be opened or mapped
+   */
+  public MappedMseedFile(File file) throws IOException {
+    lastModified = file.lastModified();
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      length = channel.size();
+      regions = map(channel, length);
+    }
+  }
+
+  /**
+   * Maps whole file through an open channel; the channel is left open
+   *
+   * @param channel channel of the miniSEED file
+   * @param lastModified modification time of the file
+   * @throws IOException if the file can't be mapped
+   */
+  public MappedMseedFile(FileChannel channel, long lastModified) throws IOException {
+    this.lastModified = lastModified;
+    length = channel.size();
+    regions = map(channel, length);
+  }
+
+  private static MappedByteBuffer[] map(FileChannel channel, long length) throws IOException {
+    int count = (int) Math.max(1, (length + REGION_SIZE - 1) / REGION_SIZE);
+    MappedByteBuffer[] regions = new MappedByteBuffer[count];
+    for (int i = 0; i < count; i++) {
+      long start = i * REGION_SIZE;
+      long size = Math.min(REGION_SIZE + REGION_OVERLAP, length - start);
+      regions[i] = channel.map(MapMode.READ_ONLY, start, Math.max(size, 0));
+    }
+    return regions;
+  }
+
+  /**
+   * @return mapped length in bytes
+   */
+  public long length() {
+    return length;
+  }
+
+  /**
+   * @return modification time of the file at mapping time, used to detect stale mappings
+   */
+  public long lastModified() {
+    return lastModified;
+  }
+
+  /**
+   * @param offset file offset
+   * @return buffer containing given offset and at least the record starting there; use {@link
+   * #indexOf(long)} to locate the offset inside it
+   */
+  public ByteBuffer regionOf(long offset) {
+    return regions[(int) (offset / REGION_SIZE)].duplicate();
+  }
+
+  /**
+   * @param offset file offset
+   * @return index of the file offset inside the buffer returned by {@link #regionOf(long)}
+   */
+  public static int indexOf(long offset) {
+    return (int) (offset % REGION_SIZE);
+  }
+
+  /**
+   * Copies the bytes of a record, for parsers which read records from streams
+   *
+   * @param offset file offset of the record
+   * @param recordLength record length, see {@link MseedRecordHeader#getRecordLength()}
+   * @return bytes of the record, fewer if the file ends earlier
+   */
+  public byte[] copy(long offset, int recordLength) {
+    int count = (int) Math.max(0, Math.min(recordLength, length - offset));
+    byte[] bytes = new byte[count];
+    ByteBuffer region = regionOf(offset);
+    region.position(indexOf(offset));
+    region.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Parses header of the record starting at given file offset
+   *
+   * @param offset file offset of the record
+   * @param defaultRecordLength record length to assume if there is no blockette 1000
+   * @param header header to fill
+   * @return false if there is no valid record header at this offset
+   */
+  public boolean readHeader(long offset, int defaultRecordLength, MseedRecordHeader header) {
+    if (offset < 0 || offset + MseedRecordHeader.FIXED_HEADER_LENGTH > length) {
+      return false;
+    }
+    return header.read(regions[(int) (offset / REGION_SIZE)], indexOf(offset),
+        defaultRecordLength);
+  }
+
+  /**
+   * Reads type and length of the record starting at given file offset, see {@link
+   * MseedRecordHeader#readRecordLength(ByteBuffer, int, int)}
+   *
+   * @return false if there is no valid record header at this offset
+   */
+  public boolean readRecordLength(long offset, int defaultRecordLength,
+      MseedRecordHeader header) {
+    if (offset < 0 || offset + MseedRecordHeader.FIXED_HEADER_LENGTH > length) {
+      return false;
+    }
+    return header.readRecordLength(regions[(int) (offset / REGION_SIZE)], indexOf(offset),
+        defaultRecordLength);
+  }
+
+  /**
+   * Checks SNCL of the record starting at given file offset against a filter, see {@link
+   * MseedRecordHeader#matches(ByteBuffer, int, SNCLFilter)}
+   */
+  public boolean matches(long offset, MseedRecordHeader header, SNCLFilter filter) {
+    if (offset < 0 || offset + MseedRecordHeader.FIXED_HEADER_LENGTH > length) {
+      return false;
+    }
+    return header.matches(regions[(int) (offset / REGION_SIZE)], indexOf(offset), filter);
+  }
+
+  /**
+   * Parses header of the miniSEED 3 record starting at given file offset
+   *
+   * @param offset file offset of the record
+   * @param header header to fill
+   * @return false if there is no valid record header at this offset
+   */
+  public boolean readHeader(long offset, Mseed3RecordHeader header) {
+    if (offset < 0 || offset + Mseed3RecordHeader.FIXED_HEADER_LENGTH > length) {
+      return false;
+    }
+    return header.read(regions[(int) (offset / REGION_SIZE)], indexOf(offset));
+  }
+
+  /**
+   * Reads length of the miniSEED 3 record starting at given file offset, see {@link
+   * Mseed3RecordHeader#readLengths(ByteBuffer, int)}
+   *
+   * @return false if there is no valid record header at this offset
+   */
+  public boolean readRecordLength(long offset, Mseed3RecordHeader header) {
+    if (offset < 0 || offset + Mseed3RecordHeader.FIXED_HEADER_LENGTH > length) {
+      return false;
+    }
+    return header.readLengths(regions[(int) (offset / REGION_SIZE)], indexOf(offset));
+  }
+
+  /**
+   * Checks source identifier of the miniSEED 3 record starting at given file offset against a
+   * filter, see {@link Mseed3RecordHeader#matches(ByteBuffer, int, SNCLFilter)}
+   */
+  public boolean matches(long offset, Mseed3RecordHeader header, SNCLFilter filter) {
+    if (offset < 0 || offset + Mseed3RecordHeader.FIXED_HEADER_LENGTH > length) {
+      return false;
+    }
+    return header.matches(regions[(int) (offset / REGION_SIZE)], indexOf(offset), filter);
+  }
+
+  /**
+   * Decodes samples of a record straight from the mapping into given array
+   *
+   * @param offset file offset of the record
+   * @param header already read header of the record
+   * @param encoding encoding to use; taken from the header when it has blockette 1000
+   * @param count count of samples to decode
+   * @param dest destination array
+   * @param destOffset index in destination array of the first decoded sample
+   * @return count of decoded samples
+   * @throws MseedFormatException if data section lies outside of the record or the file, or
+   * can't be decoded
+   */
+  public int decode(long offset, MseedRecordHeader header, int encoding, int count, int[] dest,
+      int destOffset) throws MseedFormatException {
+    int payloadLength = getPayloadLength(offset, header);
+    return MseedDecoder.decode(regions[(int) (offset / REGION_SIZE)],
+        indexOf(offset) + header.getDataOffset(), payloadLength, encoding,
+        header.isDataLittleEndian(), count, dest, destOffset);
+  }
+
+  /**
+   * Checks CRC of a miniSEED 3 record and decodes its samples straight from the mapping into
+   * given array
+   *
+   * @param offset file offset of the record
+   * @param header already read header of the record
+   * @param count count of samples to decode
+   * @param dest destination array
+   * @param destOffset index in destination array of the first decoded sample
+   * @return count of decoded samples
+   * @throws MseedFormatException if the record lies outside of the file, is corrupted or can't be
+   * decoded
+   */
+  public int decode(long offset, Mseed3RecordHeader header, int count, int[] dest,
+      int destOffset) throws MseedFormatException {
+    return MseedDecoder.decode(checkRecord(offset, header),
+        indexOf(offset) + header.getDataOffset(), (int) header.getPayloadLength(),
+        header.getEncoding(), header.isDataLittleEndian(), count, dest, destOffset);
+  }
+
+  /**
+   * Adds the data section of a record, still encoded, to the samples of a segment
+   *
+   * @param offset file offset of the record
+   * @param header already read header of the record
+   * @param encoding encoding to use; taken from the header when it has blockette 1000
+   * @param count count of samples to take from the record
+   * @param builder samples of the segment
+   * @throws MseedFormatException if data section lies outside of the record or the file, or
+   * can't be decoded
+   */
+  public void append(long offset, MseedRecordHeader header, int encoding, int count,
+      CompressedSamples.Builder builder) throws MseedFormatException {
+    int payloadLength = getPayloadLength(offset, header);
+    builder.add(regions[(int) (offset / REGION_SIZE)], indexOf(offset) + header.getDataOffset(),
+        payloadLength, encoding, header.isDataLittleEndian(), count);
+  }
+
+  /**
+   * Checks CRC of a miniSEED 3 record and adds its data section, still encoded, to the samples
+   * of a segment
+   *
+   * @param offset file offset of the record
+   * @param header already read header of the record
+   * @param count count of samples to take from the record
+   * @param builder samples of the segment
+   * @throws MseedFormatException if the record lies outside of the file, is corrupted or can't be
+   * decoded
+   */
+  public void append(long offset, Mseed3RecordHeader header, int count,
+      CompressedSamples.Builder builder) throws MseedFormatException {
+    builder.add(checkRecord(offset, header), indexOf(offset) + header.getDataOffset(),
+        (int) header.getPayloadLength(), header.getEncoding(), header.isDataLittleEndian(), count);
+  }
+
+  /**
+   * @return region holding a miniSEED 3 record which lies inside the file and passes CRC check
+   * @throws MseedFormatException if it doesn't
+   */
+  private ByteBuffer checkRecord(long offset, Mseed3RecordHeader header)
+      throws MseedFormatException {
+    if (header.getRecordLength() > REGION_OVERLAP || offset + header.getRecordLength() > length) {
+      throw new MseedFormatException("Record at offset " + offset + " of "
+          + header.getRecordLength() + " bytes lies outside of the file");
+    }
+    ByteBuffer region = regions[(int) (offset / REGION_SIZE)];
+    if (!header.checkCRC(region, indexOf(offset))) {
+      throw new MseedFormatException("Record at offset " + offset + " fails CRC check");
+    }
+    return region;
+  }
+
+  /**
+   * @return length of the data section of a record
+   * @throws MseedFormatException if data section lies outside of the record or the file
+   */
+  public int getPayloadLength(long offset, MseedRecordHeader header) throws MseedFormatException {
+    int dataOffset = header.getDataOffset();
+    int payloadLength = header.getRecordLength() - dataOffset;
+    if (dataOffset < MseedRecordHeader.FIXED_HEADER_LENGTH || payloadLength <= 0
+        || offset + header.getRecordLength() > length) {
+      throw new MseedFormatException("Record at offset " + offset + " has data offset "
+          + dataOffset + " outside of its " + header.getRecordLength() + " bytes");
+    }
+    return payloadLength;
+  }
+}
@@ -0,0 +1,321 @@
+package com.isti.traceview.data.mseed;
+
+import com.isti.traceview.common.SNCLFilter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Header of a miniSEED 3 record, read directly from a byte buffer. Like {@link
+ * MseedRecordHeader} this object is mutable and meant to be reused for every record of a scan;
+ * the source identifier is only split into codes when it differs from the previous record.
+ *
+ * A miniSEED 3 record is a 40 byte little endian fixed header, followed by the FDSN source
+ * identifier, extra headers and the data payload; their lengths are declared by the fixed header,
+ * so records have variable length. The source identifier <tt>FDSN:NET_STA_LOC_B_S_SS</tt> is
+ * mapped to SEED codes, with band, source and subsource joined into the channel code.
+ *
+ * @see <a href="https://docs.fdsn.org/projects/miniseed3/">miniSEED 3 specification</a>
+ */
+public class Mseed3RecordHeader {
+
+  public static final int FIXED_HEADER_LENGTH = 40;
+
+  public static final int FORMAT_VERSION = 3;
+
+  private static final int CRC_POSITION = 28;
+  private static final long MILLIS_IN_DAY = 86400000L;
+  private static final String SID_PREFIX = "FDSN:";
+
+  /**
+   * CRC-32C (Castagnoli) lookup table, reflected polynomial 0x82F63B78
+   */
+  private static final int[] CRC_TABLE = new int[256];
+
+  static {
+    for (int i = 0; i < 256; i++) {
+      int crc = i;
+      for (int k = 0; k < 8; k++) {
+        crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x82F63B78 : crc >>> 1;
+      }
+      CRC_TABLE[i] = crc;
+    }
+  }
+
+  // source identifier the codes were split from, and its length; -1 if codes are not valid
+  private byte[] sidBytes = new byte[64];
+  private int sidLength = -1;
+
+  // filter last checked against current source identifier, and its answer
+  private SNCLFilter matchedFilter = null;
+  private boolean snclMatches;
+
+  private String network;
+  private String station;
+  private String location;
+  private String channel;
+  private long startTime;
+  private int encoding;
+  private double sampleRate;
+  private int numSamples;
+  private int crc;
+  private int identifierLength;
+  private int extraHeadersLength;
+  private long payloadLength;
+
+  // cache of last converted day to avoid date arithmetic for every record
+  private int cachedYear = -1;
+  private int cachedDay = -1;
+  private long cachedDayMillis;
+
+  /**
+   * Checks if bytes at given position start a miniSEED 3 record: record indicator <tt>MS</tt> and
+   * format version 3
+   */
+  public static boolean isMseed3(ByteBuffer buffer, int pos) {
+    return buffer.limit() - pos >= FIXED_HEADER_LENGTH && buffer.get(pos) == 'M'
+        && buffer.get(pos + 1) == 'S' && buffer.get(pos + 2) == FORMAT_VERSION;
+  }
+
+  /**
+   * Reads record header starting at given position of the buffer. Buffer position and limit are
+   * left untouched.
+   *
+   * @param buffer buffer holding the record
+   * @param pos index of first record byte in the buffer
+   * @return false if bytes at this position don't look like a miniSEED 3 record header
+   */
+  public boolean read(ByteBuffer buffer, int pos) {
+    if (!readLengths(buffer, pos)) {
+      return false;
+    }
+    int year = getUnsignedShort(buffer, pos + 8);
+    int day = getUnsignedShort(buffer, pos + 10);
+    int hour = buffer.get(pos + 12) & 0xFF;
+    int minute = buffer.get(pos + 13) & 0xFF;
+    int second = buffer.get(pos + 14) & 0xFF;
+    long nanosecond = getUnsignedInt(buffer, pos + 4);
+    // second 60 is a leap second
+    if (hour > 23 || minute > 59 || second > 60 || nanosecond > 999999999L) {
+      return false;
+    }
+    if (year != cachedYear || day != cachedDay) {
+      try {
+        cachedDayMillis = LocalDate.ofYearDay(year, day).toEpochDay() * MILLIS_IN_DAY;
+      } catch (DateTimeException e) {
+        return false;
+      }
+      cachedYear = year;
+      cachedDay = day;
+    }
+    // fraction of millisecond is dropped, as for miniSEED 2
+    startTime = cachedDayMillis + hour * 3600000L + minute * 60000L + second * 1000L
+        + nanosecond / 1000000L;
+    encoding = buffer.get(pos + 15) & 0xFF;
+    sampleRate = Double.longBitsToDouble(getLong(buffer, pos + 16));
+    numSamples = getInt(buffer, pos + 24);
+    crc = getInt(buffer, pos + CRC_POSITION);
+    if (numSamples < 0 || Double.isNaN(sampleRate) || Double.isInfinite(sampleRate)) {
+      return false;
+    }
+    return readSNCL(buffer, pos);
+  }
+
+  /**
+   * Reads just what is needed to step over the record starting at given position: lengths of
+   * identifier, extra headers and payload. Other properties keep values of an earlier record.
+   *
+   * @return false if bytes at this position don't look like a miniSEED 3 record header
+   */
+  public boolean readLengths(ByteBuffer buffer, int pos) {
+    if (!isMseed3(buffer, pos)) {
+      return false;
+    }
+    identifierLength = buffer.get(pos + 33) & 0xFF;
+    extraHeadersLength = getUnsignedShort(buffer, pos + 34);
+    payloadLength = getUnsignedInt(buffer, pos + 36);
+    return true;
+  }
+
+  /**
+   * Checks network, station, location and channel of the record starting at given position
+   * against a filter, before anything else of the header is read. The answer is kept while
+   * consecutive records carry the same source identifier.
+   *
+   * @return true if the record passes the filter
+   */
+  public boolean matches(ByteBuffer buffer, int pos, SNCLFilter filter) {
+    if (!readLengths(buffer, pos) || !readSNCL(buffer, pos)) {
+      return false;
+    }
+    if (filter != matchedFilter) {
+      matchedFilter = filter;
+      snclMatches = filter.matches(network, station, location, channel);
+    }
+    return snclMatches;
+  }
+
+  /**
+   * Source identifier follows the fixed header; codes are kept from the previous record when
+   * bytes are equal
+   *
+   * @return false if the identifier is not an FDSN source identifier
+   */
+  private boolean readSNCL(ByteBuffer buffer, int pos) {
+    int length = identifierLength;
+    if (buffer.limit() - pos < FIXED_HEADER_LENGTH + length) {
+      return false;
+    }
+    boolean same = length == sidLength;
+    if (length > sidBytes.length) {
+      sidBytes = new byte[length];
+    }
+    for (int i = 0; i < length; i++) {
+      byte b = buffer.get(pos + FIXED_HEADER_LENGTH + i);
+      if (b != sidBytes[i]) {
+        sidBytes[i] = b;
+        same = false;
+      }
+    }
+    if (same) {
+      return true;
+    }
+    sidLength = -1;
+    matchedFilter = null;
+    String sid = new String(sidBytes, 0, length, StandardCharsets.US_ASCII);
+    if (!sid.startsWith(SID_PREFIX)) {
+      return false;
+    }
+    String[] codes = sid.substring(SID_PREFIX.length()).split("_", -1);
+    if (codes.length != 6) {
+      return false;
+    }
+    network = codes[0];
+    station = codes[1];
+    location = codes[2];
+    channel = codes[3] + codes[4] + codes[5];
+    sidLength = length;
+    return true;
+  }
+
+  /**
+   * Computes CRC-32C of the record starting at given position, with the CRC field taken as zero,
+   * and compares it with the CRC of the header
+   *
+   * @return true if the record is intact
+   */
+  public boolean checkCRC(ByteBuffer buffer, int pos) {
+    long length = getRecordLength();
+    if (pos + length > buffer.limit()) {
+      return false;
+    }
+    int value = 0xFFFFFFFF;
+    for (int i = 0; i < length; i++) {
+      int b = i >= CRC_POSITION && i < CRC_POSITION + 4 ? 0 : buffer.get(pos + i);
+      value = (value >>> 8) ^ CRC_TABLE[(value ^ b) & 0xFF];
+    }
+    return ~value == crc;
+  }
+
+  private static int getUnsignedShort(ByteBuffer buffer, int pos) {
+    return (buffer.get(pos) & 0xFF) | (buffer.get(pos + 1) & 0xFF) << 8;
+  }
+
+  private static int getInt(ByteBuffer buffer, int pos) {
+    return getUnsignedShort(buffer, pos) | getUnsignedShort(buffer, pos + 2) << 16;
+  }
+
+  private static long getUnsignedInt(ByteBuffer buffer, int pos) {
+    return getInt(buffer, pos) & 0xFFFFFFFFL;
+  }
+
+  private static long getLong(ByteBuffer buffer, int pos) {
+    return getUnsignedInt(buffer, pos) | (long) getInt(buffer, pos + 4) << 32;
+  }
+
+  /**
+   * @return FDSN source identifier of the record
+   */
+  public String getSourceIdentifier() {
+    return new String(sidBytes, 0, Math.max(sidLength, 0), StandardCharsets.US_ASCII);
+  }
+
+  public String getNetworkCode() {
+    return network;
+  }
+
+  public String getStationIdentifier() {
+    return station;
+  }
+
+  public String getLocationIdentifier() {
+    return location;
+  }
+
+  public String getChannelIdentifier() {
+    return channel;
+  }
+
+  /**
+   * @return record start time, epoch milliseconds
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public int getNumSamples() {
+    return numSamples;
+  }
+
+  /**
+   * @return sample rate in Hz; the header holds either a rate, or a period in seconds as a
+   * negative value
+   */
+  public double getSampleRateHz() {
+    return sampleRate < 0 ? -1.0 / sampleRate : sampleRate;
+  }
+
+  /**
+   * @return sample interval in milliseconds, the unit {@link com.isti.traceview.data.Segment}
+   * calls sample rate
+   */
+  public double getSampleInterval() {
+    return 1000.0 / getSampleRateHz();
+  }
+
+  /**
+   * @return data payload encoding, same codes as SEED encoding formats
+   */
+  public int getEncoding() {
+    return encoding;
+  }
+
+  /**
+   * @return true if data words are little endian; all encodings but Steim are
+   */
+  public boolean isDataLittleEndian() {
+    return encoding != MseedDecoder.STEIM1 && encoding != MseedDecoder.STEIM2;
+  }
+
+  /**
+   * @return offset of first data byte from the start of the record
+   */
+  public int getDataOffset() {
+    return FIXED_HEADER_LENGTH + identifierLength + extraHeadersLength;
+  }
+
+  /**
+   * @return length of the data payload in bytes
+   */
+  public long getPayloadLength() {
+    return payloadLength;
+  }
+
+  /**
+   * @return length of the whole record in bytes
+   */
+  public long getRecordLength() {
+    return getDataOffset() + payloadLength;
+  }
+}
@@ -0,0 +1,226 @@
+package com.isti.traceview.data.mseed;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decoder of miniSEED data sections. Samples are read with absolute gets straight from the buffer
+ * holding the record (usually a file mapping) and written into a caller supplied array at a given
+ * offset, so decoding allocates nothing and the buffer may be shared between threads.
+ *
+ * Floating point encodings are truncated to int, the same as the former
+ * LocalSeismogramImpl.get_as_doubles() and cast path did.
+ */
+public final class MseedDecoder {
+
+  /**
+   * SEED data encoding format codes, as found in blockette 1000
+   */
+  public static final int INT16 = 1;
+  public static final int INT32 = 3;
+  public static final int FLOAT32 = 4;
+  public static final int FLOAT64 = 5;
+  public static final int STEIM1 = 10;
+  public static final int STEIM2 = 11;
+
+  private static final int FRAME_LENGTH = 64;
+  private static final int WORDS_PER_FRAME = FRAME_LENGTH / 4;
+
+  private MseedDecoder() {
+  }
+
+  /**
+   * @return true if given encoding format can be decoded by this class
+   */
+  public static boolean isSupported(int encoding) {
+    switch (encoding) {
+      case INT16:
+      case INT32:
+      case FLOAT32:
+      case FLOAT64:
+      case STEIM1:
+      case STEIM2:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Decodes data section of a record
+   *
+   * @param buffer buffer holding the data section; its position, limit and order are not changed
+   * @param pos index of first data byte in the buffer
+   * @param length length of the data section in bytes
+   * @param encoding SEED encoding format
+   * @param littleEndian true if data words are little endian (blockette 1000 word order 0)
+   * @param count count of samples to decode, may be less than the record holds
+   * @param dest destination array
+   * @param destOffset index in destination array of the first decoded sample
+   * @return count of decoded samples, which is count
+   * @throws MseedFormatException if encoding is not supported or data section is too short or
+   * corrupted
+   */
+  public static int decode(ByteBuffer buffer, int pos, int length, int encoding,
+      boolean littleEndian, int count, int[] dest, int destOffset) throws MseedFormatException {
+    if (pos < 0 || length < 0 || pos + length > buffer.limit()) {
+      throw new MseedFormatException("Data section [" + pos + ", " + (pos + length)
+          + ") is outside of the buffer");
+    }
+    if (count < 0 || destOffset < 0 || destOffset + count > dest.length) {
+      throw new MseedFormatException("Can't place " + count + " samples at index " + destOffset
+          + " of array of " + dest.length);
+    }
+    // absolute gets honor buffer order; swap when it differs from the data word order
+    boolean swap = (buffer.order() == ByteOrder.LITTLE_ENDIAN) != littleEndian;
+    switch (encoding) {
+      case INT16:
+        checkLength(count * 2, length, encoding);
+        for (int i = 0; i < count; i++) {
+          short s = buffer.getShort(pos + 2 * i);
+          dest[destOffset + i] = swap ? Short.reverseBytes(s) : s;
+        }
+        return count;
+      case INT32:
+        checkLength(count * 4, length, encoding);
+        for (int i = 0; i < count; i++) {
+          dest[destOffset + i] = getInt(buffer, pos + 4 * i, swap);
+        }
+        return count;
+      case FLOAT32:
+        checkLength(count * 4, length, encoding);
+        for (int i = 0; i < count; i++) {
+          dest[destOffset + i] = (int) Float.intBitsToFloat(getInt(buffer, pos + 4 * i, swap));
+        }
+        return count;
+      case FLOAT64:
+        checkLength(count * 8, length, encoding);
+        for (int i = 0; i < count; i++) {
+          long bits = buffer.getLong(pos + 8 * i);
+          dest[destOffset + i] = (int) Double.longBitsToDouble(swap ? Long.reverseBytes(bits)
+              : bits);
+        }
+        return count;
+      case STEIM1:
+      case STEIM2:
+        return decodeSteim(buffer, pos, length, encoding == STEIM2, swap, count, dest, destOffset);
+      default:
+        throw new MseedFormatException("Unsupported data encoding " + encoding);
+    }
+  }
+
+  private static void checkLength(int needed, int length, int encoding)
+      throws MseedFormatException {
+    if (needed > length) {
+      throw new MseedFormatException("Encoding " + encoding + " needs " + needed
+          + " bytes but data section has " + length);
+    }
+  }
+
+  private static int getInt(ByteBuffer buffer, int pos, boolean swap) {
+    int value = buffer.getInt(pos);
+    return swap ? Integer.reverseBytes(value) : value;
+  }
+
+  /**
+   * Steim1/Steim2 decoding. Data section is a sequence of 64 byte frames, each starting with a
+   * word of 2 bit codes describing the remaining 15 words. First frame words 1 and 2 are forward
+   * and reverse integration constants. First difference is relative to the previous record, so
+   * the first sample is the forward integration constant and the first difference is skipped.
+   */
+  private static int decodeSteim(ByteBuffer buffer, int pos, int length, boolean steim2,
+      boolean swap, int count, int[] dest, int destOffset) throws MseedFormatException {
+    if (count == 0) {
+      return 0;
+    }
+    int frames = length / FRAME_LENGTH;
+    if (frames == 0) {
+      throw new MseedFormatException("Steim data section of " + length + " bytes has no frames");
+    }
+    int last = getInt(buffer, pos + 4, swap);
+    dest[destOffset] = last;
+    boolean firstDifference = true;
+    int end = destOffset + count;
+    int out = destOffset + 1;
+    for (int f = 0; f < frames && out < end; f++) {
+      int framePos = pos + f * FRAME_LENGTH;
+      int nibbles = getInt(buffer, framePos, swap);
+      // words 1 and 2 of first frame hold integration constants
+      for (int w = f == 0 ? 3 : 1; w < WORDS_PER_FRAME && out < end; w++) {
+        int code = (nibbles >>> (30 - 2 * w)) & 0x3;
+        if (code == 0) {
+          continue;
+        }
+        int word = getInt(buffer, framePos + 4 * w, swap);
+        int bits;
+        int diffCount;
+        if (code == 1) {
+          bits = 8;
+          diffCount = 4;
+        } else if (!steim2) {
+          if (code == 2) {
+            bits = 16;
+            diffCount = 2;
+          } else {
+            bits = 32;
+            diffCount = 1;
+          }
+        } else {
+          int dnib = word >>> 30;
+          if (code == 2) {
+            switch (dnib) {
+              case 1:
+                bits = 30;
+                diffCount = 1;
+                break;
+              case 2:
+                bits = 15;
+                diffCount = 2;
+                break;
+              case 3:
+                bits = 10;
+                diffCount = 3;
+                break;
+              default:
+                throw new MseedFormatException("Invalid Steim2 dnib 0 for code 2 in frame " + f);
+            }
+          } else {
+            switch (dnib) {
+              case 0:
+                bits = 6;
+                diffCount = 5;
+                break;
+              case 1:
+                bits = 5;
+                diffCount = 6;
+                break;
+              case 2:
+                bits = 4;
+                diffCount = 7;
+                break;
+              default:
+                throw new MseedFormatException("Invalid Steim2 dnib 3 for code 3 in frame " + f);
+            }
+          }
+        }
+        // differences are packed from the most significant end, sign extended by shifting
+        for (int d = 0; d < diffCount && out < end; d++) {
+          int shift = (diffCount - 1 - d) * bits;
+          int diff = bits == 32 ? word : (word << (32 - bits - shift)) >> (32 - bits);
+          if (firstDifference) {
+            firstDifference = false;
+            continue;
+          }
+          last += diff;
+          dest[out++] = last;
+        }
+      }
+    }
+    int n = out - destOffset;
+    if (n < count) {
+      throw new MseedFormatException("Steim data section holds " + n + " of " + count
+          + " samples");
+    }
+    return n;
+  }
+}
@@ -0,0 +1,16 @@
+package com.isti.traceview.data.mseed;
+
+import com.isti.traceview.TraceViewException;
+
+public class MseedFormatException extends TraceViewException {
+
+  private static final long serialVersionUID = 1L;
+
+  public MseedFormatException() {
+    super();
+  }
+
+  public MseedFormatException(String s) {
+    super(s);
+  }
+}
@@ -0,0 +1,355 @@
+package com.isti.traceview.data.mseed;
+
+import com.isti.traceview.common.SNCLFilter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Fixed section of a miniSEED 2.x record header, plus what we need from blockette 1000, read
+ * directly from a byte buffer. Unlike seisFile's DataHeader this object is mutable and meant to be
+ * reused for every record of a scan, so scanning a file allocates nothing per record: SNCL
+ * strings are only rebuilt when they differ from the previous record.
+ *
+ * @see <a href="http://www.fdsn.org/pdf/SEEDManual_V2.4.pdf">SEED manual, chapter 8</a>
+ */
+public class MseedRecordHeader {
+
+  public static final int FIXED_HEADER_LENGTH = 48;
+
+  /**
+   * Largest record we are prepared to read, of miniSEED 2 and 3 alike
+   */
+  public static final int MAX_RECORD_LENGTH = 65536;
+
+  private static final int BLOCKETTE_1000 = 1000;
+  private static final int MAX_BLOCKETTES = 64;
+
+  /**
+   * Bounds of the blockette 1000 record length exponent, 128 to 65536 bytes
+   */
+  private static final int MIN_RECORD_LENGTH_EXPONENT = 7;
+  private static final int MAX_RECORD_LENGTH_EXPONENT = 16;
+
+  private static final long MILLIS_IN_DAY = 86400000L;
+
+  private final byte[] snclBytes = new byte[12];
+  private boolean snclValid = false;
+
+  // filter last checked against current SNCL, and its answer
+  private SNCLFilter matchedFilter = null;
+  private boolean snclMatches;
+
+  private char typeCode;
+  private int sequenceNumber;
+  private String station;
+  private String location;
+  private String channel;
+  private String network;
+  private long startTime;
+  private int numSamples;
+  private int sampleRateFactor;
+  private int sampleRateMultiplier;
+  private int dataOffset;
+  private boolean blockette1000;
+  private int encoding;
+  private boolean dataLittleEndian;
+  private int recordLength;
+
+  // cache of last converted day to avoid date arithmetic for every record
+  private int cachedYear = -1;
+  private int cachedDay = -1;
+  private long cachedDayMillis;
+
+  /**
+   * Reads record header starting at given position of the buffer. Buffer position and limit are
+   * left untouched.
+   *
+   * @param buffer buffer holding the record
+   * @param pos index of first record byte in the buffer
+   * @param defaultRecordLength record length to assume if there is no blockette 1000
+   * @return false if bytes at this position don't look like a miniSEED record header, or its
+   * blockette 1000 declares a record length out of 128 to 65536 bytes
+   */
+  public boolean read(ByteBuffer buffer, int pos, int defaultRecordLength) {
+    if (buffer.limit() - pos < FIXED_HEADER_LENGTH) {
+      return false;
+    }
+    sequenceNumber = 0;
+    for (int i = 0; i < 6; i++) {
+      byte b = buffer.get(pos + i);
+      if (b >= '0' && b <= '9') {
+        sequenceNumber = sequenceNumber * 10 + (b - '0');
+      } else if (b != ' ' && b != 0) {
+        return false;
+      }
+    }
+    typeCode = (char) buffer.get(pos + 6);
+    if ("DRQMVASTE ".indexOf(typeCode) < 0) {
+      return false;
+    }
+    blockette1000 = false;
+    encoding = 0;
+    dataLittleEndian = false;
+    recordLength = defaultRecordLength;
+    if (!isDataRecord()) {
+      // control record: no fixed data header to read
+      return true;
+    }
+
+    // year below tells us the byte order of binary header fields
+    boolean swapped = false;
+    int year = getUnsignedShort(buffer, pos + 20, false);
+    if (year < 1900 || year > 2500) {
+      swapped = true;
+      year = getUnsignedShort(buffer, pos + 20, true);
+      if (year < 1900 || year > 2500) {
+        return false;
+      }
+    }
+    int day = getUnsignedShort(buffer, pos + 22, swapped);
+    int hour = buffer.get(pos + 24) & 0xFF;
+    int minute = buffer.get(pos + 25) & 0xFF;
+    int second = buffer.get(pos + 26) & 0xFF;
+    int tenthMillis = getUnsignedShort(buffer, pos + 28, swapped);
+    if (year != cachedYear || day != cachedDay) {
+      try {
+        cachedDayMillis = LocalDate.ofYearDay(year, day).toEpochDay() * MILLIS_IN_DAY;
+      } catch (DateTimeException e) {
+        return false;
+      }
+      cachedYear = year;
+      cachedDay = day;
+    }
+    // same as seisFile's Btime.convertToCalendar(): fraction of millisecond is dropped
+    startTime = cachedDayMillis + hour * 3600000L + minute * 60000L + second * 1000L
+        + tenthMillis / 10;
+
+    numSamples = getUnsignedShort(buffer, pos + 30, swapped);
+    sampleRateFactor = (short) getUnsignedShort(buffer, pos + 32, swapped);
+    sampleRateMultiplier = (short) getUnsignedShort(buffer, pos + 34, swapped);
+    dataOffset = getUnsignedShort(buffer, pos + 44, swapped);
+
+    readSNCL(buffer, pos);
+    return readBlockettes(buffer, pos, swapped);
+  }
+
+  /**
+   * Reads just what is needed to step over the record starting at given position: its type code
+   * and length. Other properties keep values of an earlier record.
+   *
+   * @return false if bytes at this position don't look like a miniSEED record header, or its
+   * blockette 1000 declares a record length out of 128 to 65536 bytes
+   * @see #read(ByteBuffer, int, int)
+   */
+  public boolean readRecordLength(ByteBuffer buffer, int pos, int defaultRecordLength) {
+    if (buffer.limit() - pos < FIXED_HEADER_LENGTH) {
+      return false;
+    }
+    typeCode = (char) buffer.get(pos + 6);
+    if ("DRQMVASTE ".indexOf(typeCode) < 0) {
+      return false;
+    }
+    blockette1000 = false;
+    encoding = 0;
+    dataLittleEndian = false;
+    recordLength = defaultRecordLength;
+    if (!isDataRecord()) {
+      return true;
+    }
+    boolean swapped = false;
+    int year = getUnsignedShort(buffer, pos + 20, false);
+    if (year < 1900 || year > 2500) {
+      swapped = true;
+      year = getUnsignedShort(buffer, pos + 20, true);
+      if (year < 1900 || year > 2500) {
+        return false;
+      }
+    }
+    return readBlockettes(buffer, pos, swapped);
+  }
+
+  /**
+   * Checks station, location, channel and network of the record starting at given position
+   * against a filter, before anything else of the header is read. The answer is kept while
+   * consecutive records carry the same codes, so for most records the check costs a comparison of
+   * 12 bytes.
+   *
+   * @return true if the record passes the filter
+   */
+  public boolean matches(ByteBuffer buffer, int pos, SNCLFilter filter) {
+    if (buffer.limit() - pos < FIXED_HEADER_LENGTH) {
+      return false;
+    }
+    readSNCL(buffer, pos);
+    if (filter != matchedFilter) {
+      matchedFilter = filter;
+      snclMatches = filter.matches(network, station, location, channel);
+    }
+    return snclMatches;
+  }
+
+  /**
+   * @return false if blockette 1000 declares a record length out of bounds
+   */
+  private boolean readBlockettes(ByteBuffer buffer, int pos, boolean swapped) {
+    int numBlockettes = buffer.get(pos + 39) & 0xFF;
+    int blocketteOffset = getUnsignedShort(buffer, pos + 46, swapped);
+    for (int i = 0; i < Math.min(numBlockettes, MAX_BLOCKETTES) && blocketteOffset != 0; i++) {
+      int b = pos + blocketteOffset;
+      if (blocketteOffset < FIXED_HEADER_LENGTH || b + 8 > buffer.limit()) {
+        break;
+      }
+      int type = getUnsignedShort(buffer, b, swapped);
+      if (type == BLOCKETTE_1000) {
+        blockette1000 = true;
+        encoding = buffer.get(b + 4);
+        dataLittleEndian = buffer.get(b + 5) == 0;
+        int exponent = buffer.get(b + 6);
+        if (exponent < MIN_RECORD_LENGTH_EXPONENT || exponent > MAX_RECORD_LENGTH_EXPONENT) {
+          return false;
+        }
+        recordLength = 1 << exponent;
+      }
+      int next = getUnsignedShort(buffer, b + 2, swapped);
+      if (next <= blocketteOffset) {
+        break;
+      }
+      blocketteOffset = next;
+    }
+    return true;
+  }
+
+  /**
+   * Station, location, channel and network occupy bytes 8 to 19; strings are kept from the
+   * previous record when bytes are equal
+   */
+  private void readSNCL(ByteBuffer buffer, int pos) {
+    boolean same = snclValid;
+    for (int i = 0; i < snclBytes.length; i++) {
+      byte b = buffer.get(pos + 8 + i);
+      if (b != snclBytes[i]) {
+        snclBytes[i] = b;
+        same = false;
+      }
+    }
+    if (!same) {
+      station = new String(snclBytes, 0, 5, StandardCharsets.US_ASCII);
+      location = new String(snclBytes, 5, 2, StandardCharsets.US_ASCII);
+      channel = new String(snclBytes, 7, 3, StandardCharsets.US_ASCII);
+      network = new String(snclBytes, 10, 2, StandardCharsets.US_ASCII);
+      snclValid = true;
+      matchedFilter = null;
+    }
+  }
+
+  private static int getUnsignedShort(ByteBuffer buffer, int pos, boolean swapped) {
+    int b1 = buffer.get(pos) & 0xFF;
+    int b2 = buffer.get(pos + 1) & 0xFF;
+    return swapped ? (b2 << 8) | b1 : (b1 << 8) | b2;
+  }
+
+  /**
+   * @return true for D, R, Q and M records, which carry time series data
+   */
+  public boolean isDataRecord() {
+    return typeCode == 'D' || typeCode == 'R' || typeCode == 'Q' || typeCode == 'M';
+  }
+
+  public char getTypeCode() {
+    return typeCode;
+  }
+
+  public int getSequenceNumber() {
+    return sequenceNumber;
+  }
+
+  public String getStationIdentifier() {
+    return station;
+  }
+
+  public String getLocationIdentifier() {
+    return location;
+  }
+
+  public String getChannelIdentifier() {
+    return channel;
+  }
+
+  public String getNetworkCode() {
+    return network;
+  }
+
+  /**
+   * @return record start time, epoch milliseconds
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public int getNumSamples() {
+    return numSamples;
+  }
+
+  /**
+   * Sample rate in Hz from header factor and multiplier, computed like seisFile's
+   * DataHeader.calcSampleRateFromMultipilerFactor()
+   */
+  public double getSampleRateHz() {
+    double factor = sampleRateFactor;
+    double multiplier = sampleRateMultiplier;
+    if (factor > 0 && multiplier < 0) {
+      return -factor / multiplier;
+    } else if (factor < 0 && multiplier > 0) {
+      return -multiplier / factor;
+    } else if (factor < 0 && multiplier < 0) {
+      return 1.0 / (factor * multiplier);
+    } else {
+      return factor * multiplier;
+    }
+  }
+
+  /**
+   * @return sample interval in milliseconds, the unit {@link com.isti.traceview.data.Segment}
+   * calls sample rate
+   */
+  public double getSampleInterval() {
+    return 1000.0 / getSampleRateHz();
+  }
+
+  /**
+   * @return offset of first data byte from the start of the record
+   */
+  public int getDataOffset() {
+    return dataOffset;
+  }
+
+  /**
+   * @return true if the record has blockette 1000, i.e. declares its encoding and length
+   */
+  public boolean hasBlockette1000() {
+    return blockette1000;
+  }
+
+  /**
+   * @return encoding format from blockette 1000, meaningless if there is no blockette 1000
+   */
+  public int getEncoding() {
+    return encoding;
+  }
+
+  /**
+   * @return true if blockette 1000 declares little endian data words
+   */
+  public boolean isDataLittleEndian() {
+    return dataLittleEndian;
+  }
+
+  /**
+   * @return record length from blockette 1000, or default one if there is no blockette 1000
+   */
+  public int getRecordLength() {
+    return recordLength;
+  }
+}
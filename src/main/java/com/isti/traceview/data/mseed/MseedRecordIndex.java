@@ -0,0 +1,512 @@
+package com.isti.traceview.data.mseed;
+
+import com.isti.traceview.common.SNCLFilter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.log4j.Logger;
+
+/**
+ * Index of the data records of one miniSEED file: offset, start time, sample count, sample
+ * interval and SNCL of every record holding samples. An index is built by a header scan of the
+ * mapped file and may be stored in an index directory, so later parses of an unchanged file read
+ * the index instead of the whole file. Stored indexes are keyed by canonical path, length and
+ * modification time of the data file; an index whose key doesn't match is ignored.
+ */
+public class MseedRecordIndex {
+
+  private static final Logger logger = Logger.getLogger(MseedRecordIndex.class);
+
+  private static final int MAGIC = 0x584d4958; // "XMIX"
+  private static final int VERSION = 2;
+  private static final String EXTENSION = ".idx";
+
+  /**
+   * Record length assumed while looking for the first blockette 1000
+   */
+  private static final int PROBE_BLOCK_LENGTH = 4096;
+
+  private final String path;
+  private final long length;
+  private final long lastModified;
+
+  // SNCL table: each entry is {network, station, location, channel}, untrimmed as in the header
+  private final List<String[]> sncls = new ArrayList<>();
+  private final Map<String, Integer> snclIds = new HashMap<>();
+
+  private boolean complete = true;
+
+  // true if records were left out by a filter
+  private boolean filtered = false;
+
+  // offset following the last whole record scanned, where a scan of appended records resumes
+  private long endOffset = 0;
+
+  private int size = 0;
+  private long[] offsets = new long[64];
+  private long[] startTimes = new long[64];
+  private int[] sampleCounts = new int[64];
+  private double[] sampleIntervals = new double[64];
+  private int[] recordSncls = new int[64];
+
+  /**
+   * Creates empty index for a data file
+   *
+   * @param path canonical path of the data file
+   * @param length data file length
+   * @param lastModified data file modification time
+   */
+  public MseedRecordIndex(String path, long length, long lastModified) {
+    this.path = path;
+    this.length = length;
+    this.lastModified = lastModified;
+  }
+
+  /**
+   * Scans headers of all records of a mapped file. Scan stops at the first position which
+   * doesn't hold a valid record header, or whose record length is out of bounds; the index then
+   * contains the records read so far and is marked as incomplete.
+   *
+   * @param path canonical path of the mapped file
+   * @param mapped mapped data file
+   * @param defaultBlockLength record length to use when the file has no blockette 1000
+   * @return index of data records holding samples
+   */
+  public static MseedRecordIndex scan(String path, MappedMseedFile mapped,
+      int defaultBlockLength) {
+    return scan(path, mapped, defaultBlockLength, 0);
+  }
+
+  /**
+   * Scans headers of the records of a mapped file which start at or after an offset, such as
+   * records appended to a file which grows
+   *
+   * @param fromOffset offset of the first record to scan, the end offset of an earlier scan
+   * @see #scan(String, MappedMseedFile, int)
+   */
+  public static MseedRecordIndex scan(String path, MappedMseedFile mapped,
+      int defaultBlockLength, long fromOffset) {
+    return scan(path, mapped, defaultBlockLength, fromOffset, SNCLFilter.ALL);
+  }
+
+  /**
+   * Scans headers of the records of a mapped file which pass a filter. The filter is checked
+   * before the rest of a record header is parsed, and records which don't pass are stepped over
+   * by their length. Such an index lacks records of the file, so it must not be stored.
+   *
+   * @param filter filter of records to index
+   * @see #scan(String, MappedMseedFile, int, long)
+   */
+  public static MseedRecordIndex scan(String path, MappedMseedFile mapped,
+      int defaultBlockLength, long fromOffset, SNCLFilter filter) {
+    MseedRecordIndex index = new MseedRecordIndex(path, mapped.length(), mapped.lastModified());
+    index.filtered = !filter.passesAll();
+    MseedRecordHeader header = new MseedRecordHeader();
+    int blockLength = findBlockLength(path, mapped, header, defaultBlockLength);
+    long offset = fromOffset;
+    long blockNumber = 0;
+    long skipped = 0;
+    // a trailing partial record is not indexed
+    while (offset + MseedRecordHeader.FIXED_HEADER_LENGTH <= mapped.length()) {
+      // records filtered out are only read as far as needed to step over them
+      boolean passes = !index.filtered || mapped.matches(offset, header, filter);
+      if (!(passes ? mapped.readHeader(offset, blockLength, header)
+          : mapped.readRecordLength(offset, blockLength, header))) {
+        logger.error("Wrong mseed file format: no valid record header at offset " + offset
+            + " of " + path);
+        index.complete = false;
+        break;
+      }
+      if (!checkRecordLength(header.getRecordLength(), MseedRecordHeader.FIXED_HEADER_LENGTH,
+          offset, path)) {
+        index.complete = false;
+        break;
+      }
+      if (offset + header.getRecordLength() > mapped.length()) {
+        break;
+      }
+      blockNumber++;
+      if (!passes) {
+        skipped++;
+      } else if (!header.isDataRecord()) {
+        logger.error("Block # " + blockNumber + " is not a data record");
+      } else if (header.getNumSamples() == 0) {
+        logger.debug("Skipping 0-length block #" + blockNumber);
+      } else {
+        index.add(offset, header);
+      }
+      offset += header.getRecordLength();
+    }
+    index.endOffset = offset;
+    logger.debug("Read " + blockNumber + " blocks, " + skipped + " filtered out, end position "
+        + offset);
+    return index;
+  }
+
+  /**
+   * Scans headers of the miniSEED 3 records of a mapped file which start at or after an offset and
+   * pass a filter, see {@link #scan(String, MappedMseedFile, int, long, SNCLFilter)}. Records
+   * declare their own length, so there is no block length to find. Records without samples, or
+   * whose payload isn't a supported sample encoding, are not indexed.
+   *
+   * @param path canonical path of the mapped file
+   * @param mapped mapped data file
+   * @param fromOffset offset of the first record to scan
+   * @param filter filter of records to index
+   * @return index of data records holding samples
+   */
+  public static MseedRecordIndex scan3(String path, MappedMseedFile mapped, long fromOffset,
+      SNCLFilter filter) {
+    MseedRecordIndex index = new MseedRecordIndex(path, mapped.length(), mapped.lastModified());
+    index.filtered = !filter.passesAll();
+    Mseed3RecordHeader header = new Mseed3RecordHeader();
+    long offset = fromOffset;
+    long recordNumber = 0;
+    long skipped = 0;
+    // a trailing partial record is not indexed
+    while (offset + Mseed3RecordHeader.FIXED_HEADER_LENGTH <= mapped.length()) {
+      boolean passes = !index.filtered || mapped.matches(offset, header, filter);
+      if (!(passes ? mapped.readHeader(offset, header)
+          : mapped.readRecordLength(offset, header))) {
+        logger.error("Wrong mseed3 file format: no valid record header at offset " + offset
+            + " of " + path);
+        index.complete = false;
+        break;
+      }
+      if (!checkRecordLength(header.getRecordLength(), Mseed3RecordHeader.FIXED_HEADER_LENGTH,
+          offset, path)) {
+        index.complete = false;
+        break;
+      }
+      if (offset + header.getRecordLength() > mapped.length()) {
+        break;
+      }
+      recordNumber++;
+      if (!passes) {
+        skipped++;
+      } else if (header.getNumSamples() == 0 || header.getSampleRateHz() <= 0
+          || !MseedDecoder.isSupported(header.getEncoding())) {
+        logger.debug("Skipping record #" + recordNumber + " without samples");
+      } else {
+        index.add(offset, header);
+      }
+      offset += header.getRecordLength();
+    }
+    index.endOffset = offset;
+    logger.debug("Read " + recordNumber + " records, " + skipped + " filtered out, end position "
+        + offset);
+    return index;
+  }
+
+  /**
+   * @return record length declared by the first blockette 1000 in the file, or default block
+   * length if the file has no blockette 1000
+   */
+  private static int findBlockLength(String path, MappedMseedFile mapped,
+      MseedRecordHeader header, int defaultBlockLength) {
+    long offset = 0;
+    while (offset + MseedRecordHeader.FIXED_HEADER_LENGTH <= mapped.length()
+        && mapped.readHeader(offset, PROBE_BLOCK_LENGTH, header)) {
+      if (header.hasBlockette1000()) {
+        return header.getRecordLength();
+      }
+      if (!checkRecordLength(header.getRecordLength(), MseedRecordHeader.FIXED_HEADER_LENGTH,
+          offset, path)) {
+        break;
+      }
+      offset += header.getRecordLength();
+    }
+    return defaultBlockLength;
+  }
+
+  /**
+   * Checks a record length before the scan steps over the record, a length read from a corrupted
+   * header or a wrong default block length could otherwise stall the scan or skip most of the file
+   *
+   * @param minLength length of the fixed header of the record format
+   * @return false, logging an error, if the length is shorter than the fixed header or longer
+   * than {@link MseedRecordHeader#MAX_RECORD_LENGTH}
+   */
+  private static boolean checkRecordLength(long recordLength, int minLength, long offset,
+      String path) {
+    if (recordLength < minLength
+        || recordLength > MseedRecordHeader.MAX_RECORD_LENGTH) {
+      logger.error("Record at offset " + offset + " of " + path + " has wrong length "
+          + recordLength + " bytes");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Appends a record to the index
+   *
+   * @param offset file offset of the record
+   * @param header record header
+   */
+  public void add(long offset, MseedRecordHeader header) {
+    add(offset, header.getStartTime(), header.getNumSamples(), header.getSampleInterval(),
+        header.getNetworkCode(), header.getStationIdentifier(), header.getLocationIdentifier(),
+        header.getChannelIdentifier());
+  }
+
+  /**
+   * Appends a miniSEED 3 record to the index
+   *
+   * @param offset file offset of the record
+   * @param header record header
+   */
+  public void add(long offset, Mseed3RecordHeader header) {
+    add(offset, header.getStartTime(), header.getNumSamples(), header.getSampleInterval(),
+        header.getNetworkCode(), header.getStationIdentifier(), header.getLocationIdentifier(),
+        header.getChannelIdentifier());
+  }
+
+  private void add(long offset, long startTime, int numSamples, double sampleInterval,
+      String network, String station, String location, String channel) {
+    if (size == offsets.length) {
+      int capacity = size * 2;
+      offsets = Arrays.copyOf(offsets, capacity);
+      startTimes = Arrays.copyOf(startTimes, capacity);
+      sampleCounts = Arrays.copyOf(sampleCounts, capacity);
+      sampleIntervals = Arrays.copyOf(sampleIntervals, capacity);
+      recordSncls = Arrays.copyOf(recordSncls, capacity);
+    }
+    offsets[size] = offset;
+    startTimes[size] = startTime;
+    sampleCounts[size] = numSamples;
+    sampleIntervals[size] = sampleInterval;
+    recordSncls[size] = getSNCLId(network, station, location, channel);
+    size++;
+  }
+
+  private int getSNCLId(String network, String station, String location, String channel) {
+    // SNCL rarely changes between consecutive records, check the previous one first
+    if (size > 0) {
+      String[] last = sncls.get(recordSncls[size - 1]);
+      if (last[3].equals(channel) && last[1].equals(station) && last[2].equals(location)
+          && last[0].equals(network)) {
+        return recordSncls[size - 1];
+      }
+    }
+    String key = network + "." + station + "." + location + "." + channel;
+    Integer id = snclIds.get(key);
+    if (id == null) {
+      id = sncls.size();
+      sncls.add(new String[]{network, station, location, channel});
+      snclIds.put(key, id);
+    }
+    return id;
+  }
+
+  /**
+   * @return false if the scan stopped at a corrupted record before the end of file, or left out
+   * records by a filter; such an index should not be stored
+   */
+  public boolean isComplete() {
+    return complete && !filtered;
+  }
+
+  /**
+   * @return file offset following the last whole record scanned; a trailing partial record,
+   * such as one still being written, starts there
+   */
+  public long getEndOffset() {
+    return endOffset;
+  }
+
+  /**
+   * @return count of indexed records
+   */
+  public int size() {
+    return size;
+  }
+
+  public long getOffset(int record) {
+    return offsets[record];
+  }
+
+  /**
+   * @return record start time, epoch milliseconds
+   */
+  public long getStartTime(int record) {
+    return startTimes[record];
+  }
+
+  public int getSampleCount(int record) {
+    return sampleCounts[record];
+  }
+
+  /**
+   * @return sample interval in milliseconds
+   */
+  public double getSampleInterval(int record) {
+    return sampleIntervals[record];
+  }
+
+  /**
+   * @return count of distinct SNCLs of indexed records
+   */
+  public int getSNCLCount() {
+    return sncls.size();
+  }
+
+  /**
+   * @return SNCL of a record, as index in 0 .. {@link #getSNCLCount()} - 1; records with equal
+   * codes have equal SNCL
+   */
+  public int getSNCL(int record) {
+    return recordSncls[record];
+  }
+
+  public String getNetworkCode(int record) {
+    return sncls.get(recordSncls[record])[0];
+  }
+
+  public String getStationIdentifier(int record) {
+    return sncls.get(recordSncls[record])[1];
+  }
+
+  public String getLocationIdentifier(int record) {
+    return sncls.get(recordSncls[record])[2];
+  }
+
+  public String getChannelIdentifier(int record) {
+    return sncls.get(recordSncls[record])[3];
+  }
+
+  /**
+   * Finds stored index of a data file
+   *
+   * @param indexDirectory directory holding stored indexes
+   * @param dataFile data file
+   * @return stored index, or null if there is no index for the file or the file changed since
+   * the index was written
+   */
+  public static MseedRecordIndex read(File indexDirectory, File dataFile) {
+    try {
+      String path = dataFile.getCanonicalPath();
+      File indexFile = getIndexFile(indexDirectory, path);
+      if (!indexFile.isFile()) {
+        return null;
+      }
+      try (DataInputStream in = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(indexFile)))) {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+          logger.debug("Index " + indexFile + " has unknown format, ignored");
+          return null;
+        }
+        String indexedPath = in.readUTF();
+        long indexedLength = in.readLong();
+        long indexedLastModified = in.readLong();
+        if (!indexedPath.equals(path) || indexedLength != dataFile.length()
+            || indexedLastModified != dataFile.lastModified()) {
+          logger.debug("Index " + indexFile + " is stale for " + path);
+          return null;
+        }
+        MseedRecordIndex index = new MseedRecordIndex(indexedPath, indexedLength,
+            indexedLastModified);
+        index.endOffset = in.readLong();
+        int snclCount = in.readInt();
+        for (int i = 0; i < snclCount; i++) {
+          String[] sncl = {in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF()};
+          index.snclIds.put(sncl[0] + "." + sncl[1] + "." + sncl[2] + "." + sncl[3], i);
+          index.sncls.add(sncl);
+        }
+        int count = in.readInt();
+        index.offsets = new long[Math.max(count, 1)];
+        index.startTimes = new long[Math.max(count, 1)];
+        index.sampleCounts = new int[Math.max(count, 1)];
+        index.sampleIntervals = new double[Math.max(count, 1)];
+        index.recordSncls = new int[Math.max(count, 1)];
+        for (int i = 0; i < count; i++) {
+          index.offsets[i] = in.readLong();
+          index.startTimes[i] = in.readLong();
+          index.sampleCounts[i] = in.readInt();
+          index.sampleIntervals[i] = in.readDouble();
+          index.recordSncls[i] = in.readInt();
+          if (index.recordSncls[i] < 0 || index.recordSncls[i] >= snclCount) {
+            logger.warn("Index " + indexFile + " is corrupted, ignored");
+            return null;
+          }
+        }
+        index.size = count;
+        return index;
+      }
+    } catch (IOException e) {
+      logger.warn("Can't read record index of " + dataFile + ": " + e);
+      return null;
+    }
+  }
+
+  /**
+   * Stores index in the index directory, replacing previous index of the same data file
+   *
+   * @param indexDirectory directory holding stored indexes, created if absent
+   * @throws IOException if index can't be written
+   */
+  public void write(File indexDirectory) throws IOException {
+    if (!indexDirectory.isDirectory() && !indexDirectory.mkdirs()) {
+      throw new IOException("Can't create record index directory " + indexDirectory);
+    }
+    File indexFile = getIndexFile(indexDirectory, path);
+    // written aside and moved in place, so concurrent readers never see a partial index
+    File tempFile = File.createTempFile(indexFile.getName(), ".tmp", indexDirectory);
+    try {
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(path);
+        out.writeLong(length);
+        out.writeLong(lastModified);
+        out.writeLong(endOffset);
+        out.writeInt(sncls.size());
+        for (String[] sncl : sncls) {
+          for (String code : sncl) {
+            out.writeUTF(code);
+          }
+        }
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+          out.writeLong(offsets[i]);
+          out.writeLong(startTimes[i]);
+          out.writeInt(sampleCounts[i]);
+          out.writeDouble(sampleIntervals[i]);
+          out.writeInt(recordSncls[i]);
+        }
+      }
+      try {
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tempFile.toPath());
+    }
+  }
+
+  /**
+   * Index files are named after the data file plus a hash of its full path, so same-named files
+   * of different directories get different indexes
+   */
+  private static File getIndexFile(File indexDirectory, String path) {
+    String name = new File(path).getName();
+    return new File(indexDirectory,
+        name + "." + String.format("%08x", path.hashCode()) + EXTENSION);
+  }
+}
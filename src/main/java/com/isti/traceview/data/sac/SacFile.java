@@ -0,0 +1,225 @@
+package com.isti.traceview.data.sac;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+
+/**
+ * Binary SAC file: the fields of the 632 byte header which describe the trace, read once, and
+ * bulk reads of any range of the samples which follow it. Samples are read through a read-only
+ * mapping of the requested range only, in the byte order of the header.
+ */
+public class SacFile {
+
+  public static final int HEADER_LENGTH = 632;
+
+  /**
+   * Version of the header format, used to tell byte order when the count of points is
+   * ambiguous
+   */
+  public static final int HEADER_VERSION = 6;
+
+  /**
+   * Version of the header format whose files end with a footer following the samples
+   */
+  public static final int FOOTER_HEADER_VERSION = 7;
+
+  private static final int DELTA_OFFSET = 0;
+  private static final int NZYEAR_OFFSET = 280;
+  private static final int NVHDR_OFFSET = 304;
+  private static final int NPTS_OFFSET = 316;
+  private static final int KSTNM_OFFSET = 440;
+  private static final int KHOLE_OFFSET = 464;
+  private static final int KCMPNM_OFFSET = 600;
+  private static final int KNETWK_OFFSET = 608;
+  private static final int KINST_OFFSET = 624;
+  private static final int STRING_LENGTH = 8;
+
+  // longest range of samples mapped at once
+  private static final int MAX_MAPPED_SAMPLES = 1 << 28;
+
+  private final ByteOrder order;
+  private final float delta;
+  private final int npts;
+  private final int[] time;
+  private final String station;
+  private final String location;
+  private final String channel;
+  private final String network;
+  private final String instrument;
+
+  private SacFile(ByteBuffer header) {
+    order = header.order();
+    delta = header.getFloat(DELTA_OFFSET);
+    npts = header.getInt(NPTS_OFFSET);
+    time = new int[6];
+    for (int i = 0; i < time.length; i++) {
+      time[i] = header.getInt(NZYEAR_OFFSET + 4 * i);
+    }
+    station = getString(header, KSTNM_OFFSET);
+    location = getString(header, KHOLE_OFFSET);
+    channel = getString(header, KCMPNM_OFFSET);
+    network = getString(header, KNETWK_OFFSET);
+    instrument = getString(header, KINST_OFFSET);
+  }
+
+  /**
+   * Reads the header of a SAC file
+   *
+   * @param channel channel of the file; only positional reads are used
+   * @return header of the file
+   * @throws SacFormatException if the samples don't fit the file length in either byte order
+   */
+  public static SacFile read(FileChannel channel) throws IOException, SacFormatException {
+    long length = channel.size();
+    ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+    while (header.hasRemaining()) {
+      if (length < HEADER_LENGTH || channel.read(header, header.position()) < 0) {
+        throw new SacFormatException("File is shorter than a SAC header");
+      }
+    }
+    ByteOrder order = getOrder(header, length);
+    if (order == null) {
+      throw new SacFormatException("Count of points doesn't fit length of the file, "
+          + "this does not appear to be a SAC file");
+    }
+    header.order(order);
+    return new SacFile(header);
+  }
+
+  /**
+   * Tells byte order of a SAC header: the one in which the samples fit the file length; the file
+   * may hold more data after them, like the footer of version 7 headers. If both do, the one in
+   * which the header version is valid is taken.
+   *
+   * @param header buffer holding the header from index 0
+   * @param fileLength length of the whole file
+   * @return byte order of the header, or null if the samples don't fit in either
+   */
+  public static ByteOrder getOrder(ByteBuffer header, long fileLength) {
+    boolean big = matchesLength(header, ByteOrder.BIG_ENDIAN, fileLength);
+    boolean little = matchesLength(header, ByteOrder.LITTLE_ENDIAN, fileLength);
+    if (big && little) {
+      ByteOrder order = header.order();
+      int version = header.order(ByteOrder.LITTLE_ENDIAN).getInt(NVHDR_OFFSET);
+      header.order(order);
+      return version == HEADER_VERSION || version == FOOTER_HEADER_VERSION
+          ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+    } else if (big) {
+      return ByteOrder.BIG_ENDIAN;
+    } else if (little) {
+      return ByteOrder.LITTLE_ENDIAN;
+    }
+    return null;
+  }
+
+  private static boolean matchesLength(ByteBuffer header, ByteOrder order, long fileLength) {
+    ByteOrder original = header.order();
+    int npts = header.order(order).getInt(NPTS_OFFSET);
+    header.order(original);
+    return npts >= 0 && HEADER_LENGTH + 4L * npts <= fileLength;
+  }
+
+  private static String getString(ByteBuffer header, int offset) {
+    byte[] bytes = new byte[STRING_LENGTH];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = header.get(offset + i);
+    }
+    return new String(bytes, StandardCharsets.US_ASCII).trim();
+  }
+
+  /**
+   * Reads a range of samples at full precision
+   *
+   * @param channel channel of the file; only positional reads are used
+   * @param from index of the first sample to read
+   * @param count count of samples to read
+   * @param dest array to put samples in
+   * @param destOffset index of the first sample in dest
+   */
+  public void read(FileChannel channel, int from, int count, float[] dest, int destOffset)
+      throws IOException, SacFormatException {
+    if (from < 0 || count < 0 || (long) from + count > npts) {
+      throw new SacFormatException("Samples " + from + " to " + ((long) from + count)
+          + " are out of " + npts + " samples of the file");
+    }
+    while (count > 0) {
+      int chunk = Math.min(count, MAX_MAPPED_SAMPLES);
+      ByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH + 4L * from,
+          4L * chunk).order(order);
+      b.asFloatBuffer().get(dest, destOffset, chunk);
+      from += chunk;
+      destOffset += chunk;
+      count -= chunk;
+    }
+  }
+
+  public ByteOrder getOrder() {
+    return order;
+  }
+
+  /**
+   * @return sample interval, in seconds
+   */
+  public float getDelta() {
+    return delta;
+  }
+
+  /**
+   * @return count of samples
+   */
+  public int getNpts() {
+    return npts;
+  }
+
+  public int getNzyear() {
+    return time[0];
+  }
+
+  public int getNzjday() {
+    return time[1];
+  }
+
+  public int getNzhour() {
+    return time[2];
+  }
+
+  public int getNzmin() {
+    return time[3];
+  }
+
+  public int getNzsec() {
+    return time[4];
+  }
+
+  public int getNzmsec() {
+    return time[5];
+  }
+
+  public String getKstnm() {
+    return station;
+  }
+
+  public String getKhole() {
+    return location;
+  }
+
+  public String getKcmpnm() {
+    return channel;
+  }
+
+  public String getKnetwk() {
+    return network;
+  }
+
+  public String getKinst() {
+    return instrument;
+  }
+
+  public String toString() {
+    return "SacFile: " + network + "." + station + "." + location + "." + channel + ", " + npts
+        + " samples, " + order;
+  }
+}
@@ -0,0 +1,16 @@
+package com.isti.traceview.data.sac;
+
+import com.isti.traceview.TraceViewException;
+
+public class SacFormatException extends TraceViewException {
+
+  private static final long serialVersionUID = 1L;
+
+  public SacFormatException() {
+    super();
+  }
+
+  public SacFormatException(String s) {
+    super(s);
+  }
+}
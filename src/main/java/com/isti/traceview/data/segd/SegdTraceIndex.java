@@ -0,0 +1,211 @@
+package com.isti.traceview.data.segd;
+
+import edu.sc.seis.seisFile.segd.ChannelSet;
+import edu.sc.seis.seisFile.segd.FileInputStreamPositioned;
+import edu.sc.seis.seisFile.segd.ScanType;
+import edu.sc.seis.seisFile.segd.SegdRecord;
+import edu.sc.seis.seisFile.segd.Trace;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.log4j.Logger;
+
+/**
+ * Index of the traces of a SEG-D file, built in one sequential pass over all records of the file.
+ * Trace data is skipped while indexing; each entry records where the samples of a trace lie, so
+ * they can be read later with a single positional read, without walking the record structure
+ * again.
+ */
+public class SegdTraceIndex implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private static final Logger logger = Logger.getLogger(SegdTraceIndex.class);
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int GENERAL_HEADER_LENGTH = 32;
+
+  /**
+   * Trace of the index
+   */
+  public static class Entry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int recordNumber;
+    private final int channelSetNumber;
+    private final int traceNumber;
+    private final long dataOffset;
+    private final int sampleCount;
+    private final long startTime;
+    private final double sampleInterval;
+    private final int manufacturerCode;
+    private final double receiverLineNumber;
+    private final double receiverPointNumber;
+
+    private Entry(int recordNumber, SegdRecord record, Trace trace) {
+      this.recordNumber = recordNumber;
+      this.channelSetNumber = trace.getChannelSetNumber();
+      this.traceNumber = trace.getTraceNumber();
+      this.dataOffset = trace.getDataOffset();
+      this.sampleCount = trace.getSamplesNumber();
+      this.startTime = trace.getTimeRange().getStart();
+      this.sampleInterval = record.getBaseScanInterval();
+      this.manufacturerCode = record.getManufacturerCode();
+      this.receiverLineNumber = trace.getReceiverLineNumber();
+      this.receiverPointNumber = trace.getReceiverPointNumber();
+    }
+
+    /**
+     * @return index of the record holding the trace in the file, from 0
+     */
+    public int getRecordNumber() {
+      return recordNumber;
+    }
+
+    public int getChannelSetNumber() {
+      return channelSetNumber;
+    }
+
+    public int getTraceNumber() {
+      return traceNumber;
+    }
+
+    /**
+     * @return file offset of the first sample
+     */
+    public long getDataOffset() {
+      return dataOffset;
+    }
+
+    public int getSampleCount() {
+      return sampleCount;
+    }
+
+    /**
+     * @return time of the first sample, in milliseconds
+     */
+    public long getStartTime() {
+      return startTime;
+    }
+
+    /**
+     * @return base scan interval of the record, in milliseconds
+     */
+    public double getSampleInterval() {
+      return sampleInterval;
+    }
+
+    public int getManufacturerCode() {
+      return manufacturerCode;
+    }
+
+    public double getReceiverLineNumber() {
+      return receiverLineNumber;
+    }
+
+    public double getReceiverPointNumber() {
+      return receiverPointNumber;
+    }
+
+    public String toString() {
+      return "SEG-D trace " + traceNumber + " of channel set " + channelSetNumber + " in record "
+          + recordNumber + ": " + sampleCount + " samples at " + dataOffset;
+    }
+  }
+
+  private final List<Entry> entries;
+
+  private SegdTraceIndex(List<Entry> entries) {
+    this.entries = Collections.unmodifiableList(entries);
+  }
+
+  /**
+   * @return traces in file order
+   */
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * @param dataOffset file offset of the first sample of a trace
+   * @return trace with given data offset, or null if there is none
+   */
+  public Entry getEntry(long dataOffset) {
+    int low = 0;
+    int high = entries.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long offset = entries.get(mid).getDataOffset();
+      if (offset < dataOffset) {
+        low = mid + 1;
+      } else if (offset > dataOffset) {
+        high = mid - 1;
+      } else {
+        return entries.get(mid);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Reads headers of all records of a SEG-D file. Records follow each other until the end of the
+   * file, or until bytes which don't start with a valid general header.
+   *
+   * @param file SEG-D file
+   * @return index of the traces of the file
+   */
+  public static SegdTraceIndex build(File file) throws IOException {
+    List<Entry> entries = new ArrayList<>();
+    long length = file.length();
+    try (FileInputStreamPositioned stream = new FileInputStreamPositioned(
+        new FileInputStream(file), BUFFER_SIZE)) {
+      int recordNumber = 0;
+      while (length - stream.getPosition() >= GENERAL_HEADER_LENGTH) {
+        if (recordNumber > 0 && !startsRecord(file, stream)) {
+          logger.warn(file.getName() + ": no SEG-D record at " + stream.getPosition()
+              + ", skipping rest of file");
+          break;
+        }
+        SegdRecord record = new SegdRecord(file);
+        record.readHeaders(stream, false);
+        for (ScanType scanType : record.getScanTypes()) {
+          for (ChannelSet channelSet : scanType.getChannelSets()) {
+            for (Trace trace : channelSet.getTraces()) {
+              entries.add(new Entry(recordNumber, record, trace));
+            }
+          }
+        }
+        recordNumber++;
+      }
+    }
+    return new SegdTraceIndex(entries);
+  }
+
+  /**
+   * @return true if the stream is at a general header which seisFile accepts; the stream is left
+   * where it was
+   */
+  private static boolean startsRecord(File file, FileInputStreamPositioned stream)
+      throws IOException {
+    byte[] header = new byte[GENERAL_HEADER_LENGTH];
+    stream.mark(GENERAL_HEADER_LENGTH);
+    try {
+      new DataInputStream(stream).readFully(header);
+    } finally {
+      stream.reset();
+    }
+    try {
+      new SegdRecord(file).readHeader1(new DataInputStream(new ByteArrayInputStream(header)));
+      return true;
+    } catch (Exception e) {
+      logger.debug("Not a SEG-D general header: ", e);
+      return false;
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.isti.traceview.data.segy;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decoder of SEG-Y trace data. Samples are read straight from the buffer holding the trace
+ * (usually a file mapping) and written into a caller supplied array at a given offset. 32 bit
+ * formats are copied with one bulk get through an int view of the buffer and converted in place,
+ * so decoding allocates nothing but the view.
+ *
+ * Floating point formats are truncated to int, the same as the former SEG-Y and SAC readers did.
+ */
+public final class SegyDecoder {
+
+  private SegyDecoder() {
+  }
+
+  /**
+   * Decodes trace data
+   *
+   * @param buffer buffer holding the trace data; its position, limit and order are not changed
+   * @param pos index of the first data byte in the buffer
+   * @param format sample format
+   * @param order byte order of the samples
+   * @param count count of samples to decode
+   * @param dest destination array
+   * @param destOffset index in destination array of the first decoded sample
+   * @throws SegyFormatException if the buffer holds less than count samples at pos, or they don't
+   * fit in the destination array
+   */
+  public static void decode(ByteBuffer buffer, int pos, SegySampleFormat format, ByteOrder order,
+      int count, int[] dest, int destOffset) throws SegyFormatException {
+    if (pos < 0 || count < 0 || pos + (long) count * format.getBytes() > buffer.limit()) {
+      throw new SegyFormatException("Trace data of " + count + " " + format + " samples at "
+          + pos + " is outside of the buffer");
+    }
+    if (destOffset < 0 || destOffset + count > dest.length) {
+      throw new SegyFormatException("Can't place " + count + " samples at index " + destOffset
+          + " of array of " + dest.length);
+    }
+    switch (format) {
+      case INT8:
+        for (int i = 0; i < count; i++) {
+          dest[destOffset + i] = buffer.get(pos + i);
+        }
+        break;
+      case INT16:
+        boolean swap = buffer.order() != order;
+        for (int i = 0; i < count; i++) {
+          short s = buffer.getShort(pos + 2 * i);
+          dest[destOffset + i] = swap ? Short.reverseBytes(s) : s;
+        }
+        break;
+      case INT32:
+        getInts(buffer, pos, order, count, dest, destOffset);
+        break;
+      case IEEE_FLOAT:
+        getInts(buffer, pos, order, count, dest, destOffset);
+        for (int i = destOffset; i < destOffset + count; i++) {
+          dest[i] = (int) Float.intBitsToFloat(dest[i]);
+        }
+        break;
+      case IBM_FLOAT:
+        getInts(buffer, pos, order, count, dest, destOffset);
+        for (int i = destOffset; i < destOffset + count; i++) {
+          dest[i] = (int) ibmToDouble(dest[i]);
+        }
+        break;
+      default:
+        throw new SegyFormatException("Unsupported sample format " + format);
+    }
+  }
+
+  /**
+   * Bulk copies 32 bit words into dest
+   */
+  private static void getInts(ByteBuffer buffer, int pos, ByteOrder order, int count, int[] dest,
+      int destOffset) {
+    ByteBuffer view = buffer.duplicate().order(order);
+    view.position(pos);
+    view.asIntBuffer().get(dest, destOffset, count);
+  }
+
+  /**
+   * Converts IBM System/360 single precision float: sign bit, 7 bit excess 64 exponent of 16 and
+   * 24 bit fraction. The value is exact in a double.
+   *
+   * @param bits IBM float bits
+   * @return value of the float
+   */
+  public static double ibmToDouble(int bits) {
+    int fraction = bits & 0x00ffffff;
+    int exponent = ((bits >>> 24) & 0x7f) - 64;
+    double value = Math.scalb((double) fraction, 4 * exponent - 24);
+    return bits < 0 ? -value : value;
+  }
+}
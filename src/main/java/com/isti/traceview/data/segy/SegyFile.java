@@ -0,0 +1,368 @@
+package com.isti.traceview.data.segy;
+
+import com.isti.traceview.common.TimeInterval;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.log4j.Logger;
+
+/**
+ * Index of the traces of a SEG-Y file. Two layouts are understood:
+ * <ul>
+ * <li>PASSCAL SEG-Y: traces follow each other from the start of the file, each trace is a 240
+ * byte header with PASSCAL station, channel and time fields followed by 16 or 32 bit integer
+ * samples.</li>
+ * <li>Standard SEG-Y: a 3200 byte textual and a 400 byte binary file header, optional extended
+ * textual headers, then traces of a 240 byte header and samples in the format of the binary
+ * header. Traces are identified by field record number as station and trace number within the
+ * field record as channel.</li>
+ * </ul>
+ * The file is mapped in windows of up to 1 GiB; the index walks all trace headers in one pass,
+ * jumping over trace data, and {@link #read(FileChannel, List)} decodes traces straight from the
+ * mapping with {@link SegyDecoder}.
+ */
+public final class SegyFile {
+
+  private static final Logger logger = Logger.getLogger(SegyFile.class);
+
+  public static final int TEXT_HEADER_LENGTH = 3200;
+  public static final int BINARY_HEADER_LENGTH = 400;
+  public static final int TRACE_HEADER_LENGTH = 240;
+
+  private static final long WINDOW_SIZE = 1L << 30;
+
+  // binary file header fields, as file offsets
+  private static final int SAMPLE_INTERVAL_OFFSET = 3216;
+  private static final int SAMPLE_COUNT_OFFSET = 3220;
+  private static final int FORMAT_CODE_OFFSET = 3224;
+  private static final int EXTENDED_HEADERS_OFFSET = 3504;
+
+  private final boolean passcal;
+  private final List<SegyTrace> traces;
+
+  private SegyFile(boolean passcal, List<SegyTrace> traces) {
+    this.passcal = passcal;
+    this.traces = Collections.unmodifiableList(traces);
+  }
+
+  /**
+   * @return true for PASSCAL SEG-Y, false for standard SEG-Y
+   */
+  public boolean isPasscal() {
+    return passcal;
+  }
+
+  /**
+   * @return traces in file order
+   */
+  public List<SegyTrace> getTraces() {
+    return traces;
+  }
+
+  /**
+   * @param headerOffset file offset of a trace header
+   * @return trace with given header offset, or null if there is none
+   */
+  public SegyTrace getTrace(long headerOffset) {
+    int low = 0;
+    int high = traces.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long offset = traces.get(mid).getHeaderOffset();
+      if (offset < headerOffset) {
+        low = mid + 1;
+      } else if (offset > headerOffset) {
+        high = mid - 1;
+      } else {
+        return traces.get(mid);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Reads all trace headers of a file
+   *
+   * @param channel channel of SEG-Y file; it is left open
+   * @return index of the file
+   * @throws SegyFormatException if the file is neither PASSCAL nor standard SEG-Y
+   */
+  public static SegyFile index(FileChannel channel) throws IOException, SegyFormatException {
+    Window window = new Window(channel);
+    long size = window.size;
+    if (size >= TRACE_HEADER_LENGTH
+        && getPasscalOrder(window.map(0, TRACE_HEADER_LENGTH), window.index(0)) != null) {
+      return new SegyFile(true, indexPasscal(window));
+    }
+    if (size >= TEXT_HEADER_LENGTH + BINARY_HEADER_LENGTH) {
+      ByteBuffer head = window.map(0, TEXT_HEADER_LENGTH + BINARY_HEADER_LENGTH);
+      ByteOrder order = getStandardOrder(head, window.index(0));
+      if (order != null) {
+        return new SegyFile(false, indexStandard(window, order));
+      }
+    }
+    throw new SegyFormatException("Neither PASSCAL nor standard SEG-Y file");
+  }
+
+  private static List<SegyTrace> indexPasscal(Window window) throws IOException,
+      SegyFormatException {
+    List<SegyTrace> traces = new ArrayList<>();
+    long offset = 0;
+    while (offset + TRACE_HEADER_LENGTH <= window.size) {
+      ByteBuffer b = window.map(offset, TRACE_HEADER_LENGTH);
+      int i = window.index(offset);
+      ByteOrder order = getPasscalOrder(b, i);
+      if (order == null) {
+        logger.warn("No valid PASSCAL trace header at " + offset + ", skipping rest of file");
+        break;
+      }
+      SegySampleFormat format = SegySampleFormat.fromPasscalDataForm(getShort(b, i + 204, order));
+      if (format == null) {
+        throw new SegyFormatException("Trace at " + offset + " has unknown data format "
+            + getShort(b, i + 204, order));
+      }
+      // short fields become flags when the value doesn't fit
+      short sampleLength = getShort(b, i + 114, order);
+      int count = sampleLength != 32767 ? sampleLength : getInt(b, i + 228, order);
+      short deltaSample = getShort(b, i + 116, order);
+      int interval = deltaSample != 1 ? deltaSample : getInt(b, i + 200, order);
+      long start = getStartTime(b, i, order, getShort(b, i + 206, order));
+
+      String stationName = getString(b, i + 180, 5);
+      String sensorSerial = getString(b, i + 186, 7);
+      int instrument = getShort(b, i + 224, order);
+      String network;
+      String station;
+      if (!stationName.isEmpty()) {
+        station = stationName;
+        network = instrument != 0 ? Integer.toString(instrument) : sensorSerial;
+      } else if (instrument != 0) {
+        station = Integer.toString(instrument);
+        network = sensorSerial;
+      } else {
+        station = sensorSerial;
+        network = "";
+      }
+      String channel = Integer.toString(getInt(b, i + 12, order));
+      SegyTrace trace = new SegyTrace(offset, count, interval, format, order, start, network,
+          station, channel);
+      if (!addTrace(traces, trace, window.size)) {
+        break;
+      }
+      offset = trace.getDataOffset() + trace.getDataLength();
+    }
+    return traces;
+  }
+
+  private static List<SegyTrace> indexStandard(Window window, ByteOrder order)
+      throws IOException, SegyFormatException {
+    ByteBuffer head = window.map(0, TEXT_HEADER_LENGTH + BINARY_HEADER_LENGTH);
+    int h = window.index(0);
+    SegySampleFormat format = SegySampleFormat.fromCode(
+        getShort(head, h + FORMAT_CODE_OFFSET, order));
+    int fileInterval = getShort(head, h + SAMPLE_INTERVAL_OFFSET, order) & 0xffff;
+    int fileCount = getShort(head, h + SAMPLE_COUNT_OFFSET, order) & 0xffff;
+    int extendedHeaders = getShort(head, h + EXTENDED_HEADERS_OFFSET, order);
+    if (extendedHeaders < 0) {
+      throw new SegyFormatException("Variable number of extended textual headers isn't supported");
+    }
+    List<SegyTrace> traces = new ArrayList<>();
+    long offset = TEXT_HEADER_LENGTH + BINARY_HEADER_LENGTH
+        + (long) extendedHeaders * TEXT_HEADER_LENGTH;
+    while (offset + TRACE_HEADER_LENGTH <= window.size) {
+      ByteBuffer b = window.map(offset, TRACE_HEADER_LENGTH);
+      int i = window.index(offset);
+      // trace header values take precedence, binary header ones are the defaults
+      int count = getShort(b, i + 114, order) & 0xffff;
+      int interval = getShort(b, i + 116, order) & 0xffff;
+      SegyTrace trace = new SegyTrace(offset, count != 0 ? count : fileCount,
+          interval != 0 ? interval : fileInterval, format, order, getStartTime(b, i, order, 0), "",
+          Integer.toString(getInt(b, i + 8, order)), Integer.toString(getInt(b, i + 12, order)));
+      if (!addTrace(traces, trace, window.size)) {
+        break;
+      }
+      offset = trace.getDataOffset() + trace.getDataLength();
+    }
+    return traces;
+  }
+
+  /**
+   * Adds trace to the index if its data lies inside the file
+   *
+   * @return false if the trace is truncated, there are no more traces then
+   */
+  private static boolean addTrace(List<SegyTrace> traces, SegyTrace trace, long size)
+      throws SegyFormatException {
+    if (trace.getSampleCount() < 0 || trace.getSampleInterval() <= 0) {
+      throw new SegyFormatException("Trace at " + trace.getHeaderOffset() + " has "
+          + trace.getSampleCount() + " samples with interval " + trace.getSampleInterval());
+    }
+    if (trace.getDataOffset() + trace.getDataLength() > size) {
+      logger.warn("Trace at " + trace.getHeaderOffset() + " is truncated, skipping rest of file");
+      return false;
+    }
+    traces.add(trace);
+    return true;
+  }
+
+  /**
+   * Decodes samples of given traces. Consecutive traces are decoded from one mapping, so traces
+   * should be given in file order.
+   *
+   * @param channel channel of SEG-Y file; it is left open
+   * @param traces traces of the file
+   * @return samples of each trace, in the order of traces
+   * @throws SegyFormatException if a trace lies outside of the file
+   */
+  public static int[][] read(FileChannel channel, List<SegyTrace> traces) throws IOException,
+      SegyFormatException {
+    Window window = new Window(channel);
+    int[][] data = new int[traces.size()][];
+    for (int t = 0; t < traces.size(); t++) {
+      SegyTrace trace = traces.get(t);
+      if (trace.getDataLength() > Integer.MAX_VALUE) {
+        throw new SegyFormatException(trace + " is too long to map");
+      }
+      ByteBuffer b = window.map(trace.getDataOffset(), trace.getDataLength());
+      data[t] = new int[trace.getSampleCount()];
+      SegyDecoder.decode(b, window.index(trace.getDataOffset()), trace.getFormat(),
+          trace.getOrder(), trace.getSampleCount(), data[t], 0);
+    }
+    return data;
+  }
+
+  /**
+   * Tests PASSCAL trace header codes, in the byte order which gives a valid start time
+   *
+   * @param b buffer holding a trace header
+   * @param i index of the trace header in the buffer
+   * @return byte order of the header, or null if it isn't a valid PASSCAL trace header
+   */
+  public static ByteOrder getPasscalOrder(ByteBuffer b, int i) {
+    if (isPasscalHeader(b, i, ByteOrder.BIG_ENDIAN)) {
+      return ByteOrder.BIG_ENDIAN;
+    } else if (isPasscalHeader(b, i, ByteOrder.LITTLE_ENDIAN)) {
+      return ByteOrder.LITTLE_ENDIAN;
+    }
+    return null;
+  }
+
+  private static boolean isPasscalHeader(ByteBuffer b, int i, ByteOrder order) {
+    int year = getShort(b, i + 156, order);
+    int day = getShort(b, i + 158, order);
+    int hour = getShort(b, i + 160, order);
+    int minute = getShort(b, i + 162, order);
+    int second = getShort(b, i + 164, order);
+    if (year < 1900 || year > 3000 || day < 0 || day > 366 || hour < 0 || hour > 23
+        || minute < 0 || minute > 59 || second < 0 || second > 59) {
+      return false;
+    }
+    int traceID = getShort(b, i + 28, order);
+    int coordUnits = getShort(b, i + 88, order);
+    int gainType = getShort(b, i + 118, order);
+    int timeBasisCode = getShort(b, i + 166, order);
+    return traceID >= 1 && traceID <= 9 && (coordUnits == 1 || coordUnits == 2)
+        && gainType >= 1 && gainType <= 4 && timeBasisCode >= 1 && timeBasisCode <= 3;
+  }
+
+  /**
+   * Tests standard SEG-Y file headers: the textual header starts with 'C' in EBCDIC or ASCII, and
+   * the binary header has a supported data sample format code
+   *
+   * @param b buffer holding at least the textual and binary file headers
+   * @param i index of the start of the file in the buffer
+   * @return byte order of the binary header, or null if these aren't standard SEG-Y headers
+   */
+  public static ByteOrder getStandardOrder(ByteBuffer b, int i) {
+    byte first = b.get(i);
+    if (first != (byte) 0xC3 && first != 'C') {
+      return null;
+    }
+    for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      if (SegySampleFormat.fromCode(getShort(b, i + FORMAT_CODE_OFFSET, order)) != null) {
+        return order;
+      }
+    }
+    return null;
+  }
+
+  private static long getStartTime(ByteBuffer b, int i, ByteOrder order, int millis) {
+    int year = getShort(b, i + 156, order);
+    if (year < 100) {
+      year += year < 70 ? 2000 : 1900;
+    }
+    return TimeInterval.getTime(year, getShort(b, i + 158, order), getShort(b, i + 160, order),
+        getShort(b, i + 162, order), getShort(b, i + 164, order), millis);
+  }
+
+  private static short getShort(ByteBuffer b, int i, ByteOrder order) {
+    short value = b.getShort(i);
+    return b.order() == order ? value : Short.reverseBytes(value);
+  }
+
+  private static int getInt(ByteBuffer b, int i, ByteOrder order) {
+    int value = b.getInt(i);
+    return b.order() == order ? value : Integer.reverseBytes(value);
+  }
+
+  /**
+   * @return ASCII string of a fixed length field, up to the first NUL, trimmed
+   */
+  private static String getString(ByteBuffer b, int i, int length) {
+    int end = 0;
+    while (end < length && b.get(i + end) != 0) {
+      end++;
+    }
+    byte[] bytes = new byte[end];
+    for (int k = 0; k < end; k++) {
+      bytes[k] = b.get(i + k);
+    }
+    return new String(bytes, StandardCharsets.US_ASCII).trim();
+  }
+
+  /**
+   * Read-only mapping of a part of the file, remapped when a requested range falls outside of it
+   */
+  private static class Window {
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer buffer;
+    private long start;
+
+    private Window(FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+    }
+
+    /**
+     * @return mapping holding given range of the file; locate the range with {@link #index(long)}
+     */
+    private ByteBuffer map(long offset, long length) throws IOException, SegyFormatException {
+      if (offset < 0 || offset + length > size) {
+        throw new SegyFormatException("Range of " + length + " bytes at " + offset
+            + " is outside of the file of " + size + " bytes");
+      }
+      if (buffer == null || offset < start || offset + length > start + buffer.capacity()) {
+        start = offset;
+        buffer = channel.map(MapMode.READ_ONLY, offset,
+            Math.min(size - offset, Math.max(length, WINDOW_SIZE)));
+      }
+      return buffer;
+    }
+
+    /**
+     * @return index of given file offset in the current mapping
+     */
+    private int index(long offset) {
+      return (int) (offset - start);
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.isti.traceview.data.segy;
+
+import com.isti.traceview.TraceViewException;
+
+public class SegyFormatException extends TraceViewException {
+
+  private static final long serialVersionUID = 1L;
+
+  public SegyFormatException() {
+    super();
+  }
+
+  public SegyFormatException(String s) {
+    super(s);
+  }
+}
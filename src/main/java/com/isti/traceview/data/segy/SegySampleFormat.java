@@ -0,0 +1,62 @@
+package com.isti.traceview.data.segy;
+
+/**
+ * Sample formats of SEG-Y trace data
+ */
+public enum SegySampleFormat {
+  IBM_FLOAT(1, 4),
+  INT32(2, 4),
+  INT16(3, 2),
+  IEEE_FLOAT(5, 4),
+  INT8(8, 1);
+
+  private final int code;
+  private final int bytes;
+
+  SegySampleFormat(int code, int bytes) {
+    this.code = code;
+    this.bytes = bytes;
+  }
+
+  /**
+   * @return data sample format code of the binary file header
+   */
+  public int getCode() {
+    return code;
+  }
+
+  /**
+   * @return length of one sample in bytes
+   */
+  public int getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @param code data sample format code of the binary file header
+   * @return format with given code, or null if the code isn't supported
+   */
+  public static SegySampleFormat fromCode(int code) {
+    for (SegySampleFormat format : values()) {
+      if (format.code == code) {
+        return format;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param dataForm PASSCAL trace header data format flag: 0 for 16 bit, 1 for 32 bit integers
+   * @return format with given flag, or null if the flag isn't valid
+   */
+  public static SegySampleFormat fromPasscalDataForm(int dataForm) {
+    switch (dataForm) {
+      case 0:
+        return INT16;
+      case 1:
+        return INT32;
+      default:
+        return null;
+    }
+  }
+}
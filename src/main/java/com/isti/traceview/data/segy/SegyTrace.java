@@ -0,0 +1,97 @@
+package com.isti.traceview.data.segy;
+
+import java.nio.ByteOrder;
+
+/**
+ * One trace of a SEG-Y file, as found by {@link SegyFile#index(java.nio.channels.FileChannel)}:
+ * where its header and samples lie in the file, how the samples are stored, and who recorded them.
+ */
+public class SegyTrace {
+
+  private final long headerOffset;
+  private final int sampleCount;
+  private final double sampleInterval;
+  private final SegySampleFormat format;
+  private final ByteOrder order;
+  private final long startTime;
+  private final String network;
+  private final String station;
+  private final String channel;
+
+  SegyTrace(long headerOffset, int sampleCount, double sampleInterval, SegySampleFormat format,
+      ByteOrder order, long startTime, String network, String station, String channel) {
+    this.headerOffset = headerOffset;
+    this.sampleCount = sampleCount;
+    this.sampleInterval = sampleInterval;
+    this.format = format;
+    this.order = order;
+    this.startTime = startTime;
+    this.network = network;
+    this.station = station;
+    this.channel = channel;
+  }
+
+  /**
+   * @return file offset of the 240 byte trace header
+   */
+  public long getHeaderOffset() {
+    return headerOffset;
+  }
+
+  /**
+   * @return file offset of the first sample
+   */
+  public long getDataOffset() {
+    return headerOffset + SegyFile.TRACE_HEADER_LENGTH;
+  }
+
+  /**
+   * @return length of the trace data in bytes
+   */
+  public long getDataLength() {
+    return (long) sampleCount * format.getBytes();
+  }
+
+  public int getSampleCount() {
+    return sampleCount;
+  }
+
+  /**
+   * @return sample interval in microseconds
+   */
+  public double getSampleInterval() {
+    return sampleInterval;
+  }
+
+  public SegySampleFormat getFormat() {
+    return format;
+  }
+
+  public ByteOrder getOrder() {
+    return order;
+  }
+
+  /**
+   * @return time of the first sample, in milliseconds
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public String getNetwork() {
+    return network;
+  }
+
+  public String getStation() {
+    return station;
+  }
+
+  public String getChannel() {
+    return channel;
+  }
+
+  public String toString() {
+    return "SegyTrace: " + network + "." + station + "." + channel + " at " + headerOffset + ", "
+        + sampleCount + " " + format + " samples";
+  }
+}
@@ -0,0 +1,145 @@
+package com.isti.traceview.data.stream;
+
+import com.isti.traceview.data.ISampleStore;
+import java.util.Arrays;
+
+/**
+ * Fixed capacity buffer of the latest samples of a channel. Samples are addressed by their
+ * absolute index, counted from the first sample ever appended, so a reader can tell whether the
+ * samples it wants are still held. Appending beyond capacity overwrites the oldest samples.
+ * All methods are synchronized, so one thread may append while others read. Segments read held
+ * samples through {@link #view(long, int)} instead of keeping a copy of them.
+ */
+public class SampleRingBuffer {
+
+  private final int[] samples;
+
+  // absolute index of the next sample to be appended
+  private long endIndex = 0;
+
+  /**
+   * @param capacity maximum count of samples held
+   */
+  public SampleRingBuffer(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    samples = new int[capacity];
+  }
+
+  public int getCapacity() {
+    return samples.length;
+  }
+
+  /**
+   * @return absolute index of the oldest sample held
+   */
+  public synchronized long getFirstIndex() {
+    return Math.max(0, endIndex - samples.length);
+  }
+
+  /**
+   * @return absolute index following the newest sample held
+   */
+  public synchronized long getEndIndex() {
+    return endIndex;
+  }
+
+  /**
+   * Appends samples, overwriting the oldest ones if the buffer is full
+   *
+   * @return absolute index of the first appended sample
+   */
+  public synchronized long append(int[] values, int offset, int count) {
+    long first = endIndex;
+    if (count > samples.length) {
+      // only the tail of the values fits
+      offset += count - samples.length;
+      endIndex += count - samples.length;
+      count = samples.length;
+    }
+    int pos = (int) (endIndex % samples.length);
+    int head = Math.min(count, samples.length - pos);
+    System.arraycopy(values, offset, samples, pos, head);
+    System.arraycopy(values, offset + head, samples, 0, count - head);
+    endIndex += count;
+    return first;
+  }
+
+  /**
+   * Copies held samples
+   *
+   * @param from absolute index of the first sample to copy
+   * @param count count of samples to copy
+   * @return false, leaving the destination untouched, if any of the samples is not held
+   */
+  public synchronized boolean read(long from, int count, int[] dest, int destOffset) {
+    if (from < getFirstIndex() || from + count > endIndex) {
+      return false;
+    }
+    int pos = (int) (from % samples.length);
+    int head = Math.min(count, samples.length - pos);
+    System.arraycopy(samples, pos, dest, destOffset, head);
+    System.arraycopy(samples, 0, dest, destOffset + head, count - head);
+    return true;
+  }
+
+  /**
+   * @param from absolute index of the first sample
+   * @param count count of samples
+   * @return samples read from this buffer as they are requested; samples which were overwritten
+   * by then read as 0
+   */
+  public ISampleStore.Samples view(long from, int count) {
+    return new View(from, count);
+  }
+
+  private class View implements ISampleStore.Samples {
+
+    private final long from;
+    private final int count;
+
+    private View(long from, int count) {
+      this.from = from;
+      this.count = count;
+    }
+
+    @Override
+    public int length() {
+      return count;
+    }
+
+    @Override
+    public int get(int index) {
+      if (index < 0 || index >= count) {
+        throw new IndexOutOfBoundsException("Sample " + index + " of " + count);
+      }
+      synchronized (SampleRingBuffer.this) {
+        long absolute = from + index;
+        return absolute < getFirstIndex() ? 0 : samples[(int) (absolute % samples.length)];
+      }
+    }
+
+    @Override
+    public void get(int start, int[] dest, int destOffset, int length) {
+      if (start < 0 || length < 0 || start + length > count) {
+        throw new IndexOutOfBoundsException(
+            "Samples " + start + " to " + (start + length) + " of " + count);
+      }
+      if (!read(from + start, length, dest, destOffset)) {
+        Arrays.fill(dest, destOffset, destOffset + length, 0);
+      }
+    }
+
+    @Override
+    public int[] toArray() {
+      int[] values = new int[count];
+      get(0, values, 0, count);
+      return values;
+    }
+
+    @Override
+    public void release() {
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.isti.traceview.data.stream;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Framing of the SeedLink 3 protocol. Commands and their responses are lines of ASCII text ended
+ * by CR LF. Data is sent as packets of an 8 byte header, "SL" followed by the sequence number as
+ * 6 hexadecimal digits, and one 512 byte miniSEED record. INFO packets, whose header starts with
+ * "SLINFO", carry XML rather than data. A stream requested by FETCH ends with "END".
+ */
+public final class SeedLinkProtocol {
+
+  public static final int HEADER_LENGTH = 8;
+  public static final int RECORD_LENGTH = 512;
+  public static final String OK = "OK";
+  public static final String ERROR = "ERROR";
+
+  private static final String SIGNATURE = "SL";
+  private static final String INFO_SIGNATURE = "SLINFO";
+  private static final String END = "END";
+  private static final int MAX_LINE_LENGTH = 1024;
+
+  private SeedLinkProtocol() {
+  }
+
+  /**
+   * Reads the next data packet, skipping INFO packets
+   *
+   * @param record buffer for the miniSEED record, at least {@link #RECORD_LENGTH} long
+   * @return sequence number of the packet, or -1 if the stream ended
+   * @throws IOException if the stream can't be read or a packet is malformed
+   */
+  public static int readPacket(DataInputStream in, byte[] record) throws IOException {
+    byte[] header = new byte[HEADER_LENGTH];
+    while (true) {
+      try {
+        in.readFully(header, 0, END.length());
+      } catch (EOFException e) {
+        return -1;
+      }
+      String start = new String(header, 0, END.length(), StandardCharsets.US_ASCII);
+      if (start.equals(END)) {
+        return -1;
+      }
+      in.readFully(header, END.length(), HEADER_LENGTH - END.length());
+      in.readFully(record, 0, RECORD_LENGTH);
+      String text = new String(header, StandardCharsets.US_ASCII);
+      if (text.startsWith(INFO_SIGNATURE)) {
+        continue;
+      }
+      if (!text.startsWith(SIGNATURE)) {
+        throw new IOException("Not a SeedLink packet header: " + text);
+      }
+      try {
+        return Integer.parseInt(text.substring(SIGNATURE.length()), 16);
+      } catch (NumberFormatException e) {
+        throw new IOException("Wrong SeedLink sequence number: " + text);
+      }
+    }
+  }
+
+  /**
+   * Writes a data packet
+   *
+   * @param sequence sequence number, only its low 24 bits are sent
+   */
+  public static void writePacket(OutputStream out, int sequence, byte[] record, int offset)
+      throws IOException {
+    String header = String.format("%s%06X", SIGNATURE, sequence & 0xFFFFFF);
+    out.write(header.getBytes(StandardCharsets.US_ASCII));
+    out.write(record, offset, RECORD_LENGTH);
+  }
+
+  /**
+   * Writes the marker which ends a FETCH stream
+   */
+  public static void writeEnd(OutputStream out) throws IOException {
+    out.write(END.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Writes a command or response line, adding CR LF
+   */
+  public static void writeLine(OutputStream out, String line) throws IOException {
+    out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    out.flush();
+  }
+
+  /**
+   * Reads a command or response line. Read byte by byte, so no data following the line is
+   * consumed.
+   *
+   * @return the line without its end, or null if the stream ended before any character
+   */
+  public static String readLine(InputStream in) throws IOException {
+    StringBuilder line = new StringBuilder();
+    int c;
+    while ((c = in.read()) != -1) {
+      if (c == '\n') {
+        break;
+      } else if (c != '\r') {
+        if (line.length() == MAX_LINE_LENGTH) {
+          throw new IOException("SeedLink line is longer than " + MAX_LINE_LENGTH);
+        }
+        line.append((char) c);
+      }
+    }
+    return c == -1 && line.length() == 0 ? null : line.toString();
+  }
+}
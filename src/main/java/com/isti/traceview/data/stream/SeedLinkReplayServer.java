@@ -0,0 +1,160 @@
+package com.isti.traceview.data.stream;
+
+import com.isti.traceview.data.mseed.MseedRecordHeader;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.Logger;
+
+/**
+ * Local SeedLink server which replays the 512 byte records of miniSEED files, to test streaming
+ * without a real server. Every client gets all records of the files in order, at a fixed rate,
+ * followed by the end of stream marker. STATION, SELECT and DATA commands are acknowledged but
+ * don't filter the records.
+ */
+public class SeedLinkReplayServer implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(SeedLinkReplayServer.class);
+
+  private final List<File> files;
+  private final double recordsPerSecond;
+  private final ServerSocket serverSocket;
+  private final List<Socket> clients = new ArrayList<>();
+
+  /**
+   * Starts listening on the loopback interface
+   *
+   * @param port port to listen on, 0 for any free port
+   * @param files miniSEED files to replay
+   * @param recordsPerSecond count of records sent per second, 0 to send as fast as possible
+   */
+  public SeedLinkReplayServer(int port, List<File> files, double recordsPerSecond)
+      throws IOException {
+    this.files = new ArrayList<>(files);
+    this.recordsPerSecond = recordsPerSecond;
+    serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    Thread acceptor = new Thread(this::accept, "SeedLink replay " + getPort());
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  public void close() throws IOException {
+    serverSocket.close();
+    synchronized (clients) {
+      for (Socket client : clients) {
+        client.close();
+      }
+    }
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket client = serverSocket.accept();
+        synchronized (clients) {
+          clients.add(client);
+        }
+        Thread thread = new Thread(() -> serve(client), "SeedLink replay client");
+        thread.setDaemon(true);
+        thread.start();
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          logger.error("Can't accept SeedLink client: ", e);
+        }
+      }
+    }
+  }
+
+  private void serve(Socket client) {
+    try (Socket socket = client) {
+      InputStream in = socket.getInputStream();
+      OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+      if (handshake(in, out)) {
+        replay(out);
+      }
+    } catch (IOException e) {
+      if (!serverSocket.isClosed()) {
+        logger.warn("SeedLink replay to " + client.getRemoteSocketAddress() + " stopped: ", e);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      synchronized (clients) {
+        clients.remove(client);
+      }
+    }
+  }
+
+  // answers commands until END; false if the client left before
+  private static boolean handshake(InputStream in, OutputStream out) throws IOException {
+    String line;
+    while ((line = SeedLinkProtocol.readLine(in)) != null) {
+      String command = line.trim().split("\\s+")[0].toUpperCase();
+      switch (command) {
+        case "END":
+          return true;
+        case "HELLO":
+          SeedLinkProtocol.writeLine(out, "SeedLink v3.1 (XMAX replay)");
+          SeedLinkProtocol.writeLine(out, "replay");
+          break;
+        case "STATION":
+        case "SELECT":
+        case "DATA":
+        case "FETCH":
+          SeedLinkProtocol.writeLine(out, SeedLinkProtocol.OK);
+          break;
+        case "BYE":
+          return false;
+        default:
+          SeedLinkProtocol.writeLine(out, SeedLinkProtocol.ERROR);
+      }
+    }
+    return false;
+  }
+
+  private void replay(OutputStream out) throws IOException, InterruptedException {
+    long period = recordsPerSecond > 0 ? Math.round(1000000000 / recordsPerSecond) : 0;
+    long next = System.nanoTime();
+    int sequence = 0;
+    MseedRecordHeader header = new MseedRecordHeader();
+    for (File file : files) {
+      ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+      int pos = 0;
+      while (pos + SeedLinkProtocol.RECORD_LENGTH <= buffer.limit()
+          && header.read(buffer, pos, SeedLinkProtocol.RECORD_LENGTH)) {
+        int length = header.getRecordLength();
+        if (length == SeedLinkProtocol.RECORD_LENGTH) {
+          if (period > 0) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+              out.flush();
+              Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+            }
+            next += period;
+          }
+          SeedLinkProtocol.writePacket(out, sequence++, buffer.array(), pos);
+        } else {
+          logger.warn("Skipping record of " + length + " bytes in " + file
+              + ", SeedLink carries 512 byte records only");
+        }
+        pos += length;
+      }
+    }
+    SeedLinkProtocol.writeEnd(out);
+    out.flush();
+  }
+}
@@ -7,7 +7,6 @@ import com.isti.traceview.common.IEvent;
 import com.isti.traceview.common.TimeInterval;
 import com.isti.traceview.common.UniqueList;
 import com.isti.traceview.data.PlotDataProvider;
-import com.isti.traceview.data.RawDataProvider;
 import com.isti.traceview.data.Segment;
 import com.isti.traceview.data.SelectionContainer;
 import com.isti.traceview.filters.IFilter;
@@ -659,12 +658,13 @@ public class GraphPanel extends JPanel implements Printable, MouseInputListener,
 						addChannelShowSet(toAdd);
 					}
 
-					// Loops through ChannelView objects and loads segment data
-					// TimeInterval ti = null;
+					// Loops through ChannelView objects and loads segment data of the shown time
+					// range; the rest is loaded when it is scrolled into view
+					TimeInterval ti = getTimeRange();
 					logger.info("Performing initial load of data from files");
 					Instant start = Instant.now();
 					channelShowSet.parallelStream().forEach(
-							e -> e.getPlotDataProviders().forEach(RawDataProvider::load));
+							e -> e.getPlotDataProviders().forEach(channel -> channel.load(ti)));
 					Instant end = Instant.now();
 					double duration = (end.toEpochMilli() - start.toEpochMilli()) / 1000.;
 					logger.info("Data point loading completed after " + duration + " seconds.");
@@ -61,8 +61,11 @@ public class RemoveGain {
 		PlotDataPoint pdp = null;
 		int curPixelIndex = 0; 
 		for(Segment segment: channel.getRawData(ti)){
-			for (int i = 0; curPixelIndex < pointCount && i < segment.getData().data.length; i++) {
-				int value = segment.getData().data[i];
+			// only samples which get a pixel are read
+			int[] data = new int[Math.max(0, Math.min(segment.getSampleCount(), pointCount - curPixelIndex))];
+			segment.getData(0, data, 0, data.length);
+			for (int i = 0; curPixelIndex < pointCount && i < data.length; i++) {
+				int value = data[i];
 				if(toProcess.getPixels().get(curPixelIndex).length > 0) {
 					pdp = toProcess.getPixels().get(curPixelIndex)[0];
 					pdp = new PlotDataPoint(removestate ? pdp.getTop()/sensitivity : pdp.getTop(), 
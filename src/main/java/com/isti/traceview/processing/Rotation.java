@@ -444,9 +444,8 @@ public class Rotation {
            segment.getStartTime(), segment.getSampleRate(), segment.getSampleCount(),
            segment.getSourceSerialNumber());
        long currentTime = segment.getStartTime().getTime();
-       int[] data = segment.getData().data;
-       for (int i = 0; i < data.length; i++) {
-         // int value = data[i];
+       // samples are read from the triplet by time, only their count is needed here
+       for (int i = 0; i < segment.getSampleCount(); i++) {
          currentTime = currentTime + (long) (i * segment.getSampleRate());
          pointPosition[0] = triplet[0].getRawData(currentTime); //x
          pointPosition[1] = triplet[1].getRawData(currentTime); //y
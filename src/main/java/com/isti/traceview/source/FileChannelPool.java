@@ -0,0 +1,314 @@
+package com.isti.traceview.source;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.log4j.Logger;
+
+/**
+ * Bounded pool of read-only file channels shared by file data sources. Channels are kept open
+ * between segment loads and evicted in least recently used order when the pool is full. Callers
+ * borrow a channel with {@link #open(File)} and return it by closing the returned {@link
+ * PooledChannel}; an evicted channel is closed only after its last borrower returns it.
+ *
+ * Borrowers must use positional reads only (see {@link PooledChannel#read(ByteBuffer, long)}),
+ * since the same channel is handed to all threads loading the same file.
+ */
+public final class FileChannelPool {
+
+  private static final Logger logger = Logger.getLogger(FileChannelPool.class);
+
+  /**
+   * Capacity of the pool shared by all data sources
+   */
+  public static final int DEFAULT_CAPACITY = 64;
+
+  private static final FileChannelPool shared = new FileChannelPool(DEFAULT_CAPACITY);
+
+  private final int capacity;
+
+  // access ordered, so iteration starts from the least recently used entry; guarded by this
+  private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param capacity maximum count of channels kept open when not borrowed
+   */
+  public FileChannelPool(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Pool capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return pool shared by all file data sources
+   */
+  public static FileChannelPool getShared() {
+    return shared;
+  }
+
+  private static class Entry {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long lastModified;
+    private int leases = 0;
+    private boolean evicted = false;
+
+    private Entry(Path path, FileChannel channel, long lastModified) {
+      this.path = path;
+      this.channel = channel;
+      this.lastModified = lastModified;
+    }
+  }
+
+  /**
+   * Borrows a channel for the file, opening it if the pool has no open channel for it or if the
+   * file was modified since the pooled channel was opened
+   *
+   * @param file file to read
+   * @return borrowed channel, to be closed when done
+   * @throws IOException if the file can't be opened
+   */
+  public PooledChannel open(File file) throws IOException {
+    Path path = file.toPath().toAbsolutePath().normalize();
+    long lastModified = file.lastModified();
+    synchronized (this) {
+      Entry entry = entries.get(path);
+      if (entry != null) {
+        if (entry.lastModified == lastModified && entry.channel.isOpen()) {
+          hits.increment();
+          entry.leases++;
+          return new PooledChannel(this, entry);
+        }
+        // file was replaced or rewritten, don't serve it from the old channel
+        entries.remove(path);
+        retire(entry);
+      }
+    }
+    misses.increment();
+    // opening is done outside of the lock, so a slow open doesn't block other files
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    synchronized (this) {
+      Entry entry = entries.get(path);
+      if (entry != null && entry.lastModified == lastModified && entry.channel.isOpen()) {
+        // another thread opened it meanwhile
+        closeQuietly(channel);
+      } else {
+        if (entry != null) {
+          entries.remove(path);
+          retire(entry);
+        }
+        entry = new Entry(path, channel, lastModified);
+        entries.put(path, entry);
+        evictExcess();
+      }
+      entry.leases++;
+      return new PooledChannel(this, entry);
+    }
+  }
+
+  /**
+   * Closes pooled channel of given file, if any. Borrowed channels are closed when returned.
+   */
+  public synchronized void invalidate(File file) {
+    Entry entry = entries.remove(file.toPath().toAbsolutePath().normalize());
+    if (entry != null) {
+      retire(entry);
+    }
+  }
+
+  /**
+   * Closes all pooled channels. Borrowed channels are closed when returned.
+   */
+  public synchronized void clear() {
+    for (Entry entry : entries.values()) {
+      retire(entry);
+    }
+    entries.clear();
+  }
+
+  private void evictExcess() {
+    Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+    while (entries.size() > capacity && it.hasNext()) {
+      Entry entry = it.next().getValue();
+      it.remove();
+      evictions.increment();
+      retire(entry);
+    }
+  }
+
+  private void retire(Entry entry) {
+    entry.evicted = true;
+    if (entry.leases == 0) {
+      closeQuietly(entry.channel);
+    }
+  }
+
+  private synchronized void release(Entry entry) {
+    entry.leases--;
+    if (entry.evicted && entry.leases == 0) {
+      closeQuietly(entry.channel);
+    }
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      logger.debug("IOException:", e);
+    }
+  }
+
+  /**
+   * @return count of {@link #open(File)} calls served by an already open channel
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * @return count of {@link #open(File)} calls which had to open the file
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * @return count of channels closed to keep the pool within its capacity
+   */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * @return count of channels currently held by the pool
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public String toString() {
+    return "FileChannelPool: " + size() + " of " + capacity + " open, " + getHitCount()
+        + " hits, " + getMissCount() + " misses, " + getEvictionCount() + " evictions";
+  }
+
+  /**
+   * Channel borrowed from the pool. Closing it returns the channel to the pool, it doesn't close
+   * the file.
+   */
+  public static final class PooledChannel implements Closeable {
+
+    private final FileChannelPool pool;
+    private final Entry entry;
+    private boolean released = false;
+
+    private PooledChannel(FileChannelPool pool, Entry entry) {
+      this.pool = pool;
+      this.entry = entry;
+    }
+
+    /**
+     * @return underlying channel, for mapping or positional reads; must not be closed or
+     * repositioned
+     */
+    public FileChannel channel() {
+      return entry.channel;
+    }
+
+    /**
+     * @return current file size
+     */
+    public long size() throws IOException {
+      return entry.channel.size();
+    }
+
+    /**
+     * Reads from given file position until the buffer is full or end of file is reached
+     *
+     * @param dst buffer to fill from its position to its limit
+     * @param position file position to read from
+     * @return count of bytes read, less than requested only at end of file
+     */
+    public int read(ByteBuffer dst, long position) throws IOException {
+      int total = 0;
+      while (dst.hasRemaining()) {
+        int count = entry.channel.read(dst, position + total);
+        if (count < 0) {
+          break;
+        }
+        total += count;
+      }
+      return total;
+    }
+
+    /**
+     * @param position file position to start reading from
+     * @return stream reading the file from given position with positional reads; the stream
+     * doesn't own the channel, closing it does nothing
+     */
+    public InputStream newInputStream(long position) {
+      return new InputStream() {
+        private long current = position;
+        private final ByteBuffer single = ByteBuffer.allocate(1);
+
+        @Override
+        public int read() throws IOException {
+          single.clear();
+          if (PooledChannel.this.read(single, current) < 1) {
+            return -1;
+          }
+          current++;
+          return single.get(0) & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+          if (len == 0) {
+            return 0;
+          }
+          int count = entry.channel.read(ByteBuffer.wrap(b, off, len), current);
+          if (count > 0) {
+            current += count;
+          }
+          return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+          long skipped = Math.max(0, Math.min(n, entry.channel.size() - current));
+          current += skipped;
+          return skipped;
+        }
+      };
+    }
+
+    /**
+     * Returns the channel to the pool
+     */
+    @Override
+    public void close() {
+      if (!released) {
+        released = true;
+        pool.release(entry);
+      }
+    }
+  }
+}
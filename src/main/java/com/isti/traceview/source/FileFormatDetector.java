@@ -0,0 +1,345 @@
+package com.isti.traceview.source;
+
+import com.isti.traceview.data.ISource.FormatType;
+import com.isti.traceview.data.ascii.AsciiFile;
+import com.isti.traceview.data.mseed.Mseed3RecordHeader;
+import com.isti.traceview.data.mseed.MseedRecordHeader;
+import com.isti.traceview.data.sac.SacFile;
+import com.isti.traceview.data.segy.SegyFile;
+import edu.sc.seis.seisFile.segd.SegdRecord;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.log4j.Logger;
+
+/**
+ * Detects data file formats. The head of a file is read once into a buffer and all format
+ * detectors run against that buffer, so each file is opened once whatever its format is.
+ * Detection results are cached per file and reused while file length and modification time stay
+ * the same.
+ */
+public final class FileFormatDetector {
+
+  private static final Logger logger = Logger.getLogger(FileFormatDetector.class);
+
+  /**
+   * Count of bytes read from the head of a file; enough for all detectors
+   */
+  public static final int HEAD_LENGTH = 8192;
+
+  private static final int MSEED_RECORDS_TO_CHECK = 5;
+  private static final int IMS_LINES_TO_CHECK = 25;
+  private static final int SAC_HEADER_LENGTH = 632;
+  private static final int SEGY_HEADER_LENGTH = SegyFile.TRACE_HEADER_LENGTH;
+  private static final int SEGY_STANDARD_HEAD_LENGTH = SegyFile.TEXT_HEADER_LENGTH
+      + SegyFile.BINARY_HEADER_LENGTH + SegyFile.TRACE_HEADER_LENGTH;
+
+  // ASCII file header includes NET, STA, LOC, COMP, RATE, TIME, NSAM, DATA
+  private static final Set<String> asciiLineStarts = new HashSet<>(
+      Arrays.asList("NET ", "STA ", "LOC ", "COMP", "RATE", "TIME", "NSAM", "DATA"));
+
+  private static final Map<String, DetectedFormat> cache = new ConcurrentHashMap<>();
+
+  private FileFormatDetector() {
+  }
+
+  /**
+   * Result of a detection, valid while the file keeps its length and modification time
+   */
+  private static class DetectedFormat {
+
+    private final long length;
+    private final long lastModified;
+    private final FormatType format;
+
+    private DetectedFormat(long length, long lastModified, FormatType format) {
+      this.length = length;
+      this.lastModified = lastModified;
+      this.format = format;
+    }
+  }
+
+  /**
+   * Head of a file, as read by {@link #readHead(File)}
+   */
+  static class Head {
+
+    final byte[] bytes;
+    final int length;
+    final long fileLength;
+
+    Head(byte[] bytes, int length, long fileLength) {
+      this.bytes = bytes;
+      this.length = length;
+      this.fileLength = fileLength;
+    }
+
+    /**
+     * @return true if the whole file fits in the head
+     */
+    boolean isWholeFile() {
+      return length == fileLength;
+    }
+  }
+
+  /**
+   * Detects format of given file
+   *
+   * @param file file to test
+   * @return format of the file, or null if the format is unknown or the file can't be read
+   */
+  public static FormatType detect(File file) {
+    String key;
+    try {
+      key = file.getCanonicalPath();
+    } catch (IOException e) {
+      logger.debug(String.format("== CheckData: [file:%s] IOException:\n", file.getName()), e);
+      return null;
+    }
+    long length = file.length();
+    long lastModified = file.lastModified();
+    DetectedFormat cached = cache.get(key);
+    if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+      return cached.format;
+    }
+    Head head = readHead(file);
+    if (head == null) {
+      return null;
+    }
+    FormatType format = detect(file, head);
+    cache.put(key, new DetectedFormat(length, lastModified, format));
+    return format;
+  }
+
+  /**
+   * Forgets all cached detection results
+   */
+  public static void clearCache() {
+    cache.clear();
+  }
+
+  /**
+   * Runs all detectors, in the order formats were always tried, against the head of a file
+   */
+  static FormatType detect(File file, Head head) {
+    if (isASCII(head)) {
+      return FormatType.ASCII;
+    } else if (isIMS(head)) {
+      return FormatType.IMS;
+    } else if (isMSEED(head)) {
+      return FormatType.MSEED;
+    } else if (isMSEED3(head)) {
+      return FormatType.MSEED3;
+    } else if (isSAC(head)) {
+      return FormatType.SAC;
+    } else if (isSEGY(head)) {
+      return FormatType.SEGY;
+    } else if (isSEGD(file, head)) {
+      return FormatType.SEGD;
+    }
+    return null;
+  }
+
+  /**
+   * Reads first {@link #HEAD_LENGTH} bytes of a file with a single read
+   *
+   * @return file head, or null if the file can't be read
+   */
+  static Head readHead(File file) {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      long fileLength = raf.length();
+      byte[] bytes = new byte[(int) Math.min(HEAD_LENGTH, fileLength)];
+      raf.readFully(bytes);
+      return new Head(bytes, bytes.length, fileLength);
+    } catch (IOException e) {
+      logger.debug(String.format("== CheckData: [file:%s] IOException:\n", file.getName()), e);
+      return null;
+    }
+  }
+
+  /**
+   * Splits head into lines the way BufferedReader.readLine() does. A line cut by the end of the
+   * head is not returned, unless the head is the whole file.
+   */
+  private static String[] readLines(Head head, int maxLines) {
+    String[] lines = new String[maxLines];
+    int count = 0;
+    int start = 0;
+    int i = 0;
+    while (count < maxLines && i < head.length) {
+      byte b = head.bytes[i];
+      if (b == '\n' || b == '\r') {
+        lines[count++] = new String(head.bytes, start, i - start, StandardCharsets.ISO_8859_1);
+        if (b == '\r' && i + 1 < head.length && head.bytes[i + 1] == '\n') {
+          i++;
+        }
+        start = i + 1;
+      }
+      i++;
+    }
+    if (count < maxLines && start < head.length && head.isWholeFile()) {
+      lines[count++] = new String(head.bytes, start, head.length - start,
+          StandardCharsets.ISO_8859_1);
+    }
+    return Arrays.copyOf(lines, count);
+  }
+
+  /**
+   * Tests if file is ASCII: either first 8 lines are bdf NET, STA, LOC, COMP, RATE, TIME, NSAM and
+   * DATA headers in any order, or the first line is an IRIS TIMESERIES header
+   */
+  static boolean isASCII(Head head) {
+    String[] first = readLines(head, 1);
+    if (first.length == 1 && first[0].startsWith(AsciiFile.TIMESERIES + " ")) {
+      return true;
+    }
+    String[] lines = readLines(head, asciiLineStarts.size());
+    if (lines.length < asciiLineStarts.size()) {
+      return false;
+    }
+    Set<String> lineStarts = new HashSet<>(asciiLineStarts);
+    for (String line : lines) {
+      if (line.length() < 4 || !lineStarts.remove(line.substring(0, 4).toUpperCase())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Tests if file is IMS file: one of first 25 lines starts IMS message, data type or waveform
+   */
+  static boolean isIMS(Head head) {
+    for (String line : readLines(head, IMS_LINES_TO_CHECK)) {
+      String upper = line.toUpperCase();
+      if (upper.startsWith("BEGIN IMS") || upper.startsWith("DATA_TYPE ")
+          || upper.startsWith("WID2 ")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Tests if file is mseed file: up to 5 leading records which fit in the head have valid
+   * headers, and the first one is either a data record or a SEED control record
+   */
+  static boolean isMSEED(Head head) {
+    if (head.length < MseedRecordHeader.FIXED_HEADER_LENGTH) {
+      return false;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(head.bytes, 0, head.length);
+    MseedRecordHeader header = new MseedRecordHeader();
+    int offset = 0;
+    for (int i = 0; i < MSEED_RECORDS_TO_CHECK
+        && offset + MseedRecordHeader.FIXED_HEADER_LENGTH <= head.length; i++) {
+      if (!header.read(buffer, offset, 4096)) {
+        return false;
+      }
+      // control records have no binary header to validate, so check them harder
+      if (!header.isDataRecord() && !isControlHeader(head.bytes, offset)) {
+        return false;
+      }
+      offset += header.getRecordLength();
+    }
+    return true;
+  }
+
+  /**
+   * Tests if file is miniSEED 3 file: up to 5 leading records which fit in the head have valid
+   * headers
+   */
+  static boolean isMSEED3(Head head) {
+    ByteBuffer buffer = ByteBuffer.wrap(head.bytes, 0, head.length);
+    Mseed3RecordHeader header = new Mseed3RecordHeader();
+    long offset = 0;
+    for (int i = 0; i < MSEED_RECORDS_TO_CHECK
+        && offset + Mseed3RecordHeader.FIXED_HEADER_LENGTH <= head.length; i++) {
+      if (!header.read(buffer, (int) offset)) {
+        // identifier of a later record may be cut by the end of the head
+        return i > 0 && header.readLengths(buffer, (int) offset)
+            && offset + header.getDataOffset() > head.length;
+      }
+      offset += header.getRecordLength();
+    }
+    return offset > 0;
+  }
+
+  /**
+   * Control record: sequence number of digits and continuation flag of blank or '*'
+   */
+  private static boolean isControlHeader(byte[] bytes, int offset) {
+    for (int i = 0; i < 6; i++) {
+      if (bytes[offset + i] < '0' || bytes[offset + i] > '9') {
+        return false;
+      }
+    }
+    byte type = bytes[offset + 6];
+    byte continuation = bytes[offset + 7];
+    return (type == 'V' || type == 'A' || type == 'S' || type == 'T')
+        && (continuation == ' ' || continuation == '*');
+  }
+
+  /**
+   * Tests if file is sac file: header count of points, in either byte order, matches file length,
+   * or the header is of version 7 and its samples are followed by the footer
+   */
+  static boolean isSAC(Head head) {
+    if (head.length < 320) {
+      return false;
+    }
+    long dataLenFromFileSize = (head.fileLength - SAC_HEADER_LENGTH) / 4;
+    ByteBuffer bb = ByteBuffer.wrap(head.bytes);
+    for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      int npts = bb.order(order).getInt(316);
+      if (npts == dataLenFromFileSize) {
+        return true;
+      }
+      if (bb.getInt(304) == SacFile.FOOTER_HEADER_VERSION && npts >= 0
+          && npts <= dataLenFromFileSize) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Tests if file is segy file: either a valid PASSCAL trace header at the start of the file, or
+   * standard SEG-Y textual and binary file headers followed by a trace header
+   */
+  static boolean isSEGY(Head head) {
+    if (head.length < SEGY_HEADER_LENGTH) {
+      return false;
+    }
+    ByteBuffer bb = ByteBuffer.wrap(head.bytes);
+    if (SegyFile.getPasscalOrder(bb, 0) != null) {
+      return true;
+    }
+    return head.length >= SEGY_STANDARD_HEAD_LENGTH && SegyFile.getStandardOrder(bb, 0) != null;
+  }
+
+  /**
+   * Tests if file is segd file: seisFile accepts its general header
+   */
+  static boolean isSEGD(File file, Head head) {
+    try {
+      SegdRecord rec = new SegdRecord(file);
+      rec.readHeader1(
+          new DataInputStream(new ByteArrayInputStream(head.bytes, 0, head.length)));
+      return true;
+    } catch (Exception e) {
+      logger.debug(String.format("== CheckData: [file:%s] Exception:\n", file.getName()), e);
+      return false;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.isti.traceview.source;
+
+import com.isti.traceview.common.SNCLFilter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.log4j.Logger;
+
+/**
+ * SeisComP Data Structure (SDS) archive of miniSEED day files, laid out as
+ * <tt>YEAR/NET/STA/CHAN.TYPE/NET.STA.LOC.CHAN.TYPE.YEAR.DOY</tt> below the archive root. The
+ * requested time window and SNCL filters are mapped to the day files holding the data: only
+ * directories of requested years, networks, stations and channels are listed, and day files are
+ * chosen by their names, so finding files doesn't depend on the size of the archive.
+ *
+ * @see <a href="https://www.seiscomp.de/seiscomp3/doc/applications/slarchive/SDS.html">SDS</a>
+ */
+public class SDSArchive {
+
+  private static final Logger logger = Logger.getLogger(SDSArchive.class);
+
+  private static final long MILLIS_IN_DAY = 86400000L;
+
+  private static final Pattern YEAR_DIRECTORY = Pattern.compile("\\d{4}");
+  private static final Pattern CHANNEL_DIRECTORY = Pattern.compile("([^.]+)\\.([A-Z])");
+  private static final Pattern DAY_FILE =
+      Pattern.compile("([^.]*)\\.([^.]*)\\.([^.]*)\\.([^.]*)\\.([A-Z])\\.(\\d{4})\\.(\\d{3})");
+
+  private final File root;
+
+  /**
+   * @param root archive root directory, holding year directories
+   */
+  public SDSArchive(File root) {
+    this.root = root;
+  }
+
+  /**
+   * Finds day files holding data of a time window
+   *
+   * @return found files, sorted by path
+   * @see #discover(long, long, SNCLFilter, Consumer)
+   */
+  public List<File> find(long start, long end, SNCLFilter filter) throws IOException {
+    List<File> files = new ArrayList<>();
+    discover(start, end, filter, files::add);
+    Collections.sort(files);
+    return files;
+  }
+
+  /**
+   * Passes day files which may hold data of a time window and pass a filter to a consumer, as
+   * soon as they are found. The day before the window is included, since the last records of a
+   * day file may run past midnight.
+   *
+   * @param start window start, epoch milliseconds; Long.MIN_VALUE for no limit
+   * @param end window end, epoch milliseconds; Long.MAX_VALUE for no limit
+   * @param filter network, station, location and channel filter
+   * @param consumer receiver of found files
+   * @throws IOException if the archive root can't be listed
+   */
+  public void discover(long start, long end, SNCLFilter filter, Consumer<File> consumer)
+      throws IOException {
+    if (!root.isDirectory()) {
+      throw new IOException("SDS archive root " + root + " is not a directory");
+    }
+    long firstDay = start == Long.MIN_VALUE ? Long.MIN_VALUE
+        : Math.floorDiv(start, MILLIS_IN_DAY) - 1;
+    long lastDay = end == Long.MAX_VALUE ? Long.MAX_VALUE : Math.floorDiv(end, MILLIS_IN_DAY);
+    int firstYear = firstDay == Long.MIN_VALUE ? Integer.MIN_VALUE
+        : LocalDate.ofEpochDay(firstDay).getYear();
+    int lastYear = lastDay == Long.MAX_VALUE ? Integer.MAX_VALUE
+        : LocalDate.ofEpochDay(lastDay).getYear();
+    for (Path year : list(root.toPath(), name -> YEAR_DIRECTORY.matcher(name).matches()
+        && Integer.parseInt(name) >= firstYear && Integer.parseInt(name) <= lastYear)) {
+      for (Path network : list(year, filter::matchesNetwork)) {
+        for (Path station : list(network, filter::matchesStation)) {
+          for (Path channel : list(station, name -> isChannelDirectory(name, filter))) {
+            for (Path day : list(channel, name -> isDayFile(name, firstDay, lastDay, filter))) {
+              consumer.accept(day.toFile());
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean isChannelDirectory(String name, SNCLFilter filter) {
+    Matcher matcher = CHANNEL_DIRECTORY.matcher(name);
+    return matcher.matches() && filter.matchesChannel(matcher.group(1));
+  }
+
+  /**
+   * @return true if the name is one of a day file of given days, whose location passes a filter
+   */
+  private static boolean isDayFile(String name, long firstDay, long lastDay, SNCLFilter filter) {
+    Matcher matcher = DAY_FILE.matcher(name);
+    if (!matcher.matches() || !filter.matchesLocation(matcher.group(3))) {
+      return false;
+    }
+    long epochDay = LocalDate.ofYearDay(Integer.parseInt(matcher.group(6)), 1).toEpochDay()
+        + Integer.parseInt(matcher.group(7)) - 1;
+    return epochDay >= firstDay && epochDay <= lastDay;
+  }
+
+  /**
+   * @return entries of a directory whose names are accepted; empty if it can't be listed
+   */
+  private static List<Path> list(Path directory, Predicate<String> accept) {
+    List<Path> entries = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+        entry -> accept.test(entry.getFileName().toString()))) {
+      for (Path entry : stream) {
+        entries.add(entry);
+      }
+    } catch (IOException | DirectoryIteratorException e) {
+      logger.warn("Can't list directory " + directory + ": " + e);
+    }
+    return entries;
+  }
+}
@@ -2,35 +2,18 @@ package com.isti.traceview.source;
 
 import com.isti.traceview.TraceView;
 import com.isti.traceview.TraceViewException;
-import com.isti.traceview.common.Configuration;
 import com.isti.traceview.common.Wildcard;
 import com.isti.traceview.data.ISource;
 import com.isti.traceview.data.PlotDataProvider;
 import com.isti.traceview.data.Segment;
-import com.isti.traceview.data.SegyTimeSeries;
 import edu.iris.Fissures.seed.builder.SeedObjectBuilder;
 import edu.iris.Fissures.seed.director.SeedImportDirector;
-import edu.sc.seis.seisFile.mseed.DataRecord;
-import edu.sc.seis.seisFile.mseed.SeedFormatException;
-import edu.sc.seis.seisFile.mseed.SeedRecord;
-import edu.sc.seis.seisFile.segd.SegdException;
-import edu.sc.seis.seisFile.segd.SegdRecord;
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -39,7 +22,6 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import org.apache.log4j.Logger;
 
 /**
@@ -102,6 +84,10 @@ public abstract class SourceFile implements ISource {
 			return false;
 		}
 	}
+
+	public int hashCode() {
+		return Objects.hash(getFile(), getFormatType());
+	}
 	
 	/** 
 	 * Class to call data file type task
@@ -126,35 +112,41 @@ public abstract class SourceFile implements ISource {
 		 * 		data file for type
 		 */
 		public ISource call() {
-			ISource datafile = null;
-			if (isASCII(file)) {
-				datafile = new SourceFileASCII(file);
-				logger.debug("ASCII data file added: " + file.getAbsolutePath());
-			} else if (isIMS(file)) {
-				datafile = new SourceFileIMS(file);
-				logger.debug("IMS data file added: " + file.getAbsolutePath());
-			} else if (isMSEED(file)) {
-				datafile = new SourceFileMseed(file);
-				logger.debug("MSEED data file added: " + file.getAbsolutePath());
-			} else if (isSAC(file)) {
-				datafile = new SourceFileSAC(file);
-				logger.debug("SAC data file added: " + file.getAbsolutePath());
-			} else if (isSEGY(file)) {
-				datafile = new SourceFileSEGY(file);
-				logger.debug("SEGY data file added: " + file.getAbsolutePath());
-			} else if (isSEGD(file)) {
-				datafile = new SourceFileSEGD(file);
-				logger.debug("SEGD data file added: " + file.getAbsolutePath());
-			} /* else if (isSEED(file)) {
-				datafile = new SourceFileSEGD(file);
-				logger.debug("SEED data file added: " + file.getAbsolutePath());
-			}*/ else {
+			FormatType format = FileFormatDetector.detect(file);
+			if (format == null) {
 				logger.warn("Unknown file format: " + file.getName());
+				return null;
 			}
+			ISource datafile = createSource(file, format);
+			logger.debug(format + " data file added: " + file.getAbsolutePath());
 			return datafile;
 		}
 	}
 
+	/**
+	 * Creates data source of given format for a file
+	 */
+	private static ISource createSource(File file, FormatType format) {
+		switch (format) {
+		case ASCII:
+			return new SourceFileASCII(file);
+		case IMS:
+			return new SourceFileIMS(file);
+		case MSEED:
+			return new SourceFileMseed(file);
+		case MSEED3:
+			return new SourceFileMseed3(file);
+		case SAC:
+			return new SourceFileSAC(file);
+		case SEGY:
+			return new SourceFileSEGY(file);
+		case SEGD:
+			return new SourceFileSEGD(file);
+		default:
+			return null;
+		}
+	}
+
 	/**
 	 * Searches for files according wildcarded path
 	 * 
@@ -178,63 +170,48 @@ public abstract class SourceFile implements ISource {
 	}
 
 	/**
-	 * tests given list of file for content format and initialize according data sources
+	 * tests given list of file for content format and initialize according data sources. Each
+	 * file is read once, and files already tested are answered from the detection cache.
 	 * 
 	 * @param files
 	 *            list of files to test
-	 * @return List of data sources
+	 * @return List of data sources, in the order of given files; files of unknown format are
+	 *         skipped
 	 */
 	public static List<ISource> getDataFiles(List<File> files){
-		
-		// Setup pool of workers to set data types for each file (using loop)
-		// Submits FileType() tasks to multi-threaded executor
-		int numProc = Runtime.getRuntime().availableProcessors();
-		int filelen = files.size();
-		int threadCount = 0;
-		if (numProc % 2 == 0)
-			threadCount = numProc / 2;
-		else
-			threadCount = (numProc + 1) / 2;
-		ExecutorService executor = Executors.newFixedThreadPool(threadCount);	// multi-thread executor
-		List<Future<ISource>> tasks = new ArrayList<>(filelen);	// list of future tasks
-		List<ISource> dataFileList = new ArrayList<>(filelen);	// main datafiles list
-		try {	
-			long start = System.nanoTime();
+		// detection is mostly waiting for the first read of each file (think NFS), so use more
+		// threads than cores; there is no per-file timeout, slow reads just take longer
+		int threadCount = Math.max(1, Math.min(files.size(), 4 * Runtime.getRuntime().availableProcessors()));
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		List<Future<ISource>> tasks = new ArrayList<>(files.size());
+		List<ISource> dataFileList = new ArrayList<>(files.size());
+		long start = System.nanoTime();
+		try {
 			for (File file: files) {
-				Future<ISource> future = executor.submit(new FileType(file));
-				tasks.add(future);	// add future filetype to tasks list
+				tasks.add(executor.submit(new FileType(file)));
 			}
-		
-			// Loop through tasks and get futures	
-			// ** May want to include future.get() in files loop
-			// this will eliminate extra loop for getting futures
 			for (Future<ISource> future: tasks) {
 				try {
-					dataFileList.add(future.get(3, TimeUnit.SECONDS));
-				} catch (TimeoutException e) {
-					logger.error("Future TimeoutException:", e);
-					shutdownFuture(future, executor);
+					ISource source = future.get();
+					if (source != null) {
+						dataFileList.add(source);
+					}
 				} catch (ExecutionException e) {
 					logger.error("Future ExecutionException:", e);
-					shutdownFuture(future, executor);
-				} catch (InterruptedException e) {
-					logger.error("Future InterruptedException:", e);
-					shutdownFuture(future, executor);
 				}
 			}
-			long endl = System.nanoTime() - start;
-			double end = endl * Math.pow(10, -9);
-			System.out.format("SourceFile: getDataFiles() execution time = %.9f sec\n", end);
+		} catch (InterruptedException e) {
+			logger.error("Future InterruptedException:", e);
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
 		} catch (RejectedExecutionException e) {
 			logger.error("Executor RejectedExecutionException:", e);
 			executor.shutdownNow();
-		} catch (NullPointerException e) {
-			logger.error("Executor NullPointerException:", e);
-			executor.shutdownNow();
 		}
+		logger.info(String.format("SourceFile: getDataFiles() execution time = %.9f sec",
+				(System.nanoTime() - start) * 1e-9));
 		// Shutdown executor and cancel lingering tasks
 		shutdownExecutor(executor);
-		
 		return dataFileList;
 	}
 
@@ -249,9 +226,7 @@ public abstract class SourceFile implements ISource {
 	 * Checks if trace matches all configuration filters. Used during parsing files.
 	 */
 	public static boolean matchFilters(String network, String station, String location, String channel) {
-		Configuration conf = TraceView.getConfiguration();
-		return matchFilter(network.trim(), conf.getFilterNetwork()) && matchFilter(location.trim(), conf.getFilterLocation())
-				&& matchFilter(channel.trim(), conf.getFilterChannel()) && matchFilter(station.trim(), conf.getFilterStation());
+		return TraceView.getConfiguration().getSNCLFilter().matches(network, station, location, channel);
 	}
 
 	/**
@@ -288,67 +263,16 @@ public abstract class SourceFile implements ISource {
 	}
 
 	/**
-	 * Tests if file is mseed file
+	 * Tests if file is mseed file. Like the other format tests except {@link #isSEED(File)}, it
+	 * answers from {@link FileFormatDetector#detect(File)}: the head of the file is read once and
+	 * all formats are checked against it, so testing a file for several formats doesn't reread it.
 	 * 
 	 * @param file
 	 *            file to test
 	 * @return flag
 	 */
 	public static boolean isMSEED(File file) {
-		if (file.length() > 0) {
-			RandomAccessFile dis = null;
-			//ControlHeader ch = null;
-			try {
-				dis = new RandomAccessFile(file.getCanonicalPath(), "r");
-				long blockNumber = 0;
- 
-			    while (blockNumber < 5) {
-			    	SeedRecord sr = SeedRecord.read(dis, 4096);
-			        if (sr instanceof DataRecord) {
-			        	//DataRecord dr = (DataRecord)sr;
-			        } else {
-			            //control record, skip...
-			        }
-			        blockNumber++;
-			    }
-			} catch (EOFException ex) {
-				//System.out.format("==     [file:%s] Caught EOFException:%s\n", file.getName(), ex.toString());
-				StringBuilder message = new StringBuilder();
-				message.append(String.format("== CheckData: [file:%s] Caught EOFException:\n", file.getName()));
-				logger.debug(message.toString(), ex);	
-				return true;
-			} catch (FileNotFoundException e) {
-				StringBuilder message = new StringBuilder();
-				message.append(String.format("== CheckData: [file:%s] FileNotFoundException:\n", file.getName()));
-				logger.debug(message.toString(), e);
-				return false;
-			} catch (IOException e) {
-				StringBuilder message = new StringBuilder();
-				message.append(String.format("== CheckData: [file:%s] IOException:\n", file.getName()));
-				logger.debug(message.toString(), e);
-				return false;
-			} catch (SeedFormatException e) {
-				//System.out.format("==     [file:%s] Caught SeedFormatException:%s\n", file.getName(), e.toString());
-				StringBuilder message = new StringBuilder();
-				message.append(String.format("== CheckData: [file:%s] Caught SeedFormatException:\n", file.getName()));
-				logger.debug(message.toString(), e);
-				return false;
-            } catch (RuntimeException e) {
-               	StringBuilder message = new StringBuilder();
-               	message.append(String.format("== CheckData: [file:%s] Caught RuntimeException:\n", file.getName()));
-               	logger.debug(message.toString(), e);
-               	return false;
-			} finally {
-				try {
-					dis.close();
-				} catch (IOException e) {
-					logger.debug("IOException:", e);	
-				}
-			}
-		} else {
-			return false;
-		}
-		return true;
+		return FileFormatDetector.detect(file) == FormatType.MSEED;
 	}
 	
 	/**
@@ -359,35 +283,7 @@ public abstract class SourceFile implements ISource {
 	 * @return flag
 	 */
 	public static boolean isSAC(File file) {
-		byte[] buffer = new byte[4];
-		RandomAccessFile ras = null;
-		long dataLenFromFileSize = (file.length() - 632) / 4;
-		try {
-			ras = new RandomAccessFile(file, "r");
-			ras.seek(316);
-			ras.read(buffer, 0, 4);
-		} catch (Exception e) {
-			StringBuilder message = new StringBuilder();
-			message.append(String.format("== CheckData: [file:%s] Exception:\n", file.getName()));
-			logger.debug(message.toString(), e);
-			return false;
-		} finally {
-			try {
-				ras.close();
-			} catch (IOException e) {
-				logger.debug("IOException:", e);	
-			}
-		}
-		ByteBuffer bb = ByteBuffer.wrap(buffer);
-		bb.order(ByteOrder.BIG_ENDIAN);
-		if (bb.getInt() == dataLenFromFileSize)
-			return true;
-		bb.position(0);
-		bb.order(ByteOrder.LITTLE_ENDIAN);
-		if (bb.getInt() == dataLenFromFileSize)
-			return true;
-		else
-			return false;
+		return FileFormatDetector.detect(file) == FormatType.SAC;
 	}
 
 	/**
@@ -398,16 +294,7 @@ public abstract class SourceFile implements ISource {
 	 * @return flag
 	 */
 	public static boolean isSEGY(File file) {
-		SegyTimeSeries ts = new SegyTimeSeries();
-		try {
-			ts.readHeader(file.getCanonicalPath());
-		} catch (Exception e) {
-			StringBuilder message = new StringBuilder();
-			message.append(String.format("== CheckData: [file:%s] Exception:\n", file.getName()));
-			logger.debug(message.toString(), e);
-			return false;
-		}
-		return true;
+		return FileFormatDetector.detect(file) == FormatType.SEGY;
 	}
 	
 	/**
@@ -418,34 +305,7 @@ public abstract class SourceFile implements ISource {
 	 * @return flag
 	 */
 	public static boolean isSEGD(File file) {
-		BufferedInputStream inputStream = null;
-		try {
-			inputStream = new BufferedInputStream(new FileInputStream(file));
-			SegdRecord rec = new SegdRecord(file); 
-			rec.readHeader1(new DataInputStream(inputStream));
-		} catch (IOException e) {
-			StringBuilder message = new StringBuilder();
-			message.append(String.format("== CheckData: [file:%s] IOException:\n", file.getName()));
-			logger.debug(message.toString(), e);
-			return false;
-		} catch (SegdException e) {
-			StringBuilder message = new StringBuilder();
-			message.append(String.format("== CheckData: [file:%s] SegdException:\n", file.getName()));
-			logger.debug(message.toString(), e);
-			return false;
-		} catch (Exception e) {
-			StringBuilder message = new StringBuilder();
-			message.append(String.format("== CheckData: [file:%s] Exception:\n", file.getName()));
-			logger.debug(message.toString(), e);
-			return false;
-		} finally {
-			try{
-				inputStream.close();
-			} catch (IOException ex){
-				logger.debug("IOException:", ex);	
-			}
-		}
-		return true;
+		return FileFormatDetector.detect(file) == FormatType.SEGD;
 	}
 
 	/**
@@ -489,30 +349,7 @@ public abstract class SourceFile implements ISource {
 	 * @return flag
 	 */
 	public static boolean isIMS(File file) {
-		BufferedReader input = null;
-		try {
-			input = new BufferedReader(new FileReader(file));
-			String line = null;
-			for(int i = 0; i<25;i++){
-				line = input.readLine().toUpperCase();
-				if(line.startsWith("BEGIN IMS") || line.startsWith("DATA_TYPE ") || line.startsWith("WID2 ")){
-					input.close();
-					return true;
-				}
-			}
-		} catch (Exception e) {
-			StringBuilder message = new StringBuilder();
-			message.append(String.format("== CheckData: [file:%s] Exception:\n", file.getName()));
-			logger.debug(message.toString(), e);
-			return false;
-		} finally {
-			try{
-				input.close();
-			} catch (IOException ex){
-				logger.debug("IOException:", ex);	
-			}
-		}
-		return false;
+		return FileFormatDetector.detect(file) == FormatType.IMS;
 	}
 
 	/**
@@ -521,47 +358,13 @@ public abstract class SourceFile implements ISource {
 	 * @return true if file can be parsed as BDF file
 	 */
 	public static boolean isASCII(File file) {
-		BufferedReader input = null;
-		try {
-			input = new BufferedReader(new FileReader(file));
-			String line;
-			// ASCII file header includes NET, STA, LOC, COMP, RATE, TIME, NSAM, DATA
-			Set<String> lineStarts = new HashSet<>(
-					Arrays.asList("NET ", "STA ", "LOC ", "COMP", "RATE", "TIME", "NSAM", "DATA"));
-			for (int i = 0; i < 8; i++) {
-				line = input.readLine().toUpperCase();
-				String substring = line.substring(0, 4);
-				if (lineStarts.contains(substring)) {
-					lineStarts.remove(substring);
-				} else {
-					return false;
-				}
-			}
-		} catch (IOException e) {
-			logger.debug(String.format("== CheckData: [file:%s] Exception:\n", file.getName()), e);
-			return false;
-		} finally {
-			try{
-				input.close();
-			} catch (IOException ex){
-				logger.debug("IOException:", ex);
-			}
-		}
-		return true;
+		return FileFormatDetector.detect(file) == FormatType.ASCII;
 	}
 	
 	public String getBlockHeaderText(long blockStartOffset){
 		return "<html><i>File type:</i>" + getFormatType() + "<br>Header block text is unavailable</html>";
 	}
 
-	/**
-	 * Shutdown future and executor
-	 */
-	private static void shutdownFuture(Future<?> task, ExecutorService executor) {
-		task.cancel(true);
-		executor.shutdownNow();
-	}
-
 	/**
 	 * Shutdown executor and linger tasks (if necessary)
 	 */
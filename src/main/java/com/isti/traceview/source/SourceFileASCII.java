@@ -1,27 +1,35 @@
 package com.isti.traceview.source;
 
+import com.isti.traceview.TraceViewException;
 import com.isti.traceview.data.DataModule;
 import com.isti.traceview.data.PlotDataProvider;
 import com.isti.traceview.data.Segment;
+import com.isti.traceview.data.ascii.AsciiBlock;
+import com.isti.traceview.data.ascii.AsciiFile;
+import com.isti.traceview.data.ascii.AsciiFormatException;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.io.Serializable;
-import java.sql.Date;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.apache.log4j.Logger;
 
+/**
+ * File ASCII data source, bdf or IRIS TIMESERIES with any number of blocks. Every block is a
+ * segment whose start offset is the file offset of its first sample.
+ */
 public class SourceFileASCII extends SourceFile implements Serializable {
 
   private static final long serialVersionUID = 1L;
   private static final Logger logger = Logger.getLogger(SourceFileASCII.class);
-  private static final DateTimeFormatter TIME_FMT = DateTimeFormatter
-      .ofPattern("yyyy,DDD,HH:mm:ss.SSSS").withZone(ZoneOffset.UTC);
+
+  // index of blocks, rebuilt by parse() and after deserialization
+  private transient AsciiFile index;
 
   /**
    * Constructor
@@ -33,80 +41,66 @@ public class SourceFileASCII extends SourceFile implements Serializable {
 
   @Override
   public Set<PlotDataProvider> parse() {
-    Set<PlotDataProvider> ret = new HashSet<>();
-    String network = "";
-    String station = "";
-    String location = "";
-    String channel = "";
-    double sampleInterval = 0.;
-    ZonedDateTime start = null;
-    int numberSamples = 0;
-    try {
-      RandomAccessFile file = new RandomAccessFile(getFile().getCanonicalPath(), "r");
-      String line;
-      int count = 0;
-      parseLoop:
-      while ((line = file.readLine()) != null) {
-        String header = line.substring(0, 4);
-        switch (header) {
-          case "NET ":
-            network = line.substring(4);
-            break;
-          case "STA ":
-            station = line.substring(4);
-            break;
-          case "LOC ":
-            location = line.substring(4);
-            break;
-          case "COMP":
-            channel = line.substring(4);
-            break;
-          case "RATE":
-            sampleInterval = 1000. / Double.parseDouble(line.substring(4));
-            break;
-          case "TIME":
-            start = ZonedDateTime.parse(line.substring(4), TIME_FMT);
-            break;
-          case "NSAM":
-            // there are probably spaces between NSAM and the actual value to parse in
-            // so let's trim off the front part of this substring
-            numberSamples = Integer.parseInt(line.substring(4).trim());
-            break;
-          case "DATA":
-            PlotDataProvider pdp = new PlotDataProvider(network,
-                DataModule.getOrAddStation(station), location, channel);
-            ret.add(pdp);
-            Segment segment = new Segment(this, file.getFilePointer(),
-                Date.from(start.toInstant()), sampleInterval, numberSamples, 0);
-            pdp.addSegment(segment);
-            break parseLoop; // TODO: skip past [numberSamples] lines to get additional data
+    Map<String, PlotDataProvider> channels = new LinkedHashMap<>();
+    try (FileChannelPool.PooledChannel channel = FileChannelPool.getShared().open(getFile())) {
+      AsciiFile ascii = AsciiFile.index(channel.channel());
+      synchronized (this) {
+        index = ascii;
+      }
+      for (AsciiBlock block : ascii.getBlocks()) {
+        String key = block.getNetwork() + "." + block.getStation() + "." + block.getLocation()
+            + "." + block.getChannel();
+        PlotDataProvider provider = channels.get(key);
+        if (provider == null) {
+          provider = new PlotDataProvider(block.getChannel(),
+              DataModule.getOrAddStation(block.getStation()), block.getNetwork(),
+              block.getLocation());
+          channels.put(key, provider);
         }
+        provider.addSegment(new Segment(this, block.getDataOffset(),
+            new Date(block.getStartTime()), block.getSampleInterval(), block.getSampleCount(), 0));
       }
-    } catch (IOException e) {
+    } catch (IOException | TraceViewException e) {
       logger.error("IO error: ", e);
     }
-    return ret;
+    return new HashSet<>(channels.values());
+  }
+
+  private synchronized AsciiFile getIndex(FileChannelPool.PooledChannel channel)
+      throws IOException, AsciiFormatException {
+    if (index == null) {
+      index = AsciiFile.index(channel.channel());
+    }
+    return index;
   }
 
   @Override
   public void load(Segment segment) {
-    RandomAccessFile dis = null;
-    try {
-      dis = new RandomAccessFile(getFile().getCanonicalPath(), "r");
-      dis.seek(segment.getStartOffset());
+    load(Collections.singletonList(segment));
+  }
 
-      String line = dis.readLine();
-      segment.addDataPoint(Integer.parseInt(line.trim()));
-      int charsToRead = line.length(); // assume all lines are of equal length
-      // also, we've already read in the first point we need to get -- start index at 1
-      for (int i = 1; i < segment.getSampleCount(); ++i) {
-        // remove any whitespace from the start of the line
-        segment.addDataPoint(Integer.parseInt(dis.readLine().trim()));
-      }
-    } catch (FileNotFoundException e) {
-      logger.error("File not found: ", e);
-    } catch (IOException e) {
-      logger.error("IO error: ", e);
+  // blocks are parsed in parallel, each by its own scanner with positional reads on the one
+  // pooled channel of the file
+  @Override
+  public void load(List<Segment> segments) {
+    try (FileChannelPool.PooledChannel channel = FileChannelPool.getShared().open(getFile())) {
+      AsciiFile ascii = getIndex(channel);
+      segments.parallelStream().forEach(segment -> {
+        AsciiBlock block = ascii.getBlock(segment.getStartOffset());
+        try {
+          if (block == null) {
+            throw new AsciiFormatException("No block at offset " + segment.getStartOffset()
+                + " of " + getFile().getName());
+          }
+          segment.setData(AsciiFile.read(channel.channel(), block));
+        } catch (IOException | TraceViewException e) {
+          logger.error("Can't load " + getFile().getName() + ": ", e);
+          throw new RuntimeException(e);
+        }
+      });
+    } catch (IOException | TraceViewException e) {
+      logger.error("Can't load " + getFile().getName() + ": ", e);
+      throw new RuntimeException(e);
     }
   }
 
@@ -114,4 +108,8 @@ public class SourceFileASCII extends SourceFile implements Serializable {
   public FormatType getFormatType() {
     return FormatType.ASCII;
   }
+
+  public String toString() {
+    return "SourceFileASCII: file " + (getFile() == null ? "absent" : getFile().getName()) + ";";
+  }
 }
@@ -4,20 +4,18 @@ import com.isti.traceview.data.DataModule;
 import com.isti.traceview.data.PlotDataProvider;
 import com.isti.traceview.data.Segment;
 import com.isti.traceview.data.ims.BlockSet;
-import com.isti.traceview.data.ims.DAT2;
 import com.isti.traceview.data.ims.DataType;
 import com.isti.traceview.data.ims.DataTypeWaveform;
 import com.isti.traceview.data.ims.IMSFile;
 import com.isti.traceview.data.ims.IMSFormatException;
-import com.isti.traceview.data.ims.STA2;
-import com.isti.traceview.data.ims.WID2;
+import com.isti.traceview.data.ims.IMSLineReader;
 import gov.usgs.anss.cd11.CanadaException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.text.ParseException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import org.apache.log4j.Logger;
 
@@ -33,21 +31,19 @@ public class SourceFileIMS extends SourceFile {
 	@Override
 	public Set<PlotDataProvider> parse() {
 		Set<PlotDataProvider> ret = new HashSet<>();
-		RandomAccessFile dis = null;
-		try {
-			dis = new RandomAccessFile(getFile().getCanonicalPath(), "r");
+		try (FileChannelPool.PooledChannel channel = FileChannelPool.getShared().open(getFile().getCanonicalFile())) {
 			if (getFile().length() > 0) {
-				//long currentOffset = dis.getFilePointer();
-				IMSFile ims = IMSFile.read(dis, true);
+				// data blocks are only skipped here, they are decoded by load()
+				IMSFile ims = IMSFile.read(new IMSLineReader(channel.channel(), 0), true);
 				for (DataType dataType : ims.getDataTypes()) {
 					if (dataType instanceof DataTypeWaveform) {
 						DataTypeWaveform dtw = (DataTypeWaveform) dataType;
 						for (BlockSet bs : dtw.getBlockSets()) {
-							PlotDataProvider channel = new PlotDataProvider(bs.getWID2().getChannel(), DataModule
+							PlotDataProvider channelProvider = new PlotDataProvider(bs.getWID2().getChannel(), DataModule
                   .getOrAddStation(bs.getWID2().getStation()), "", "");
-							ret.add(channel);
+							ret.add(channelProvider);
 							Segment segment = new Segment(this, bs.getStartOffset(), bs.getWID2().getStart(), 1000.0/bs.getWID2().getSampleRate(), bs.getWID2().getNumSamples(), 0);
-							channel.addSegment(segment);
+							channelProvider.addSegment(segment);
 						}
 					}
 				}
@@ -65,33 +61,27 @@ public class SourceFileIMS extends SourceFile {
 			logger.error("Parsing problems: ", e);
 		} catch (CanadaException e) {
 			logger.error("Canada decompression problems: ", e);
-		} finally {
-			try {
-				dis.close();
-			} catch (IOException e) {
-				logger.error("IOException:", e);	
-			}
 		}
 		return ret;
 	}
 
+	// each segment is one block set; block sets are independent, so they decode in parallel, each
+	// with its own reader over the pooled channel
+	@Override
+	public void load(List<Segment> segments) {
+		segments.parallelStream().forEach(this::load);
+	}
+
 	public void load(Segment segment) {
-		//int[] data = null;
-		RandomAccessFile dis = null;
-		try {
-			dis = new RandomAccessFile(getFile().getCanonicalPath(), "r");
+		try (FileChannelPool.PooledChannel channel = FileChannelPool.getShared().open(getFile().getCanonicalFile())) {
 			if (getFile().length() > 0) {
-				dis.seek(segment.getStartOffset());
-				WID2 wid2 = new WID2(segment.getStartOffset());
-				wid2.read(dis);
-				STA2 sta2 = new STA2(dis.getFilePointer());
-				sta2.read(dis);
-				DAT2 dat2 = new DAT2(dis.getFilePointer(), wid2);
-				dat2.read(dis);
-				for (int value : dat2.getData()) {
-					segment.addDataPoint(value);
+				BlockSet bs = new BlockSet();
+				bs.read(new IMSLineReader(channel.channel(), segment.getStartOffset()), false);
+				if (bs.getDAT2() == null) {
+					throw new IMSFormatException("No data block at offset " + segment.getStartOffset());
 				}
-
+				// samples are decoded straight into the array the segment keeps
+				segment.setData(bs.getDAT2().getData());
 			} else {
 				logger.error("File " + getFile().getCanonicalPath() + " has null length");
 			}
@@ -106,12 +96,6 @@ public class SourceFileIMS extends SourceFile {
 			logger.error("Parsing problems: ", e);
 		} catch (CanadaException e) {
 			logger.error("Canada decompression problems: ", e);
-		} finally {
-			try {
-				dis.close();
-			} catch (IOException e) {
-				logger.error("IOException:", e);	
-			}
 		}
 	}
 
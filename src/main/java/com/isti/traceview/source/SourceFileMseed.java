@@ -1,35 +1,40 @@
 package com.isti.traceview.source;
 
 import com.isti.traceview.TraceView;
+import com.isti.traceview.common.Configuration;
+import com.isti.traceview.common.SNCLFilter;
 import com.isti.traceview.common.TimeInterval;
 import com.isti.traceview.data.DataModule;
+import com.isti.traceview.data.ISampleStore;
 import com.isti.traceview.data.PlotDataProvider;
 import com.isti.traceview.data.RawDataProvider;
 import com.isti.traceview.data.Segment;
-import com.isti.traceview.data.SynchronizedSeedRecord;
-import edu.iris.Fissures.FissuresException;
-import edu.iris.Fissures.seismogramDC.LocalSeismogramImpl;
-import edu.sc.seis.fissuresUtil.mseed.FissuresConvert;
-import edu.sc.seis.seisFile.mseed.Blockette;
-import edu.sc.seis.seisFile.mseed.Blockette1000;
+import com.isti.traceview.data.mseed.CompressedSampleStore;
+import com.isti.traceview.data.mseed.CompressedSamples;
+import com.isti.traceview.data.mseed.MappedMseedFile;
+import com.isti.traceview.data.mseed.MseedFormatException;
+import com.isti.traceview.data.mseed.MseedRecordHeader;
+import com.isti.traceview.data.mseed.MseedRecordIndex;
 import edu.sc.seis.seisFile.mseed.Btime;
 import edu.sc.seis.seisFile.mseed.ControlHeader;
 import edu.sc.seis.seisFile.mseed.DataHeader;
 import edu.sc.seis.seisFile.mseed.DataRecord;
 import edu.sc.seis.seisFile.mseed.SeedFormatException;
 import edu.sc.seis.seisFile.mseed.SeedRecord;
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.apache.log4j.Logger;
@@ -45,9 +50,31 @@ public class SourceFileMseed extends SourceFile implements Serializable {
 
   private static final Logger logger = Logger.getLogger(SourceFileMseed.class);
 
+  private transient MappedMseedFile mapping = null;
+
+  // file offset up to which records were parsed
+  private transient long parsedLength = 0;
+
+  // time window of records to parse, epoch milliseconds
+  private final long windowStart;
+  private final long windowEnd;
+
   // -----
   public SourceFileMseed(File file) {
+    this(file, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Source parsing only records which overlap a time window, such as a day file of which a few
+   * hours are requested
+   *
+   * @param windowStart window start, epoch milliseconds
+   * @param windowEnd window end, epoch milliseconds
+   */
+  public SourceFileMseed(File file, long windowStart, long windowEnd) {
     super(file);
+    this.windowStart = windowStart;
+    this.windowEnd = windowEnd;
     logger.debug("Created: " + this);
   }
 
@@ -57,232 +84,332 @@ public class SourceFileMseed extends SourceFile implements Serializable {
 
   /**
    * Parses *.mseed files and creates channel segments based on start times this includes gappy data
-   * (i.e. new segment for each gap)
+   * (i.e. new segment for each gap). Record headers are read straight from the memory mapped file,
+   * or from the stored record index of the file if indexing is enabled and the file didn't change.
    */
   public synchronized Set<PlotDataProvider> parse() {
-    Map<String, PlotDataProvider> map = new HashMap<>();
-    long blockNumber = 0;
-    long endPointer = 0;
-    RandomAccessFile dis = null;
-    int segmentCountForDebug = 0;
-    int blockLength = TraceView.getConfiguration().getDefaultBlockLength();
-    try (DataInputStream temp = new DataInputStream(new FileInputStream(this.file))) {
-      outerloop:
-      while (true) {
-        SeedRecord sr = SeedRecord.read(temp, 4096);
-
-        Blockette[] blockettes = sr.getBlockettes(1000);
-        for (Blockette blockette : blockettes) {
-          Blockette1000 b1000 = (Blockette1000) blockette;
-          blockLength = b1000.getDataRecordLength();
-          break outerloop;
-        }
+    Set<PlotDataProvider> channels = new HashSet<>();
+    try {
+      if (getFile().length() == 0) {
+        logger.error("File " + getFile().getCanonicalPath() + " has null length");
+        setParsed(true);
+        return channels;
       }
-    } catch (IOException | SeedFormatException e) {
-      e.printStackTrace();
+      MseedRecordIndex index = getRecordIndex();
+      channels = toChannels(index);
+      parsedLength = index.getEndOffset();
+    } catch (FileNotFoundException e) {
+      logger.error("File not found: ", e);
+    } catch (IOException e) {
+      logger.error("IO error: ", e);
     }
+    setParsed(true);
+    return channels;
+  }
 
+  /**
+   * Parses records appended to the file since the last parse, for files which grow while they
+   * are shown. Only the appended part of the file is scanned. A trailing partial record is left
+   * for a later call, once it is written completely.
+   *
+   * @return channels holding segments of the appended records only, to be merged into the
+   * channels of earlier parses; empty if nothing was appended or the file was truncated or
+   * replaced, which needs a full reload
+   */
+  public synchronized Set<PlotDataProvider> parseAppended() {
     try {
-      dis = new RandomAccessFile(getFile().getCanonicalPath(), "r");
-      double sampleRate;
-      long segmentStartTime;
-      try {
-        if (getFile().length() > 0) {
-          while (true) {
-            // parsing until we get an exception isn't ideal but how the example seisfile case
-            // was implemented
-            long currentOffset = dis.getFilePointer();
-            SeedRecord sr = SynchronizedSeedRecord
-                .read(dis, blockLength);
-            if (sr instanceof DataRecord) {
-              DataHeader dh = (DataHeader) sr.getControlHeader();
+      long length = getFile().length();
+      if (length < parsedLength) {
+        logger.warn("File " + getFile() + " shrank from " + parsedLength + " to " + length
+            + " bytes, it needs to be reloaded");
+        return new HashSet<>();
+      }
+      if (length == parsedLength) {
+        return new HashSet<>();
+      }
+      MseedRecordIndex index = scan(getMapping(), parsedLength,
+          TraceView.getConfiguration().getSNCLFilter());
+      logger.debug(this + ": " + index.size() + " records appended after offset "
+          + parsedLength);
+      parsedLength = index.getEndOffset();
+      return toChannels(index);
+    } catch (IOException e) {
+      logger.error("Can't parse data appended to " + this + ": ", e);
+      return new HashSet<>();
+    }
+  }
 
-              // exclude blocks that don't actually have any timeseries data in them
-              if (dh.getNumSamples() > 0) {
-                // our goals here:
-                // - if the channel does not pass filters, skip this record
-                // - if the channel specified here doesn't exist, create a new channel
-                // - add the current data segment to the channel
-                if (!matchFilters(dh.getNetworkCode(), dh.getStationIdentifier(),
-                    dh.getLocationIdentifier(), dh.getChannelIdentifier())) {
-                  continue; // skip record -- it's not going to be loaded in
-                }
+  /**
+   * Builds channels from indexed records which overlap the time window of the source, one segment
+   * per record. Configured filters are checked once per SNCL of the index rather than once per
+   * record.
+   */
+  private Set<PlotDataProvider> toChannels(MseedRecordIndex index) {
+    SNCLFilter filter = TraceView.getConfiguration().getSNCLFilter();
+    Map<String, PlotDataProvider> map = new HashMap<>();
+    // channel of each SNCL of the index, null if it doesn't pass filters
+    PlotDataProvider[] snclChannels = new PlotDataProvider[index.getSNCLCount()];
+    boolean[] snclChecked = new boolean[index.getSNCLCount()];
+    for (int i = 0; i < index.size(); i++) {
+      // our goals here:
+      // - if the channel does not pass filters, skip this record
+      // - if the channel specified here doesn't exist, create a new channel
+      // - add the current data segment to the channel
+      long startTime = index.getStartTime(i);
+      if (startTime > windowEnd || startTime
+          + index.getSampleCount(i) * index.getSampleInterval(i) < windowStart) {
+        continue; // record outside of the time window
+      }
+      int sncl = index.getSNCL(i);
+      if (!snclChecked[sncl]) {
+        snclChecked[sncl] = true;
+        if (filter.matches(index.getNetworkCode(i), index.getStationIdentifier(i),
+            index.getLocationIdentifier(i), index.getChannelIdentifier(i))) {
+          snclChannels[sncl] = getChannel(map, index, i);
+        }
+      }
+      PlotDataProvider currentChannel = snclChannels[sncl];
+      if (currentChannel == null) {
+        continue; // skip record -- it's not going to be loaded in
+      }
+      addSegment(currentChannel, index.getOffset(i), index.getSampleInterval(i),
+          currentChannel.getSegmentCount(), index.getSampleCount(i), index.getStartTime(i));
+    }
+    return new HashSet<>(map.values());
+  }
 
+  /**
+   * @return channel of an indexed record, created if absent
+   */
+  private static PlotDataProvider getChannel(Map<String, PlotDataProvider> map,
+      MseedRecordIndex index, int record) {
+    String key = index.getChannelIdentifier(record) + "."
+        + DataModule.getOrAddStation(index.getStationIdentifier(record).trim()).toString()
+        + "." + index.getNetworkCode(record) + "." + index.getLocationIdentifier(record);
+    PlotDataProvider channel = map.get(key);
+    if (channel == null) {
+      channel = new PlotDataProvider(index.getChannelIdentifier(record),
+          DataModule.getOrAddStation(index.getStationIdentifier(record)),
+          index.getNetworkCode(record), index.getLocationIdentifier(record));
+      map.put(key, channel);
+    }
+    return channel;
+  }
 
-                String key = dh.getChannelIdentifier() + "."
-                    + DataModule.getOrAddStation(dh.getStationIdentifier().trim()).toString()
-                    + "." + dh.getNetworkCode() + "." + dh.getLocationIdentifier();
-                if (!map.containsKey(key)) {
-                  map.put(key, new PlotDataProvider(dh.getChannelIdentifier(),
-                      DataModule.getOrAddStation(dh.getStationIdentifier()), dh.getNetworkCode(),
-                      dh.getLocationIdentifier()));
-                }
-                PlotDataProvider currentChannel = map.get(key);
+  /**
+   * Reads stored record index of the file if indexing is enabled and the index is up to date;
+   * otherwise scans the mapped file and stores the resulting index
+   */
+  private MseedRecordIndex getRecordIndex() throws IOException {
+    Configuration conf = TraceView.getConfiguration();
+    File indexDirectory = conf.getUseRecordIndex() ? new File(conf.getRecordIndexPath()) : null;
+    if (indexDirectory != null) {
+      MseedRecordIndex index = MseedRecordIndex.read(indexDirectory, getFile());
+      if (index != null) {
+        logger.debug(this + ": " + index.size() + " records read from index");
+        return index;
+      }
+    }
+    // a stored index must hold every record, as filters may differ the next time it is read
+    MseedRecordIndex index = scan(getMapping(), 0,
+        indexDirectory != null ? SNCLFilter.ALL : conf.getSNCLFilter());
+    if (indexDirectory != null && index.isComplete()) {
+      try {
+        index.write(indexDirectory);
+      } catch (IOException e) {
+        logger.warn("Can't store record index of " + this + ": " + e);
+      }
+    }
+    return index;
+  }
 
-                sampleRate = 1000.0 / dh.calcSampleRateFromMultipilerFactor();
-                segmentStartTime = getBlockStartTime(dh);
+  /**
+   * Scans record headers of the mapped file
+   *
+   * @param mapped mapping of the file
+   * @param fromOffset offset of the first record to scan
+   * @param filter filter of records to index
+   * @return index of data records holding samples
+   */
+  protected MseedRecordIndex scan(MappedMseedFile mapped, long fromOffset, SNCLFilter filter)
+      throws IOException {
+    return MseedRecordIndex.scan(getFile().getCanonicalPath(), mapped,
+        TraceView.getConfiguration().getDefaultBlockLength(), fromOffset, filter);
+  }
 
-                addSegment(currentChannel, currentOffset, sampleRate,
-                    currentChannel.getSegmentCount(), dh.getNumSamples(),
-                    segmentStartTime);
-                ++segmentCountForDebug;
-              } else {
-                logger.debug("Skipping 0-length block #" + blockNumber);
-              }
-            } else {
-              logger.error("Block # " + blockNumber + " is not a data record");
-            }
-          }
-        } else {
-          logger.error("File " + getFile().getCanonicalPath() + " has null length");
-        }
-      } catch (EOFException ex) {
-        logger.debug("EOF: " + ex.getMessage());
-        logger.debug("Read " + blockNumber + " blocks");
+  /**
+   * @return memory mapping of the file, made again if the file changed since it was mapped
+   */
+  protected synchronized MappedMseedFile getMapping() throws IOException {
+    File canonical = getFile().getCanonicalFile();
+    if (mapping == null || mapping.length() != canonical.length()
+        || mapping.lastModified() != canonical.lastModified()) {
+      try (FileChannelPool.PooledChannel channel = FileChannelPool.getShared().open(canonical)) {
+        mapping = new MappedMseedFile(channel.channel(), canonical.lastModified());
       }
+    }
+    return mapping;
+  }
+
+  // Loads current segment from RawDataProvider (this will be multithreaded)
+  // record headers and payloads are read from the shared memory mapping of the file, so segments
+  // of the same file load concurrently without reopening it
+  public void load(Segment segment) {
+    load(Collections.singletonList(segment));
+  }
+
+  // Loads segments in file order in one pass over the mapping: a segment starting where the
+  // previous one ended continues the same sequential read
+  @Override
+  public void load(List<Segment> segments) {
+    List<Segment> ordered = new ArrayList<>(segments);
+    ordered.sort(Comparator.comparingLong(Segment::getStartOffset));
+    MappedMseedFile mapped = null;
+    try {
+      mapped = getMapping();
     } catch (FileNotFoundException e) {
-      logger.error("File not found: ", e);
+      logger.error("Can't find file: ", e);
+      System.exit(0);
     } catch (IOException e) {
-      logger.error("IO error: ", e);
-    } catch (SeedFormatException e) {
-      logger.error("Wrong mseed file format: ", e);
-    } finally {
-      try {
-        if (dis != null) {
-          endPointer = dis.getFilePointer();
-          dis.close();
-        }
-      } catch (IOException e) {
-        logger.error("IOException:", e);
+      logger.error(this + " Can't map file: ", e);
+      System.exit(0);
+    }
+    long endOffset = -1;
+    int runs = 0;
+    for (Segment segment : ordered) {
+      if (segment.getStartOffset() != endOffset) {
+        runs++;
       }
+      endOffset = load(mapped, segment);
     }
-    logger.debug(this + " end position " + endPointer);
-    setParsed(true);
-    return new HashSet<>(map.values());
+    logger.debug(this + ": loaded " + ordered.size() + " segments in " + runs
+        + " sequential reads");
   }
 
-  // Loads current segment from RawDataProvider (this will be multithreaded)
-  public synchronized void load(Segment segment) {
+  /**
+   * Decodes records of one segment. With {@link CompressedSampleStore} data sections of records
+   * are kept still encoded instead.
+   *
+   * @return file offset after the last record of the segment
+   */
+  protected long load(MappedMseedFile mapped, Segment segment) {
     logger.debug(this + " " + segment);
+    MseedRecordHeader header = new MseedRecordHeader();
 
     int segmentSampleCount = segment.getSampleCount();  // sample count of current segment
-    int[] data = new int[segmentSampleCount];  // testing for memory usage
-    RandomAccessFile dis = null;
+    CompressedSamples.Builder compressed = newCompressedBuilder();
+    // samples are decoded straight into the array the segment keeps
+    int[] data = compressed == null ? new int[segmentSampleCount] : null;
     int currentSampleCount = 0; //Counter on the basis of data values
     int headerSampleCount = 0; //Counter on the basis of header information
     int drSampleCount;    //Counter on current DataRecord
     int blockNumber = 0;
+    long offset = segment.getStartOffset();
+    int defaultBlockLength = TraceView.getConfiguration().getDefaultBlockLength();
+    int defaultCompression = TraceView.getConfiguration().getDefaultCompression();
     try {
-      logger.debug("source = " + getFile().getCanonicalPath());
-      dis = new RandomAccessFile(getFile().getCanonicalPath(), "r");
-      dis.seek(segment.getStartOffset());
-      logger.debug(this + " " + segment + " Beginning position:" + dis.getFilePointer());
+      logger.debug(this + " " + segment + " Beginning position:" + offset);
       while (currentSampleCount < segmentSampleCount) {
-        long blockStartOffset = dis.getFilePointer();
-        SeedRecord sr = SynchronizedSeedRecord
-            .read(dis, TraceView.getConfiguration().getDefaultBlockLength());
+        if (!mapped.readHeader(offset, defaultBlockLength, header)) {
+          throw new MseedFormatException("No valid record header at offset " + offset
+              + ", sampleCount read " + currentSampleCount + ", samples from headers "
+              + headerSampleCount + ", blocks read " + blockNumber);
+        }
+        long blockStartOffset = offset;
+        offset += header.getRecordLength();
         blockNumber++;
-        if (sr instanceof DataRecord) {
-          DataRecord dr = (DataRecord) sr;
-          drSampleCount = dr.getHeader().getNumSamples();  // current DataRecord sample count
+        if (header.isDataRecord()) {
+          drSampleCount = header.getNumSamples();  // current DataRecord sample count
           headerSampleCount += drSampleCount;  // total sample count from all headers
-          segment.addBlockDescription(getBlockStartTime(dr.getHeader()), blockStartOffset);
+          segment.addBlockDescription(header.getStartTime(), blockStartOffset);
           if (drSampleCount > 0) {
-            LocalSeismogramImpl lsi; // stores seed data as seis id, num samples, sample rate
-            // channel id, and byte[] data (EncodedData)
-            int[] intData = new int[drSampleCount];  // testing memory usage for normal array[]
+            int count = Math.min(drSampleCount, segmentSampleCount - currentSampleCount);
+            if (count < drSampleCount) {
+              logger.warn("currentSampleCount > segmentSampleCount: "
+                  + (currentSampleCount + drSampleCount) + ", " + segmentSampleCount
+                  + "block " + header.getSequenceNumber());
+            }
+            // records without blockette 1000 are decoded as configured, big endian
+            int encoding = header.hasBlockette1000() ? header.getEncoding() : defaultCompression;
             try {
-              if (dr.getBlockettes(1000).length == 0) {
-                DataRecord[] dra = new DataRecord[1];
-                dra[0] = dr;
-                int defaultCompression = TraceView.getConfiguration().getDefaultCompression();
-                byte dataCompression = (byte) defaultCompression;
-                byte byteOrder = (byte) 1;  // big endian byte order
-
-                // Time Fissures, this is taking awhile to convert
-                lsi = FissuresConvert.toFissures(dra, dataCompression, byteOrder);
+              if (compressed == null) {
+                mapped.decode(blockStartOffset, header, encoding, count, data, currentSampleCount);
               } else {
-                // Time Fissures conversion
-                lsi = FissuresConvert.toFissures(dr);  // set LocalSeismogramImpl
+                mapped.append(blockStartOffset, header, encoding, count, compressed);
               }
-              //intData = lsi.get_as_longs();	// testing for memory leaks using array[]
-              double[] tempData;
-              tempData = lsi.get_as_doubles();
-							for (int i = 0; i < intData.length; i++) {
-								intData[i] = (int) tempData[i];
-							}
-            } catch (FissuresException fe) {
+            } catch (MseedFormatException e) {
               logger.error(
                   ("File " + getFile().getName() + ": Can't decompress data of block " +
-                      dr.getHeader().getSequenceNum() + ", setting block data to 0: "),
-                  fe);
-              Arrays.fill(intData, 0);
-            }
-            // Test int[] array for memory leaks
-            for (int sample : intData) {
-              if (currentSampleCount < segment.getSampleCount()) {
-                data[currentSampleCount++] = sample;
+                      header.getSequenceNumber() + ", setting block data to 0: "), e);
+              if (compressed == null) {
+                Arrays.fill(data, currentSampleCount, currentSampleCount + count, 0);
               } else {
-                logger.warn("currentSampleCount > segmentSampleCount: " + currentSampleCount + ", "
-                    + segmentSampleCount + "block " + sr.getControlHeader().getSequenceNum());
+                compressed.addZeros(count);
               }
             }
+            currentSampleCount += count;
           } else {
-            logger.warn("File " + getFile().getName() + ": Skipping block " + dr.getHeader()
-                .getSequenceNum() + " due to absence of data");
+            logger.warn("File " + getFile().getName() + ": Skipping block "
+                + header.getSequenceNumber() + " due to absence of data");
           }
         } else {
-          logger.warn("File " + getFile().getName() + ": Skipping block " + sr.getControlHeader()
-              .getSequenceNum() + " so as no-data record");
+          logger.warn("File " + getFile().getName() + ": Skipping block "
+              + header.getSequenceNumber() + " so as no-data record");
         }
       }
-    } catch (FileNotFoundException e) {
-      logger.error("Can't find file: ", e);
-      System.exit(0);
-    } catch (IOException e) {
-      StringBuilder message = new StringBuilder();
-      try {
-        message.append(this).append(" ").append(segment).append(" Ending position ")
-            .append(dis != null ? dis.getFilePointer() : 0).append(", sampleCount read")
-            .append(currentSampleCount)
-            .append(", samples from headers ").append(headerSampleCount).append(", blocks read ")
-            .append(blockNumber);
-        logger.error(message.toString(), e);
-      } catch (IOException eIO) {
-        logger.error("IOException:", eIO);
-      }
-      System.exit(0);
-    } catch (SeedFormatException e) {
+    } catch (MseedFormatException e) {
       logger.error("Wrong seed format: ", e);
       System.exit(0);
-    } finally {
-      try {
-				if (dis != null) {
-					dis.close();
-				}
-      } catch (IOException e) {
-        logger.error("IOException:", e);
+    }
+    setData(segment, data, compressed, currentSampleCount);
+    return offset;
+  }
+
+  /**
+   * @return builder of still compressed segment data if the sample store keeps it so, null
+   * otherwise
+   */
+  protected static CompressedSamples.Builder newCompressedBuilder() {
+    ISampleStore store = Segment.getSampleStore();
+    return store instanceof CompressedSampleStore ? ((CompressedSampleStore) store).newBuilder()
+        : null;
+  }
+
+  /**
+   * Sets loaded data of a segment, either decoded or still compressed
+   *
+   * @param data decoded samples, used if compressed is null
+   * @param compressed compressed samples
+   * @param loadedSampleCount count of samples read from records; missing ones are 0
+   */
+  protected static void setData(Segment segment, int[] data, CompressedSamples.Builder compressed,
+      int loadedSampleCount) {
+    if (compressed == null) {
+      segment.setData(data);
+    } else {
+      if (loadedSampleCount < segment.getSampleCount()) {
+        compressed.addZeros(segment.getSampleCount() - loadedSampleCount);
       }
+      segment.setSamples(compressed.build(), compressed.getMinValue(),
+          compressed.getMaxValue());
     }
-    // Test int[] array adding
-		for (int value : data) {
-			segment.addDataPoint(value);
-		}
   }
 
   public String toString() {
     return "MseedRawDataProvider: file " + (getFile() == null ? "absent" : getFile().getName());
   }
 
-  public synchronized String getBlockHeaderText(long blockStartOffset) {
-    RandomAccessFile dis = null;
+  public String getBlockHeaderText(long blockStartOffset) {
     String ret = "<html><i>File type:</i>" + this.getFormatType();
     try {
-      dis = new RandomAccessFile(getFile().getCanonicalPath(), "r");
-      dis.seek(blockStartOffset);
-      //FileInputStream d = null;
-      SeedRecord sr = SynchronizedSeedRecord
-          .read(dis, TraceView.getConfiguration().getDefaultBlockLength());
+      MappedMseedFile mapped = getMapping();
+      int defaultBlockLength = TraceView.getConfiguration().getDefaultBlockLength();
+      MseedRecordHeader header = new MseedRecordHeader();
+      if (!mapped.readRecordLength(blockStartOffset, defaultBlockLength, header)) {
+        throw new SeedFormatException("No valid record header at offset " + blockStartOffset);
+      }
+      SeedRecord sr = SeedRecord.read(new DataInputStream(new ByteArrayInputStream(
+          mapped.copy(blockStartOffset, header.getRecordLength()))), defaultBlockLength);
       ControlHeader ch;
       ch = sr.getControlHeader();
       //ret = ret + "<br><i>Query time: </i> " + TimeInterval.formatDate(new Date(time), TimeInterval.DateFormatType.DATE_FORMAT_MIDDLE);
@@ -317,14 +444,6 @@ public class SourceFileMseed extends SourceFile implements Serializable {
     } catch (SeedFormatException e) {
       logger.error("SeedFormatException:", e);
       ret = ret + "<br>Header block text is unavailable";
-    } finally {
-      try {
-				if (dis != null) {
-					dis.close();
-				}
-      } catch (IOException e) {
-        logger.error("IOException:", e);
-      }
     }
 
     return ret + "</html>";
@@ -0,0 +1,130 @@
+package com.isti.traceview.source;
+
+import com.isti.traceview.common.SNCLFilter;
+import com.isti.traceview.common.TimeInterval;
+import com.isti.traceview.data.Segment;
+import com.isti.traceview.data.mseed.CompressedSamples;
+import com.isti.traceview.data.mseed.MappedMseedFile;
+import com.isti.traceview.data.mseed.Mseed3RecordHeader;
+import com.isti.traceview.data.mseed.MseedFormatException;
+import com.isti.traceview.data.mseed.MseedRecordIndex;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import org.apache.log4j.Logger;
+
+/**
+ * File miniSEED 3 data source. Records are indexed and loaded the same way as miniSEED 2 ones,
+ * see {@link SourceFileMseed}: headers are scanned from the memory mapped file into a record
+ * index, each record becomes a segment, and samples are decoded from the mapping when a segment
+ * is loaded. Record CRCs are checked at load time, so a scan reads headers only.
+ */
+public class SourceFileMseed3 extends SourceFileMseed {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Logger logger = Logger.getLogger(SourceFileMseed3.class);
+
+  public SourceFileMseed3(File file) {
+    super(file);
+  }
+
+  /**
+   * Source parsing only records which overlap a time window
+   *
+   * @param windowStart window start, epoch milliseconds
+   * @param windowEnd window end, epoch milliseconds
+   */
+  public SourceFileMseed3(File file, long windowStart, long windowEnd) {
+    super(file, windowStart, windowEnd);
+  }
+
+  @Override
+  public FormatType getFormatType() {
+    return FormatType.MSEED3;
+  }
+
+  @Override
+  protected MseedRecordIndex scan(MappedMseedFile mapped, long fromOffset, SNCLFilter filter)
+      throws IOException {
+    return MseedRecordIndex.scan3(getFile().getCanonicalPath(), mapped, fromOffset, filter);
+  }
+
+  /**
+   * Decodes records of one segment, or keeps them compressed, see {@link
+   * SourceFileMseed#load(MappedMseedFile, Segment)}. Samples of records which fail CRC check or
+   * can't be decoded are set to 0.
+   *
+   * @return file offset after the last record of the segment
+   */
+  @Override
+  protected long load(MappedMseedFile mapped, Segment segment) {
+    logger.debug(this + " " + segment);
+    Mseed3RecordHeader header = new Mseed3RecordHeader();
+    int segmentSampleCount = segment.getSampleCount();
+    CompressedSamples.Builder compressed = newCompressedBuilder();
+    // samples are decoded straight into the array the segment keeps
+    int[] data = compressed == null ? new int[segmentSampleCount] : null;
+    int currentSampleCount = 0;
+    long offset = segment.getStartOffset();
+    while (currentSampleCount < segmentSampleCount) {
+      if (!mapped.readHeader(offset, header)) {
+        logger.error("File " + getFile().getName() + ": no valid record header at offset "
+            + offset + ", " + currentSampleCount + " of " + segmentSampleCount
+            + " samples read");
+        break;
+      }
+      long recordOffset = offset;
+      offset += header.getRecordLength();
+      segment.addBlockDescription(header.getStartTime(), recordOffset);
+      int count = Math.min(header.getNumSamples(), segmentSampleCount - currentSampleCount);
+      try {
+        if (compressed == null) {
+          mapped.decode(recordOffset, header, count, data, currentSampleCount);
+        } else {
+          mapped.append(recordOffset, header, count, compressed);
+        }
+      } catch (MseedFormatException e) {
+        logger.error("File " + getFile().getName() + ": Can't decode record at offset "
+            + recordOffset + ", setting record data to 0: ", e);
+        if (compressed == null) {
+          Arrays.fill(data, currentSampleCount, currentSampleCount + count, 0);
+        } else {
+          compressed.addZeros(count);
+        }
+      }
+      currentSampleCount += count;
+    }
+    setData(segment, data, compressed, currentSampleCount);
+    return offset;
+  }
+
+  public String toString() {
+    return "Mseed3RawDataProvider: file " + (getFile() == null ? "absent" : getFile().getName());
+  }
+
+  public String getBlockHeaderText(long blockStartOffset) {
+    String ret = "<html><i>File type:</i>" + getFormatType();
+    try {
+      MappedMseedFile mapped = getMapping();
+      Mseed3RecordHeader header = new Mseed3RecordHeader();
+      if (mapped.readHeader(blockStartOffset, header)) {
+        ret = ret + "<br><i>Source identifier:</i> " + header.getSourceIdentifier()
+            + "<br><i>Record length:</i> " + header.getRecordLength()
+            + "<br><i>Start time:</i> " + TimeInterval.formatDate(
+            new Date(header.getStartTime()), TimeInterval.DateFormatType.DATE_FORMAT_NORMAL)
+            + "<br><i>Num samples:</i> " + header.getNumSamples()
+            + "<br><i>Sample rate:</i> " + header.getSampleRateHz()
+            + "<br><i>Encoding:</i> " + header.getEncoding()
+            + "<br><i>Data offset:</i> " + header.getDataOffset();
+      } else {
+        ret = ret + "<br>Header block text is unavailable";
+      }
+    } catch (IOException e) {
+      logger.error("IOException:", e);
+      ret = ret + "<br>Header block text is unavailable";
+    }
+    return ret + "</html>";
+  }
+}
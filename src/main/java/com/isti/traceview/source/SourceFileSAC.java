@@ -1,21 +1,25 @@
 package com.isti.traceview.source;
 
-import static edu.sc.seis.seisFile.sac.SacConstants.data_offset;
-
 import com.isti.traceview.TraceView;
+import com.isti.traceview.TraceViewException;
 import com.isti.traceview.data.DataModule;
 import com.isti.traceview.data.PlotDataProvider;
 import com.isti.traceview.data.Segment;
+import com.isti.traceview.data.sac.SacFile;
+import com.isti.traceview.data.sac.SacFormatException;
 import edu.iris.Fissures.Time;
-import edu.sc.seis.seisFile.sac.SacTimeSeries;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.TimeZone;
 import org.apache.log4j.Logger;
@@ -28,6 +32,10 @@ public class SourceFileSAC extends SourceFile implements Serializable {
 	static {
 		fissTime.setTimeZone(TimeZone.getTimeZone("GMT"));
 	}
+
+	// header of the file, read by parse() and again after deserialization
+	private transient SacFile header;
+
 	public SourceFileSAC(File file) {
 		super(file);
 		logger.debug("Created: " + this);
@@ -39,47 +47,59 @@ public class SourceFileSAC extends SourceFile implements Serializable {
 
 	public Set<PlotDataProvider> parse() {
 		Set<PlotDataProvider> ret = new HashSet<>();
-		try {
-			SacTimeSeries sac = new SacTimeSeries();
-
-			sac.read(getFile().getCanonicalPath());
-			if (getFile().length() != sac.getHeader().getNpts() * 4 + data_offset) {
-				throw new IOException(getFile().getName() + " does not appear to be a SAC file!");
-			} 
-			// sac.read(getFile());
-			String loc="";
-			if(sac.getHeader().getKinst().trim().equals("-12345")){
-				loc = sac.getHeader().getKhole().trim();
-			} else {
-				loc = sac.getHeader().getKhole().trim();
+		try (FileChannelPool.PooledChannel channel = FileChannelPool.getShared().open(getFile())) {
+			SacFile sac = SacFile.read(channel.channel());
+			synchronized (this) {
+				header = sac;
 			}
-			PlotDataProvider channel = new PlotDataProvider(sac.getHeader().getKcmpnm(), DataModule
-          .getOrAddStation(sac.getHeader().getKstnm()), sac.getHeader().getKnetwk(), loc);
-			ret.add(channel);
-			Segment segment = new Segment(this, 0, new Date(getSACtime(sac)), sac.getHeader().getDelta() * 1000, sac.getHeader().getNpts(), 0);
-			channel.addSegment(segment);
-		} catch (IOException e) {
+			String loc = sac.getKhole();
+			PlotDataProvider provider = new PlotDataProvider(sac.getKcmpnm(), DataModule
+					.getOrAddStation(sac.getKstnm()), sac.getKnetwk(), loc);
+			ret.add(provider);
+			Segment segment = new Segment(this, 0, new Date(getSACtime(sac)), sac.getDelta() * 1000, sac.getNpts(), 0);
+			provider.addSegment(segment);
+		} catch (IOException | TraceViewException e) {
 			logger.error("IO error: ", e);
-		} 
+		}
 		return ret;
 	}
-	
+
+	private synchronized SacFile getHeader(FileChannelPool.PooledChannel channel)
+			throws IOException, SacFormatException {
+		if (header == null) {
+			header = SacFile.read(channel.channel());
+		}
+		return header;
+	}
+
 	public void load(Segment segment){
-		int[] data = null;
-		try {
-			SacTimeSeries sac = new SacTimeSeries();
-			sac.read(getFile());
-			data = new int[segment.getSampleCount()];
-			int i = 0;
-			for (float val: sac.getY()) {
-				data[i++]=new Float(val).intValue();
-			} 
-		} catch (IOException e) {
+		load(Collections.singletonList(segment));
+	}
+
+	// the start offset of a segment is the index of its first sample, so only the samples of the
+	// segment are mapped and copied
+	public void load(List<Segment> segments) {
+		List<Segment> sorted = new ArrayList<>(segments);
+		sorted.sort(Comparator.comparingLong(Segment::getStartOffset));
+		try (FileChannelPool.PooledChannel channel = FileChannelPool.getShared().open(getFile())) {
+			SacFile sac = getHeader(channel);
+			float[] values = new float[0];
+			for (Segment segment : sorted) {
+				int count = segment.getSampleCount();
+				if (values.length < count) {
+					values = new float[count];
+				}
+				sac.read(channel.channel(), (int) segment.getStartOffset(), count, values, 0);
+				int[] data = new int[count];
+				for (int i = 0; i < count; i++) {
+					data[i] = Math.round(values[i]);
+				}
+				segment.setData(data);
+			}
+		} catch (IOException | TraceViewException e) {
+			logger.error("Can't load " + getFile().getName() + ": ", e);
 			throw new RuntimeException(e);
 		}
-		for (int value: data) {
-			segment.addDataPoint(value);
-		}
 	}
 	
 	public String toString() {
@@ -90,14 +110,14 @@ public class SourceFileSAC extends SourceFile implements Serializable {
 		return new Time(fissTime.format(new Date(time)), 0); 
 	}
 
-	private static long getSACtime(SacTimeSeries sac) {
+	private static long getSACtime(SacFile sac) {
 		GregorianCalendar cal = new GregorianCalendar(TraceView.timeZone);
-		cal.set(Calendar.YEAR, sac.getHeader().getNzyear());
-		cal.set(Calendar.DAY_OF_YEAR, sac.getHeader().getNzjday());
-		cal.set(Calendar.HOUR_OF_DAY, sac.getHeader().getNzhour());
-		cal.set(Calendar.MINUTE, sac.getHeader().getNzmin());
-		cal.set(Calendar.SECOND, sac.getHeader().getNzsec());
-		cal.set(Calendar.MILLISECOND, sac.getHeader().getNzmsec());
+		cal.set(Calendar.YEAR, sac.getNzyear());
+		cal.set(Calendar.DAY_OF_YEAR, sac.getNzjday());
+		cal.set(Calendar.HOUR_OF_DAY, sac.getNzhour());
+		cal.set(Calendar.MINUTE, sac.getNzmin());
+		cal.set(Calendar.SECOND, sac.getNzsec());
+		cal.set(Calendar.MILLISECOND, sac.getNzmsec());
 		return cal.getTimeInMillis();
 	}
 }
@@ -3,23 +3,35 @@ package com.isti.traceview.source;
 import com.isti.traceview.data.DataModule;
 import com.isti.traceview.data.PlotDataProvider;
 import com.isti.traceview.data.Segment;
-import edu.sc.seis.seisFile.segd.ChannelSet;
-import edu.sc.seis.seisFile.segd.ScanType;
-import edu.sc.seis.seisFile.segd.SegdRecord;
-import edu.sc.seis.seisFile.segd.Trace;
+import com.isti.traceview.data.segd.SegdTraceIndex;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.apache.log4j.Logger;
 
-
+/**
+ * File SEG-D data source. Traces of all records of the file are indexed once by parse(), and
+ * segments load with positional reads of the trace data through the shared channel pool, so
+ * concurrent loads don't serialize on a stream and don't walk the record structure again.
+ */
 public class SourceFileSEGD extends SourceFile implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 	private static final Logger logger = Logger.getLogger(SourceFileSEGD.class);
 	private final int NORM_AMPLITUDE =100000;
+
+	// trace header index, kept with the source so loads don't read headers again
+	private SegdTraceIndex index;
 	
 	public SourceFileSEGD(File file) {
 		super(file);
@@ -33,63 +45,103 @@ public class SourceFileSEGD extends SourceFile implements Serializable {
 	
 	@Override
 	public Set<PlotDataProvider> parse() {
-		Set<PlotDataProvider> ret = new HashSet<>();
+		Map<String, PlotDataProvider> channels = new LinkedHashMap<>();
 		try {
-			SegdRecord segd = new SegdRecord(getFile());
-			segd.readHeaders();
-			for(ScanType st: segd.getScanTypes()){
-				for(ChannelSet cs:st.getChannelSets()){
-					for(Trace trace: cs.getTraces()){
-						PlotDataProvider channel = new PlotDataProvider("Z",									//Channel
-								DataModule.getOrAddStation(Double.toString(trace.getReceiverLineNumber())),	//Station ID
-								Integer.toString(segd.getManufacturerCode()),									//Network ID
-								Double.toString(trace.getReceiverPointNumber()));								//Location
-						ret.add(channel);
-						Segment segment = new Segment(this, trace.getDataOffset(), trace.getTimeRange().getStartTime(), segd.getBaseScanInterval(), trace.getSamplesNumber(), 0);
-						channel.addSegment(segment);						
-					}
+			SegdTraceIndex segd = SegdTraceIndex.build(getFile());
+			synchronized (this) {
+				index = segd;
+			}
+			for (SegdTraceIndex.Entry trace : segd.getEntries()) {
+				String station = Double.toString(trace.getReceiverLineNumber());
+				String network = Integer.toString(trace.getManufacturerCode());
+				String location = Double.toString(trace.getReceiverPointNumber());
+				// the same receiver records a trace in every record of the file
+				String key = network + "." + station + "." + location;
+				PlotDataProvider channel = channels.get(key);
+				if (channel == null) {
+					channel = new PlotDataProvider("Z",	//Channel
+							DataModule.getOrAddStation(station),	//Station ID
+							network,	//Network ID
+							location);	//Location
+					channels.put(key, channel);
 				}
+				Segment segment = new Segment(this, trace.getDataOffset(), new Date(trace.getStartTime()), trace.getSampleInterval(), trace.getSampleCount(), 0);
+				channel.addSegment(segment);
 			}
 		} catch (IOException e) {
 			logger.error("IO error: ", e);
 		}
-		return ret;
+		return new HashSet<>(channels.values());
+	}
+
+	private synchronized SegdTraceIndex getIndex() throws IOException {
+		if (index == null) {
+			index = SegdTraceIndex.build(getFile());
+		}
+		return index;
 	}
 
 	@Override
 	public void load(Segment segment) {
+		load(Collections.singletonList(segment));
+	}
+
+	@Override
+	public void load(List<Segment> segments) {
 		logger.info("Loading: " + this);
-		int[] data = null;
-		try {
-			float[] traceData = Trace.getData(getFile(), segment.getStartOffset(), segment.getSampleCount());
-			float maxDataValue = Float.MIN_VALUE;
-			float minDataValue = Float.MAX_VALUE;
-			for(float val:traceData){
-				if(val>maxDataValue){
-					maxDataValue = val;
+		List<Segment> sorted = new ArrayList<>(segments);
+		sorted.sort(Comparator.comparingLong(Segment::getStartOffset));
+		try (FileChannelPool.PooledChannel channel = FileChannelPool.getShared().open(getFile())) {
+			SegdTraceIndex segd = getIndex();
+			ByteBuffer bytes = ByteBuffer.allocate(0);
+			float[] traceData = new float[0];
+			for (Segment segment : sorted) {
+				SegdTraceIndex.Entry trace = segd.getEntry(segment.getStartOffset());
+				if (trace == null) {
+					throw new IOException("No trace data at offset " + segment.getStartOffset()
+							+ " of " + getFile().getName());
 				}
-				if(val<minDataValue){
-					minDataValue = val;
+				int count = trace.getSampleCount();
+				if (traceData.length < count) {
+					bytes = ByteBuffer.allocate(count * 4);
+					traceData = new float[count];
 				}
-			}
-			double normCoeff = NORM_AMPLITUDE/(maxDataValue - minDataValue);
-			data = new int[traceData.length];
-			int i = 0;
-			for (float val: traceData) {
-				data[i++]=new Double(normCoeff*val).intValue();
+				bytes.clear().limit(count * 4);
+				if (channel.read(bytes, trace.getDataOffset()) < count * 4) {
+					throw new IOException(getFile().getName() + " ends inside " + trace);
+				}
+				bytes.flip();
+				bytes.asFloatBuffer().get(traceData, 0, count);
+				segment.setData(normalize(traceData, count));
 			}
 		} catch (IOException e) {
-			logger.error("IOException:", e);	
-			//throw new RuntimeException(e);
-			System.exit(0);	
-		}
-		for (int value: data) {
-			segment.addDataPoint(value);
+			logger.error("IOException:", e);
+			throw new RuntimeException(e);
 		}
-
 	}
 
-
+	/**
+	 * Scales float samples to int, so the trace spans NORM_AMPLITUDE counts
+	 */
+	private int[] normalize(float[] traceData, int count) {
+		float maxDataValue = Float.MIN_VALUE;
+		float minDataValue = Float.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			float val = traceData[i];
+			if(val>maxDataValue){
+				maxDataValue = val;
+			}
+			if(val<minDataValue){
+				minDataValue = val;
+			}
+		}
+		double normCoeff = NORM_AMPLITUDE/(maxDataValue - minDataValue);
+		int[] data = new int[count];
+		for (int i = 0; i < count; i++) {
+			data[i] = (int) (normCoeff * traceData[i]);
+		}
+		return data;
+	}
 	
 	public String toString() {
 		return "SourceFileSEGD: file " + (getFile() == null ? "absent" : getFile().getName()) + ";";
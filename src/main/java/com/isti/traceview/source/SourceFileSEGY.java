@@ -4,16 +4,26 @@ import com.isti.traceview.TraceViewException;
 import com.isti.traceview.data.DataModule;
 import com.isti.traceview.data.PlotDataProvider;
 import com.isti.traceview.data.Segment;
-import com.isti.traceview.data.SegyTimeSeries;
+import com.isti.traceview.data.segy.SegyFile;
+import com.isti.traceview.data.segy.SegyFormatException;
+import com.isti.traceview.data.segy.SegyTrace;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.apache.log4j.Logger;
 
 /**
- * File SEGY data source
+ * File SEGY data source, PASSCAL or standard SEG-Y with any number of traces. Every trace is a
+ * segment whose start offset is the file offset of its trace header.
  * @author Max Kokoulin
  *
  */
@@ -22,6 +32,9 @@ public class SourceFileSEGY extends SourceFile implements Serializable {
 	private static final long serialVersionUID = 1L;
 	private static final Logger logger = Logger.getLogger(SourceFileSEGY.class);
 
+	// index of trace headers, rebuilt by parse() and after deserialization
+	private transient SegyFile index;
+
 	public SourceFileSEGY(File file) {
 		super(file);
 		logger.info("Created: " + this);
@@ -32,42 +45,64 @@ public class SourceFileSEGY extends SourceFile implements Serializable {
 	}
 
 	public Set<PlotDataProvider> parse() {
-		Set<PlotDataProvider> ret = new HashSet<>();
-		try {
-			SegyTimeSeries segy = new SegyTimeSeries();
-			segy.readHeader(getFile().getCanonicalPath());
-			PlotDataProvider channel = new PlotDataProvider(segy.getChannel(), DataModule.getOrAddStation(segy.getStation()), segy.getNetwork(), "");
-			ret.add(channel);
-			Segment segment = new Segment(this, 0, segy.getTimeRange().getStartTime(), segy.getRateMicroSampPerSec()/1000.0, segy.getNumSamples(), 0);
-			channel.addSegment(segment);
+		Map<String, PlotDataProvider> channels = new LinkedHashMap<>();
+		try (FileChannelPool.PooledChannel channel = FileChannelPool.getShared().open(getFile())) {
+			SegyFile segy = SegyFile.index(channel.channel());
+			synchronized (this) {
+				index = segy;
+			}
+			for (SegyTrace trace : segy.getTraces()) {
+				String key = trace.getNetwork() + "." + trace.getStation() + "." + trace.getChannel();
+				PlotDataProvider provider = channels.get(key);
+				if (provider == null) {
+					provider = new PlotDataProvider(trace.getChannel(),
+							DataModule.getOrAddStation(trace.getStation()), trace.getNetwork(), "");
+					channels.put(key, provider);
+				}
+				provider.addSegment(new Segment(this, trace.getHeaderOffset(),
+						new Date(trace.getStartTime()), trace.getSampleInterval() / 1000.0,
+						trace.getSampleCount(), 0));
+			}
 		} catch (IOException | TraceViewException e) {
 			logger.error("IO error: ", e);
 		}
-		return ret;
+		return new HashSet<>(channels.values());
+	}
+
+	private synchronized SegyFile getIndex(FileChannelPool.PooledChannel channel)
+			throws IOException, SegyFormatException {
+		if (index == null) {
+			index = SegyFile.index(channel.channel());
+		}
+		return index;
 	}
-	
 	
 	public void load(Segment segment){
-		int[] data = null;
-		try {
-			SegyTimeSeries segy = new SegyTimeSeries();
-			segy.read(getFile());
-			data = new int[segment.getSampleCount()];
-			int i = 0;
-			for (float val: segy.y) {
-				data[i++]=new Float(val).intValue();
+		load(Collections.singletonList(segment));
+	}
+
+	// traces are decoded in file order, so traces lying close together share one mapping
+	public void load(List<Segment> segments) {
+		List<Segment> sorted = new ArrayList<>(segments);
+		sorted.sort(Comparator.comparingLong(Segment::getStartOffset));
+		try (FileChannelPool.PooledChannel channel = FileChannelPool.getShared().open(getFile())) {
+			SegyFile segy = getIndex(channel);
+			List<SegyTrace> traces = new ArrayList<>(sorted.size());
+			for (Segment segment : sorted) {
+				SegyTrace trace = segy.getTrace(segment.getStartOffset());
+				if (trace == null) {
+					throw new SegyFormatException("No trace at offset " + segment.getStartOffset()
+							+ " of " + getFile().getName());
+				}
+				traces.add(trace);
 			}
-		} catch (IOException e) {
-			logger.error("IOException:", e);
-			//throw new RuntimeException(e);
-			System.exit(0);	
-		} catch (TraceViewException e) {
-			logger.error("TraceViewException:", e);	
-			//throw new RuntimeException(e);
-			System.exit(0);	
-		}
-		for (int value: data) {
-			segment.addDataPoint(value);
+			int[][] data = SegyFile.read(channel.channel(), traces);
+			for (int i = 0; i < data.length; i++) {
+				sorted.get(i).setData(data[i]);
+			}
+		} catch (IOException | TraceViewException e) {
+			logger.error("Can't load " + getFile().getName() + ": ", e);
+			throw new RuntimeException(e);
 		}
 	}
 	
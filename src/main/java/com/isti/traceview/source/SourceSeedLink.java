@@ -0,0 +1,388 @@
+package com.isti.traceview.source;
+
+import com.isti.traceview.TraceView;
+import com.isti.traceview.data.DataModule;
+import com.isti.traceview.data.IChannelFactory;
+import com.isti.traceview.data.PlotDataProvider;
+import com.isti.traceview.data.Segment;
+import com.isti.traceview.data.mseed.MseedDecoder;
+import com.isti.traceview.data.mseed.MseedFormatException;
+import com.isti.traceview.data.mseed.MseedRecordHeader;
+import com.isti.traceview.data.stream.SampleRingBuffer;
+import com.isti.traceview.data.stream.SeedLinkProtocol;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.swing.SwingUtilities;
+import org.apache.log4j.Logger;
+
+/**
+ * Real time data from a SeedLink server. Once started, a background thread receives miniSEED
+ * records, decodes them and appends the samples to a fixed capacity ring buffer per channel, so
+ * memory use doesn't grow with the time the stream runs. Channels get a segment per continuous
+ * run of data, which views its samples in the ring buffer and is extended as records arrive;
+ * segments are removed from the channel before the ring buffer overwrites their samples. Channels are told about new data through
+ * {@link PlotDataProvider#addStreamData(Segment, boolean, long)}, which extends their point cache
+ * rather than pixelizing the whole channel again.
+ *
+ * Channels are created and changed on the event dispatch thread, in the order records arrive, so
+ * their observers may update the display directly.
+ */
+public class SourceSeedLink extends SourceSocket {
+
+  private static final long serialVersionUID = 1L;
+  private static final Logger logger = Logger.getLogger(SourceSeedLink.class);
+
+  /**
+   * Default count of samples held per channel, a day of 40 sps data
+   */
+  public static final int DEFAULT_CAPACITY = 40 * 86400;
+
+  /**
+   * Usual port of SeedLink servers
+   */
+  public static final int DEFAULT_PORT = 18000;
+
+  /**
+   * Longest segment a continuous run of data is extended to; longer runs are split. A segment is
+   * removed as a whole once its first samples are overwritten, so this bounds how much of the ring
+   * buffer is held but no longer shown.
+   */
+  static final int MAX_SEGMENT_LENGTH = 1 << 16;
+
+  private static final int CONNECT_TIMEOUT = 30 * 1000;
+
+  private final String host;
+  private final int port;
+  private final int capacity;
+  private final transient IChannelFactory channelFactory;
+  // guarded by itself
+  private final transient Map<String, Stream> streams = new LinkedHashMap<>();
+
+  private transient Socket socket = null;
+  private transient Thread reader = null;
+  private transient volatile boolean running = false;
+
+  /**
+   * @param host SeedLink server host
+   * @param port SeedLink server port, usually 18000
+   * @param network network code
+   * @param station station codes, separated by commas, or "*" to take the server's default
+   * @param location location code, or "*" for any
+   * @param channel channel codes, separated by commas and possibly holding '?' wildcards, or "*"
+   * for any
+   * @param capacity count of samples held per channel
+   * @param channelFactory factory of the channels data is added to, such as
+   * {@link DataModule#getOrAddChannel}
+   */
+  public SourceSeedLink(String host, int port, String network, String station, String location,
+      String channel, int capacity, IChannelFactory channelFactory) {
+    super(network, station, location, channel, System.currentTimeMillis(), Long.MAX_VALUE);
+    this.host = host;
+    this.port = port;
+    this.capacity = capacity;
+    this.channelFactory = channelFactory;
+  }
+
+  @Override
+  public FormatType getFormatType() {
+    return FormatType.MSEED;
+  }
+
+  @Override
+  public String getName() {
+    return host + ":" + port + "." + super.getName();
+  }
+
+  /**
+   * Connects to the server, selects the stations and channels and starts receiving data
+   *
+   * @throws IOException if the server can't be reached or refuses the selection
+   */
+  public synchronized void start() throws IOException {
+    if (running) {
+      return;
+    }
+    Socket connection = new Socket();
+    try {
+      connection.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+      InputStream in = new BufferedInputStream(connection.getInputStream());
+      handshake(in, connection.getOutputStream());
+      socket = connection;
+      running = true;
+      reader = new Thread(() -> receive(new DataInputStream(in)), "SeedLink " + getName());
+      reader.setDaemon(true);
+      reader.start();
+    } catch (IOException e) {
+      connection.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Disconnects from the server and waits for the receiving thread to end. Received data stays
+   * in the channels.
+   */
+  public void stop() {
+    Thread stopped;
+    synchronized (this) {
+      running = false;
+      stopped = reader;
+      closeSocket();
+    }
+    if (stopped != null && stopped != Thread.currentThread()) {
+      try {
+        stopped.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * @return true while data is being received
+   */
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * @return channels which received data so far; channels are created on the event dispatch
+   * thread, so those of the latest records may be missing if called from another thread
+   */
+  @Override
+  public Set<PlotDataProvider> parse() {
+    Set<PlotDataProvider> channels = new HashSet<>();
+    synchronized (streams) {
+      for (Stream stream : streams.values()) {
+        if (stream.channel != null) {
+          channels.add(stream.channel);
+        }
+      }
+    }
+    setParsed(true);
+    return channels;
+  }
+
+  /**
+   * Segments are created with their data, this reloads a segment whose data was dropped, as far
+   * as the ring buffer still holds it
+   */
+  @Override
+  public void load(Segment segment) {
+    Stream stream;
+    synchronized (streams) {
+      stream = streams.get(getKey(segment.getRawDataProvider().getNetworkName(),
+          segment.getRawDataProvider().getStation().getName(),
+          segment.getRawDataProvider().getLocationName(),
+          segment.getRawDataProvider().getChannelName()));
+    }
+    int[] data = new int[segment.getSampleCount()];
+    if (stream == null || !stream.buffer.read(segment.getStartOffset(), data.length, data, 0)) {
+      logger.warn("Can't load " + segment + ", its data is no longer held by " + getName());
+    }
+    segment.setData(data);
+  }
+
+  private void handshake(InputStream in, OutputStream out) throws IOException {
+    SeedLinkProtocol.writeLine(out, "HELLO");
+    String software = SeedLinkProtocol.readLine(in);
+    String organization = SeedLinkProtocol.readLine(in);
+    if (software == null || organization == null) {
+      throw new IOException("SeedLink server " + host + ":" + port + " closed the connection");
+    }
+    logger.info("Connected to " + software + ", " + organization);
+    if (station.trim().isEmpty() || station.trim().equals("*")) {
+      // uni-station mode: the server's only or default station
+      select(in, out);
+    } else {
+      for (String sta : station.split(",")) {
+        command(in, out, "STATION " + sta.trim() + " " + network.trim());
+        select(in, out);
+      }
+    }
+    SeedLinkProtocol.writeLine(out, "END");
+  }
+
+  private void select(InputStream in, OutputStream out) throws IOException {
+    String loc = location.trim().equals("*") ? "" : location.trim();
+    for (String cha : channel.split(",")) {
+      cha = cha.trim().equals("*") ? "" : cha.trim().replace('*', '?');
+      if (!loc.isEmpty() || !cha.isEmpty()) {
+        // selectors are LLCCC; a missing location matches any
+        command(in, out, "SELECT " + (loc.isEmpty() ? "??" : loc) + (cha.isEmpty() ? "???" : cha));
+      }
+    }
+    command(in, out, "DATA");
+  }
+
+  private void command(InputStream in, OutputStream out, String command) throws IOException {
+    SeedLinkProtocol.writeLine(out, command);
+    String response = SeedLinkProtocol.readLine(in);
+    if (!SeedLinkProtocol.OK.equals(response)) {
+      throw new IOException("SeedLink server " + host + ":" + port + " answered " + response
+          + " to " + command);
+    }
+  }
+
+  private void receive(DataInputStream in) {
+    byte[] record = new byte[SeedLinkProtocol.RECORD_LENGTH];
+    ByteBuffer buffer = ByteBuffer.wrap(record);
+    MseedRecordHeader header = new MseedRecordHeader();
+    int defaultCompression = TraceView.getConfiguration().getDefaultCompression();
+    int[] samples = new int[SeedLinkProtocol.RECORD_LENGTH];
+    try {
+      while (running && SeedLinkProtocol.readPacket(in, record) >= 0) {
+        if (!header.read(buffer, 0, SeedLinkProtocol.RECORD_LENGTH) || !header.isDataRecord()
+            || header.getNumSamples() == 0) {
+          continue;
+        }
+        int count = header.getNumSamples();
+        if (samples.length < count) {
+          samples = new int[count];
+        }
+        // records without blockette 1000 are decoded as configured, big endian
+        int encoding = header.hasBlockette1000() ? header.getEncoding() : defaultCompression;
+        try {
+          MseedDecoder.decode(buffer, header.getDataOffset(),
+              SeedLinkProtocol.RECORD_LENGTH - header.getDataOffset(), encoding,
+              header.isDataLittleEndian(), count, samples, 0);
+        } catch (MseedFormatException e) {
+          logger.warn("Skipping record of " + header.getNetworkCode() + "."
+              + header.getStationIdentifier() + "." + header.getLocationIdentifier() + "."
+              + header.getChannelIdentifier() + ": " + e.getMessage());
+          continue;
+        }
+        getStream(header).append(header.getStartTime(), header.getSampleInterval(), samples,
+            count);
+      }
+      logger.info("SeedLink stream " + getName() + " ended");
+    } catch (IOException e) {
+      if (running) {
+        logger.error("SeedLink stream " + getName() + " stopped: ", e);
+      }
+    } finally {
+      synchronized (this) {
+        running = false;
+        closeSocket();
+      }
+    }
+  }
+
+  private Stream getStream(MseedRecordHeader header) {
+    String network = header.getNetworkCode().trim();
+    String station = header.getStationIdentifier().trim();
+    String location = header.getLocationIdentifier().trim();
+    String channel = header.getChannelIdentifier().trim();
+    String key = getKey(network, station, location, channel);
+    synchronized (streams) {
+      Stream stream = streams.get(key);
+      if (stream == null) {
+        stream = new Stream(network, station, location, channel,
+            new SampleRingBuffer(capacity));
+        streams.put(key, stream);
+      }
+      return stream;
+    }
+  }
+
+  private static String getKey(String network, String station, String location,
+      String channel) {
+    return network.trim() + "." + station.trim() + "." + location.trim() + "." + channel.trim();
+  }
+
+  private void closeSocket() {
+    if (socket != null) {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        logger.debug("Can't close connection to " + getName() + ": " + e.getMessage());
+      }
+      socket = null;
+    }
+  }
+
+  /**
+   * Samples and segments of one channel. Only the receiving thread appends; the channel is
+   * created with its first data and changed on the event dispatch thread.
+   */
+  private class Stream {
+
+    private final String network;
+    private final String station;
+    private final String location;
+    private final String channelName;
+    private volatile PlotDataProvider channel = null;
+    private final SampleRingBuffer buffer;
+    // segments added to the channel, oldest first; the last one is extended by continuous data
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    private Stream(String network, String station, String location, String channelName,
+        SampleRingBuffer buffer) {
+      this.network = network;
+      this.station = station;
+      this.location = location;
+      this.channelName = channelName;
+      this.buffer = buffer;
+    }
+
+    private void append(long startTime, double sampleInterval, int[] samples, int count) {
+      int held = Math.min(count, buffer.getCapacity());
+      // segments view the ring buffer, so those whose samples the append overwrites are removed
+      // before it
+      long firstHeld = Math.max(0, buffer.getEndIndex() + count - buffer.getCapacity());
+      long dropBefore = Long.MIN_VALUE;
+      while (!segments.isEmpty() && segments.peekFirst().getStartOffset() < firstHeld) {
+        dropBefore = Math.max(dropBefore, segments.pollFirst().getEndTimeMillis());
+      }
+      Segment last = segments.peekLast();
+      long index = buffer.append(samples, 0, count);
+      boolean extend = last != null && last.getSampleRate() == sampleInterval
+          && last.getStartOffset() + last.getSampleCount() == index
+          && last.getSampleCount() + count <= MAX_SEGMENT_LENGTH
+          && !Segment.isDataBreak(last.getEndTimeMillis(), startTime, sampleInterval);
+      int minValue = Integer.MAX_VALUE;
+      int maxValue = Integer.MIN_VALUE;
+      for (int i = count - held; i < count; i++) {
+        minValue = Math.min(minValue, samples[i]);
+        maxValue = Math.max(maxValue, samples[i]);
+      }
+      Segment segment;
+      if (extend) {
+        segment = new Segment(SourceSeedLink.this, last.getStartOffset(), last.getStartTime(),
+            sampleInterval, last.getSampleCount() + count, 0);
+        minValue = Math.min(minValue, last.getMinValue());
+        maxValue = Math.max(maxValue, last.getMaxValue());
+        segments.pollLast();
+      } else {
+        segment = new Segment(SourceSeedLink.this, buffer.getEndIndex() - held,
+            new Date(startTime + Math.round((count - held) * sampleInterval)), sampleInterval,
+            held, 0);
+      }
+      segment.setSamples(buffer.view(segment.getStartOffset(), segment.getSampleCount()),
+          minValue, maxValue);
+      segment.setIsLoaded(true);
+      segments.addLast(segment);
+      long removeBefore = dropBefore;
+      SwingUtilities.invokeLater(() -> {
+        if (channel == null) {
+          channel = channelFactory.getChannel(channelName, DataModule.getOrAddStation(station),
+              network, location);
+        }
+        channel.addStreamData(segment, extend, removeBefore);
+      });
+    }
+  }
+}
@@ -4,6 +4,7 @@ import com.isti.traceview.TraceView;
 import com.isti.traceview.data.ISource;
 import com.isti.traceview.data.PlotDataProvider;
 import com.isti.traceview.data.Segment;
+import java.util.Objects;
 import java.util.Set;
 import org.apache.log4j.Logger;
 
@@ -65,6 +66,10 @@ public abstract class SourceSocket implements ISource {
     }
   }
 
+  public int hashCode() {
+    return Objects.hash(getName(), getFormatType());
+  }
+
   /**
    * @return flag if url for data services defined in the configuration
    */
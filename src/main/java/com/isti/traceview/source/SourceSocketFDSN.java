@@ -1,13 +1,12 @@
 package com.isti.traceview.source;
 
-import asl.utils.TimeSeriesUtils;
-import asl.utils.input.DataBlock;
 import com.isti.traceview.TraceView;
 import com.isti.traceview.common.Configuration;
-import com.isti.traceview.data.DataModule;
 import com.isti.traceview.data.PlotDataProvider;
 import com.isti.traceview.data.Segment;
-import edu.iris.dmc.seedcodec.CodecException;
+import com.isti.traceview.data.fdsn.FdsnFetcher;
+import com.isti.traceview.data.fdsn.FdsnRequest;
+import com.isti.traceview.data.fdsn.MseedCache;
 import edu.sc.seis.seisFile.SeisFileException;
 import edu.sc.seis.seisFile.fdsnws.FDSNStationQuerier;
 import edu.sc.seis.seisFile.fdsnws.FDSNStationQueryParams;
@@ -18,28 +17,30 @@ import edu.sc.seis.seisFile.fdsnws.stationxml.NetworkIterator;
 import edu.sc.seis.seisFile.fdsnws.stationxml.Station;
 import edu.sc.seis.seisFile.fdsnws.stationxml.StationIterator;
 import edu.sc.seis.seisFile.fdsnws.stationxml.StationXMLException;
-import java.io.IOException;
-import java.sql.Date;
+import java.io.File;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.IntStream;
 import javax.xml.stream.XMLStreamException;
 import org.apache.commons.math3.util.Pair;
 import org.apache.log4j.Logger;
 
+/**
+ * Data from an FDSN dataselect service. Data is fetched per station and channel, in chunks which
+ * are downloaded concurrently and kept in an on-disk miniSEED cache (see {@link FdsnFetcher}), so
+ * reopening the same time range doesn't download it again. Cached files are parsed and loaded by
+ * their own {@link SourceFileMseed}, so segments load lazily like those of any miniSEED file.
+ */
 public class SourceSocketFDSN extends SourceSocket {
 
   private static final Logger logger = Logger.getLogger(SourceSocketFDSN.class);
-  private Map<String, DataBlock> cachedData;
-  private List<String> dataNames;
-  private long interval;
+
+  private final List<SourceFileMseed> fileSources = new ArrayList<>();
 
   /**
    * Connect to the FDSN and receive data from one trace over a given time range.
@@ -64,51 +65,71 @@ public class SourceSocketFDSN extends SourceSocket {
 
   @Override
   public Set<PlotDataProvider> parse() {
-    Set<PlotDataProvider> ret = Collections.synchronizedSet(new HashSet<>());
     Configuration config = TraceView.getConfiguration();
     String scheme = config.getDataServiceProtocol();
     String host = config.getDataServiceHost();
     String path = config.getDataServicePath();
     int port = config.getDataServicePort();
     try {
-      cachedData = new HashMap<>();
       List<Pair<String, String>> networkAndStations = getStationsViaMetadata(
           network, station, location, channel, startTime, scheme, host, port, path
       );
-
-      // get data for each station separately to prevent timeouts on particularly long queries
+      // request each station and channel separately to prevent timeouts on particularly long
+      // queries; the fetcher splits them further into chunks of time
+      List<FdsnRequest> requests = new ArrayList<>();
       for (Pair<String, String> networkAndStation : networkAndStations) {
-        String net = networkAndStation.getFirst();
-        String sta = networkAndStation.getSecond();
-        cachedData.putAll(TimeSeriesUtils.getDataFromFDSNQuery(scheme, host, port, path,
-            net, sta, location, channel, startTime, endTime));
-      }
-      dataNames = new ArrayList<>(cachedData.keySet());
-      // here the index into datanames list is used as start offset
-      // snclData has format {network [0], station [1], location [2], channel [3]}
-      IntStream.range(0, dataNames.size()).parallel().forEach(i -> {
-        String key = dataNames.get(i);
-        String[] snclData = key.split("_"); // split on occurence of character '_'
-        logger.debug(Arrays.toString(snclData));
-        DataBlock block = cachedData.get(key);
-        PlotDataProvider pdp = new PlotDataProvider(snclData[3],
-            DataModule.getOrAddStation(snclData[1]), snclData[0], snclData[2]);
-        interval = block.getInterval();
-        logger.debug("Expected sample count: " + cachedData.size());
-        ret.add(pdp);
-        Map<Long, double[]> dataMap = block.getDataMap();
-        for (Long startTime : dataMap.keySet()) {
-          double[] timeSeries = dataMap.get(startTime);
-          int numberSamples = timeSeries.length;
-          Segment segment = new Segment(this, i,
-              Date.from(Instant.ofEpochMilli(startTime)), (double) interval, numberSamples, 0);
-          pdp.addSegment(segment);
+        for (String cha : channel.split(",")) {
+          requests.add(new FdsnRequest(networkAndStation.getFirst(), networkAndStation.getSecond(),
+              location, cha, startTime, endTime));
         }
-      });
-    } catch(SeisFileException | IOException | CodecException | XMLStreamException e) {
+      }
+      FdsnFetcher fetcher = new FdsnFetcher(scheme, host, port, path,
+          new MseedCache(new File(config.getDataCachePath())));
+      return parse(fetcher.fetch(requests));
+    } catch (SeisFileException | XMLStreamException e) {
       logger.error(e);
     }
-    return ret;
+    setParsed(true);
+    return new HashSet<>();
+  }
+
+  /**
+   * Parses fetched miniSEED files, merging data of the same channel from different files
+   *
+   * @param files miniSEED files in the cache
+   * @return channels of the files
+   */
+  Set<PlotDataProvider> parse(List<File> files) {
+    Map<String, PlotDataProvider> channels = new LinkedHashMap<>();
+    synchronized (fileSources) {
+      fileSources.clear();
+      // the same content may be the response to several requests
+      for (File file : new LinkedHashSet<>(files)) {
+        SourceFileMseed source = new SourceFileMseed(file);
+        fileSources.add(source);
+        for (PlotDataProvider provider : source.parse()) {
+          String key = provider.getNetworkName() + "." + provider.getStation().getName() + "."
+              + provider.getLocationName() + "." + provider.getChannelName();
+          PlotDataProvider merged = channels.get(key);
+          if (merged == null) {
+            channels.put(key, provider);
+          } else {
+            merged.mergeData(provider);
+          }
+        }
+      }
+    }
+    setParsed(true);
+    return new HashSet<>(channels.values());
+  }
+
+  /**
+   * @return sources of the cached files found by the last parse, which own the parsed segments
+   */
+  public List<SourceFileMseed> getFileSources() {
+    synchronized (fileSources) {
+      return new ArrayList<>(fileSources);
+    }
   }
 
   private List<Pair<String, String>> getStationsViaMetadata(String network, String station,
@@ -125,7 +146,7 @@ public class SourceSocketFDSN extends SourceSocket {
     params.setPort(port);
     params.setHost(host);
     params.setFdsnwsPath(path);
-    params.setLevel(FDSNStationQueryParams.LEVEL_RESPONSE);
+    params.setLevel(FDSNStationQueryParams.LEVEL_STATION);
     params.setStartBefore(epochAsDate).setEndAfter(epochAsDate).appendToNetwork(network)
         .appendToStation(station).appendToLocation(location).appendToChannel(channel);
     FDSNStationQuerier querier = new FDSNStationQuerier(params);
@@ -145,19 +166,14 @@ public class SourceSocketFDSN extends SourceSocket {
     return stationNetworkPairs;
   }
 
+  // segments of parsed channels belong to the file sources, this is only reached by a segment
+  // which was handed to the wrong source
   @Override
   public void load(Segment segment) {
-    logger.debug("SAMPLE COUNT: " + segment.getSampleCount());
-    int cachedDataOffset = (int)
-        ((segment.getStartTime().toInstant().toEpochMilli() - startTime) / interval);
-    logger.debug("CACHED DATA OFFSET? " + cachedDataOffset);
-    long startTime = segment.getStartTime().toInstant().toEpochMilli();
-    int offset = (int) segment.getStartOffset();
-    double[] dataRange = cachedData.get(dataNames.get(offset)).getDataMap().get(startTime);
-    for (int i = 0; i < segment.getSampleCount(); ++i) {
-      segment.addDataPoint((int) dataRange[i]);
+    if (segment.getDataSource() != this) {
+      segment.getDataSource().load(segment);
+    } else {
+      logger.error("Segment " + segment + " doesn't belong to a cached file");
     }
   }
-
-
 }
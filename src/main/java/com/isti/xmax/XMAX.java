@@ -2,6 +2,9 @@ package com.isti.xmax;
 
 import com.isti.traceview.TraceView;
 import com.isti.traceview.common.TimeInterval;
+import com.isti.traceview.data.ISampleStore;
+import com.isti.traceview.data.Segment;
+import com.isti.traceview.data.mseed.CompressedSampleStore;
 import com.isti.traceview.filters.AbstractFilter;
 import com.isti.traceview.filters.FilterDYO;
 import com.isti.traceview.filters.IFilter;
@@ -122,6 +125,15 @@ public class XMAX extends TraceView {
 					getConfiguration().setUseDataPath(true);
 					getConfiguration().setDataPath(dequote(cmd.getOptionValue("d")).trim());
 				}
+				if (cmd.hasOption("w")) {
+					getConfiguration().setWatchData(true);
+				}
+				if (cmd.hasOption("a")) {
+					getConfiguration().setSDSPath(dequote(cmd.getOptionValue("a")).trim());
+				}
+				if (cmd.hasOption("r")) {
+					getConfiguration().setSeedLink(dequote(cmd.getOptionValue("r")).trim());
+				}
 				if (cmd.hasOption("i")) {
 					getConfiguration().setStationInfoFileName(cmd.getOptionValue("i").trim());
 				}
@@ -177,6 +189,7 @@ public class XMAX extends TraceView {
 					setConfiguration(XMAXconfiguration.getInstance());
 					setDataModule(XMAXDataModule.getInstance());
 					getDataModule().dumpData(new ColorModeBySegment());
+					logSampleStoreStatistics();
 				} else {
 					// Find all classes that implement IFilter and ITransformation.
 					Reflections reflect = new Reflections("com.isti");
@@ -201,6 +214,7 @@ public class XMAX extends TraceView {
 					}
 					getFrame().setVisible(true);
 					getFrame().setShouldManageTimeRange(true);
+					logSampleStoreStatistics();
 				}
 			}
 		} catch (Exception e) {
@@ -209,6 +223,16 @@ public class XMAX extends TraceView {
 		}
 	}
 
+	/**
+	 * Logs hit ratio and decode time of the decoded block cache, if samples are kept compressed
+	 */
+	public static void logSampleStoreStatistics() {
+		ISampleStore store = Segment.getSampleStore();
+		if (store instanceof CompressedSampleStore) {
+			logger.info(((CompressedSampleStore) store).getCache());
+		}
+	}
+
 	/**
 	 * Getter for configuration.
 	 */
@@ -292,6 +316,9 @@ public class XMAX extends TraceView {
 		opt.addOption(new Option("v", "version", false, "print xmax version"));
 		opt.addOption(new Option("g", "config", true, "configuration file"));
 		opt.addOption(new Option("d", "data", true, "wildcarded mask of data files to load"));
+		opt.addOption(new Option("a", "sds", true, "root directory of SDS archive to load data of begin and end dates (see -b, -e) from"));
+		opt.addOption(new Option("w", "watch", false, "merge data appended to miniSEED files found by wildcarded mask (see -d) while they grow"));
+		opt.addOption(new Option("r", "seedlink", true, "receive real time data from SeedLink server, host[:port][/NET.STA.LOC.CHA]"));
 		opt.addOption(new Option("T", "make_dump", false, "dumps temporary file storage"));
 		opt.addOption(new Option("t", "use_dump", false, "adds temporary file storage content to data found by wildcarded mask (see -d)"));
 		opt.addOption(new Option("i", "stations", true, "stations description file"));
@@ -373,14 +400,28 @@ public class XMAX extends TraceView {
 		Logger.getRootLogger().addAppender(apd);
 		Runtime.getRuntime().addShutdownHook(new ClearLogShutDownHook());
 		TraceView.setConfiguration(cn);
+		// only files of the mapped store go to the temporary directory
+		File tempDirectory = ISampleStore.MAPPED.equalsIgnoreCase(cn.getSampleStore())
+				? new File(cn.getDataTempPath()) : null;
+		try {
+			ISampleStore store = ISampleStore.create(cn.getSampleStore(), tempDirectory);
+			if (store instanceof CompressedSampleStore) {
+				((CompressedSampleStore) store).getCache()
+						.setCapacity(cn.getDecodedCacheSize() * 1024L * 1024L / 4);
+			}
+			Segment.setSampleStore(store);
+		} catch (IllegalArgumentException e) {
+			logger.error(e.getMessage() + ", keeping samples on the java heap");
+		}
 	}
 }
 
 /**
- * Clears logs after program shutdown.
+ * Logs sample store statistics and clears logs after program shutdown.
  */
 class ClearLogShutDownHook extends Thread {
 	public void run() {
+		XMAX.logSampleStoreStatistics();
 		RollingFileAppender apd = (RollingFileAppender) (Logger.getRootLogger().getAppender("FILELOG"));
 		apd.close();
 		File f = new File(XMAXconfiguration.getInstance().getLogFile());
@@ -139,6 +139,17 @@ public class XMAXconfiguration extends Configuration {
 			setPanelOrder(ChannelSortType.values()[config.getInt("Configuration.PanelOrder", 0)]);
 			setDataPath(config.getString("Configuration.Data.DataMask", "!"));
 			setDataTempPath(config.getString("Configuration.Data.TempPath"));
+			setUseRecordIndex(config.getBoolean("Configuration.Data.UseRecordIndex", false));
+			setWatchData(config.getBoolean("Configuration.Data.Watch", false));
+			setSDSPath(config.getString("Configuration.Data.SDSPath", ""));
+			setSeedLink(config.getString("Configuration.Data.SeedLink", ""));
+			setRecordIndexPath(config.getString("Configuration.Data.RecordIndexPath",
+					"resources/DATA_INDEX"));
+			setPrefetchMargin(config.getDouble("Configuration.Data.PrefetchMargin", 0.5));
+			setSampleStore(config.getString("Configuration.Data.SampleStore", "heap"));
+			setDecodedCacheSize(config.getInt("Configuration.Data.DecodedCacheSize", 64));
+			setDataCachePath(config.getString("Configuration.Data.CachePath",
+					"resources/DATA_CACHE"));
 			setQCdataFileName(config.getString("Configuration.Data.QCdataFile", "qc.xml"));
 			String defaultPicksPath = currentDir;
 			File defaultPicksDir = new File("./resources/Picks");
@@ -3,14 +3,17 @@ package com.isti.xmax.data;
 import com.isti.traceview.TraceView;
 import com.isti.traceview.TraceViewException;
 import com.isti.traceview.common.IEvent;
+import com.isti.traceview.common.TimeInterval;
 import com.isti.traceview.data.DataModule;
 import com.isti.traceview.data.TemporaryStorage;
 import com.isti.traceview.source.SourceFile;
 import com.isti.xmax.XMAXException;
+import com.isti.xmax.XMAXconfiguration;
 import com.isti.xmax.common.Earthquake;
 import com.isti.xmax.common.Pick;
 import com.isti.xmax.common.QCIssue;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.SortedSet;
@@ -60,7 +63,35 @@ public class XMAXDataModule extends DataModule {
 	 */
 	public void loadData() throws TraceViewException {
 		// super.loadData();
-		loadNewDataFromSources(getDataFiles());
+		String sdsPath = TraceView.getConfiguration().getSDSPath();
+		if (TraceView.getConfiguration().getUseTempData()) {
+			loadNewDataFromSources(getDataFiles());
+		} else if (sdsPath.isEmpty() || TraceView.getConfiguration().getUseDataPath()) {
+			// files of the data path are parsed while the path is still searched
+			loadNewDataFromSources();
+		}
+		if (!sdsPath.isEmpty()) {
+			TimeInterval window = XMAXconfiguration.getInstance().getTimeInterval();
+			if (window == null) {
+				logger.warn("No begin or end date given, loading whole SDS archive " + sdsPath);
+			}
+			loadSDSArchive(sdsPath, window);
+		}
+		if (TraceView.getConfiguration().getWatchData()) {
+			try {
+				startWatchingData();
+			} catch (IOException e) {
+				logger.error("Can't watch data files: ", e);
+			}
+		}
+		String seedLink = TraceView.getConfiguration().getSeedLink();
+		if (!seedLink.isEmpty()) {
+			try {
+				startSeedLink(seedLink);
+			} catch (TraceViewException | IOException e) {
+				logger.error("Can't start SeedLink stream: ", e);
+			}
+		}
 		// Adding events
 		earthquakes = Earthquake.getEarthquakes(getAllDataTimeInterval());
 
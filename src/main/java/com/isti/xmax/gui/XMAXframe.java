@@ -17,6 +17,7 @@ import com.isti.traceview.commands.SelectTimeCommand;
 import com.isti.traceview.commands.SelectValueCommand;
 import com.isti.traceview.commands.SetScaleModeCommand;
 import com.isti.traceview.common.TimeInterval;
+import com.isti.traceview.data.DataModule;
 import com.isti.traceview.data.PlotDataProvider;
 import com.isti.traceview.filters.FilterBP;
 import com.isti.traceview.filters.FilterDYO;
@@ -220,6 +221,7 @@ public class XMAXframe extends JFrame implements MouseInputListener, ActionListe
 
 	private JMenuItem reloadMenuItem = null;
 	private JMenuItem loadMenuItem;
+	private JMenuItem seedLinkMenuItem = null;
 	private JMenuItem deleteMenuItem;
 
 	private JMenuItem printMenuItem = null;
@@ -368,6 +370,8 @@ public class XMAXframe extends JFrame implements MouseInputListener, ActionListe
 		actionMap.put(action.getValue(Action.NAME), action);
 		action = new AddDataAction();
 		actionMap.put(action.getValue(Action.NAME), action);
+		action = new SeedLinkAction();
+		actionMap.put(action.getValue(Action.NAME), action);
 
 		// adding actions for filter plugins
 		for (Class<? extends IFilter> curClass : XMAX.getFilters()) {
@@ -381,6 +385,8 @@ public class XMAXframe extends JFrame implements MouseInputListener, ActionListe
 		}
 
 		CommandHandler.getInstance().addObserver(this);
+		// shows channels of real time data as they appear
+		XMAX.getDataModule().addObserver(this);
 		addMouseListener(new MouseListener() {
 			@Override
 			public void mouseClicked(MouseEvent e) {
@@ -676,9 +682,31 @@ public class XMAXframe extends JFrame implements MouseInputListener, ActionListe
 	@Override
 	public void update(Observable o, Object arg) {
 		logger.debug("updating frame due to request from " + o.getClass().getName());
+		if (o instanceof DataModule) {
+			if (arg instanceof PlotDataProvider && ((DataModule) o).getAllChannels().contains(arg)) {
+				// channel of real time data got its first data
+				showChannelSet();
+			}
+			return;
+		}
 		setWaitCursor(false);
 	}
 
+	/**
+	 * Shows the first channel set again, after channels were added
+	 */
+	private void showChannelSet() {
+		XMAXDataModule dm = XMAX.getDataModule();
+		try {
+			dm.reLoadData();
+			graphPanel.setChannelShowSet(dm.getNextChannelSet());
+		} catch (TraceViewException e) {
+			logger.error("Can't show channels: ", e);
+		}
+		statusBar.setChannelCountMessage(dm.getChannelSetStartIndex() + 1, dm.getChannelSetEndIndex(),
+				dm.getAllChannels().size());
+	}
+
 	/**
 	 * Sets flag if we see waiting cursor
 	 */
@@ -850,6 +878,7 @@ public class XMAXframe extends JFrame implements MouseInputListener, ActionListe
 			fileMenu.setText("File");
 			fileMenu.setMnemonic(KeyEvent.VK_F);
 			fileMenu.add(getLoadMenuItem());
+			fileMenu.add(getSeedLinkMenuItem());
 			fileMenu.add(getReloadMenuItem());
 			fileMenu.add(getDeleteMenuItem());
 			fileMenu.add(getUndoMenuItem());
@@ -880,6 +909,15 @@ public class XMAXframe extends JFrame implements MouseInputListener, ActionListe
 		return loadMenuItem;
 	}
 
+	private JMenuItem getSeedLinkMenuItem() {
+		if (seedLinkMenuItem == null) {
+			seedLinkMenuItem = new JMenuItem();
+			seedLinkMenuItem.setAction(actionMap.get("Add SeedLink stream"));
+			seedLinkMenuItem.addMouseListener(this);
+		}
+		return seedLinkMenuItem;
+	}
+
 	/**
 	 * This method initializes aboutMenuItem
 	 *
@@ -2595,6 +2633,7 @@ public class XMAXframe extends JFrame implements MouseInputListener, ActionListe
 					XMAXconfiguration.getInstance().setDataPath(files[0].getPath());
 				}
 				File[] errors = XMAXDataModule.getInstance().loadNewDataFromSources(files);
+				XMAX.logSampleStoreStatistics();
 
 				if (errors.length > 0) {
 					StringBuilder erroringFnames = new StringBuilder("Could not load the following files:\n");
@@ -3515,6 +3554,42 @@ public class XMAXframe extends JFrame implements MouseInputListener, ActionListe
 		}
 	}
 
+	class SeedLinkAction extends AbstractAction implements Action {
+
+		private static final long serialVersionUID = 1L;
+
+		SeedLinkAction() {
+			super();
+			putValue(Action.NAME, "Add SeedLink stream");
+			putValue(Action.SHORT_DESCRIPTION, "Add real time data");
+			putValue(Action.LONG_DESCRIPTION, "Receive real time data from a SeedLink server");
+			putValue(Action.MNEMONIC_KEY, KeyEvent.VK_K);
+		}
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			String address = (String) JOptionPane.showInputDialog(XMAXframe.getInstance(),
+					"Server and data, host[:port][/NET.STA.LOC.CHA]:", "Add SeedLink stream",
+					JOptionPane.PLAIN_MESSAGE, null, null, XMAX.getConfiguration().getSeedLink());
+			if (address == null || address.trim().isEmpty()) {
+				return;
+			}
+			setWaitCursor(true);
+			try {
+				// channels are shown as their first data arrives, see update()
+				XMAX.getDataModule().startSeedLink(address);
+				statusBar.setMessage("Receiving SeedLink stream " + address.trim());
+			} catch (TraceViewException | IOException ex) {
+				logger.error("Can't start SeedLink stream: ", ex);
+				JOptionPane.showMessageDialog(XMAXframe.getInstance(),
+						"Can't start SeedLink stream: " + ex.getMessage(), "Error",
+						JOptionPane.ERROR_MESSAGE);
+			} finally {
+				setWaitCursor(false);
+			}
+		}
+	}
+
 	class ReLoadAction extends AbstractAction implements Action {
 
 		private static final long serialVersionUID = 1L;
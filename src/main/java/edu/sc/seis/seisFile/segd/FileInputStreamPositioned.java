@@ -6,6 +6,7 @@ import java.io.InputStream;
 
 public class FileInputStreamPositioned extends BufferedInputStream {
 	private long position = 0;
+	private long markPosition = 0;
 
 	public FileInputStreamPositioned(InputStream in){
 		super(in);
@@ -29,11 +30,8 @@ public class FileInputStreamPositioned extends BufferedInputStream {
     }
 
     public int 	read(byte[] b) throws IOException {
-    	int ret = super.read(b);
-    	if(ret != -1){
-    		position = position+ret;
-    	}
-    	return ret;
+    	// counted by read(byte[], int, int), which super.read(byte[]) would call as well
+    	return read(b, 0, b.length);
     }
  
     public int read(byte[] b, int off, int len) throws IOException {
@@ -50,6 +48,16 @@ public class FileInputStreamPositioned extends BufferedInputStream {
     	return ret;
     }
     
+    public synchronized void mark(int readlimit) {
+    	super.mark(readlimit);
+    	markPosition = position;
+    }
+
+    public synchronized void reset() throws IOException {
+    	super.reset();
+    	position = markPosition;
+    }
+
     public long getPosition(){
     	return position;
     }
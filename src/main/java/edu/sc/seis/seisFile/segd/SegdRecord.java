@@ -3,6 +3,7 @@ package edu.sc.seis.seisFile.segd;
 import com.isti.traceview.common.TimeInterval;
 import java.io.DataInput;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -161,11 +162,27 @@ public class SegdRecord {
 	
 	public void readHeaders() throws IOException{
 		inputStream = new FileInputStreamPositioned(new FileInputStream(file));
-		readHeaders(new DataInputStream(inputStream));
+		readHeaders(new DataInputStream(inputStream), true);
 		inputStream.close();
 	}
+
+	/**
+	 * Reads the record starting at the current position of given stream, which is left at the
+	 * end of the record, after its general trailer. Several records of a file may be read one
+	 * after another from the same stream.
+	 * 
+	 * @param stream
+	 *            stream of the SEG-D file
+	 * @param readData
+	 *            if false, trace data is skipped rather than read into the traces; data
+	 *            offsets of the traces are recorded anyway
+	 */
+	public void readHeaders(FileInputStreamPositioned stream, boolean readData) throws IOException {
+		inputStream = stream;
+		readHeaders(new DataInputStream(stream), readData);
+	}
 	
-	private void readHeaders(DataInput inStream) throws IOException {
+	private void readHeaders(DataInput inStream, boolean readData) throws IOException {
 		try {	
 			readHeader1(inStream);
 		} catch (IOException e) {
@@ -202,13 +219,29 @@ public class SegdRecord {
 					Trace trace = new Trace(this);
 					trace.readHeader(inStream);
 					trace.setDataOffset(getPosition());
-					trace.readData(inStream);
-					//inStream.skipBytes(trace.getSamplesNumber()*4); //skip place for data
+					if (readData) {
+						trace.readData(inStream);
+					} else {
+						skipFully(inStream, trace.getSamplesNumber() * 4L);
+					}
 					channelSet.addTrace(trace);
 				}
 				
 			}
 		}
+		if (generalTrailer_blocks > 0) {
+			skipFully(inStream, generalTrailer_blocks * 32L);
+		}
+	}
+
+	private static void skipFully(DataInput inStream, long count) throws IOException {
+		while (count > 0) {
+			int skipped = inStream.skipBytes((int) Math.min(count, Integer.MAX_VALUE));
+			if (skipped <= 0) {
+				throw new EOFException("File ends " + count + " bytes before end of record");
+			}
+			count -= skipped;
+		}
 	}
 
 	public void readHeader1(DataInput inStream) 
@@ -302,6 +302,24 @@ public class ChannelSubframe {
 	 *             If detected during decompression of Canadian Compressed frame
 	 */
 	public int getSamples(int[] samples) throws CanadaException {
+		return getSamples(samples, 0);
+	}
+
+	/**
+	 * get the data samples from this subframe into a part of a user buffer.
+	 * Decoding keeps no state outside of this subframe, so subframes may be
+	 * decoded concurrently.
+	 * 
+	 * @param samples
+	 *            A user buffer to contain the samples. It must have room for
+	 *            nsamp samples starting at offset!
+	 * @param offset
+	 *            Index in samples of the first decoded sample
+	 * @return The number of samples decoded
+	 * @throws CanadaException
+	 *             If detected during decompression of Canadian Compressed frame
+	 */
+	public int getSamples(int[] samples, int offset) throws CanadaException {
 		bdata.position(0);
 		label:
 		switch (transform) {
@@ -309,19 +327,19 @@ public class ChannelSubframe {
 				switch (uncompressedFormat) {
 					case "s4":
 						for (int i = 0; i < nsamp; i++) {
-							samples[i] = bdata.getInt();
+							samples[offset + i] = bdata.getInt();
 						}
 						return nsamp;
 					case "s3":
 						for (int i = 0; i < nsamp; i++) {
-							samples[i] = ((((int) bdata.get()) & 0xff) << 16)
+							samples[offset + i] = ((((int) bdata.get()) & 0xff) << 16)
 									| ((((int) bdata.get()) & 0xff) << 8)
 									| (((int) bdata.get()) & 0xff);
 						}
 						return nsamp;
 					case "s2":
 						for (int i = 0; i < nsamp; i++) {
-							samples[i] = bdata.getShort();
+							samples[offset + i] = bdata.getShort();
 						}
 						return nsamp;
 					case "i4":
@@ -354,16 +372,17 @@ public class ChannelSubframe {
 					//int stat2 = bb.getInt();
 					// par.prt("CD : "+station+" len="+len2+" datasize="+dataSize+" time="+time2+" as g ="+Util.ascdate(g2)+" "+Util.asctime2(g2)+" status="+Util.toHex(stat2)+" ns="+ns);
 
-					byte[] cddata = new byte[len2 - bb.position() + 4 + 8];
-					bb.get(cddata, 0, len2 - bb.position() + 4);
-					Canada.canada_uncompress(cddata, samples, cddata.length - 8,
-							nsamp);
+					// decode the compressed bytes in place rather than copying them out
+					Canada.canada_uncompress(data, bb.position(),
+							len2 - bb.position() + 4, samples, offset, nsamp);
 
 				} else
-					Canada.canada_uncompress(data, samples, dataSize, nsamp);
+					Canada.canada_uncompress(data, 0, dataSize, samples, offset,
+							nsamp);
 				return nsamp;
 			case 2: // Canadian compression applied after signature
-				Canada.canada_uncompress(data, samples, dataSize, nsamp);
+				Canada.canada_uncompress(data, 0, dataSize, samples, offset,
+						nsamp);
 
 				break;
 			case 3: // Steim compression applied before signature
@@ -0,0 +1,14 @@
+package com.isti.traceview;
+
+/**
+ * JUnit category of tests which measure performance rather than check behavior. They take long,
+ * allocate a lot and report their results through the log, so they are left out of the test
+ * task and run with the benchmark task:
+ *
+ * <pre>
+ * gradle benchmark
+ * </pre>
+ */
+public interface Benchmark {
+
+}
@@ -0,0 +1,81 @@
+package com.isti.traceview.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.isti.traceview.TraceViewException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileDiscoveryTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private String root;
+
+  @Before
+  public void setUp() throws IOException {
+    // SDS like tree: year/network/station/channel.D/files
+    for (String station : new String[] {"ANMO", "COLA", "FURI"}) {
+      for (String channel : new String[] {"BHZ.D", "LHZ.D"}) {
+        File directory = new File(folder.getRoot(), "2018/IU/" + station + "/" + channel);
+        assertTrue(directory.mkdirs());
+        for (int day = 1; day <= 3; day++) {
+          new File(directory, "IU." + station + ".00." + channel + ".2018.00" + day).createNewFile();
+        }
+      }
+    }
+    new File(folder.getRoot(), "2018/IU/readme.txt").createNewFile();
+    root = folder.getRoot().getPath();
+  }
+
+  private List<String> find(String mask) throws TraceViewException {
+    List<String> names = new ArrayList<>();
+    for (File file : new FileDiscovery(root + mask).find()) {
+      names.add(file.getName());
+    }
+    return names;
+  }
+
+  @Test
+  public void find_matchesEveryElementOfPath() throws TraceViewException {
+    assertEquals(Arrays.asList("IU.ANMO.00.LHZ.D.2018.002", "IU.COLA.00.LHZ.D.2018.002"),
+        find("/2018/IU/{ANMO,COLA}/L*/*.002"));
+    assertEquals(6, find("/2018/*/?URI/*/*").size());
+  }
+
+  @Test
+  public void find_matchesFilesAtEndOfPathOnly() throws TraceViewException {
+    assertEquals(Collections.singletonList("readme.txt"), find("/2018/IU/*.txt"));
+    assertEquals(Collections.emptyList(), find("/2018/*.txt"));
+  }
+
+  @Test
+  public void find_returnsAllFilesBelowMatchedDirectory() throws TraceViewException {
+    assertEquals(6, find("/2018/IU/ANMO").size());
+    assertEquals(19, find("/2018/IU/*").size());
+  }
+
+  @Test
+  public void discover_passesEachFileOnce() throws TraceViewException {
+    List<File> files = Collections.synchronizedList(new ArrayList<>());
+    new FileDiscovery(root + "/2018/IU/*/*/*").discover(files::add);
+    assertEquals(18, files.size());
+    assertEquals(18, new HashSet<>(files).size());
+  }
+
+  @Test
+  public void find_returnsNothingForAbsentDirectory() throws TraceViewException {
+    assertEquals(Collections.emptyList(), find("/2019/IU/*/*/*"));
+  }
+}
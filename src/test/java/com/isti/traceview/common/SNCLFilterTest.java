@@ -0,0 +1,39 @@
+package com.isti.traceview.common;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Test;
+
+public class SNCLFilterTest {
+
+  @Test
+  public void matches_exactAndWildcardValues() {
+    SNCLFilter filter = new SNCLFilter(Collections.singleton("IU"),
+        new HashSet<>(Arrays.asList("ANMO", "CO*")), null,
+        new HashSet<>(Arrays.asList("LHZ", "BH?")));
+    assertTrue(filter.matches("IU", "ANMO ", "00", "LHZ"));
+    assertTrue(filter.matches("IU", "COLA ", "10", "BH1"));
+    assertFalse(filter.matches("IU", "FURI ", "00", "LHZ"));
+    assertFalse(filter.matches("II", "ANMO ", "00", "LHZ"));
+    assertFalse(filter.matches("IU", "ANMO ", "00", "LH1"));
+    assertFalse(filter.passesAll());
+  }
+
+  @Test
+  public void matches_literalValuesExactly() {
+    // characters with a meaning in regular expressions are no wildcards
+    SNCLFilter filter = new SNCLFilter(null, null, Collections.singleton("0."), null);
+    assertTrue(filter.matches("IU", "ANMO", "0.", "LHZ"));
+    assertFalse(filter.matches("IU", "ANMO", "00", "LHZ"));
+  }
+
+  @Test
+  public void all_passesEveryTrace() {
+    assertTrue(SNCLFilter.ALL.passesAll());
+    assertTrue(SNCLFilter.ALL.matches("XX", "ABCDE", "  ", "HHN"));
+  }
+}
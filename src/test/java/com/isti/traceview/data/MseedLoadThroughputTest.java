@@ -0,0 +1,146 @@
+package com.isti.traceview.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.isti.traceview.Benchmark;
+import com.isti.traceview.TraceView;
+import com.isti.traceview.TraceViewException;
+import com.isti.traceview.common.Configuration;
+import com.isti.traceview.source.SourceFileMseed;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Parses and loads a directory of several hundred day files with different thread counts, to
+ * check that record decoding scales with cores and gives the same result at any parallelism
+ */
+@Category(Benchmark.class)
+public class MseedLoadThroughputTest {
+
+  private static final Logger logger = Logger.getLogger(MseedLoadThroughputTest.class);
+
+  private static final int FILE_COUNT = 300;
+
+  /**
+   * Share by which loading on more threads may be slower than on one, for timing noise
+   */
+  private static final double SLOWDOWN_TOLERANCE = 0.25;
+
+  private static final String[] dayFiles = {
+      "src/test/resources/2018-001.00_LHZ.512.seed",
+      "src/test/resources/2018-270.00_LHZ.512.seed",
+      "src/test/resources/overlaps/91.00_LH1.512.seed",
+      "src/test/resources/overlaps/92.00_LH1.512.seed",
+      "src/test/resources/overlaps/93.00_LH1.512.seed"};
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // logger levels before the test, restored after it
+  private Level rootLevel;
+  private Level level;
+
+  @Before
+  public void setUp() {
+    // debug logging of every record would dominate the timings, but results are shown
+    rootLevel = LogManager.getRootLogger().getLevel();
+    level = logger.getLevel();
+    LogManager.getRootLogger().setLevel(Level.WARN);
+    logger.setLevel(Level.INFO);
+    try {
+      Configuration defaultConfig = new Configuration();
+      TraceView.setConfiguration(defaultConfig);
+    } catch (TraceViewException e) {
+      System.out.println("Error in creating default config file");
+    }
+  }
+
+  @After
+  public void tearDown() {
+    LogManager.getRootLogger().setLevel(rootLevel);
+    logger.setLevel(level);
+  }
+
+  @Test
+  public void loadScalesWithThreads() throws IOException, InterruptedException, ExecutionException {
+    List<File> files = createDayFiles();
+    int processors = Runtime.getRuntime().availableProcessors();
+
+    long expectedSamples = loadAll(files, 1);
+    double singleThreadSeconds = 0;
+    for (int threads : new int[]{1, 4, processors}) {
+      long start = System.nanoTime();
+      long samples = loadAll(files, threads);
+      double seconds = (System.nanoTime() - start) * 1e-9;
+      logger.info(String.format("%d files, %d threads: %.3f sec, %.1f files/sec", files.size(),
+          threads, seconds, files.size() / seconds));
+      assertEquals(expectedSamples, samples);
+      if (threads == 1) {
+        singleThreadSeconds = seconds;
+      } else {
+        assertTrue(String.format("%d threads took %.3f sec, one thread %.3f sec", threads,
+            seconds, singleThreadSeconds),
+            seconds <= singleThreadSeconds * (1 + SLOWDOWN_TOLERANCE));
+      }
+    }
+    assertTrue(expectedSamples > 0);
+  }
+
+  private List<File> createDayFiles() throws IOException {
+    List<File> files = new ArrayList<>(FILE_COUNT);
+    for (int i = 0; i < FILE_COUNT; ++i) {
+      Path source = new File(dayFiles[i % dayFiles.length]).toPath();
+      Path target = folder.getRoot().toPath().resolve(i + "." + source.getFileName());
+      try {
+        // links are enough -- we only need distinct files, not distinct bytes on disk
+        Files.createLink(target, source);
+      } catch (IOException | UnsupportedOperationException e) {
+        Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+      files.add(target.toFile());
+    }
+    return files;
+  }
+
+  /**
+   * Parses all files and loads every segment on a pool of given size
+   *
+   * @return total count of loaded samples
+   */
+  private static long loadAll(List<File> files, int threads)
+      throws InterruptedException, ExecutionException {
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      return pool.submit(() -> files.parallelStream()
+          .mapToLong(file -> {
+            long samples = 0;
+            for (PlotDataProvider channel : new SourceFileMseed(file).parse()) {
+              for (Segment segment : channel.getRawData()) {
+                segment.load();
+                samples += segment.getData().data.length;
+              }
+            }
+            return samples;
+          }).sum()).get();
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.isti.traceview.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import asl.utils.NumericUtils;
@@ -16,11 +17,14 @@ import com.isti.traceview.processing.BPFilterException;
 import com.isti.traceview.processing.HPFilterException;
 import com.isti.traceview.processing.LPFilterException;
 import com.isti.traceview.processing.RemoveGainException;
+import com.isti.traceview.source.SourceFileMseed;
+import com.isti.traceview.source.SourceSeedLink;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
@@ -156,4 +160,79 @@ public class PlotDataProviderTest {
     PlotData data = dataProvider.getOriginalPlotData(ti, pointCount, null, null, colorMode);
     // if this doesn't terminate in a stack overflow error, we're good
   }
+
+  @Test
+  public void pointCacheLeavesSegmentsUnloaded() {
+    File seed = new File("src/test/resources/ANMO_00_LHZ_GAP.512.seed");
+    PlotDataProvider lazy = new SourceFileMseed(seed).parse().iterator().next();
+    PlotDataProvider loaded = new SourceFileMseed(seed).parse().iterator().next();
+    loaded.load();
+
+    lazy.initPointCache();
+    loaded.initPointCache();
+    for (Segment segment : lazy.getRawData()) {
+      assertFalse(segment.getIsLoaded());
+    }
+    TimeInterval range = loaded.getTimeRange();
+    PlotData fromCopies = lazy.getPlotData(range, 100, null, null, null);
+    PlotData fromSegments = loaded.getPlotData(range, 100, null, null, null);
+    assertEquals(fromSegments.getMaxValue(), fromCopies.getMaxValue(), 0);
+    assertEquals(fromSegments.getMinValue(), fromCopies.getMinValue(), 0);
+  }
+
+  @Test
+  public void streamDataExtendsPointCache() {
+    SourceSeedLink source = new SourceSeedLink("localhost", 18000, "XX", "STRM", "00", "LHZ",
+        SourceSeedLink.DEFAULT_CAPACITY, new DefaultChannelFactory());
+    PlotDataProvider streamed = new PlotDataProvider("LHZ", DataModule.getOrAddStation("STRM"),
+        "XX", "00");
+    long start = 1500000000000L;
+    streamed.addStreamData(rampSegment(source, start, 0, 10000), false, Long.MIN_VALUE);
+    // a coarse request builds the point cache
+    TimeInterval first = streamed.getTimeRange();
+    assertEquals(9999, streamed.getPlotData(first, 100, null, null, null).getMaxValue(), 0);
+
+    // the last segment grows; the cache is extended rather than built again
+    streamed.addStreamData(rampSegment(source, start, 0, 30000), true, Long.MIN_VALUE);
+    PlotDataProvider built = new PlotDataProvider("LHZ", DataModule.getOrAddStation("STRM"),
+        "XX", "00");
+    built.addSegment(rampSegment(source, start, 0, 30000));
+    TimeInterval range = streamed.getTimeRange();
+    assertEquals(built.getTimeRange().getStart(), range.getStart());
+    assertEquals(built.getTimeRange().getEnd(), range.getEnd());
+    PlotData extended = streamed.getPlotData(range, 100, null, null, null);
+    PlotData fresh = built.getPlotData(range, 100, null, null, null);
+    assertEquals(fresh.getPointCount(), extended.getPointCount());
+    for (int i = 0; i < fresh.getPointCount(); i++) {
+      // pixel bounds of the two caches may differ by a cache point, a few samples here
+      assertEquals(fresh.getPixels().get(i)[0].getTop(),
+          extended.getPixels().get(i)[0].getTop(), 5);
+      assertEquals(fresh.getPixels().get(i)[0].getBottom(),
+          extended.getPixels().get(i)[0].getBottom(), 5);
+    }
+
+    // a new segment whose arrival evicts the old one
+    long next = start + 40000 * 1000L;
+    streamed.addStreamData(rampSegment(source, next, 30000, 5000), false,
+        range.getEnd());
+    assertEquals(1, streamed.getSegmentCount());
+    TimeInterval moved = streamed.getTimeRange();
+    assertEquals(next, moved.getStart());
+    PlotData latest = streamed.getPlotData(moved, 100, null, null, null);
+    // the cache may end a cache point before the data
+    assertEquals(30000, latest.getMinValue(), 2);
+    assertEquals(34999, latest.getMaxValue(), 2);
+  }
+
+  // segment of one sample per second whose values count up from the first one
+  private static Segment rampSegment(SourceSeedLink source, long start, int first, int count) {
+    int[] data = new int[count];
+    for (int i = 0; i < count; i++) {
+      data[i] = first + i;
+    }
+    Segment segment = new Segment(source, first, new Date(start), 1000, count, 0);
+    segment.setData(data);
+    segment.setIsLoaded(true);
+    return segment;
+  }
 }
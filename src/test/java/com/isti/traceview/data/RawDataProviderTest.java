@@ -16,6 +16,7 @@ import com.isti.traceview.processing.BPFilterException;
 import com.isti.traceview.processing.HPFilterException;
 import com.isti.traceview.processing.LPFilterException;
 import com.isti.traceview.processing.Rotation;
+import com.isti.traceview.source.SourceFileMseed;
 import edu.sc.seis.seisFile.mseed.SeedFormatException;
 import java.io.DataOutputStream;
 import java.io.File;
@@ -24,6 +25,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
 import org.junit.Before;
@@ -324,6 +326,45 @@ public class RawDataProviderTest {
 
   }
 
+  @Test
+  public void mergeData_batchMatchesIncrementalMerge() {
+    String folderStructure = "src/test/resources/overlaps/";
+    String[] fileNames = {"91.00_LH1.512.seed", "93.00_LH1.512.seed", "cat.00_LH1.512.seed",
+        "92.00_LH1.512.seed"};
+
+    List<PlotDataProvider> incrementalParsed = new ArrayList<>();
+    List<PlotDataProvider> batchParsed = new ArrayList<>();
+    for (String fileName : fileNames) {
+      File file = new File(folderStructure + fileName);
+      incrementalParsed.addAll(new SourceFileMseed(file).parse());
+      batchParsed.addAll(new SourceFileMseed(file).parse());
+    }
+    PlotDataProvider first = incrementalParsed.get(0);
+    PlotDataProvider incremental = new PlotDataProvider(first.getChannelName(),
+        first.getStation(), first.getNetworkName(), first.getLocationName());
+    PlotDataProvider batch = new PlotDataProvider(first.getChannelName(),
+        first.getStation(), first.getNetworkName(), first.getLocationName());
+    for (PlotDataProvider parsed : incrementalParsed) {
+      incremental.mergeData(parsed);
+    }
+    incremental.sort();
+    batch.mergeData(batchParsed);
+    batch.sort();
+
+    List<Segment> expected = incremental.getRawData();
+    List<Segment> actual = batch.getRawData();
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); ++i) {
+      assertEquals(expected.get(i).getStartTimeMillis(), actual.get(i).getStartTimeMillis());
+      assertEquals(expected.get(i).getEndTimeMillis(), actual.get(i).getEndTimeMillis());
+      assertEquals(expected.get(i).getSampleCount(), actual.get(i).getSampleCount());
+      assertEquals(expected.get(i).getDataSource().getName(),
+          actual.get(i).getDataSource().getName());
+      assertEquals(expected.get(i).getChannelSerialNumber(),
+          actual.get(i).getChannelSerialNumber());
+    }
+  }
+
   @Test
   public void dumpMseed_rotated() throws IOException {
 
@@ -463,6 +504,42 @@ public class RawDataProviderTest {
 
   }
 
+  @Test
+  public void load_timeWindowLoadsIntersectingSegmentsOnly() {
+    TraceView.getConfiguration().setPrefetchMargin(0);
+    Set<PlotDataProvider> channels = new SourceFileMseed(
+        new File("src/test/resources/ANMO_00_LHZ_GAP.512.seed")).parse();
+    assertEquals(1, channels.size());
+    PlotDataProvider channel = channels.iterator().next();
+    List<Segment> segments = channel.getRawData();
+    Segment first = segments.get(0);
+    Segment last = segments.get(segments.size() - 1);
+
+    long start = first.getStartTimeMillis();
+    TimeInterval window = new TimeInterval(start, start + 3600000);
+    channel.load(window);
+    for (Segment segment : segments) {
+      assertEquals(window.isIntersect(new TimeInterval(segment.getStartTime(),
+          segment.getEndTime())), segment.getIsLoaded());
+    }
+    assertTrue(first.getIsLoaded());
+    assertFalse(last.getIsLoaded());
+    assertFalse(channel.isLoaded());
+
+    // touching the last segment loads it on demand
+    TimeInterval lastWindow = new TimeInterval(last.getStartTimeMillis(),
+        last.getStartTimeMillis() + 3600000);
+    List<Segment> found = channel.getRawData(lastWindow);
+    assertEquals(last, found.get(found.size() - 1));
+    assertTrue(last.getIsLoaded());
+    assertEquals(last.getSampleCount(), last.getData().data.length);
+
+    channel.load();
+    for (Segment segment : segments) {
+      assertTrue(segment.getIsLoaded());
+    }
+  }
+
   @Test
   public void dumpASCII() {
     // TODO
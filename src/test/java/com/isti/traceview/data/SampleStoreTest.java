@@ -0,0 +1,269 @@
+package com.isti.traceview.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.isti.traceview.Benchmark;
+import com.isti.traceview.data.ISampleStore.Samples;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+public class SampleStoreTest {
+
+  private static final Logger logger = Logger.getLogger(SampleStoreTest.class);
+
+  private static final int BENCHMARK_CHANNELS = 100;
+
+  // ten minutes of 100 Hz data per channel
+  private static final int BENCHMARK_SAMPLES = 60000;
+
+  private static final int BENCHMARK_ROUNDS = 20;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // logger levels before the test, restored after it
+  private final Level rootLevel = LogManager.getRootLogger().getLevel();
+  private final Level level = logger.getLevel();
+
+  @After
+  public void tearDown() {
+    Segment.setSampleStore(HeapSampleStore.INSTANCE);
+    LogManager.getRootLogger().setLevel(rootLevel);
+    logger.setLevel(level);
+  }
+
+  @Test
+  public void heap_keepsArray() {
+    int[] values = randomValues(1000, 1);
+    Samples samples = HeapSampleStore.INSTANCE.store(values);
+    assertSame(values, samples.toArray());
+    assertEquals(values[999], samples.get(999));
+  }
+
+  @Test
+  public void direct_readsStoredValues() {
+    checkStore(new OffHeapSampleStore(false, null, 1000));
+  }
+
+  @Test
+  public void mapped_readsStoredValues() {
+    checkStore(new OffHeapSampleStore(true, folder.getRoot(), 1000));
+  }
+
+  @Test
+  public void offHeap_releaseFreesChunks() {
+    OffHeapSampleStore store = new OffHeapSampleStore(false, null, 1000);
+    List<Samples> stored = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      stored.add(store.store(randomValues(600, i)));
+    }
+    // every array but the first starts a new chunk
+    assertEquals(10 * 4000L, store.getAllocatedBytes());
+    assertEquals(10 * 2400L, store.getUsedBytes());
+    for (Samples samples : stored) {
+      samples.release();
+      // second release is ignored
+      samples.release();
+    }
+    // the current chunk is kept for next arrays
+    assertEquals(4000L, store.getAllocatedBytes());
+    assertEquals(0L, store.getUsedBytes());
+    // and filled again from its start
+    store.store(randomValues(600, 10));
+    assertEquals(4000L, store.getAllocatedBytes());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void offHeap_readAfterReleaseFails() {
+    Samples samples = new OffHeapSampleStore(false, null, 1000).store(randomValues(600, 1));
+    samples.release();
+    samples.get(0);
+  }
+
+  @Test
+  public void segment_dropReleasesSamples() {
+    OffHeapSampleStore store = new OffHeapSampleStore(false, null, 1000);
+    Segment.setSampleStore(store);
+    Segment segment = createSegment(randomValues(600, 3));
+    assertEquals(2400L, store.getUsedBytes());
+    segment.drop();
+    assertEquals(0L, store.getUsedBytes());
+  }
+
+  @Test
+  public void segment_readsSameDataFromEveryStore() {
+    int[] values = randomValues(5000, 7);
+    Segment heap = createSegment(values.clone());
+    Segment.setSampleStore(new OffHeapSampleStore(false, null, 4096));
+    Segment direct = createSegment(values.clone());
+
+    assertArrayEquals(values, heap.getData().data);
+    assertArrayEquals(values, direct.getData().data);
+    assertEquals(heap.getMaxValue(), direct.getMaxValue());
+    assertEquals(heap.getMinValue(), direct.getMinValue());
+    assertEquals(heap.getPointAtTime(12340L), direct.getPointAtTime(12340L));
+    SegmentData heapRange = heap.getData(1000.0, 21000.0);
+    SegmentData directRange = direct.getData(1000.0, 21000.0);
+    assertArrayEquals(heapRange.data, directRange.data);
+    assertEquals(heapRange.previous, directRange.previous);
+    assertEquals(heapRange.next, directRange.next);
+    int[] range = new int[101];
+    direct.getData(4900, range, 1, 100);
+    assertArrayEquals(Arrays.copyOfRange(values, 4900, 5000), Arrays.copyOfRange(range, 1, 101));
+    assertArrayEquals(values, Segment.mergeSegments(direct).getData().data);
+  }
+
+  /**
+   * Loads the same channels into each store, then reads random windows of them the way panning
+   * and zooming does. Reports heap taken per channel, the count of channels which would fit in
+   * the heap of this run (-Xmx), and garbage collection time: of the window reads, and of full
+   * collections, whose pauses grow with the live heap.
+   */
+  @Test
+  @Category(Benchmark.class)
+  public void benchmark_gcPausesAndChannelCapacity() {
+    // quiet segment logging, but keep the results
+    LogManager.getRootLogger().setLevel(Level.WARN);
+    logger.setLevel(Level.INFO);
+    int[][] channelValues = new int[BENCHMARK_CHANNELS][];
+    for (int i = 0; i < BENCHMARK_CHANNELS; i++) {
+      channelValues[i] = randomValues(BENCHMARK_SAMPLES, i);
+    }
+    ISampleStore[] stores = {HeapSampleStore.INSTANCE,
+        new OffHeapSampleStore(false, null), new OffHeapSampleStore(true, folder.getRoot())};
+    long checksum = 0;
+    for (ISampleStore store : stores) {
+      Segment.setSampleStore(store);
+      long heapBefore = usedHeapAfterGC();
+      List<Segment> segments = new ArrayList<>();
+      for (int[] values : channelValues) {
+        segments.add(createSegment(values.clone()));
+      }
+      long heapPerChannel = Math.max((usedHeapAfterGC() - heapBefore) / BENCHMARK_CHANNELS, 1);
+
+      long gcTimeBefore = totalGCTime();
+      long gcCountBefore = totalGCCount();
+      Random random = new Random(1);
+      long sum = 0;
+      long start = System.nanoTime();
+      for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+        // windows from a tenth of the data to all of it
+        double length = (0.1 + 0.9 * random.nextDouble()) * BENCHMARK_SAMPLES * 10.0;
+        double from = random.nextDouble() * (BENCHMARK_SAMPLES * 10.0 - length);
+        for (Segment segment : segments) {
+          for (int value : segment.getData(from, from + length).data) {
+            sum += value;
+          }
+        }
+      }
+      double readSeconds = (System.nanoTime() - start) * 1e-9;
+      long gcTime = totalGCTime() - gcTimeBefore;
+      long gcCount = totalGCCount() - gcCountBefore;
+
+      long maxFullGC = 0;
+      long fullGCTime = 0;
+      for (int i = 0; i < 5; i++) {
+        long fullStart = System.nanoTime();
+        System.gc();
+        long pause = (System.nanoTime() - fullStart) / 1000000L;
+        maxFullGC = Math.max(maxFullGC, pause);
+        fullGCTime += pause;
+      }
+      logger.info(String.format("%s store, %d channels of %d samples: %d heap bytes "
+              + "per channel, %d channels fit in %d MiB heap; window reads %.3f sec with %d "
+              + "collections taking %d ms; full collection %.1f ms average, %d ms max",
+          store, BENCHMARK_CHANNELS, BENCHMARK_SAMPLES, heapPerChannel,
+          Runtime.getRuntime().maxMemory() / heapPerChannel,
+          Runtime.getRuntime().maxMemory() >> 20, readSeconds, gcCount, gcTime,
+          fullGCTime / 5.0, maxFullGC));
+      if (store == HeapSampleStore.INSTANCE) {
+        checksum = sum;
+      } else {
+        assertEquals(checksum, sum);
+      }
+      segments.clear();
+    }
+    assertTrue(checksum != 0);
+  }
+
+  private static void checkStore(ISampleStore store) {
+    List<int[]> arrays = new ArrayList<>();
+    List<Samples> stored = new ArrayList<>();
+    // sizes fill chunks unevenly, 2500 doesn't fit a chunk at all
+    for (int length : new int[]{300, 700, 1, 999, 2500, 0, 400}) {
+      int[] values = randomValues(length, length);
+      arrays.add(values);
+      stored.add(store.store(values.clone()));
+    }
+    for (int i = 0; i < arrays.size(); i++) {
+      int[] values = arrays.get(i);
+      Samples samples = stored.get(i);
+      assertEquals(values.length, samples.length());
+      assertArrayEquals(values, samples.toArray());
+      for (int k = 0; k < values.length; k++) {
+        assertEquals(values[k], samples.get(k));
+      }
+      if (values.length > 10) {
+        int[] range = new int[12];
+        samples.get(3, range, 2, 10);
+        for (int k = 0; k < 10; k++) {
+          assertEquals(values[3 + k], range[2 + k]);
+        }
+      }
+    }
+    assertEquals(4L * (300 + 700 + 1 + 999 + 2500 + 400), store.getUsedBytes());
+  }
+
+  private static Segment createSegment(int[] values) {
+    // 100 Hz
+    Segment segment = new Segment(null, 0, new Date(0), 10.0, values.length, 0);
+    segment.setData(values);
+    return segment;
+  }
+
+  private static int[] randomValues(int length, long seed) {
+    Random random = new Random(seed);
+    int[] values = new int[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = random.nextInt(2000000) - 1000000;
+    }
+    return values;
+  }
+
+  private static long usedHeapAfterGC() {
+    System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static long totalGCTime() {
+    long time = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      time += Math.max(bean.getCollectionTime(), 0);
+    }
+    return time;
+  }
+
+  private static long totalGCCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(bean.getCollectionCount(), 0);
+    }
+    return count;
+  }
+}
@@ -0,0 +1,95 @@
+package com.isti.traceview.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.isti.traceview.TraceView;
+import com.isti.traceview.TraceViewException;
+import com.isti.traceview.common.Configuration;
+import com.isti.traceview.data.SegmentLoadPlanner.Group;
+import com.isti.traceview.source.SourceFileMseed;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SegmentLoadPlannerTest {
+
+  private static final String GAP_FILE = "src/test/resources/ANMO_00_LHZ_GAP.512.seed";
+  private static final String DAY_FILE = "src/test/resources/2018-270.00_LHZ.512.seed";
+
+  // root logger level before the test, restored after it
+  private Level rootLevel;
+
+  @Before
+  public void setUp() {
+    rootLevel = LogManager.getRootLogger().getLevel();
+    LogManager.getRootLogger().setLevel(Level.WARN);
+    try {
+      Configuration defaultConfig = new Configuration();
+      TraceView.setConfiguration(defaultConfig);
+    } catch (TraceViewException e) {
+      System.out.println("Error in creating default config file");
+    }
+  }
+
+  @After
+  public void tearDown() {
+    LogManager.getRootLogger().setLevel(rootLevel);
+  }
+
+  @Test
+  public void plan_groupsBySourceInOffsetOrder() {
+    List<Segment> segments = new ArrayList<>();
+    segments.addAll(parseSegments(GAP_FILE));
+    segments.addAll(parseSegments(DAY_FILE));
+    // reverse, so the planner has to restore file order
+    List<Segment> reversed = new ArrayList<>(segments);
+    Collections.reverse(reversed);
+
+    List<Group> groups = SegmentLoadPlanner.plan(reversed);
+    assertEquals(2, groups.size());
+    int planned = 0;
+    for (Group group : groups) {
+      long previous = -1;
+      for (Segment segment : group.getSegments()) {
+        assertEquals(group.getSource(), segment.getDataSource());
+        assertTrue(segment.getStartOffset() > previous);
+        previous = segment.getStartOffset();
+      }
+      planned += group.getSegments().size();
+    }
+    assertEquals(segments.size(), planned);
+  }
+
+  @Test
+  public void load_matchesSegmentBySegmentLoad() {
+    List<Segment> expected = parseSegments(GAP_FILE);
+    assertTrue("test file should hold several segments", expected.size() > 1);
+    for (Segment segment : expected) {
+      segment.load();
+    }
+
+    List<Segment> planned = parseSegments(GAP_FILE);
+    SegmentLoadPlanner.load(planned);
+    assertEquals(expected.size(), planned.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertTrue(planned.get(i).getIsLoaded());
+      assertArrayEquals(expected.get(i).getData().data, planned.get(i).getData().data);
+    }
+  }
+
+  private static List<Segment> parseSegments(String filename) {
+    List<Segment> segments = new ArrayList<>();
+    for (PlotDataProvider channel : new SourceFileMseed(new File(filename)).parse()) {
+      segments.addAll(channel.getRawData());
+    }
+    return segments;
+  }
+}
@@ -3,6 +3,7 @@ package com.isti.traceview.data;
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.assertArrayEquals;
 
+import java.util.Date;
 import org.junit.Test;
 
 public class SegmentTest {
@@ -21,4 +22,25 @@ public class SegmentTest {
 
   }
 
+  @Test(expected = ArrayIndexOutOfBoundsException.class)
+  public void testAddDataPointBeyondSampleCountFails() {
+    Segment test = new Segment(null, 0, new Date(0), 1000., 3, 0);
+    for (int i = 0; i < 4; i++) {
+      test.addDataPoint(i);
+    }
+  }
+
+  @Test
+  public void testAddDataPointAfterDrop() {
+    Segment test = new Segment(null, 0, new Date(0), 1000., 3, 0);
+    for (int i = 0; i < 3; i++) {
+      test.addDataPoint(i);
+    }
+    test.drop();
+    for (int i = 0; i < 3; i++) {
+      test.addDataPoint(i + 1);
+    }
+    assertArrayEquals(new int[]{1, 2, 3}, test.getData().data);
+  }
+
 }
@@ -1,21 +1,36 @@
 package com.isti.traceview.data;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import com.isti.traceview.TraceView;
 import com.isti.traceview.TraceViewException;
 import com.isti.traceview.common.Configuration;
 import com.isti.traceview.data.ISource.FormatType;
+import com.isti.traceview.data.mseed.CompressedSampleStore;
 import com.isti.traceview.source.SourceFileMseed;
+import com.isti.traceview.source.SourceFileMseed3;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class SourceFileMseedTest {
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @Before
   public void setUp() {
     LogManager.getRootLogger().setLevel(Level.DEBUG);
@@ -60,6 +75,111 @@ public class SourceFileMseedTest {
     assertEquals(0, dataProviders.size());
   }
 
+  @Test
+  public void parseAppended_parses_only_new_records() throws IOException {
+    File source = new File("src/test/resources/ANMO_00_LHZ_GAP.512.seed");
+    byte[] bytes = Files.readAllBytes(source.toPath());
+    int wholeSegments = 0;
+    for (PlotDataProvider channel : new SourceFileMseed(source).parse()) {
+      wholeSegments += channel.getSegmentCount();
+    }
+
+    File file = folder.newFile("ANMO_00_LHZ_GROWING.512.seed");
+    Files.write(file.toPath(), Arrays.copyOf(bytes, 100 * 512 + 200));
+    SourceFileMseed sourceFileMseed = new SourceFileMseed(file);
+    int segments = 0;
+    for (PlotDataProvider channel : sourceFileMseed.parse()) {
+      segments += channel.getSegmentCount();
+    }
+    assertEquals(100, segments);
+    assertEquals(0, sourceFileMseed.parseAppended().size());
+
+    Files.write(file.toPath(), Arrays.copyOfRange(bytes, 100 * 512 + 200, bytes.length),
+        StandardOpenOption.APPEND);
+    Set<PlotDataProvider> appended = sourceFileMseed.parseAppended();
+    assertEquals(1, appended.size());
+    for (PlotDataProvider channel : appended) {
+      segments += channel.getSegmentCount();
+    }
+    assertEquals(wholeSegments, segments);
+  }
+
+  @Test
+  public void parse_with_window_skips_records_outside() {
+    File file = new File("src/test/resources/ANMO_00_LHZ_GAP.512.seed");
+    PlotDataProvider whole = new SourceFileMseed(file).parse().iterator().next();
+    List<Segment> segments = whole.getRawData();
+    segments.sort(Comparator.comparingLong(Segment::getStartTimeMillis));
+    long start = segments.get(100).getStartTimeMillis();
+    long end = segments.get(200).getStartTimeMillis();
+
+    Set<PlotDataProvider> dataProviders = new SourceFileMseed(file, start, end).parse();
+
+    assertEquals(1, dataProviders.size());
+    List<Segment> windowed = dataProviders.iterator().next().getRawData();
+    assertTrue(windowed.size() >= 101 && windowed.size() < segments.size());
+    for (Segment segment : windowed) {
+      assertTrue(segment.getStartTimeMillis() <= end);
+      assertTrue(segment.getEndTimeMillis() >= start);
+    }
+  }
+
+  @Test
+  public void parse_mseed3_matches_mseed2() {
+    // same records converted to miniSEED 3
+    PlotDataProvider mseed2 = new SourceFileMseed(
+        new File("src/test/resources/2018-270.00_LHZ.512.seed")).parse().iterator().next();
+    SourceFileMseed3 source = new SourceFileMseed3(
+        new File("src/test/resources/2018-270.00_LHZ.mseed3"));
+    assertEquals(FormatType.MSEED3, source.getFormatType());
+    Set<PlotDataProvider> channels = source.parse();
+    assertEquals(1, channels.size());
+    PlotDataProvider mseed3 = channels.iterator().next();
+    assertEquals(mseed2.getChannelName(), mseed3.getChannelName());
+    assertEquals(mseed2.getNetworkName(), mseed3.getNetworkName());
+
+    mseed2.load();
+    mseed3.load();
+    List<Segment> segments2 = mseed2.getRawData();
+    List<Segment> segments3 = mseed3.getRawData();
+    assertEquals(segments2.size(), segments3.size());
+    for (int i = 0; i < segments2.size(); i++) {
+      assertEquals(segments2.get(i).getStartTimeMillis(), segments3.get(i).getStartTimeMillis());
+      assertArrayEquals(segments2.get(i).getData().data, segments3.get(i).getData().data);
+    }
+  }
+
+  @Test
+  public void load_compressedStore_matches_decoded() {
+    File mseed2 = new File("src/test/resources/2018-270.00_LHZ.512.seed");
+    File mseed3 = new File("src/test/resources/2018-270.00_LHZ.mseed3");
+    for (File file : new File[]{mseed2, mseed3}) {
+      PlotDataProvider decoded = (file == mseed2 ? new SourceFileMseed(file)
+          : new SourceFileMseed3(file)).parse().iterator().next();
+      decoded.load();
+      Segment.setSampleStore(new CompressedSampleStore(CompressedSampleStore.DEFAULT_CACHE_BYTES));
+      try {
+        PlotDataProvider compressed = (file == mseed2 ? new SourceFileMseed(file)
+            : new SourceFileMseed3(file)).parse().iterator().next();
+        compressed.load();
+        List<Segment> decodedSegments = decoded.getRawData();
+        List<Segment> compressedSegments = compressed.getRawData();
+        assertEquals(decodedSegments.size(), compressedSegments.size());
+        for (int i = 0; i < decodedSegments.size(); i++) {
+          Segment expected = decodedSegments.get(i);
+          Segment actual = compressedSegments.get(i);
+          assertEquals(expected.getMaxValue(), actual.getMaxValue());
+          assertEquals(expected.getMinValue(), actual.getMinValue());
+          assertArrayEquals(expected.getData().data, actual.getData().data);
+          double middle = (expected.getStartTimeMillis() + expected.getEndTimeMillis()) / 2.0;
+          assertArrayEquals(expected.getData(middle, expected.getEndTimeMillis()).data,
+              actual.getData(middle, actual.getEndTimeMillis()).data);
+        }
+      } finally {
+        Segment.setSampleStore(HeapSampleStore.INSTANCE);
+      }
+    }
+  }
 
   @Test
   public void toString_returns_expected() {
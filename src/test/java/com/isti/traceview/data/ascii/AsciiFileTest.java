@@ -0,0 +1,130 @@
+package com.isti.traceview.data.ascii;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AsciiFileTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void index_everyBdfBlock() throws Exception {
+    Random random = new Random(1);
+    int[][] samples = {randomSamples(random, 100000), randomSamples(random, 3),
+        randomSamples(random, 7)};
+    StringBuilder text = new StringBuilder();
+    for (int b = 0; b < samples.length; b++) {
+      // the last block repeats only the headers which change
+      if (b < 2) {
+        text.append("NET IU\nSTA ANMO\nLOC 00\nRATE 20\n");
+      }
+      text.append("COMP BH").append(b).append("\nTIME 2018,270,10:30:1").append(b)
+          .append(".2500\nNSAM ").append(samples[b].length).append("\nDATA\n");
+      for (int sample : samples[b]) {
+        text.append(sample).append('\n');
+      }
+    }
+    File file = write("bdf.txt", text.toString());
+
+    try (FileChannel channel = FileChannel.open(file.toPath())) {
+      AsciiFile ascii = AsciiFile.index(channel);
+      List<AsciiBlock> blocks = ascii.getBlocks();
+      assertEquals(samples.length, blocks.size());
+      for (int b = 0; b < samples.length; b++) {
+        AsciiBlock block = blocks.get(b);
+        assertEquals("IU", block.getNetwork());
+        assertEquals("ANMO", block.getStation());
+        assertEquals("00", block.getLocation());
+        assertEquals("BH" + b, block.getChannel());
+        assertEquals(50.0, block.getSampleInterval(), 0);
+        assertEquals(time("2018-09-27T10:30:1" + b + ".250"), block.getStartTime());
+        assertEquals(AsciiBlock.Layout.VALUES, block.getLayout());
+        assertEquals(block, ascii.getBlock(block.getDataOffset()));
+        assertArrayEquals(samples[b], AsciiFile.read(channel, block));
+      }
+      assertNull(ascii.getBlock(1));
+    }
+  }
+
+  @Test
+  public void index_timeseriesSlistAndTspair() throws Exception {
+    String text = "TIMESERIES XX_STA1__BHZ_D, 8 samples, 40 sps, 2018-09-27T10:30:15.125000, "
+        + "SLIST, INTEGER, Counts\r\n"
+        + "  1\t-2  3 +4 -5 6\r\n  7 8\r\n"
+        + "TIMESERIES XX_STA2_10_LHZ_D, 3 samples, 1 sps, 2018-09-27T10:30:16.000000, "
+        + "TSPAIR, FLOAT, Counts\n"
+        + "2018-09-27T10:30:16.000000  12.4\n"
+        + "2018-09-27T10:30:17.000000  -1.5e3\n"
+        + "2018-09-27T10:30:18.000000  0.0051E+4\n";
+    File file = write("timeseries.txt", text);
+
+    try (FileChannel channel = FileChannel.open(file.toPath())) {
+      List<AsciiBlock> blocks = AsciiFile.index(channel).getBlocks();
+      assertEquals(2, blocks.size());
+      AsciiBlock slist = blocks.get(0);
+      assertEquals("XX", slist.getNetwork());
+      assertEquals("STA1", slist.getStation());
+      assertEquals("", slist.getLocation());
+      assertEquals("BHZ", slist.getChannel());
+      assertEquals(25.0, slist.getSampleInterval(), 0);
+      assertEquals(time("2018-09-27T10:30:15.125"), slist.getStartTime());
+      assertArrayEquals(new int[]{1, -2, 3, 4, -5, 6, 7, 8}, AsciiFile.read(channel, slist));
+      AsciiBlock tspair = blocks.get(1);
+      assertEquals("10", tspair.getLocation());
+      assertEquals(AsciiBlock.Layout.TIME_VALUE_PAIRS, tspair.getLayout());
+      assertArrayEquals(new int[]{12, -1500, 51}, AsciiFile.read(channel, tspair));
+    }
+  }
+
+  @Test
+  public void index_dropsTruncatedLastBlock() throws Exception {
+    File file = write("truncated.txt", "TIMESERIES XX_STA__BHZ_D, 2 samples, 1 sps, "
+        + "2018-09-27T10:30:15.000000, SLIST, INTEGER, Counts\n1 2\n"
+        + "TIMESERIES XX_STA__BHZ_D, 3 samples, 1 sps, "
+        + "2018-09-27T10:30:17.000000, SLIST, INTEGER, Counts\n3 4\n");
+    try (FileChannel channel = FileChannel.open(file.toPath())) {
+      assertEquals(1, AsciiFile.index(channel).getBlocks().size());
+    }
+  }
+
+  @Test(expected = AsciiFormatException.class)
+  public void read_rejectsValueWhichIsNotANumber() throws Exception {
+    File file = write("bad.txt", "NET IU\nSTA ANMO\nLOC 00\nCOMP LHZ\nRATE 1.0\n"
+        + "TIME 2018,270,10:30:15.0000\nNSAM 2\nDATA\n1\n2x\n");
+    try (FileChannel channel = FileChannel.open(file.toPath())) {
+      AsciiFile.read(channel, AsciiFile.index(channel).getBlocks().get(0));
+    }
+  }
+
+  private static int[] randomSamples(Random random, int count) {
+    int[] samples = new int[count];
+    for (int i = 0; i < count; i++) {
+      samples[i] = random.nextInt() >> random.nextInt(32);
+    }
+    return samples;
+  }
+
+  private static long time(String time) {
+    return LocalDateTime.parse(time).toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+
+  private File write(String name, String text) throws Exception {
+    File file = folder.newFile(name);
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+    return file;
+  }
+}
@@ -0,0 +1,150 @@
+package com.isti.traceview.data.fdsn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.isti.traceview.TraceView;
+import com.isti.traceview.TraceViewException;
+import com.isti.traceview.common.Configuration;
+import com.isti.traceview.data.PlotDataProvider;
+import com.isti.traceview.data.Segment;
+import com.isti.traceview.source.SourceFileMseed;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FdsnFetcherTest {
+
+  private static final File SEED = new File("src/test/resources/ANMO_00_LHZ_GAP.512.seed");
+  private static final long HOUR = 3600 * 1000L;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private HttpServer server;
+  private final AtomicInteger requests = new AtomicInteger();
+
+  @Before
+  public void setUp() throws Exception {
+    try {
+      TraceView.setConfiguration(new Configuration());
+    } catch (TraceViewException e) {
+      System.out.println("Error in creating default config file");
+    }
+    // stand-in dataselect service: the bundled seed file for ANMO, an error for FAIL, no data for
+    // other stations
+    byte[] seed = Files.readAllBytes(SEED.toPath());
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/fdsnws/dataselect/1/query", exchange -> {
+      requests.incrementAndGet();
+      String query = exchange.getRequestURI().getQuery();
+      if (query.contains("sta=ANMO")) {
+        exchange.sendResponseHeaders(200, seed.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(seed);
+        }
+      } else if (query.contains("sta=FAIL")) {
+        exchange.sendResponseHeaders(500, -1);
+      } else {
+        exchange.sendResponseHeaders(404, -1);
+      }
+      exchange.close();
+    });
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  public void fetch_downloadsChunksOnceIntoTheCache() throws Exception {
+    long start = LocalDateTime.parse("2018-01-01T00:30:00").toInstant(ZoneOffset.UTC)
+        .toEpochMilli();
+    List<FdsnRequest> window = Arrays.asList(
+        new FdsnRequest("IU", "ANMO", "00", "LHZ", start, start + 2 * HOUR),
+        new FdsnRequest("IU", "XXXX", "00", "LHZ", start, start + 2 * HOUR));
+    MseedCache cache = new MseedCache(folder.newFolder("cache"));
+    FdsnFetcher fetcher = new FdsnFetcher("http", "127.0.0.1", server.getAddress().getPort(),
+        "/fdsnws/", cache, HOUR, 3);
+
+    List<File> files = fetcher.fetch(window);
+    // three hour chunks touched by each window
+    assertEquals(6, requests.get());
+    assertEquals(3, files.size());
+    // the same content is stored once
+    assertEquals(1, files.stream().distinct().count());
+    assertArrayEquals(Files.readAllBytes(SEED.toPath()),
+        Files.readAllBytes(files.get(0).toPath()));
+
+    // reopening an overlapping window only downloads the chunk not seen before
+    List<File> again = fetcher.fetch(Arrays.asList(
+        new FdsnRequest("IU", "ANMO", "00", "LHZ", start + HOUR, start + 3 * HOUR)));
+    assertEquals(7, requests.get());
+    assertEquals(3, again.size());
+    assertEquals(files.get(0), again.get(0));
+
+    // cached data loads through the miniSEED file source like the original file
+    Set<PlotDataProvider> cached = new SourceFileMseed(files.get(0)).parse();
+    Set<PlotDataProvider> original = new SourceFileMseed(SEED).parse();
+    assertEquals(1, cached.size());
+    Segment cachedSegment = cached.iterator().next().getRawData().get(0);
+    Segment originalSegment = original.iterator().next().getRawData().get(0);
+    cachedSegment.load();
+    originalSegment.load();
+    assertArrayEquals(originalSegment.getData().data, cachedSegment.getData().data);
+  }
+
+  @Test
+  public void fetch_leavesOutChunksWhichFail() throws Exception {
+    MseedCache cache = new MseedCache(folder.newFolder("cache"));
+    FdsnFetcher fetcher = new FdsnFetcher("http", "127.0.0.1", server.getAddress().getPort(),
+        "fdsnws", cache, HOUR, 2);
+    List<File> files = fetcher.fetch(Arrays.asList(
+        new FdsnRequest("IU", "FAIL", "00", "LHZ", 0, 2 * HOUR),
+        new FdsnRequest("IU", "ANMO", "00", "LHZ", 0, HOUR)));
+    assertEquals(1, files.size());
+    // failed chunks are asked for again by the next fetch
+    fetcher.fetch(Arrays.asList(new FdsnRequest("IU", "FAIL", "00", "LHZ", 0, 2 * HOUR)));
+    assertEquals(5, requests.get());
+  }
+
+  @Test
+  public void cache_remembersOnlyCompleteRequests() throws Exception {
+    MseedCache cache = new MseedCache(folder.newFolder("cache"));
+    File later = cache.put("later", new ByteArrayInputStream(new byte[]{1, 2, 3}), false);
+    assertNull(cache.get("later"));
+    File stored = cache.put("done", new ByteArrayInputStream(new byte[]{1, 2, 3}), true);
+    assertArrayEquals(Files.readAllBytes(later.toPath()), Files.readAllBytes(stored.toPath()));
+    assertEquals(stored, cache.get("done"));
+    // refetched content of a request which isn't remembered replaces the previous one
+    File grown = cache.put("later", new ByteArrayInputStream(new byte[]{1, 2, 3, 4}), false);
+    assertFalse(later.exists());
+    assertEquals(4, grown.length());
+    assertEquals(grown, cache.put("later", new ByteArrayInputStream(new byte[]{1, 2, 3, 4}), false));
+    assertTrue(grown.exists());
+    cache.put("later", new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5}), true);
+    assertFalse(grown.exists());
+    assertTrue(stored.exists());
+    assertEquals(0, cache.put("empty", new ByteArrayInputStream(new byte[0]), true).length());
+    assertEquals(0, cache.get("empty").length());
+  }
+}
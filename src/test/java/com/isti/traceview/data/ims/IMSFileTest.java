@@ -0,0 +1,145 @@
+package com.isti.traceview.data.ims;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IMSFileTest {
+
+  private static final String CM6_ALPHABET =
+      "+-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void read_decodesIntAndCm6Blocks() throws Exception {
+    Random random = new Random(1);
+    int count = 5000;
+    int[] noise = new int[count];
+    int[] wave = new int[count];
+    for (int i = 0; i < count; i++) {
+      noise[i] = random.nextInt(2000000) - 1000000;
+      wave[i] = (int) (1e6 * Math.sin(i / 10.0)) + random.nextInt(100);
+    }
+    StringBuilder text = new StringBuilder(
+        "BEGIN IMS2.0\nMSG_TYPE DATA\nMSG_ID 1 TEST\nDATA_TYPE WAVEFORM IMS2.0\n");
+    text.append(wid2("INT", count)).append(sta2()).append("DAT2\n");
+    for (int i = 0; i < count; i++) {
+      text.append(noise[i]).append(i % 8 == 7 || i == count - 1 ? "\n" : " ");
+    }
+    text.append("CHK2 1\n");
+    text.append(wid2("CM6", count)).append(sta2()).append("DAT2\r\n").append(cm6(wave, "\r\n"))
+        .append("CHK2 2\nSTOP\n");
+    File file = folder.newFile("test.ims");
+    Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+    try (FileChannel channel = FileChannel.open(file.toPath())) {
+      List<BlockSet> decoded = getBlockSets(IMSFile.read(new IMSLineReader(channel, 0), false));
+      assertEquals(2, decoded.size());
+      assertArrayEquals(noise, decoded.get(0).getDAT2().getData());
+      assertArrayEquals(wave, decoded.get(1).getDAT2().getData());
+
+      // parse only skips data blocks, which then decode from their recorded offsets
+      List<BlockSet> parsed = getBlockSets(IMSFile.read(new IMSLineReader(channel, 0), true));
+      assertEquals(2, parsed.size());
+      assertNull(parsed.get(1).getDAT2().getData());
+      assertEquals(decoded.get(1).getStartOffset(), parsed.get(1).getStartOffset());
+      BlockSet blockSet = new BlockSet();
+      blockSet.read(new IMSLineReader(channel, parsed.get(1).getStartOffset()), false);
+      assertArrayEquals(wave, blockSet.getDAT2().getData());
+      assertEquals("IU", blockSet.getSTA2().getNetwork().trim());
+    }
+  }
+
+  @Test
+  public void lineReader_matchesRandomAccessFile() throws Exception {
+    Random random = new Random(2);
+    StringBuilder text = new StringBuilder();
+    String[] terminators = {"\n", "\r", "\r\n", "\n\n"};
+    for (int i = 0; i < 20000; i++) {
+      for (int j = random.nextInt(300); j > 0; j--) {
+        text.append((char) ('a' + random.nextInt(26)));
+      }
+      text.append(terminators[random.nextInt(terminators.length)]);
+    }
+    File file = folder.newFile("lines.txt");
+    Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+    try (FileChannel channel = FileChannel.open(file.toPath());
+        RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      IMSLineReader reader = new IMSLineReader(channel, 0);
+      String expected;
+      int lines = 0;
+      do {
+        expected = raf.readLine();
+        assertEquals(expected, reader.readLine());
+        assertEquals(raf.getFilePointer(), reader.getFilePointer());
+        if (++lines % 1000 == 0) {
+          long back = Math.max(0, raf.getFilePointer() - random.nextInt(100000));
+          raf.seek(back);
+          reader.seek(back);
+        }
+      } while (expected != null);
+    }
+  }
+
+  private static List<BlockSet> getBlockSets(IMSFile ims) {
+    return ((DataTypeWaveform) ims.getDataTypes().get(0)).getBlockSets();
+  }
+
+  private static String wid2(String compression, int count) {
+    return String.format("WID2 %23s %-5s %-3s %-4s %-3s %8d %11.6f %10.2e %7.3f %-6s %5.1f %4.1f\n",
+        "2018/09/27 00:00:00.000", "ANMO", "LHZ", "", compression, count, 1.0, 1.0, 1.0, "STS-2",
+        -1.0, 0.0);
+  }
+
+  private static String sta2() {
+    return String.format("STA2 %-9s %9.5f %10.5f %-12s %5.3f %5.3f\n", "IU", 34.94591,
+        -106.4572, "WGS-84", 1.85, 0.1);
+  }
+
+  /**
+   * CM6 encoding of second differences, in 80 character lines
+   */
+  private static String cm6(int[] samples, String terminator) {
+    long[] differences = new long[samples.length];
+    for (int i = 0; i < samples.length; i++) {
+      differences[i] = samples[i];
+    }
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = differences.length - 1; i > 0; i--) {
+        differences[i] -= differences[i - 1];
+      }
+    }
+    StringBuilder chars = new StringBuilder();
+    for (long value : differences) {
+      long abs = Math.abs(value);
+      int more = 0;
+      while (abs >= (1L << (4 + 5 * more))) {
+        more++;
+      }
+      chars.append(CM6_ALPHABET.charAt(
+          (int) ((abs >> (5 * more)) & 15) | (value < 0 ? 16 : 0) | (more > 0 ? 32 : 0)));
+      for (int i = more - 1; i >= 0; i--) {
+        chars.append(CM6_ALPHABET.charAt((int) ((abs >> (5 * i)) & 31) | (i > 0 ? 32 : 0)));
+      }
+    }
+    StringBuilder lines = new StringBuilder();
+    for (int i = 0; i < chars.length(); i += 80) {
+      lines.append(chars, i, Math.min(chars.length(), i + 80)).append(terminator);
+    }
+    return lines.toString();
+  }
+}
@@ -0,0 +1,155 @@
+package com.isti.traceview.data.mseed;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+public class CompressedSamplesTest {
+
+  private static final Logger logger = Logger.getLogger(CompressedSamplesTest.class);
+
+  private static final File steimFile = new File("src/test/resources/2018-270.00_LHZ.512.seed");
+
+  private static final int BENCHMARK_ROUNDS = 2000;
+
+  @Test
+  public void reads_matchDecodedRecords() throws IOException, MseedFormatException {
+    CompressedSampleStore store = new CompressedSampleStore(1024 * 1024);
+    CompressedSamples.Builder builder = store.newBuilder();
+    int[] expected = load(steimFile, builder);
+    CompressedSamples samples = builder.build();
+
+    assertTrue(expected.length > 2 * DecodedBlockCache.BLOCK_SAMPLES);
+    assertEquals(expected.length, samples.length());
+    assertEquals(Arrays.stream(expected).min().getAsInt(), builder.getMinValue());
+    assertEquals(Arrays.stream(expected).max().getAsInt(), builder.getMaxValue());
+    assertArrayEquals(expected, samples.toArray());
+    for (int i = 0; i < expected.length; i += 97) {
+      assertEquals(expected[i], samples.get(i));
+    }
+    // ranges starting inside records and crossing blocks
+    Random random = new Random(1);
+    for (int i = 0; i < 100; i++) {
+      int from = random.nextInt(expected.length);
+      int count = random.nextInt(Math.min(expected.length - from, 3 * 4096) + 1);
+      int[] range = new int[count + 1];
+      samples.get(from, range, 1, count);
+      assertArrayEquals(Arrays.copyOfRange(expected, from, from + count),
+          Arrays.copyOfRange(range, 1, count + 1));
+    }
+    assertTrue(store.getCache().getHitCount() > 0);
+    assertTrue(store.getCache().getMissCount() > 0);
+    assertTrue(store.getCache().getDecodeNanos() > 0);
+    assertTrue(samples.getCompressedLength() < 4 * expected.length);
+  }
+
+  @Test
+  public void cache_evictsLeastRecentlyUsedBlocks() throws IOException, MseedFormatException {
+    // room for two blocks
+    CompressedSampleStore store = new CompressedSampleStore(8 * DecodedBlockCache.BLOCK_SAMPLES);
+    CompressedSamples.Builder builder = store.newBuilder();
+    load(steimFile, builder);
+    CompressedSamples samples = builder.build();
+    DecodedBlockCache cache = store.getCache();
+    int block = DecodedBlockCache.BLOCK_SAMPLES;
+
+    samples.get(0);
+    samples.get(block);
+    samples.get(1);
+    assertEquals(1, cache.getHitCount());
+    // evicts the second block, read before the first one
+    samples.get(2 * block);
+    assertEquals(2 * block, cache.getSize());
+    samples.get(2);
+    assertEquals(2, cache.getHitCount());
+    samples.get(block + 1);
+    assertEquals(4, cache.getMissCount());
+    assertEquals(2.0 / 6, cache.getHitRatio(), 1e-9);
+
+    samples.release();
+    assertEquals(0, cache.getSize());
+    cache.resetStatistics();
+    assertEquals(0, cache.getHitRatio(), 0);
+  }
+
+  @Test
+  public void zeros_takePlaceOfUndecodableRecords() {
+    CompressedSampleStore store = new CompressedSampleStore(1024 * 1024);
+    CompressedSamples.Builder builder = store.newBuilder();
+    builder.addZeros(10);
+    CompressedSamples samples = builder.build();
+    assertArrayEquals(new int[10], samples.toArray());
+    assertEquals(0, samples.get(9));
+    assertEquals(0, builder.getMinValue());
+    assertEquals(0, builder.getMaxValue());
+  }
+
+  /**
+   * Reads random windows of a day of data the way panning does, and reports memory taken by
+   * compressed and decoded samples, cache hit ratio and decode time
+   */
+  @Test
+  public void benchmark_windowReads() throws IOException, MseedFormatException {
+    // a tenth of the decoded day
+    CompressedSampleStore store = new CompressedSampleStore(4 * 8640);
+    CompressedSamples.Builder builder = store.newBuilder();
+    int[] expected = load(steimFile, builder);
+    CompressedSamples samples = builder.build();
+    DecodedBlockCache cache = store.getCache();
+    cache.resetStatistics();
+
+    Random random = new Random(1);
+    int window = expected.length / 24;
+    int position = expected.length / 2;
+    long sum = 0;
+    long expectedSum = 0;
+    long start = System.nanoTime();
+    int[] values = new int[window];
+    for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+      // pan by up to a tenth of the window either way
+      position += random.nextInt(window / 5 + 1) - window / 10;
+      position = Math.max(0, Math.min(position, expected.length - window));
+      samples.get(position, values, 0, window);
+      sum += values[window / 2];
+      expectedSum += expected[position + window / 2];
+    }
+    double seconds = (System.nanoTime() - start) * 1e-9;
+    logger.debug(String.format("%d samples, %d bytes compressed, %d bytes decoded; "
+        + "%d window reads in %.3f sec; %s", expected.length,
+        samples.getCompressedLength(), 4L * expected.length, BENCHMARK_ROUNDS, seconds, cache));
+    assertEquals(expectedSum, sum);
+    assertTrue(cache.getHitRatio() > 0.5);
+  }
+
+  /**
+   * Adds all records of a file to a builder
+   *
+   * @return samples of the file, decoded
+   */
+  private static int[] load(File file, CompressedSamples.Builder builder)
+      throws IOException, MseedFormatException {
+    MappedMseedFile mapped = new MappedMseedFile(file);
+    MseedRecordHeader header = new MseedRecordHeader();
+    int[] decoded = new int[0];
+    int count = 0;
+    for (long offset = 0; offset < mapped.length(); offset += header.getRecordLength()) {
+      assertTrue(mapped.readHeader(offset, 4096, header));
+      int n = header.getNumSamples();
+      if (!header.isDataRecord() || n == 0) {
+        continue;
+      }
+      decoded = Arrays.copyOf(decoded, count + n);
+      mapped.decode(offset, header, header.getEncoding(), n, decoded, count);
+      mapped.append(offset, header, header.getEncoding(), n, builder);
+      count += n;
+    }
+    return decoded;
+  }
+}
@@ -0,0 +1,193 @@
+package com.isti.traceview.data.mseed;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import edu.iris.Fissures.FissuresException;
+import edu.sc.seis.fissuresUtil.mseed.FissuresConvert;
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import edu.sc.seis.seisFile.mseed.SeedFormatException;
+import edu.sc.seis.seisFile.mseed.SeedRecord;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+/**
+ * Checks decoded samples against the FissuresConvert path SourceFileMseed used before, and
+ * compares decoding speed of both
+ */
+public class MseedDecoderTest {
+
+  private static final Logger logger = Logger.getLogger(MseedDecoderTest.class);
+
+  private static final File anmoDirectory = new File("seed/IU_ANMO/2014_199");
+
+  private static final int BENCHMARK_ROUNDS = 5;
+
+  @Test
+  public void steim_matchesFissuresConvert()
+      throws IOException, SeedFormatException, FissuresException {
+    for (File file : anmoFiles()) {
+      MappedMseedFile mapped = new MappedMseedFile(file);
+      MseedRecordHeader header = new MseedRecordHeader();
+      byte[] bytes = Files.readAllBytes(file.toPath());
+      for (long offset : recordOffsets(bytes)) {
+        assertTrue(mapped.readHeader(offset, 4096, header));
+        int[] expected = decodeWithFissures(readRecord(bytes, offset));
+        // decode at a non-zero offset to check destination indexing
+        int[] actual = new int[expected.length + 7];
+        int count = mapped.decode(offset, header, header.getEncoding(), header.getNumSamples(),
+            actual, 7);
+        assertEquals(expected.length, count);
+        int[] decoded = new int[count];
+        System.arraycopy(actual, 7, decoded, 0, count);
+        assertArrayEquals(file + " at " + offset, expected, decoded);
+      }
+    }
+  }
+
+  @Test
+  public void int32_bothByteOrders() throws MseedFormatException {
+    int[] values = {0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 123456};
+    for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(order);
+      for (int value : values) {
+        buffer.putInt(value);
+      }
+      int[] decoded = new int[values.length];
+      MseedDecoder.decode(buffer, 0, buffer.capacity(), MseedDecoder.INT32,
+          order == ByteOrder.LITTLE_ENDIAN, values.length, decoded, 0);
+      assertArrayEquals(values, decoded);
+    }
+  }
+
+  @Test
+  public void int16AndFloat_decode() throws MseedFormatException {
+    ByteBuffer buffer = ByteBuffer.allocate(24);
+    buffer.putShort((short) -2).putShort((short) 300);
+    buffer.putFloat(8, -3.75f).putFloat(12, 1e6f);
+    buffer.putDouble(16, 42.9);
+    int[] decoded = new int[5];
+    MseedDecoder.decode(buffer, 0, 4, MseedDecoder.INT16, false, 2, decoded, 0);
+    MseedDecoder.decode(buffer, 8, 8, MseedDecoder.FLOAT32, false, 2, decoded, 2);
+    MseedDecoder.decode(buffer, 16, 8, MseedDecoder.FLOAT64, false, 1, decoded, 4);
+    assertArrayEquals(new int[]{-2, 300, -3, 1000000, 42}, decoded);
+  }
+
+  @Test(expected = MseedFormatException.class)
+  public void unsupportedEncoding_throws() throws MseedFormatException {
+    MseedDecoder.decode(ByteBuffer.allocate(64), 0, 64, 30, false, 1, new int[1], 0);
+  }
+
+  @Test
+  public void benchmark_againstFissuresConvert()
+      throws IOException, SeedFormatException, FissuresException {
+    List<DataRecord> records = new ArrayList<>();
+    List<MappedMseedFile> mappedFiles = new ArrayList<>();
+    List<long[]> offsets = new ArrayList<>();
+    for (File file : anmoFiles()) {
+      mappedFiles.add(new MappedMseedFile(file));
+      byte[] bytes = Files.readAllBytes(file.toPath());
+      List<Long> fileOffsets = recordOffsets(bytes);
+      long[] array = new long[fileOffsets.size()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = fileOffsets.get(i);
+        records.add(readRecord(bytes, array[i]));
+      }
+      offsets.add(array);
+    }
+
+    long fissuresSum = 0;
+    long start = System.nanoTime();
+    for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+      for (DataRecord record : records) {
+        for (int value : decodeWithFissures(record)) {
+          fissuresSum += value;
+        }
+      }
+    }
+    double fissuresSeconds = (System.nanoTime() - start) * 1e-9;
+
+    long nativeSum = 0;
+    MseedRecordHeader header = new MseedRecordHeader();
+    int[] buffer = new int[MseedRecordHeader.MAX_RECORD_LENGTH];
+    start = System.nanoTime();
+    for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+      for (int f = 0; f < mappedFiles.size(); f++) {
+        MappedMseedFile mapped = mappedFiles.get(f);
+        for (long offset : offsets.get(f)) {
+          mapped.readHeader(offset, 4096, header);
+          int count = mapped.decode(offset, header, header.getEncoding(),
+              header.getNumSamples(), buffer, 0);
+          for (int i = 0; i < count; i++) {
+            nativeSum += buffer[i];
+          }
+        }
+      }
+    }
+    double nativeSeconds = (System.nanoTime() - start) * 1e-9;
+
+    logger.debug(String.format("%d records x %d rounds, FissuresConvert %.3f sec, "
+        + "MseedDecoder %.3f sec", records.size(), BENCHMARK_ROUNDS, fissuresSeconds,
+        nativeSeconds));
+    assertEquals(fissuresSum, nativeSum);
+  }
+
+  private static File[] anmoFiles() {
+    File[] files = anmoDirectory.listFiles((dir, name) -> name.endsWith(".seed"));
+    assertTrue(files != null && files.length > 0);
+    Arrays.sort(files);
+    return files;
+  }
+
+  /**
+   * @return offsets of data records holding samples, as seisFile reads the records in sequence
+   */
+  private static List<Long> recordOffsets(byte[] bytes) throws IOException, SeedFormatException {
+    List<Long> offsets = new ArrayList<>();
+    ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+    DataInputStream data = new DataInputStream(in);
+    while (in.available() > 0) {
+      long offset = bytes.length - in.available();
+      SeedRecord sr;
+      try {
+        sr = SeedRecord.read(data, 4096);
+      } catch (EOFException e) {
+        break;
+      }
+      if (sr instanceof DataRecord && ((DataRecord) sr).getHeader().getNumSamples() > 0) {
+        offsets.add(offset);
+      }
+    }
+    return offsets;
+  }
+
+  private static DataRecord readRecord(byte[] bytes, long offset)
+      throws IOException, SeedFormatException {
+    return (DataRecord) SeedRecord.read(new DataInputStream(
+        new ByteArrayInputStream(bytes, (int) offset, bytes.length - (int) offset)), 4096);
+  }
+
+  /**
+   * Decoding as SourceFileMseed.load() used to do it
+   */
+  private static int[] decodeWithFissures(DataRecord record) throws FissuresException {
+    double[] doubles = FissuresConvert.toFissures(record).get_as_doubles();
+    int[] ints = new int[doubles.length];
+    for (int i = 0; i < ints.length; i++) {
+      ints[i] = (int) doubles[i];
+    }
+    return ints;
+  }
+}
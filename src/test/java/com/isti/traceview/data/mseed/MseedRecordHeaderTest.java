@@ -0,0 +1,90 @@
+package com.isti.traceview.data.mseed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import edu.sc.seis.seisFile.mseed.Blockette1000;
+import edu.sc.seis.seisFile.mseed.DataHeader;
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import edu.sc.seis.seisFile.mseed.SeedFormatException;
+import edu.sc.seis.seisFile.mseed.SeedRecord;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import org.junit.Test;
+
+public class MseedRecordHeaderTest {
+
+  private static final String[] files = {
+      "src/test/resources/2018-270.00_LHZ.512.seed",
+      "src/test/resources/ANMO_00_LHZ_GAP.512.seed",
+      "src/test/resources/93_OCF_NO_SAMPLES.512.seed",
+      "src/test/resources/overlaps/cat.00_LH1.512.seed",
+      "src/test/resources/ppm/00_BH1.512.seed"};
+
+  @Test
+  public void mappedHeaders_matchSeisFile() throws IOException, SeedFormatException {
+    for (String filename : files) {
+      File file = new File(filename);
+      MappedMseedFile mapped = new MappedMseedFile(file);
+      MseedRecordHeader header = new MseedRecordHeader();
+      int records = 0;
+      byte[] bytes = Files.readAllBytes(file.toPath());
+      ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+      try (DataInputStream data = new DataInputStream(in)) {
+        while (in.available() > 0) {
+          long offset = bytes.length - in.available();
+          SeedRecord sr;
+          try {
+            sr = SeedRecord.read(data, 4096);
+          } catch (EOFException e) {
+            break;
+          }
+          assertTrue(mapped.readHeader(offset, 4096, header));
+          assertEquals(sr instanceof DataRecord, header.isDataRecord());
+          if (sr instanceof DataRecord) {
+            DataRecord dr = (DataRecord) sr;
+            DataHeader dh = dr.getHeader();
+            assertEquals(dh.getNetworkCode(), header.getNetworkCode());
+            assertEquals(dh.getStationIdentifier(), header.getStationIdentifier());
+            assertEquals(dh.getLocationIdentifier(), header.getLocationIdentifier());
+            assertEquals(dh.getChannelIdentifier(), header.getChannelIdentifier());
+            assertEquals(dh.getStartBtime().convertToCalendar().getTimeInMillis(),
+                header.getStartTime());
+            assertEquals(dh.getNumSamples(), header.getNumSamples());
+            assertEquals(dh.calcSampleRateFromMultipilerFactor(), header.getSampleRateHz(), 0.0);
+            assertEquals(dh.getDataOffset(), header.getDataOffset());
+            Blockette1000 b1000 = (Blockette1000) dr.getBlockettes(1000)[0];
+            assertEquals(b1000.getEncodingFormat(), header.getEncoding());
+            assertEquals(b1000.getDataRecordLength(), header.getRecordLength());
+          }
+          assertEquals(bytes.length - in.available() - offset, header.getRecordLength());
+          records++;
+        }
+      }
+      assertTrue(filename, records > 0);
+    }
+  }
+
+  @Test
+  public void recordLengthOutOfBounds_isRejected() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(new File(files[0]).toPath()));
+    MseedRecordHeader header = new MseedRecordHeader();
+    assertTrue(header.read(buffer, 0, 4096));
+    int b1000 = buffer.getShort(46);
+    assertEquals(1000, buffer.getShort(b1000));
+    for (byte exponent : new byte[]{0, 6, 17, 31, -1}) {
+      buffer.put(b1000 + 6, exponent);
+      assertFalse(header.read(buffer, 0, 4096));
+      assertFalse(header.readRecordLength(buffer, 0, 4096));
+    }
+    buffer.put(b1000 + 6, (byte) 16);
+    assertTrue(header.read(buffer, 0, 4096));
+    assertEquals(65536, header.getRecordLength());
+  }
+}
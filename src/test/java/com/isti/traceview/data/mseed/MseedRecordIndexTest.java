@@ -0,0 +1,233 @@
+package com.isti.traceview.data.mseed;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.isti.traceview.common.SNCLFilter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MseedRecordIndexTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void storedIndex_matchesScan() throws IOException {
+    File file = new File("src/test/resources/2018-270.00_LHZ.512.seed");
+    File indexDirectory = new File(folder.getRoot(), "index");
+    MseedRecordIndex scanned = MseedRecordIndex.scan(file.getCanonicalPath(),
+        new MappedMseedFile(file), 4096);
+    assertTrue(scanned.isComplete());
+    assertEquals(279, scanned.size());
+    assertNull(MseedRecordIndex.read(indexDirectory, file));
+
+    scanned.write(indexDirectory);
+    MseedRecordIndex stored = MseedRecordIndex.read(indexDirectory, file);
+    assertNotNull(stored);
+    assertEquals(scanned.size(), stored.size());
+    for (int i = 0; i < scanned.size(); i++) {
+      assertEquals(scanned.getOffset(i), stored.getOffset(i));
+      assertEquals(scanned.getStartTime(i), stored.getStartTime(i));
+      assertEquals(scanned.getSampleCount(i), stored.getSampleCount(i));
+      assertEquals(scanned.getSampleInterval(i), stored.getSampleInterval(i), 0.0);
+      assertEquals(scanned.getNetworkCode(i), stored.getNetworkCode(i));
+      assertEquals(scanned.getStationIdentifier(i), stored.getStationIdentifier(i));
+      assertEquals(scanned.getLocationIdentifier(i), stored.getLocationIdentifier(i));
+      assertEquals(scanned.getChannelIdentifier(i), stored.getChannelIdentifier(i));
+    }
+    assertEquals(1538006400069L, stored.getStartTime(0));
+    assertEquals("IU", stored.getNetworkCode(0));
+    assertEquals("LHZ", stored.getChannelIdentifier(0));
+  }
+
+  @Test
+  public void storedIndex_ignoredWhenFileChanges() throws IOException {
+    File file = folder.newFile("changing.512.seed");
+    Files.copy(new File("src/test/resources/2018-270.00_LHZ.512.seed").toPath(), file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING);
+    File indexDirectory = folder.newFolder("index");
+    MseedRecordIndex.scan(file.getCanonicalPath(), new MappedMseedFile(file), 4096)
+        .write(indexDirectory);
+    assertNotNull(MseedRecordIndex.read(indexDirectory, file));
+
+    assertTrue(file.setLastModified(file.lastModified() - 60000));
+    assertNull(MseedRecordIndex.read(indexDirectory, file));
+  }
+
+  @Test
+  public void scan_resumesAtEndOfGrowingFile() throws IOException {
+    File source = new File("src/test/resources/2018-270.00_LHZ.512.seed");
+    byte[] bytes = Files.readAllBytes(source.toPath());
+    MseedRecordIndex whole = MseedRecordIndex.scan(source.getCanonicalPath(),
+        new MappedMseedFile(source), 4096);
+
+    // 100 records and a part of the next one written so far
+    File file = folder.newFile("growing.512.seed");
+    Files.write(file.toPath(), Arrays.copyOf(bytes, 100 * 512 + 200));
+    MseedRecordIndex first = MseedRecordIndex.scan(file.getCanonicalPath(),
+        new MappedMseedFile(file), 4096);
+    assertEquals(100, first.size());
+    assertEquals(100 * 512, first.getEndOffset());
+
+    Files.write(file.toPath(), Arrays.copyOfRange(bytes, 100 * 512 + 200, bytes.length),
+        StandardOpenOption.APPEND);
+    MseedRecordIndex appended = MseedRecordIndex.scan(file.getCanonicalPath(),
+        new MappedMseedFile(file), 4096, first.getEndOffset());
+    assertEquals(whole.size() - 100, appended.size());
+    assertEquals(bytes.length, appended.getEndOffset());
+    for (int i = 0; i < appended.size(); i++) {
+      assertEquals(whole.getOffset(100 + i), appended.getOffset(i));
+      assertEquals(whole.getStartTime(100 + i), appended.getStartTime(i));
+      assertEquals(whole.getSampleCount(100 + i), appended.getSampleCount(i));
+    }
+  }
+
+  @Test
+  public void scan_withFilter_indexesPassingRecordsOnly() throws IOException {
+    // multiplexed file: records of two channels interleaved
+    byte[] bh1 = Files.readAllBytes(
+        new File("src/test/resources/rotation/unrot_10_BH1.512.seed").toPath());
+    byte[] bhz = Files.readAllBytes(
+        new File("src/test/resources/rotation/unrot_10_BHZ.512.seed").toPath());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int pos = 0; pos < Math.max(bh1.length, bhz.length); pos += 512) {
+      if (pos < bh1.length) {
+        out.write(bh1, pos, 512);
+      }
+      if (pos < bhz.length) {
+        out.write(bhz, pos, 512);
+      }
+    }
+    File file = folder.newFile("multiplexed.512.seed");
+    Files.write(file.toPath(), out.toByteArray());
+
+    MseedRecordIndex whole = MseedRecordIndex.scan(file.getCanonicalPath(),
+        new MappedMseedFile(file), 4096);
+    SNCLFilter filter = new SNCLFilter(null, null, null, Collections.singleton("BHZ"));
+    MseedRecordIndex filtered = MseedRecordIndex.scan(file.getCanonicalPath(),
+        new MappedMseedFile(file), 4096, 0, filter);
+
+    assertEquals(2, whole.getSNCLCount());
+    assertEquals(1, filtered.getSNCLCount());
+    assertFalse(filtered.isComplete());
+    assertEquals(whole.getEndOffset(), filtered.getEndOffset());
+    int record = 0;
+    for (int i = 0; i < whole.size(); i++) {
+      if (whole.getChannelIdentifier(i).equals("BHZ")) {
+        assertEquals(whole.getOffset(i), filtered.getOffset(record));
+        assertEquals(whole.getStartTime(i), filtered.getStartTime(record));
+        assertEquals(whole.getSampleCount(i), filtered.getSampleCount(record));
+        record++;
+      }
+    }
+    assertEquals(record, filtered.size());
+
+    Set<String> channels = new HashSet<>(Arrays.asList("BH?", "LHZ"));
+    assertEquals(whole.size(), MseedRecordIndex.scan(file.getCanonicalPath(),
+        new MappedMseedFile(file), 4096, 0,
+        new SNCLFilter(null, null, null, channels)).size());
+  }
+
+  @Test
+  public void scan_stopsAtRecordLengthOutOfBounds() throws IOException {
+    byte[] bytes = Files.readAllBytes(
+        new File("src/test/resources/2018-270.00_LHZ.512.seed").toPath());
+    // records without blockettes take the default block length
+    for (int offset = 0; offset < bytes.length; offset += 512) {
+      bytes[offset + 39] = 0;
+    }
+    File file = folder.newFile("noblockettes.512.seed");
+    Files.write(file.toPath(), bytes);
+    MappedMseedFile mapped = new MappedMseedFile(file);
+
+    MseedRecordIndex index = MseedRecordIndex.scan(file.getCanonicalPath(), mapped, 512);
+    assertTrue(index.isComplete());
+    assertEquals(279, index.size());
+    for (int defaultBlockLength : new int[]{0, 2 * 65536}) {
+      index = MseedRecordIndex.scan(file.getCanonicalPath(), mapped, defaultBlockLength);
+      assertFalse(index.isComplete());
+      assertEquals(0, index.size());
+      assertEquals(0, index.getEndOffset());
+    }
+  }
+
+  @Test
+  public void scan3_matchesScanOfSameRecords() throws IOException, MseedFormatException {
+    // same records converted to miniSEED 3, Steim2 payloads copied as they are
+    File file2 = new File("src/test/resources/2018-270.00_LHZ.512.seed");
+    File file3 = new File("src/test/resources/2018-270.00_LHZ.mseed3");
+    MappedMseedFile mapped2 = new MappedMseedFile(file2);
+    MappedMseedFile mapped3 = new MappedMseedFile(file3);
+    MseedRecordIndex index2 = MseedRecordIndex.scan(file2.getCanonicalPath(), mapped2, 4096);
+    MseedRecordIndex index3 = MseedRecordIndex.scan3(file3.getCanonicalPath(), mapped3, 0,
+        SNCLFilter.ALL);
+    assertTrue(index3.isComplete());
+    assertEquals(file3.length(), index3.getEndOffset());
+    assertEquals(index2.size(), index3.size());
+
+    MseedRecordHeader header2 = new MseedRecordHeader();
+    Mseed3RecordHeader header3 = new Mseed3RecordHeader();
+    for (int i = 0; i < index2.size(); i++) {
+      assertEquals(index2.getStartTime(i), index3.getStartTime(i));
+      assertEquals(index2.getSampleCount(i), index3.getSampleCount(i));
+      assertEquals(index2.getSampleInterval(i), index3.getSampleInterval(i), 0.0);
+      assertEquals(index2.getNetworkCode(i).trim(), index3.getNetworkCode(i));
+      assertEquals(index2.getStationIdentifier(i).trim(), index3.getStationIdentifier(i));
+      assertEquals(index2.getLocationIdentifier(i).trim(), index3.getLocationIdentifier(i));
+      assertEquals(index2.getChannelIdentifier(i).trim(), index3.getChannelIdentifier(i));
+
+      int count = index2.getSampleCount(i);
+      int[] samples2 = new int[count];
+      int[] samples3 = new int[count];
+      assertTrue(mapped2.readHeader(index2.getOffset(i), 4096, header2));
+      mapped2.decode(index2.getOffset(i), header2, header2.getEncoding(), count, samples2, 0);
+      assertTrue(mapped3.readHeader(index3.getOffset(i), header3));
+      mapped3.decode(index3.getOffset(i), header3, count, samples3, 0);
+      assertArrayEquals(samples2, samples3);
+    }
+  }
+
+  @Test
+  public void decode3_failsCRCCheckOfCorruptedRecord()
+      throws IOException, MseedFormatException {
+    File file = folder.newFile("corrupted.mseed3");
+    byte[] bytes = Files.readAllBytes(
+        new File("src/test/resources/2018-270.00_LHZ.mseed3").toPath());
+    // last byte of the first record's payload
+    Mseed3RecordHeader header = new Mseed3RecordHeader();
+    assertTrue(header.read(ByteBuffer.wrap(bytes), 0));
+    bytes[(int) header.getRecordLength() - 1] ^= 0x01;
+    Files.write(file.toPath(), bytes);
+
+    MappedMseedFile mapped = new MappedMseedFile(file);
+    assertTrue(mapped.readHeader(0, header));
+    int[] samples = new int[header.getNumSamples()];
+    try {
+      mapped.decode(0, header, samples.length, samples, 0);
+      fail("Corrupted record decoded");
+    } catch (MseedFormatException e) {
+      // expected
+    }
+    assertTrue(mapped.readHeader(header.getRecordLength(), header));
+    mapped.decode(header.getRecordLength(), header, header.getNumSamples(),
+        new int[header.getNumSamples()], 0);
+  }
+}
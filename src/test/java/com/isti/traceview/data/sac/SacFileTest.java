@@ -0,0 +1,135 @@
+package com.isti.traceview.data.sac;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SacFileTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void read_headerAndSampleRangesInBothByteOrders() throws Exception {
+    Random random = new Random(1);
+    for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      float[] samples = new float[5000];
+      for (int i = 0; i < samples.length; i++) {
+        samples[i] = (random.nextFloat() - 0.5f) * 1e6f;
+      }
+      File file = write("trace." + order + ".sac", sac(order, samples));
+
+      try (FileChannel channel = FileChannel.open(file.toPath())) {
+        SacFile sac = SacFile.read(channel);
+        assertEquals(order, sac.getOrder());
+        assertEquals(samples.length, sac.getNpts());
+        assertEquals(0.025f, sac.getDelta(), 0);
+        assertEquals(2018, sac.getNzyear());
+        assertEquals(270, sac.getNzjday());
+        assertEquals(13, sac.getNzhour());
+        assertEquals(45, sac.getNzmin());
+        assertEquals(7, sac.getNzsec());
+        assertEquals(250, sac.getNzmsec());
+        assertEquals("ANMO", sac.getKstnm());
+        assertEquals("00", sac.getKhole());
+        assertEquals("BHZ", sac.getKcmpnm());
+        assertEquals("IU", sac.getKnetwk());
+
+        float[] all = new float[samples.length];
+        sac.read(channel, 0, samples.length, all, 0);
+        assertArrayEquals(samples, all, 0);
+
+        float[] slice = new float[110];
+        sac.read(channel, 1234, 100, slice, 10);
+        assertArrayEquals(Arrays.copyOfRange(samples, 1234, 1334),
+            Arrays.copyOfRange(slice, 10, 110), 0);
+      }
+    }
+  }
+
+  @Test(expected = SacFormatException.class)
+  public void read_rejectsRangePastLastSample() throws Exception {
+    File file = write("short.sac", sac(ByteOrder.BIG_ENDIAN, new float[10]));
+    try (FileChannel channel = FileChannel.open(file.toPath())) {
+      SacFile.read(channel).read(channel, 5, 6, new float[6], 0);
+    }
+  }
+
+  @Test(expected = SacFormatException.class)
+  public void read_rejectsLengthNotMatchingHeader() throws Exception {
+    ByteBuffer b = sac(ByteOrder.LITTLE_ENDIAN, new float[10]);
+    File file = write("truncated.sac", ByteBuffer.wrap(Arrays.copyOf(b.array(), b.capacity() - 4)));
+    try (FileChannel channel = FileChannel.open(file.toPath())) {
+      SacFile.read(channel);
+    }
+  }
+
+  @Test
+  public void getOrder_usesHeaderVersionWhenCountIsAmbiguous() {
+    // 0x01000001 reads the same in both byte orders
+    ByteBuffer b = ByteBuffer.allocate(SacFile.HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+    b.putInt(316, 0x01000001);
+    long length = SacFile.HEADER_LENGTH + 4L * 0x01000001;
+    assertEquals(ByteOrder.BIG_ENDIAN, SacFile.getOrder(b, length));
+    b.putInt(304, SacFile.HEADER_VERSION);
+    assertEquals(ByteOrder.LITTLE_ENDIAN, SacFile.getOrder(b, length));
+    assertEquals(null, SacFile.getOrder(b, length - 4));
+  }
+
+  @Test
+  public void read_acceptsFooterAfterSamples() throws Exception {
+    float[] samples = {1.5f, -2.5f, 3.5f};
+    ByteBuffer b = sac(ByteOrder.LITTLE_ENDIAN, samples);
+    b.putInt(304, SacFile.FOOTER_HEADER_VERSION);
+    // version 7 files end with 22 double precision header values
+    File file = write("footer.sac", ByteBuffer.wrap(Arrays.copyOf(b.array(), b.capacity() + 176)));
+    try (FileChannel channel = FileChannel.open(file.toPath())) {
+      SacFile sac = SacFile.read(channel);
+      assertEquals(ByteOrder.LITTLE_ENDIAN, sac.getOrder());
+      float[] read = new float[samples.length];
+      sac.read(channel, 0, samples.length, read, 0);
+      assertArrayEquals(samples, read, 0);
+    }
+  }
+
+  private File write(String name, ByteBuffer b) throws Exception {
+    File file = folder.newFile(name);
+    Files.write(file.toPath(), b.array());
+    return file;
+  }
+
+  private static ByteBuffer sac(ByteOrder order, float[] samples) {
+    ByteBuffer b = ByteBuffer.allocate(SacFile.HEADER_LENGTH + 4 * samples.length).order(order);
+    b.putFloat(0, 0.025f);
+    int[] time = {2018, 270, 13, 45, 7, 250};
+    for (int i = 0; i < time.length; i++) {
+      b.putInt(280 + 4 * i, time[i]);
+    }
+    b.putInt(304, SacFile.HEADER_VERSION);
+    b.putInt(316, samples.length);
+    putString(b, 440, "ANMO");
+    putString(b, 464, "00");
+    putString(b, 600, "BHZ");
+    putString(b, 608, "IU");
+    putString(b, 624, "-12345");
+    b.position(SacFile.HEADER_LENGTH);
+    b.asFloatBuffer().put(samples);
+    return b;
+  }
+
+  private static void putString(ByteBuffer b, int offset, String value) {
+    for (int i = 0; i < 8; i++) {
+      b.put(offset + i, (byte) (i < value.length() ? value.charAt(i) : ' '));
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.isti.traceview.data.segd;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.isti.traceview.TraceView;
+import com.isti.traceview.TraceViewException;
+import com.isti.traceview.common.Configuration;
+import com.isti.traceview.common.TimeInterval;
+import edu.sc.seis.seisFile.segd.SegdRecord;
+import edu.sc.seis.seisFile.segd.Trace;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegdTraceIndexTest {
+
+  private static final int CHANNEL_SETS = 2;
+  private static final int TRACES_PER_SET = 3;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  public void setUp() {
+    try {
+      TraceView.setConfiguration(new Configuration());
+    } catch (TraceViewException e) {
+      System.out.println("Error in creating default config file");
+    }
+  }
+
+  @Test
+  public void build_indexesEveryRecordInOnePass() throws Exception {
+    Random random = new Random(1);
+    float[][][] samples = new float[2][CHANNEL_SETS * TRACES_PER_SET][];
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    for (int record = 0; record < samples.length; record++) {
+      for (int t = 0; t < samples[record].length; t++) {
+        samples[record][t] = new float[100 + 10 * t + record];
+        for (int i = 0; i < samples[record][t].length; i++) {
+          samples[record][t][i] = random.nextFloat() * 1000 - 500;
+        }
+      }
+      // the first record has a general trailer, which the second record follows
+      writeRecord(new DataOutputStream(file), 10 + record, samples[record], record == 0 ? 1 : 0);
+    }
+    // bytes after the last record which don't make a general header are ignored
+    file.write(new byte[40]);
+    File segd = folder.newFile("test.segd");
+    Files.write(segd.toPath(), file.toByteArray());
+
+    SegdTraceIndex index = SegdTraceIndex.build(segd);
+    List<SegdTraceIndex.Entry> entries = index.getEntries();
+    assertEquals(2 * CHANNEL_SETS * TRACES_PER_SET, entries.size());
+    try (RandomAccessFile raf = new RandomAccessFile(segd, "r")) {
+      for (int e = 0; e < entries.size(); e++) {
+        SegdTraceIndex.Entry entry = entries.get(e);
+        int record = e / (CHANNEL_SETS * TRACES_PER_SET);
+        int t = e % (CHANNEL_SETS * TRACES_PER_SET);
+        assertEquals(record, entry.getRecordNumber());
+        assertEquals(t / TRACES_PER_SET + 1, entry.getChannelSetNumber());
+        assertEquals(t % TRACES_PER_SET + 1, entry.getTraceNumber());
+        assertEquals(samples[record][t].length, entry.getSampleCount());
+        assertEquals(TimeInterval.getTime(2018, 270, 10 + record, 30, 15, 0) + 8,
+            entry.getStartTime());
+        assertEquals(1.0, entry.getSampleInterval(), 0);
+        assertEquals(entry, index.getEntry(entry.getDataOffset()));
+        float[] read = new float[entry.getSampleCount()];
+        raf.seek(entry.getDataOffset());
+        for (int i = 0; i < read.length; i++) {
+          read[i] = raf.readFloat();
+        }
+        assertArrayEquals(samples[record][t], read, 0);
+      }
+    }
+    assertNull(index.getEntry(0));
+
+    // the first record agrees with a full read of trace headers and data
+    SegdRecord first = new SegdRecord(segd);
+    first.readHeaders();
+    int e = 0;
+    for (Trace trace : first.getScanTypes()[0].getChannelSets()[0].getTraces()) {
+      assertEquals(trace.getDataOffset(), entries.get(e).getDataOffset());
+      assertArrayEquals(trace.getData(), samples[0][e++], 0);
+    }
+  }
+
+  /**
+   * Writes demultiplexed IEEE record of one scan type, traces with one header extension
+   */
+  private static void writeRecord(DataOutputStream out, int hour, float[][] traces,
+      int trailerBlocks) throws IOException {
+    // general header 1
+    out.write(new byte[]{0x00, 0x01, (byte) 0x80, 0x58, 0, 0, 0, 0, 0, 0, 0x18, 0x12, 0x70,
+        bcd(hour), 0x30, 0x15, 0x13, 0x00, 0x01, 0, 0, 0, 0x10, 0x00, 0x00, (byte) 0x80, 0x10,
+        0x01, bcd(CHANNEL_SETS), 0x00, 0x00, 0x00});
+    // general header 2
+    byte[] header2 = new byte[32];
+    header2[13] = (byte) trailerBlocks;
+    out.write(header2);
+    // channel set descriptors
+    for (int set = 1; set <= CHANNEL_SETS; set++) {
+      byte[] descriptor = new byte[32];
+      descriptor[0] = 0x01;
+      descriptor[1] = bcd(set);
+      descriptor[9] = bcd(TRACES_PER_SET);
+      descriptor[10] = 0x10;
+      descriptor[27] = (byte) set;
+      descriptor[28] = 0x01;
+      out.write(descriptor);
+    }
+    for (int t = 0; t < traces.length; t++) {
+      int set = t / TRACES_PER_SET + 1;
+      // trace header
+      out.write(new byte[]{0x00, 0x01, 0x01, bcd(set), 0x00, bcd(t % TRACES_PER_SET + 1),
+          0x00, 0x08, 0x00, 0x01, 0, 0, 0, 0, 0, 0x00, (byte) set, 0, 0, 0});
+      // trace header extension
+      byte[] extension = new byte[32];
+      extension[2] = 0x05;
+      extension[5] = (byte) (t + 1);
+      int count = traces[t].length;
+      extension[7] = (byte) (count >> 16);
+      extension[8] = (byte) (count >> 8);
+      extension[9] = (byte) count;
+      out.write(extension);
+      for (float sample : traces[t]) {
+        out.writeFloat(sample);
+      }
+    }
+    out.write(new byte[32 * trailerBlocks]);
+  }
+
+  private static byte bcd(int value) {
+    return (byte) ((value / 10) << 4 | value % 10);
+  }
+}
@@ -0,0 +1,253 @@
+package com.isti.traceview.data.segy;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.isti.traceview.TraceView;
+import com.isti.traceview.TraceViewException;
+import com.isti.traceview.common.Configuration;
+import com.isti.traceview.common.TimeInterval;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegyFileTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  public void setUp() {
+    try {
+      TraceView.setConfiguration(new Configuration());
+    } catch (TraceViewException e) {
+      System.out.println("Error in creating default config file");
+    }
+  }
+
+  @Test
+  public void ibmToDouble_convertsKnownValues() {
+    assertEquals(0.0, SegyDecoder.ibmToDouble(0), 0);
+    assertEquals(1.0, SegyDecoder.ibmToDouble(0x41100000), 0);
+    assertEquals(100.0, SegyDecoder.ibmToDouble(0x42640000), 0);
+    assertEquals(-118.625, SegyDecoder.ibmToDouble(0xC276A000), 0);
+    assertEquals(0.15625, SegyDecoder.ibmToDouble(0x40280000), 0);
+  }
+
+  @Test
+  public void index_passcalTracesInBothByteOrders() throws Exception {
+    Random random = new Random(1);
+    for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      int[][] samples = new int[3][];
+      List<ByteBuffer> parts = new ArrayList<>();
+      for (int t = 0; t < samples.length; t++) {
+        // 16 bit for the first trace, 32 bit for the others, and a count needing the int field
+        boolean shorts = t == 0;
+        samples[t] = randomSamples(random, t == 2 ? 40000 : 500 + t, shorts ? 15 : 31);
+        parts.add(passcalTrace(order, samples[t], shorts, t + 1));
+      }
+      File file = write("passcal." + order + ".segy", parts);
+
+      try (FileChannel channel = FileChannel.open(file.toPath())) {
+        SegyFile segy = SegyFile.index(channel);
+        assertTrue(segy.isPasscal());
+        List<SegyTrace> traces = segy.getTraces();
+        assertEquals(samples.length, traces.size());
+        SegyTrace first = traces.get(0);
+        assertEquals(order, first.getOrder());
+        assertEquals(SegySampleFormat.INT16, first.getFormat());
+        assertEquals("ANMO", first.getStation());
+        assertEquals("IU", first.getNetwork());
+        assertEquals("1", first.getChannel());
+        assertEquals(10000.0, first.getSampleInterval(), 0);
+        assertEquals(TimeInterval.getTime(2018, 270, 1, 2, 3, 456), first.getStartTime());
+        assertEquals(40000, traces.get(2).getSampleCount());
+        assertEquals(traces.get(1), segy.getTrace(traces.get(1).getHeaderOffset()));
+        assertNull(segy.getTrace(1));
+
+        int[][] decoded = SegyFile.read(channel, traces);
+        for (int t = 0; t < samples.length; t++) {
+          assertArrayEquals(samples[t], decoded[t]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void index_standardTracesInEveryFormat() throws Exception {
+    Random random = new Random(2);
+    for (SegySampleFormat format : SegySampleFormat.values()) {
+      for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+        int bits = format.getBytes() == 4 ? 24 : format.getBytes() * 8 - 1;
+        int count = 1000;
+        int[][] samples = new int[20][];
+        List<ByteBuffer> parts = new ArrayList<>();
+        parts.add(standardHeaders(order, format, count));
+        for (int t = 0; t < samples.length; t++) {
+          samples[t] = randomSamples(random, count, bits);
+          parts.add(standardTrace(order, format, samples[t], t));
+        }
+        File file = write("standard." + format + "." + order + ".sgy", parts);
+
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+          SegyFile segy = SegyFile.index(channel);
+          assertFalse(segy.isPasscal());
+          List<SegyTrace> traces = segy.getTraces();
+          assertEquals(samples.length, traces.size());
+          assertEquals(SegyFile.TEXT_HEADER_LENGTH + SegyFile.BINARY_HEADER_LENGTH,
+              traces.get(0).getHeaderOffset());
+          assertEquals(format, traces.get(0).getFormat());
+          assertEquals(order, traces.get(0).getOrder());
+          assertEquals("7", traces.get(3).getStation());
+          assertEquals("4", traces.get(3).getChannel());
+          assertEquals(2000.0, traces.get(3).getSampleInterval(), 0);
+          int[][] decoded = SegyFile.read(channel, traces);
+          for (int t = 0; t < samples.length; t++) {
+            assertArrayEquals(format + " " + order, samples[t], decoded[t]);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void index_skipsTruncatedLastTrace() throws Exception {
+    List<ByteBuffer> parts = new ArrayList<>();
+    parts.add(passcalTrace(ByteOrder.BIG_ENDIAN, new int[100], false, 1));
+    ByteBuffer truncated = passcalTrace(ByteOrder.BIG_ENDIAN, new int[100], false, 2);
+    truncated.limit(truncated.capacity() - 4);
+    parts.add(truncated);
+    File file = write("truncated.segy", parts);
+    try (FileChannel channel = FileChannel.open(file.toPath())) {
+      assertEquals(1, SegyFile.index(channel).getTraces().size());
+    }
+  }
+
+  private static int[] randomSamples(Random random, int count, int bits) {
+    int[] samples = new int[count];
+    for (int i = 0; i < count; i++) {
+      samples[i] = random.nextInt() >> (32 - bits);
+    }
+    return samples;
+  }
+
+  private File write(String name, List<ByteBuffer> parts) throws Exception {
+    File file = folder.newFile(name);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      for (ByteBuffer part : parts) {
+        part.rewind();
+        while (part.hasRemaining()) {
+          channel.write(part);
+        }
+      }
+    }
+    return file;
+  }
+
+  private static ByteBuffer passcalTrace(ByteOrder order, int[] samples, boolean shorts,
+      int channel) {
+    int bytes = shorts ? 2 : 4;
+    ByteBuffer b = ByteBuffer.allocate(SegyFile.TRACE_HEADER_LENGTH + samples.length * bytes)
+        .order(order);
+    b.putInt(12, channel);
+    b.putShort(28, (short) 1);
+    b.putShort(88, (short) 2);
+    b.putShort(114, (short) Math.min(samples.length, 32767));
+    b.putShort(116, (short) 10000);
+    b.putShort(118, (short) 1);
+    b.putShort(156, (short) 2018);
+    b.putShort(158, (short) 270);
+    b.putShort(160, (short) 1);
+    b.putShort(162, (short) 2);
+    b.putShort(164, (short) 3);
+    b.putShort(166, (short) 2);
+    b.position(180);
+    b.put("ANMO".getBytes());
+    b.position(186);
+    b.put("IU".getBytes());
+    b.putShort(204, (short) (shorts ? 0 : 1));
+    b.putShort(206, (short) 456);
+    b.putInt(228, samples.length);
+    b.position(SegyFile.TRACE_HEADER_LENGTH);
+    for (int sample : samples) {
+      if (shorts) {
+        b.putShort((short) sample);
+      } else {
+        b.putInt(sample);
+      }
+    }
+    return b;
+  }
+
+  private static ByteBuffer standardHeaders(ByteOrder order, SegySampleFormat format,
+      int count) {
+    ByteBuffer b = ByteBuffer.allocate(SegyFile.TEXT_HEADER_LENGTH + SegyFile.BINARY_HEADER_LENGTH)
+        .order(order);
+    b.put(0, (byte) 0xC3);
+    b.putShort(3216, (short) 2000);
+    b.putShort(3220, (short) count);
+    b.putShort(3224, (short) format.getCode());
+    return b;
+  }
+
+  private static ByteBuffer standardTrace(ByteOrder order, SegySampleFormat format,
+      int[] samples, int trace) {
+    ByteBuffer b = ByteBuffer.allocate(SegyFile.TRACE_HEADER_LENGTH
+        + samples.length * format.getBytes()).order(order);
+    b.putInt(8, 7);
+    b.putInt(12, trace + 1);
+    // sample count and interval left to the binary header
+    b.putShort(156, (short) 2020);
+    b.putShort(158, (short) 1);
+    b.position(SegyFile.TRACE_HEADER_LENGTH);
+    for (int sample : samples) {
+      switch (format) {
+        case INT8:
+          b.put((byte) sample);
+          break;
+        case INT16:
+          b.putShort((short) sample);
+          break;
+        case INT32:
+          b.putInt(sample);
+          break;
+        case IEEE_FLOAT:
+          b.putFloat(sample);
+          break;
+        case IBM_FLOAT:
+          b.putInt(toIbm(sample));
+          break;
+      }
+    }
+    return b;
+  }
+
+  /**
+   * IBM float of an integer of up to 24 bits, which it holds exactly
+   */
+  private static int toIbm(int value) {
+    if (value == 0) {
+      return 0;
+    }
+    int sign = value < 0 ? 0x80000000 : 0;
+    int fraction = Math.abs(value);
+    int exponent = 64 + 6;
+    while ((fraction & 0xf00000) == 0) {
+      fraction <<= 4;
+      exponent--;
+    }
+    return sign | exponent << 24 | fraction;
+  }
+}
@@ -0,0 +1,58 @@
+package com.isti.traceview.data.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.isti.traceview.data.ISampleStore;
+import org.junit.Test;
+
+public class SampleRingBufferTest {
+
+  @Test
+  public void append_overwritesOldestSamples() {
+    SampleRingBuffer buffer = new SampleRingBuffer(5);
+    assertEquals(0, buffer.append(new int[]{1, 2, 3}, 0, 3));
+    assertEquals(3, buffer.append(new int[]{0, 4, 5, 6, 7}, 1, 4));
+    assertEquals(2, buffer.getFirstIndex());
+    assertEquals(7, buffer.getEndIndex());
+
+    int[] read = new int[5];
+    assertTrue(buffer.read(2, 5, read, 0));
+    assertArrayEquals(new int[]{3, 4, 5, 6, 7}, read);
+    // overwritten and not yet appended samples can't be read
+    assertFalse(buffer.read(1, 2, read, 0));
+    assertFalse(buffer.read(6, 2, read, 0));
+  }
+
+  @Test
+  public void append_keepsTailOfValuesLongerThanCapacity() {
+    SampleRingBuffer buffer = new SampleRingBuffer(3);
+    buffer.append(new int[]{1}, 0, 1);
+    assertEquals(1, buffer.append(new int[]{2, 3, 4, 5, 6}, 0, 5));
+    assertEquals(3, buffer.getFirstIndex());
+    int[] read = new int[4];
+    assertTrue(buffer.read(3, 3, read, 1));
+    assertArrayEquals(new int[]{0, 4, 5, 6}, read);
+  }
+
+  @Test
+  public void view_readsHeldSamplesAndZerosForOverwrittenOnes() {
+    SampleRingBuffer buffer = new SampleRingBuffer(3);
+    buffer.append(new int[]{1, 2, 3}, 0, 3);
+    ISampleStore.Samples view = buffer.view(1, 2);
+    assertEquals(2, view.length());
+    assertEquals(3, view.get(1));
+    assertArrayEquals(new int[]{2, 3}, view.toArray());
+
+    buffer.append(new int[]{4, 5}, 0, 2);
+    // the first sample of the view was overwritten
+    assertEquals(0, view.get(0));
+    assertEquals(3, view.get(1));
+    int[] read = new int[3];
+    view.get(1, read, 2, 1);
+    assertArrayEquals(new int[]{0, 0, 3}, read);
+    assertArrayEquals(new int[]{0, 0}, view.toArray());
+  }
+}
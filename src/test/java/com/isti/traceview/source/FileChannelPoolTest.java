@@ -0,0 +1,111 @@
+package com.isti.traceview.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.isti.traceview.source.FileChannelPool.PooledChannel;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileChannelPoolTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void open_reusesChannelAndCounts() throws IOException {
+    FileChannelPool pool = new FileChannelPool(2);
+    File file = writeText("a.txt", "0123456789");
+    FileChannel first;
+    try (PooledChannel channel = pool.open(file)) {
+      first = channel.channel();
+      ByteBuffer buffer = ByteBuffer.allocate(4);
+      assertEquals(4, channel.read(buffer, 3));
+      assertEquals("3456", new String(buffer.array(), StandardCharsets.US_ASCII));
+    }
+    try (PooledChannel channel = pool.open(file)) {
+      assertSame(first, channel.channel());
+      assertEquals(2, channel.read(ByteBuffer.allocate(4), 8));
+    }
+    assertEquals(1, pool.getMissCount());
+    assertEquals(1, pool.getHitCount());
+    assertTrue(first.isOpen());
+  }
+
+  @Test
+  public void open_evictsLeastRecentlyUsed() throws IOException {
+    FileChannelPool pool = new FileChannelPool(2);
+    File a = writeText("a.txt", "a");
+    File b = writeText("b.txt", "b");
+    File c = writeText("c.txt", "c");
+    FileChannel channelA;
+    try (PooledChannel channel = pool.open(a)) {
+      channelA = channel.channel();
+    }
+    pool.open(b).close();
+    pool.open(a).close();
+    pool.open(c).close();
+    // b was the least recently used one
+    assertEquals(2, pool.size());
+    assertEquals(1, pool.getEvictionCount());
+    assertTrue(channelA.isOpen());
+    pool.open(a).close();
+    assertEquals(2, pool.getHitCount());
+  }
+
+  @Test
+  public void evictedChannel_closedWhenReturned() throws IOException {
+    FileChannelPool pool = new FileChannelPool(1);
+    File a = writeText("a.txt", "aaaa");
+    File b = writeText("b.txt", "bbbb");
+    PooledChannel borrowed = pool.open(a);
+    pool.open(b).close();
+    // evicted while borrowed: still readable until returned
+    assertTrue(borrowed.channel().isOpen());
+    assertEquals(4, borrowed.read(ByteBuffer.allocate(4), 0));
+    borrowed.close();
+    assertFalse(borrowed.channel().isOpen());
+  }
+
+  @Test
+  public void open_reopensModifiedFile() throws IOException {
+    FileChannelPool pool = new FileChannelPool(2);
+    File file = writeText("a.txt", "old");
+    pool.open(file).close();
+    Files.write(file.toPath(), "new content".getBytes(StandardCharsets.US_ASCII));
+    assertTrue(file.setLastModified(file.lastModified() + 2000));
+    try (PooledChannel channel = pool.open(file)) {
+      assertEquals(11, channel.size());
+    }
+    assertEquals(2, pool.getMissCount());
+  }
+
+  @Test
+  public void inputStream_readsFromPosition() throws IOException {
+    FileChannelPool pool = new FileChannelPool(2);
+    File file = writeText("a.txt", "line1\nline2\n");
+    try (PooledChannel channel = pool.open(file);
+        InputStream in = channel.newInputStream(6)) {
+      byte[] bytes = new byte[16];
+      int count = in.read(bytes, 0, bytes.length);
+      assertEquals("line2\n", new String(bytes, 0, count, StandardCharsets.US_ASCII));
+      assertEquals(-1, in.read());
+    }
+  }
+
+  private File writeText(String name, String text) throws IOException {
+    File file = folder.newFile(name);
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+    return file;
+  }
+}
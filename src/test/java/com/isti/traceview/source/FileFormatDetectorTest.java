@@ -0,0 +1,101 @@
+package com.isti.traceview.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.isti.traceview.data.ISource.FormatType;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileFormatDetectorTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void detect_mseed() {
+    assertEquals(FormatType.MSEED,
+        FileFormatDetector.detect(new File("src/test/resources/2018-270.00_LHZ.512.seed")));
+    assertEquals(FormatType.MSEED,
+        FileFormatDetector.detect(new File("src/test/resources/93_OCF_NO_SAMPLES.512.seed")));
+  }
+
+  @Test
+  public void detect_mseed3() {
+    assertEquals(FormatType.MSEED3,
+        FileFormatDetector.detect(new File("src/test/resources/2018-270.00_LHZ.mseed3")));
+  }
+
+  @Test
+  public void detect_unknown() {
+    assertNull(FileFormatDetector.detect(new File("src/test/resources/RESP.IU.ANMO.00.LH1")));
+    assertNull(FileFormatDetector.detect(new File("src/test/resources/IU.ANMO.00.LH1.xml")));
+    assertNull(FileFormatDetector.detect(new File("src/test/resources/no_such_file.seed")));
+  }
+
+  @Test
+  public void detect_ascii() throws IOException {
+    File file = writeText("ascii.txt", "NET IU\nSTA ANMO\nLOC 00\nCOMP LHZ\nRATE 1.0\n"
+        + "TIME 2018/09/27 00:00:00.069\nNSAM 2\nDATA\n1\n2\n");
+    assertEquals(FormatType.ASCII, FileFormatDetector.detect(file));
+  }
+
+  @Test
+  public void detect_asciiTimeseries() throws IOException {
+    File file = writeText("tspair.txt", "TIMESERIES IU_ANMO_00_LHZ_M, 2 samples, 1 sps, "
+        + "2018-09-27T00:00:00.069000, TSPAIR, INTEGER, Counts\n"
+        + "2018-09-27T00:00:00.069000  1\n2018-09-27T00:00:01.069000  2\n");
+    assertEquals(FormatType.ASCII, FileFormatDetector.detect(file));
+  }
+
+  @Test
+  public void detect_ims() throws IOException {
+    File file = writeText("ims.txt", "BEGIN IMS2.0\nMSG_TYPE DATA\nDATA_TYPE WAVEFORM IMS2.0\n");
+    assertEquals(FormatType.IMS, FileFormatDetector.detect(file));
+  }
+
+  @Test
+  public void detect_sac_bothByteOrders() throws IOException {
+    for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      int points = 100;
+      ByteBuffer sac = ByteBuffer.allocate(632 + 4 * points).order(order);
+      sac.putInt(316, points);
+      File file = folder.newFile("trace." + order + ".sac");
+      Files.write(file.toPath(), sac.array());
+      assertEquals(FormatType.SAC, FileFormatDetector.detect(file));
+    }
+  }
+
+  @Test
+  public void detect_sac_withFooter() throws IOException {
+    int points = 100;
+    ByteBuffer sac = ByteBuffer.allocate(632 + 4 * points + 176).order(ByteOrder.LITTLE_ENDIAN);
+    sac.putInt(304, 7);
+    sac.putInt(316, points);
+    File file = folder.newFile("footer.sac");
+    Files.write(file.toPath(), sac.array());
+    assertEquals(FormatType.SAC, FileFormatDetector.detect(file));
+  }
+
+  @Test
+  public void detect_resultFollowsFileChanges() throws IOException {
+    File file = writeText("changing.txt", "BEGIN IMS2.0\n");
+    assertEquals(FormatType.IMS, FileFormatDetector.detect(file));
+    Files.write(file.toPath(), "nothing known\n".getBytes(StandardCharsets.US_ASCII));
+    file.setLastModified(file.lastModified() + 2000);
+    assertNull(FileFormatDetector.detect(file));
+  }
+
+  private File writeText(String name, String text) throws IOException {
+    File file = folder.newFile(name);
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+    return file;
+  }
+}
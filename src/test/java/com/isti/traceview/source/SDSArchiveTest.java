@@ -0,0 +1,86 @@
+package com.isti.traceview.source;
+
+import static org.junit.Assert.assertEquals;
+
+import com.isti.traceview.common.SNCLFilter;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SDSArchiveTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private SDSArchive archive;
+
+  @Before
+  public void setUp() throws IOException {
+    // days 2017.364 to 2018.003 of two stations, two locations and two channels each
+    for (String station : new String[] {"ANMO", "COLA"}) {
+      for (String channel : new String[] {"BHZ", "LHZ"}) {
+        for (LocalDate day = LocalDate.of(2017, 12, 30); day.getYear() < 2018
+            || day.getDayOfYear() <= 3; day = day.plusDays(1)) {
+          File directory = new File(folder.getRoot(),
+              day.getYear() + "/IU/" + station + "/" + channel + ".D");
+          directory.mkdirs();
+          for (String location : new String[] {"00", "10"}) {
+            new File(directory, String.format("IU.%s.%s.%s.D.%d.%03d", station, location,
+                channel, day.getYear(), day.getDayOfYear())).createNewFile();
+          }
+        }
+      }
+    }
+    new File(folder.getRoot(), "2018/IU/ANMO/LHZ.D/notes.txt").createNewFile();
+    archive = new SDSArchive(folder.getRoot());
+  }
+
+  private static long millis(int year, int month, int day, int hour) {
+    return LocalDate.of(year, month, day).atTime(hour, 0).toInstant(ZoneOffset.UTC)
+        .toEpochMilli();
+  }
+
+  private List<String> names(List<File> files) {
+    List<String> names = new ArrayList<>();
+    for (File file : files) {
+      names.add(file.getName());
+    }
+    return names;
+  }
+
+  @Test
+  public void find_selectsDayFilesOfWindowAndFilters() throws IOException {
+    SNCLFilter filter = new SNCLFilter(null, Collections.singleton("ANMO"),
+        Collections.singleton("00"), Collections.singleton("LH*"));
+    // two hours of 2018.002, plus the day before for records running past midnight
+    assertEquals(Arrays.asList("IU.ANMO.00.LHZ.D.2018.001", "IU.ANMO.00.LHZ.D.2018.002"),
+        names(archive.find(millis(2018, 1, 2, 10), millis(2018, 1, 2, 12), filter)));
+  }
+
+  @Test
+  public void find_crossesYearDirectories() throws IOException {
+    SNCLFilter filter = new SNCLFilter(null, Collections.singleton("COLA"),
+        Collections.singleton("10"), Collections.singleton("BHZ"));
+    assertEquals(Arrays.asList("IU.COLA.10.BHZ.D.2017.364", "IU.COLA.10.BHZ.D.2017.365",
+        "IU.COLA.10.BHZ.D.2018.001"),
+        names(archive.find(millis(2017, 12, 31, 12), millis(2018, 1, 1, 1), filter)));
+  }
+
+  @Test
+  public void find_withoutWindow_returnsAllFilteredFiles() throws IOException {
+    SNCLFilter filter = new SNCLFilter(Collections.singleton("IU"), null, null,
+        Collections.singleton("LHZ"));
+    assertEquals(2 * 2 * 5, archive.find(Long.MIN_VALUE, Long.MAX_VALUE, filter).size());
+    assertEquals(2 * 2 * 2 * 5,
+        archive.find(Long.MIN_VALUE, Long.MAX_VALUE, SNCLFilter.ALL).size());
+  }
+}
@@ -0,0 +1,92 @@
+package com.isti.traceview.source;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.isti.traceview.TraceView;
+import com.isti.traceview.TraceViewException;
+import com.isti.traceview.common.Configuration;
+import com.isti.traceview.common.TimeInterval;
+import com.isti.traceview.data.DefaultChannelFactory;
+import com.isti.traceview.data.PlotDataProvider;
+import com.isti.traceview.data.Segment;
+import com.isti.traceview.data.stream.SeedLinkReplayServer;
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import javax.swing.SwingUtilities;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SourceSeedLinkTest {
+
+  private static final File SEED = new File("src/test/resources/ANMO_00_LHZ_GAP.512.seed");
+
+  @Before
+  public void setUp() {
+    try {
+      TraceView.setConfiguration(new Configuration());
+    } catch (TraceViewException e) {
+      System.out.println("Error in creating default config file");
+    }
+  }
+
+  @Test
+  public void stream_holdsTheSameDataAsTheFile() throws Exception {
+    PlotDataProvider streamed = receive(SourceSeedLink.DEFAULT_CAPACITY);
+    PlotDataProvider original = new SourceFileMseed(SEED).parse().iterator().next();
+    original.load();
+
+    TimeInterval streamedRange = streamed.getTimeRange();
+    TimeInterval originalRange = original.getTimeRange();
+    assertEquals(originalRange.getStart(), streamedRange.getStart());
+    assertEquals(originalRange.getEnd(), streamedRange.getEnd());
+    assertArrayEquals(concat(original.getRawData()), concat(streamed.getRawData()));
+  }
+
+  @Test
+  public void stream_dropsDataWhichLeftTheRingBuffer() throws Exception {
+    int capacity = 2000;
+    PlotDataProvider streamed = receive(capacity);
+    PlotDataProvider original = new SourceFileMseed(SEED).parse().iterator().next();
+    original.load();
+
+    List<Segment> segments = streamed.getRawData();
+    int held = segments.stream().mapToInt(Segment::getSampleCount).sum();
+    assertTrue("held " + held, held <= capacity);
+    assertEquals(original.getTimeRange().getEnd(), streamed.getTimeRange().getEnd());
+    // the held data is the tail of the file's data
+    int[] all = concat(original.getRawData());
+    int[] tail = concat(segments);
+    assertArrayEquals(IntStream.range(all.length - tail.length, all.length).map(i -> all[i])
+        .toArray(), tail);
+  }
+
+  private static PlotDataProvider receive(int capacity) throws Exception {
+    try (SeedLinkReplayServer server = new SeedLinkReplayServer(0,
+        Collections.singletonList(SEED), 0)) {
+      SourceSeedLink source = new SourceSeedLink("localhost", server.getPort(), "IU", "ANMO",
+          "00", "LHZ", capacity, new DefaultChannelFactory());
+      source.start();
+      long deadline = System.currentTimeMillis() + 30000;
+      while (source.isRunning() && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertFalse("replay didn't end", source.isRunning());
+      // channels are changed on the event dispatch thread
+      SwingUtilities.invokeAndWait(() -> { });
+      Set<PlotDataProvider> channels = source.parse();
+      assertEquals(1, channels.size());
+      return channels.iterator().next();
+    }
+  }
+
+  private static int[] concat(List<Segment> segments) {
+    return segments.stream().flatMapToInt(segment -> IntStream.of(segment.getData().data))
+        .toArray();
+  }
+}
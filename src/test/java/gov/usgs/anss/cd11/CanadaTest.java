@@ -0,0 +1,159 @@
+package gov.usgs.anss.cd11;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class CanadaTest {
+
+  @Test
+  public void uncompress_roundTripsEveryBitWidth() throws Exception {
+    Random random = new Random(3);
+    boolean[] seen = new boolean[33];
+    for (int block = 0; block < 200; block++) {
+      int[] samples = randomSamples(random, 20 * (1 + random.nextInt(20)));
+      byte[] compressed = compress(samples, random, seen);
+      int[] decoded = new int[samples.length];
+      Canada.canada_uncompress(compressed, decoded, compressed.length, samples.length);
+      assertArrayEquals(samples, decoded);
+    }
+    for (int bits = 4; bits <= 32; bits += 2) {
+      assertTrue("no group of " + bits + " bits", seen[bits] || bits > 18 && bits % 4 != 0);
+    }
+  }
+
+  @Test
+  public void uncompress_writesAtOffset() throws Exception {
+    Random random = new Random(4);
+    int[] samples = randomSamples(random, 400);
+    byte[] compressed = compress(samples, random, new boolean[33]);
+    byte[] padded = new byte[compressed.length + 7];
+    System.arraycopy(compressed, 0, padded, 5, compressed.length);
+    int[] decoded = new int[samples.length + 20];
+    Arrays.fill(decoded, -1);
+    Canada.canada_uncompress(padded, 5, compressed.length, decoded, 10, samples.length);
+    assertArrayEquals(samples, Arrays.copyOfRange(decoded, 10, 10 + samples.length));
+    for (int i = 0; i < 10; i++) {
+      assertEquals(-1, decoded[i]);
+      assertEquals(-1, decoded[decoded.length - 1 - i]);
+    }
+  }
+
+  @Test
+  public void uncompress_reportsCorruptionPerBlock() throws Exception {
+    Random random = new Random(5);
+    int blocks = 500;
+    int[][] samples = new int[blocks][];
+    byte[][] compressed = new byte[blocks][];
+    for (int i = 0; i < blocks; i++) {
+      samples[i] = randomSamples(random, 1000);
+      compressed[i] = compress(samples[i], random, new boolean[33]);
+    }
+    // every third block is truncated, the others must decode exactly while decoded concurrently
+    boolean[] failed = new boolean[blocks];
+    int[][] decoded = new int[blocks][1000];
+    IntStream.range(0, blocks).parallel().forEach(i -> {
+      int length = i % 3 == 0 ? compressed[i].length / 2 : compressed[i].length;
+      try {
+        Canada.canada_uncompress(compressed[i], decoded[i], length, 1000);
+      } catch (CanadaException e) {
+        failed[i] = true;
+      }
+    });
+    for (int i = 0; i < blocks; i++) {
+      if (i % 3 == 0) {
+        assertTrue("truncated block " + i + " was decoded", failed[i]);
+      } else {
+        assertArrayEquals(samples[i], decoded[i]);
+      }
+    }
+  }
+
+  @Test
+  public void uncompress_rejectsSampleCountNotMultipleOf4() {
+    try {
+      Canada.canada_uncompress(new byte[100], new int[10], 100, 10);
+      fail();
+    } catch (CanadaException e) {
+      assertTrue(e.getMessage().contains("multiple of 4"));
+    }
+  }
+
+  /**
+   * Samples whose second differences need from 1 to 32 bits, changing every 4 samples
+   */
+  private static int[] randomSamples(Random random, int count) {
+    int[] samples = new int[count];
+    int value = random.nextInt();
+    int difference = 0;
+    int shift = 0;
+    for (int i = 0; i < count; i++) {
+      if (i % 4 == 0) {
+        shift = 31 - random.nextInt(32);
+      }
+      samples[i] = value;
+      difference += random.nextInt() >> shift;
+      value += difference;
+    }
+    return samples;
+  }
+
+  /**
+   * Canadian compression of second differences, choosing the wide key randomly where the narrow
+   * one would fit
+   *
+   * @param seen flags the bits/sample of the groups written
+   */
+  private static byte[] compress(int[] samples, Random random, boolean[] seen) {
+    int m = samples.length;
+    int[] differences = new int[m];
+    for (int k = 0; k < m - 1; k++) {
+      differences[k] = samples[k + 1] - samples[k];
+    }
+    for (int k = m - 1; k > 0; k--) {
+      differences[k] -= differences[k - 1];
+    }
+    byte[] out = new byte[m / 10 + 4 + 4 * m];
+    int first = samples[0];
+    for (int i = 0; i < 4; i++) {
+      out[m / 10 + i] = (byte) (first >> (24 - 8 * i));
+    }
+    int bit = (m / 10 + 4) * 8;
+    for (int py = 0; py < m; py += 20) {
+      int[] widths = new int[5];
+      int widest = 0;
+      for (int g = 0; g < 5; g++) {
+        for (int k = 0; k < 4; k++) {
+          int d = differences[py + 4 * g + k];
+          widths[g] = Math.max(widths[g], 33 - Integer.numberOfLeadingZeros(d ^ (d >> 31)));
+        }
+        widest = Math.max(widest, widths[g]);
+      }
+      boolean wide = widest > 18 || random.nextInt(4) == 0;
+      int key = wide ? 0x8000 : 0;
+      for (int g = 0; g < 5; g++) {
+        int step = wide ? 4 : 2;
+        int bits = Math.max(4, (widths[g] + step - 1) / step * step);
+        seen[bits] = true;
+        key |= (bits - 4) / step << (12 - 3 * g);
+        for (int k = 0; k < 4; k++) {
+          int d = differences[py + 4 * g + k];
+          for (int b = bits - 1; b >= 0; b--, bit++) {
+            if ((d >> b & 1) != 0) {
+              out[bit >> 3] |= 0x80 >> (bit & 7);
+            }
+          }
+        }
+      }
+      out[py / 10] = (byte) (key >> 8);
+      out[py / 10 + 1] = (byte) key;
+    }
+    return Arrays.copyOf(out, bit >> 3);
+  }
+}